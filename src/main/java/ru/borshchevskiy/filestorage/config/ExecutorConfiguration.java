@@ -0,0 +1,49 @@
+package ru.borshchevskiy.filestorage.config;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import ru.borshchevskiy.filestorage.config.properties.BulkOperationProperties;
+import ru.borshchevskiy.filestorage.config.properties.ListingCacheProperties;
+
+/**
+ * Configuration for executors used to perform storage operations in background threads.
+ * If virtual threads are enabled, executors create virtual threads, see
+ * {@link ru.borshchevskiy.filestorage.config.properties.VirtualThreadProperties}.
+ *
+ * @see BulkOperationProperties
+ * @see ListingCacheProperties
+ */
+@Configuration
+@RequiredArgsConstructor
+public class ExecutorConfiguration {
+
+    /**
+     * Refresh requests above this limit are dropped, cached listings are served until the next request.
+     */
+    private static final int LISTING_REFRESH_QUEUE_CAPACITY = 1000;
+
+    private final BulkOperationProperties bulkOperationProperties;
+    private final ListingCacheProperties listingCacheProperties;
+
+    @Bean
+    public ThreadPoolTaskExecutor bulkOperationExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(bulkOperationProperties.getPoolSize());
+        executor.setMaxPoolSize(bulkOperationProperties.getPoolSize());
+        executor.setThreadNamePrefix("bulk-");
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        return executor;
+    }
+
+    @Bean
+    public ThreadPoolTaskExecutor listingRefreshExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(listingCacheProperties.getRefreshThreads());
+        executor.setMaxPoolSize(listingCacheProperties.getRefreshThreads());
+        executor.setQueueCapacity(LISTING_REFRESH_QUEUE_CAPACITY);
+        executor.setThreadNamePrefix("listing-refresh-");
+        return executor;
+    }
+}
@@ -1,13 +1,30 @@
 package ru.borshchevskiy.filestorage.config;
 
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.okhttp3.OkHttpConnectionPoolMetrics;
+import io.minio.MinioAsyncClient;
 import io.minio.MinioClient;
 import lombok.RequiredArgsConstructor;
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import ru.borshchevskiy.filestorage.config.properties.MinioProperties;
+import ru.borshchevskiy.filestorage.repository.client.BufferSizeSocketFactory;
+import ru.borshchevskiy.filestorage.repository.client.MultipartMinioClient;
+import ru.borshchevskiy.filestorage.repository.client.PresigningMinioClient;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Configuration for Minio.
+ * <p>
+ * All Minio clients share a single {@link OkHttpClient}, so they share its connection pool and dispatcher.
  *
  * @see MinioProperties
  * @see ru.borshchevskiy.filestorage.config.handlers.MinioBucketHandler
@@ -16,13 +33,99 @@ import ru.borshchevskiy.filestorage.config.properties.MinioProperties;
 @RequiredArgsConstructor
 public class MinioConfiguration {
 
+    private static final String HTTP_METRICS_PREFIX = "storage.http";
+
     private final MinioProperties minioProperties;
 
     @Bean
-    public MinioClient minioClient() {
+    public MinioClient minioClient(OkHttpClient minioHttpClient) {
         return MinioClient.builder()
                 .endpoint(minioProperties.getUrl())
                 .credentials(minioProperties.getUser(), minioProperties.getPassword())
+                .httpClient(minioHttpClient)
+                .build();
+    }
+
+    @Bean
+    public MultipartMinioClient multipartMinioClient(OkHttpClient minioHttpClient) {
+        return new MultipartMinioClient(MinioAsyncClient.builder()
+                .endpoint(minioProperties.getUrl())
+                .credentials(minioProperties.getUser(), minioProperties.getPassword())
+                .httpClient(minioHttpClient)
+                .build());
+    }
+
+    /**
+     * Client signing URLs of direct transfers. URLs are signed for the storage URL reachable by browsers
+     * and for the configured region, so signing doesn't send requests to storage.
+     *
+     * @param minioHttpClient HTTP client used to send requests to storage.
+     * @return {@link PresigningMinioClient} configured with {@link MinioProperties.Presign}.
+     */
+    @Bean
+    public PresigningMinioClient presigningMinioClient(OkHttpClient minioHttpClient) {
+        MinioProperties.Presign presign = minioProperties.getPresign();
+        String endpoint = presign.getEndpoint() == null || presign.getEndpoint().isBlank()
+                ? minioProperties.getUrl()
+                : presign.getEndpoint();
+        return new PresigningMinioClient(MinioClient.builder()
+                .endpoint(endpoint)
+                .region(presign.getRegion())
+                .credentials(minioProperties.getUser(), minioProperties.getPassword())
+                .httpClient(minioHttpClient)
+                .build());
+    }
+
+    /**
+     * HTTP client used to send requests to storage.
+     * Minio clients enqueue all requests to the dispatcher, including requests of synchronous {@link MinioClient},
+     * so dispatcher limits apply to all of them and calling threads only wait for futures of responses.
+     *
+     * @return {@link OkHttpClient} configured with {@link MinioProperties.Http}.
+     */
+    @Bean
+    public OkHttpClient minioHttpClient() {
+        MinioProperties.Http http = minioProperties.getHttp();
+
+        Dispatcher dispatcher = new Dispatcher();
+        dispatcher.setMaxRequests(http.getMaxRequests());
+        dispatcher.setMaxRequestsPerHost(http.getMaxRequestsPerHost());
+
+        return new OkHttpClient.Builder()
+                .connectionPool(new ConnectionPool(http.getMaxIdleConnections(),
+                        http.getKeepAlive().toMillis(), TimeUnit.MILLISECONDS))
+                .dispatcher(dispatcher)
+                .connectTimeout(http.getConnectTimeout())
+                .readTimeout(http.getReadTimeout())
+                .writeTimeout(http.getWriteTimeout())
+                .socketFactory(new BufferSizeSocketFactory(http.getSendBufferSize(), http.getReceiveBufferSize()))
+                // The same protocol as in Minio's default client, so each request holds its own connection.
+                .protocols(List.of(Protocol.HTTP_1_1))
                 .build();
     }
+
+    /**
+     * Metrics of {@link #minioHttpClient()}: number of active and idle connections in the pool,
+     * number of running and queued asynchronous requests.
+     *
+     * @param minioHttpClient HTTP client used to send requests to storage.
+     * @return {@link MeterBinder} registering the metrics.
+     */
+    @Bean
+    public MeterBinder minioHttpClientMetrics(OkHttpClient minioHttpClient) {
+        Dispatcher dispatcher = minioHttpClient.dispatcher();
+        return registry -> {
+            new OkHttpConnectionPoolMetrics(minioHttpClient.connectionPool(), HTTP_METRICS_PREFIX, Tags.empty(),
+                    minioProperties.getHttp().getMaxIdleConnections()).bindTo(registry);
+            Gauge.builder(HTTP_METRICS_PREFIX + ".dispatcher.running", dispatcher, Dispatcher::runningCallsCount)
+                    .description("Number of asynchronous storage requests being executed")
+                    .register(registry);
+            Gauge.builder(HTTP_METRICS_PREFIX + ".dispatcher.queued", dispatcher, Dispatcher::queuedCallsCount)
+                    .description("Number of asynchronous storage requests waiting for execution")
+                    .register(registry);
+            Gauge.builder(HTTP_METRICS_PREFIX + ".dispatcher.max", dispatcher, Dispatcher::getMaxRequests)
+                    .description("Maximum number of asynchronous storage requests executed concurrently")
+                    .register(registry);
+        };
+    }
 }
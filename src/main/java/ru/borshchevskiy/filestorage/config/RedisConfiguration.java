@@ -0,0 +1,55 @@
+package ru.borshchevskiy.filestorage.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import ru.borshchevskiy.filestorage.config.properties.ListingCacheProperties;
+import ru.borshchevskiy.filestorage.service.cache.RedisListingStore;
+
+/**
+ * Configuration of Redis usage other than session storage.
+ *
+ * @see RedisListingStore
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "app.cache.listing", name = "shared", havingValue = "true", matchIfMissing = true)
+public class RedisConfiguration {
+
+    /**
+     * Template storing binary values under string keys.
+     *
+     * @param connectionFactory {@link RedisConnectionFactory}.
+     * @return {@link RedisTemplate}.
+     */
+    @Bean
+    public RedisTemplate<String, byte[]> listingRedisTemplate(RedisConnectionFactory connectionFactory) {
+        RedisTemplate<String, byte[]> template = new RedisTemplate<>();
+        template.setConnectionFactory(connectionFactory);
+        template.setKeySerializer(RedisSerializer.string());
+        template.setValueSerializer(RedisSerializer.byteArray());
+        template.setHashKeySerializer(RedisSerializer.string());
+        template.setHashValueSerializer(RedisSerializer.byteArray());
+        return template;
+    }
+
+    @Bean
+    public RedisMessageListenerContainer redisMessageListenerContainer(RedisConnectionFactory connectionFactory) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        return container;
+    }
+
+    @Bean
+    public RedisListingStore redisListingStore(RedisTemplate<String, byte[]> listingRedisTemplate,
+                                               RedisMessageListenerContainer redisMessageListenerContainer,
+                                               ListingCacheProperties listingCacheProperties,
+                                               MeterRegistry meterRegistry) {
+        return new RedisListingStore(listingRedisTemplate, redisMessageListenerContainer, listingCacheProperties,
+                meterRegistry);
+    }
+}
@@ -0,0 +1,54 @@
+package ru.borshchevskiy.filestorage.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import ru.borshchevskiy.filestorage.config.properties.DedupProperties;
+import ru.borshchevskiy.filestorage.config.properties.DiskCacheProperties;
+import ru.borshchevskiy.filestorage.config.properties.MinioProperties;
+import ru.borshchevskiy.filestorage.repository.MinioRepository;
+import ru.borshchevskiy.filestorage.repository.cache.DiskCacheMinioRepository;
+import ru.borshchevskiy.filestorage.repository.dedup.ContentStore;
+import ru.borshchevskiy.filestorage.repository.dedup.DeduplicatingMinioRepository;
+import ru.borshchevskiy.filestorage.repository.impl.MinioRepositoryImpl;
+import ru.borshchevskiy.filestorage.repository.resilience.ResilientMinioRepository;
+
+/**
+ * Configuration of {@link MinioRepository} used by services.
+ * <p>
+ * {@link MinioRepositoryImpl} is wrapped into decorators, which add behavior common for all storage requests.
+ */
+@Configuration
+@RequiredArgsConstructor
+public class RepositoryConfiguration {
+
+    private final MinioProperties minioProperties;
+    private final DiskCacheProperties diskCacheProperties;
+    private final DedupProperties dedupProperties;
+    private final ContentStore contentStore;
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * Repository used by services. Decorators are applied in the following order (outermost first):
+     * {@link DiskCacheMinioRepository} (if enabled), {@link DeduplicatingMinioRepository} (if enabled),
+     * {@link ResilientMinioRepository}.
+     * So cache hits don't depend on storage availability, while storage requests made on cache misses are retried.
+     *
+     * @param minioRepositoryImpl repository which sends requests to storage.
+     * @return decorated {@link MinioRepository}.
+     */
+    @Bean
+    @Primary
+    public MinioRepository minioRepository(MinioRepositoryImpl minioRepositoryImpl) {
+        MinioRepository repository = new ResilientMinioRepository(minioRepositoryImpl, minioProperties, meterRegistry);
+        if (dedupProperties.isEnabled()) {
+            repository = new DeduplicatingMinioRepository(repository, contentStore, dedupProperties);
+        }
+        if (diskCacheProperties.isEnabled()) {
+            repository = new DiskCacheMinioRepository(repository, diskCacheProperties, meterRegistry);
+        }
+        return repository;
+    }
+}
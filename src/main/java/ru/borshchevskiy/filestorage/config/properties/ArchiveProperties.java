@@ -0,0 +1,39 @@
+package ru.borshchevskiy.filestorage.config.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.util.Set;
+
+/**
+ * Properties for archives streamed to clients and extracted to storage.
+ *
+ * @see ru.borshchevskiy.filestorage.service.archive.ZipStreamer
+ * @see ru.borshchevskiy.filestorage.service.archive.ArchiveExtractor
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "app.archive")
+public class ArchiveProperties {
+    /**
+     * Maximum number of files read from storage ahead of the file being written to an archive.
+     */
+    private int prefetchCount = 8;
+    /**
+     * Files up to this size are read ahead into memory, larger files are streamed when their turn comes.
+     */
+    private DataSize prefetchMaxSize = DataSize.ofMegabytes(4);
+    /**
+     * Extensions of files which are already compressed. Such files are stored in archives without compression.
+     */
+    private Set<String> storedExtensions = Set.of("zip", "gz", "tgz", "bz2", "xz", "7z", "rar", "jpg", "jpeg",
+            "png", "gif", "webp", "heic", "mp3", "aac", "ogg", "flac", "mp4", "mkv", "avi", "mov", "webm",
+            "pdf", "docx", "xlsx", "pptx", "odt", "ods", "jar", "apk");
+    /**
+     * Extracted files up to this size are read into memory and saved concurrently,
+     * larger files are streamed from the archive one by one.
+     */
+    private DataSize extractBufferSize = DataSize.ofMegabytes(1);
+}
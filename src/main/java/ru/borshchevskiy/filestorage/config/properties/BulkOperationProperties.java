@@ -0,0 +1,29 @@
+package ru.borshchevskiy.filestorage.config.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * Properties for bulk operations with storage objects.
+ *
+ * @see ru.borshchevskiy.filestorage.service.bulk.BulkMoveEngine
+ * @see ru.borshchevskiy.filestorage.config.ExecutorConfiguration
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "app.bulk")
+public class BulkOperationProperties {
+    /**
+     * Maximum number of storage requests performed concurrently by a single bulk operation.
+     */
+    private int concurrency = 16;
+    /**
+     * Number of threads shared by all bulk operations.
+     */
+    private int poolSize = 32;
+    /**
+     * Number of objects deleted with a single request. Can't exceed 1000 due to S3 restrictions.
+     */
+    private int deleteBatchSize = 1000;
+}
@@ -0,0 +1,38 @@
+package ru.borshchevskiy.filestorage.config.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+/**
+ * Properties for compression of files in storage.
+ *
+ * @see ru.borshchevskiy.filestorage.repository.compression.ContentCodec
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "app.compression")
+public class CompressionProperties {
+    /**
+     * Flag determining if uploaded files are compressed. Files compressed while it was enabled
+     * are still decompressed when they are read.
+     */
+    private boolean enabled = false;
+    /**
+     * Zstandard compression level, from 1 (fastest) to 19.
+     */
+    private int level = 3;
+    /**
+     * Files smaller than this size are stored as is.
+     */
+    private DataSize minSize = DataSize.ofKilobytes(4);
+    /**
+     * Size of the beginning of the file compressed to decide if the whole file should be compressed.
+     */
+    private DataSize sampleSize = DataSize.ofKilobytes(64);
+    /**
+     * Minimum share of the sample size which must be saved by compression for the file to be compressed.
+     */
+    private double minSavings = 0.1;
+}
@@ -0,0 +1,39 @@
+package ru.borshchevskiy.filestorage.config.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Properties for content-addressed storage of files.
+ *
+ * @see ru.borshchevskiy.filestorage.repository.dedup.DeduplicatingMinioRepository
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "app.dedup")
+public class DedupProperties {
+    /**
+     * Flag determining if uploaded files are stored once per content. Files uploaded while it was disabled
+     * are still read from their own objects.
+     */
+    private boolean enabled = false;
+    /**
+     * Prefix of storage objects holding content of files, ends with "/". Must not overlap with users' directories.
+     */
+    private String blobPrefix = "blobs/";
+    /**
+     * Content no longer referenced by any file is kept for this duration before it is removed.
+     */
+    private Duration gracePeriod = Duration.ofHours(1);
+    /**
+     * Delay between runs of the collector of unreferenced content.
+     */
+    private Duration collectInterval = Duration.ofHours(1);
+    /**
+     * Maximum number of unreferenced objects removed by a single query of the collector.
+     */
+    private int collectBatchSize = 1000;
+}
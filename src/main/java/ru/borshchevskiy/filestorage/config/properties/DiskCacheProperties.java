@@ -0,0 +1,35 @@
+package ru.borshchevskiy.filestorage.config.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+/**
+ * Properties for local disk cache of downloaded files.
+ *
+ * @see ru.borshchevskiy.filestorage.repository.cache.DiskCacheMinioRepository
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "app.cache.disk")
+public class DiskCacheProperties {
+    /**
+     * Flag determining if downloaded files are cached. Disabled by default, because cached files
+     * take local disk space.
+     */
+    private boolean enabled = false;
+    /**
+     * Directory where cached files are stored. Files left by the cache from previous run are removed on startup,
+     * other files are kept.
+     */
+    private String directory = System.getProperty("java.io.tmpdir") + "/file-storage-cache";
+    /**
+     * Maximum total size of cached files.
+     */
+    private DataSize maxSize = DataSize.ofGigabytes(1);
+    /**
+     * Files larger than this size are never cached.
+     */
+    private DataSize maxObjectSize = DataSize.ofMegabytes(100);
+}
@@ -0,0 +1,32 @@
+package ru.borshchevskiy.filestorage.config.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Properties for database index of stored files.
+ *
+ * @see ru.borshchevskiy.filestorage.service.index.FileIndexService
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "app.index")
+public class FileIndexProperties {
+    /**
+     * Flag determining if files are indexed in database and listings are served from the index.
+     */
+    private boolean enabled = true;
+    /**
+     * Flag determining if index is reconciled with storage on application startup.
+     * Until the first reconciliation completes, listings are served from storage.
+     * If disabled, index is considered up-to-date on startup.
+     */
+    private boolean reconcileOnStartup = true;
+    /**
+     * Delay between the end of a reconciliation and the start of the next one.
+     */
+    private Duration reconcileInterval = Duration.ofHours(6);
+}
@@ -0,0 +1,31 @@
+package ru.borshchevskiy.filestorage.config.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Properties for cache of files metadata.
+ *
+ * @see ru.borshchevskiy.filestorage.service.cache.FileInfoCache
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "app.cache.file-info")
+public class FileInfoCacheProperties {
+    /**
+     * Flag determining if metadata of downloaded files is cached.
+     */
+    private boolean enabled = true;
+    /**
+     * Maximum number of files which metadata is cached.
+     */
+    private long maxEntries = 10_000;
+    /**
+     * Age of metadata after which it is requested from storage again.
+     * Bounds the time during which changes made bypassing the application may be unnoticed.
+     */
+    private Duration expireAfter = Duration.ofSeconds(30);
+}
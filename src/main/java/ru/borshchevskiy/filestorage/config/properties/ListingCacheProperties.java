@@ -0,0 +1,43 @@
+package ru.borshchevskiy.filestorage.config.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Properties for cache of directories listings.
+ *
+ * @see ru.borshchevskiy.filestorage.service.cache.DirectoryListingCache
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "app.cache.listing")
+public class ListingCacheProperties {
+    /**
+     * Flag determining if directories listings are cached.
+     */
+    private boolean enabled = true;
+    /**
+     * Flag determining if listings are shared between application instances through Redis.
+     * Local cache is used as a near cache in this case.
+     */
+    private boolean shared = true;
+    /**
+     * Maximum total number of items in all cached listings.
+     */
+    private long maxItems = 200_000;
+    /**
+     * Age of listing after which it is reloaded in background. Until reload completes, cached listing is served.
+     */
+    private Duration refreshAfter = Duration.ofSeconds(30);
+    /**
+     * Age of listing after which it is not served anymore. Also used as time to live of user's listings in Redis.
+     */
+    private Duration expireAfter = Duration.ofMinutes(10);
+    /**
+     * Number of threads reloading listings in background.
+     */
+    private int refreshThreads = 2;
+}
@@ -3,6 +3,9 @@ package ru.borshchevskiy.filestorage.config.properties;
 import lombok.Data;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
 
 /**
  * Properties for Minio configuration.
@@ -19,5 +22,141 @@ public class MinioProperties {
     private String bucket;
     private String user;
     private String password;
-}
+    /**
+     * Maximum number of objects requested from storage by a single list request.
+     */
+    private int listPageSize = 1000;
+    /**
+     * Properties of multipart uploads.
+     */
+    private Upload upload = new Upload();
+    /**
+     * Properties of HTTP client used to send requests to storage.
+     */
+    private Http http = new Http();
+    /**
+     * Properties of retries and circuit breaking of storage requests.
+     */
+    private Resilience resilience = new Resilience();
+    /**
+     * Properties of presigned URLs of direct transfers between browsers and storage.
+     */
+    private Presign presign = new Presign();
+
+    /**
+     * Properties for {@link ru.borshchevskiy.filestorage.repository.upload.ParallelUploadEngine}.
+     */
+    @Data
+    public static class Upload {
+        /**
+         * Size of a single part in bytes. Must be at least 5 MiB due to S3 restrictions.
+         * Objects smaller than one part are uploaded with a single request.
+         */
+        private int partSize = 10485760;
+        /**
+         * Maximum number of parts of a single object which are uploaded concurrently.
+         */
+        private int parallelism = 4;
+        /**
+         * Total size of part buffers of all uploads, including buffers of received chunks and extracted files.
+         * Uploads wait for a free buffer when it is exhausted. Must be larger than one part, buffers of chunks
+         * and extracted files never take the last part.
+         */
+        private DataSize bufferBudget = DataSize.ofMegabytes(256);
+    }
 
+    /**
+     * Properties for HTTP client shared by all Minio clients.
+     *
+     * @see ru.borshchevskiy.filestorage.config.MinioConfiguration#minioHttpClient()
+     */
+    @Data
+    public static class Http {
+        /**
+         * Maximum number of idle connections kept in the pool.
+         */
+        private int maxIdleConnections = 32;
+        /**
+         * Time an idle connection is kept in the pool before it is closed.
+         */
+        private Duration keepAlive = Duration.ofMinutes(5);
+        /**
+         * Maximum number of asynchronous requests executed concurrently. Requests above this limit are queued.
+         */
+        private int maxRequests = 128;
+        /**
+         * Maximum number of asynchronous requests executed concurrently to a single host.
+         */
+        private int maxRequestsPerHost = 64;
+        private Duration connectTimeout = Duration.ofSeconds(10);
+        private Duration readTimeout = Duration.ofMinutes(5);
+        private Duration writeTimeout = Duration.ofMinutes(5);
+        /**
+         * Size of socket send buffer in bytes. Operating system default is used if not positive.
+         */
+        private int sendBufferSize = 0;
+        /**
+         * Size of socket receive buffer in bytes. Operating system default is used if not positive.
+         */
+        private int receiveBufferSize = 0;
+    }
+
+    /**
+     * Properties for {@link ru.borshchevskiy.filestorage.repository.resilience.ResilientMinioRepository}.
+     */
+    @Data
+    public static class Resilience {
+        /**
+         * Maximum number of attempts of an idempotent request, including the first one.
+         */
+        private int maxAttempts = 3;
+        /**
+         * Upper bound of delay before the first retry. Actual delay is random (full jitter).
+         */
+        private Duration initialBackoff = Duration.ofMillis(100);
+        /**
+         * Upper bound of delay before any retry.
+         */
+        private Duration maxBackoff = Duration.ofSeconds(2);
+        /**
+         * Factor by which upper bound of delay grows after each retry.
+         */
+        private double backoffMultiplier = 2;
+        /**
+         * Number of consecutive failed requests after which circuit breaker opens.
+         */
+        private int failureThreshold = 5;
+        /**
+         * Time during which all requests are rejected after circuit breaker opens.
+         */
+        private Duration openDuration = Duration.ofSeconds(30);
+    }
+
+    /**
+     * Properties of presigned URLs. If presigned URLs are enabled, files are downloaded and uploaded by browsers
+     * directly from and to storage, application only authorizes transfers and handles metadata.
+     *
+     * @see ru.borshchevskiy.filestorage.config.MinioConfiguration#presigningMinioClient(okhttp3.OkHttpClient)
+     */
+    @Data
+    public static class Presign {
+        /**
+         * Enables presigned URLs. Browsers upload files to storage by cross-origin PUT requests, so CORS
+         * configuration of the bucket must allow them from the application origin.
+         */
+        private boolean enabled = false;
+        /**
+         * Time during which presigned URL is valid. Must not exceed 7 days.
+         */
+        private Duration expiry = Duration.ofMinutes(15);
+        /**
+         * Storage URL reachable by browsers. URLs are signed for the host of this URL,
+         * so it must be the one browsers send requests to. {@link MinioProperties#getUrl()} is used if empty.
+         */
+        private String endpoint = "";
+        /**
+         * Region of the bucket. URLs are signed without requesting the region from storage.
+         */
+        private String region = "us-east-1";
+    }
+}
@@ -0,0 +1,25 @@
+package ru.borshchevskiy.filestorage.config.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+/**
+ * Properties for users' storage quotas.
+ *
+ * @see ru.borshchevskiy.filestorage.service.quota.QuotaService
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "app.quota")
+public class QuotaProperties {
+    /**
+     * Flag determining if uploads exceeding user's quota are rejected. Used space is tracked anyway.
+     */
+    private boolean enabled = true;
+    /**
+     * Quota of users who have no personal quota.
+     */
+    private DataSize defaultQuota = DataSize.ofGigabytes(10);
+}
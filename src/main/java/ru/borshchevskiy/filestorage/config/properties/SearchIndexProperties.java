@@ -0,0 +1,27 @@
+package ru.borshchevskiy.filestorage.config.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+/**
+ * Properties for in-memory search index.
+ *
+ * @see ru.borshchevskiy.filestorage.service.search.InMemorySearchIndex
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "app.search.index")
+public class SearchIndexProperties {
+    /**
+     * Flag determining if users' items are indexed in memory for search.
+     * Index is only used if database index is disabled.
+     */
+    private boolean enabled = true;
+    /**
+     * Maximum estimated memory used by indexes of all users.
+     * Indexes of least recently searched users are evicted when it is exceeded.
+     */
+    private DataSize maxMemory = DataSize.ofMegabytes(256);
+}
@@ -0,0 +1,37 @@
+package ru.borshchevskiy.filestorage.config.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+/**
+ * Properties for chunked uploads.
+ *
+ * @see ru.borshchevskiy.filestorage.service.upload.ChunkedUploadService
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "app.upload")
+public class UploadProperties {
+    /**
+     * Size of every chunk except the last one. Chunks are stored as parts of multipart uploads,
+     * so it must be at least 5MB.
+     */
+    private DataSize chunkSize = DataSize.ofMegabytes(8);
+    /**
+     * Upload sessions without chunks received for this duration are aborted.
+     */
+    private Duration sessionTimeout = Duration.ofHours(24);
+    /**
+     * Delay between checks for timed out upload sessions.
+     */
+    private Duration cleanupInterval = Duration.ofHours(1);
+    /**
+     * Prefix of storage objects where completed uploads are assembled before they are copied to users'
+     * directories, ends with "/". Must not overlap with users' directories.
+     */
+    private String stagingPrefix = "uploads/";
+}
@@ -0,0 +1,24 @@
+package ru.borshchevskiy.filestorage.config.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * Properties for execution of requests and storage operations on virtual threads.
+ * <p>
+ * Virtual threads require JDK 21, so the mode is only available if the application is built
+ * with "jdk21" Maven profile. Otherwise the flag has no effect.
+ *
+ * @see ru.borshchevskiy.filestorage.config.VirtualThreadConfiguration
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "app.virtual-threads")
+public class VirtualThreadProperties {
+    /**
+     * Flag determining if requests, streamed response bodies and background storage operations
+     * are executed on virtual threads instead of platform thread pools.
+     */
+    private boolean enabled = false;
+}
@@ -26,7 +26,7 @@ public class FileItemDto {
      */
     private boolean isDirectory;
     /**
-     * File size in bytes.
+     * File size in bytes. For directory - total size of all files in it and its subdirectories if known.
      */
     private Long size;
     /**
@@ -34,5 +34,9 @@ public class FileItemDto {
      * @see ru.borshchevskiy.filestorage.mapper.FileItemMapper#getViewSize(Item) FileItemMapper.getViewSize(Item)
      */
     private String viewSize;
+    /**
+     * Number of files in the directory and its subdirectories, null for files and if not known.
+     */
+    private Long itemCount;
 
 }
@@ -0,0 +1,40 @@
+package ru.borshchevskiy.filestorage.dto.file;
+
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * Class represents state of a chunked upload.
+ */
+@Data
+public class UploadSessionDto {
+    /**
+     * Id of the upload session.
+     */
+    private String id;
+    /**
+     * Name of the uploaded file.
+     */
+    private String name;
+    /**
+     * Size of the uploaded file in bytes.
+     */
+    private long size;
+    /**
+     * Size of every chunk except the last one.
+     */
+    private long chunkSize;
+    /**
+     * Number of chunks the file is split into.
+     */
+    private int chunkCount;
+    /**
+     * Indexes of received chunks, starting from 0, in ascending order.
+     */
+    private List<Integer> receivedChunks;
+    /**
+     * Presigned URL the file should be sent to with a single PUT request, only for direct uploads.
+     */
+    private String uploadUrl;
+}
@@ -0,0 +1,30 @@
+package ru.borshchevskiy.filestorage.dto.user;
+
+import lombok.Data;
+
+/**
+ * Class represents storage space used by user's files and user's quota.
+ */
+@Data
+public class StorageUsageDto {
+    /**
+     * Bytes used by user's files, null if not calculated yet.
+     */
+    private Long usedSpace;
+    /**
+     * User's quota in bytes.
+     */
+    private long quota;
+    /**
+     * Human-readable used space representation, empty if used space is not calculated yet.
+     */
+    private String viewUsedSpace;
+    /**
+     * Human-readable quota representation.
+     */
+    private String viewQuota;
+    /**
+     * Used part of the quota in percents, from 0 to 100.
+     */
+    private int usedPercent;
+}
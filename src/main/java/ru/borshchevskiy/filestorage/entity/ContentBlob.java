@@ -0,0 +1,59 @@
+package ru.borshchevskiy.filestorage.entity;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
+
+import java.time.Instant;
+import java.util.Objects;
+
+/**
+ * Represents content of files stored once in storage, identified by its SHA-256 hash.
+ *
+ * @see ru.borshchevskiy.filestorage.repository.dedup.ContentStore
+ */
+@Getter
+@Setter
+@ToString
+@RequiredArgsConstructor
+@Entity
+@Table(name = "content_blobs")
+public class ContentBlob {
+
+    /**
+     * Hex-encoded SHA-256 hash of the content.
+     */
+    @Id
+    @Column(name = "hash")
+    private String hash;
+
+    @Column(name = "size")
+    private long size;
+
+    /**
+     * Number of files referencing the content.
+     */
+    @Column(name = "ref_count")
+    private long refCount;
+
+    /**
+     * Time when the last reference was removed, null while the content is referenced.
+     */
+    @Column(name = "unreferenced_at")
+    private Instant unreferencedAt;
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        ContentBlob contentBlob = (ContentBlob) o;
+        return hash != null && Objects.equals(hash, contentBlob.hash);
+    }
+
+    @Override
+    public int hashCode() {
+        return getClass().hashCode();
+    }
+}
@@ -0,0 +1,52 @@
+package ru.borshchevskiy.filestorage.entity;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
+
+import java.util.Objects;
+
+/**
+ * Represents file whose content is stored in {@link ContentBlob}.
+ *
+ * @see ru.borshchevskiy.filestorage.repository.dedup.ContentStore
+ */
+@Getter
+@Setter
+@ToString
+@RequiredArgsConstructor
+@Entity
+@Table(name = "content_references")
+public class ContentReference {
+
+    /**
+     * Full storage path of the file.
+     */
+    @Id
+    @Column(name = "path")
+    private String path;
+
+    /**
+     * Hash of the content of the file.
+     */
+    @Column(name = "hash")
+    private String hash;
+
+    @Column(name = "size")
+    private long size;
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        ContentReference contentReference = (ContentReference) o;
+        return path != null && Objects.equals(path, contentReference.path);
+    }
+
+    @Override
+    public int hashCode() {
+        return getClass().hashCode();
+    }
+}
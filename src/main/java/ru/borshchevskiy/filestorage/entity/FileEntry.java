@@ -0,0 +1,91 @@
+package ru.borshchevskiy.filestorage.entity;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
+
+import java.time.Instant;
+import java.util.Objects;
+
+/**
+ * Represents file or directory stored in user's storage.
+ * Mirrors objects of the storage to make listing and search possible without scanning the storage.
+ * <p>
+ * All paths are relative to user's personal root directory.
+ * Directory's names and paths always end with "/" symbol, parent path of the items in the root directory is "".
+ *
+ * @see ru.borshchevskiy.filestorage.service.index.FileIndexService
+ */
+@Getter
+@Setter
+@ToString
+@RequiredArgsConstructor
+@Entity
+@Table(name = "file_entries")
+public class FileEntry {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "user_id")
+    private Long userId;
+
+    @Column(name = "parent_path")
+    private String parentPath;
+
+    @Column(name = "name")
+    private String name;
+
+    @Column(name = "is_directory")
+    private boolean directory;
+
+    @Column(name = "size")
+    private long size;
+
+    @Column(name = "etag")
+    private String etag;
+
+    @Column(name = "last_modified")
+    private Instant lastModified;
+
+    /**
+     * Total size of all files in the directory and its subdirectories, 0 for files.
+     */
+    @Column(name = "total_size")
+    private long totalSize;
+
+    /**
+     * Number of files in the directory and its subdirectories, 0 for files.
+     */
+    @Column(name = "file_count")
+    private long fileCount;
+
+    /**
+     * Time when the entry was last written to the index.
+     */
+    @Column(name = "indexed_at")
+    private Instant indexedAt;
+
+    /**
+     * @return path of the item relative to user's personal root directory.
+     */
+    public String getPath() {
+        return parentPath + name;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        FileEntry fileEntry = (FileEntry) o;
+        return id != null && Objects.equals(id, fileEntry.id);
+    }
+
+    @Override
+    public int hashCode() {
+        return getClass().hashCode();
+    }
+}
@@ -43,6 +43,20 @@ public class User implements UserDetails {
     @CollectionTable(name = "roles", joinColumns = @JoinColumn(name = "user_id"))
     private Set<Role> roles;
 
+    /**
+     * Bytes used by user's files. Null if not calculated yet.
+     *
+     * @see ru.borshchevskiy.filestorage.service.quota.QuotaService
+     */
+    @Column(name = "used_space")
+    private Long usedSpace = 0L;
+
+    /**
+     * Personal storage quota in bytes. Null if default quota is applied.
+     */
+    @Column(name = "space_quota")
+    private Long spaceQuota;
+
     @Override
     public String getUsername() {
         return email;
@@ -0,0 +1,19 @@
+package ru.borshchevskiy.filestorage.exception;
+
+/**
+ * Exception signals that chunk of a chunked upload doesn't match its upload session.
+ */
+public class InvalidChunkException extends RuntimeException {
+
+    public InvalidChunkException(String message) {
+        super(message);
+    }
+
+    public InvalidChunkException(String message, Throwable cause) {
+        super(message, cause);
+    }
+
+    public InvalidChunkException(Throwable cause) {
+        super(cause);
+    }
+}
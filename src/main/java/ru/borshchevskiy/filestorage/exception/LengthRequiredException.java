@@ -0,0 +1,19 @@
+package ru.borshchevskiy.filestorage.exception;
+
+/**
+ * Exception signals that request doesn't declare length of its content.
+ */
+public class LengthRequiredException extends RuntimeException {
+
+    public LengthRequiredException(String message) {
+        super(message);
+    }
+
+    public LengthRequiredException(String message, Throwable cause) {
+        super(message, cause);
+    }
+
+    public LengthRequiredException(Throwable cause) {
+        super(cause);
+    }
+}
@@ -0,0 +1,19 @@
+package ru.borshchevskiy.filestorage.exception;
+
+/**
+ * Exception signals that operation would make user's files exceed user's storage quota.
+ */
+public class QuotaExceededException extends RuntimeException {
+
+    public QuotaExceededException(String message) {
+        super(message);
+    }
+
+    public QuotaExceededException(String message, Throwable cause) {
+        super(message, cause);
+    }
+
+    public QuotaExceededException(Throwable cause) {
+        super(cause);
+    }
+}
@@ -0,0 +1,19 @@
+package ru.borshchevskiy.filestorage.exception;
+
+/**
+ * Exception signals that archive format is not supported or archive can't be read.
+ */
+public class UnsupportedArchiveException extends RuntimeException {
+
+    public UnsupportedArchiveException(String message) {
+        super(message);
+    }
+
+    public UnsupportedArchiveException(String message, Throwable cause) {
+        super(message, cause);
+    }
+
+    public UnsupportedArchiveException(Throwable cause) {
+        super(cause);
+    }
+}
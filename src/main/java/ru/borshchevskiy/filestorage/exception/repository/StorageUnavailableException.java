@@ -0,0 +1,22 @@
+package ru.borshchevskiy.filestorage.exception.repository;
+
+/**
+ * Exception produced by {@link ru.borshchevskiy.filestorage.repository.MinioRepository} when request
+ * is rejected without being sent to storage, because storage is considered unavailable.
+ *
+ * @see ru.borshchevskiy.filestorage.repository.resilience.ResilientMinioRepository
+ */
+public class StorageUnavailableException extends MinioRepositoryException {
+
+    public StorageUnavailableException(String message) {
+        super(message);
+    }
+
+    public StorageUnavailableException(String message, Throwable cause) {
+        super(message, cause);
+    }
+
+    public StorageUnavailableException(Throwable cause) {
+        super(cause);
+    }
+}
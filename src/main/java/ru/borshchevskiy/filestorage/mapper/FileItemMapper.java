@@ -4,6 +4,7 @@ import io.minio.messages.Item;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Component;
 import ru.borshchevskiy.filestorage.dto.file.FileItemDto;
+import ru.borshchevskiy.filestorage.entity.FileEntry;
 import ru.borshchevskiy.filestorage.util.FilePathUtil;
 import ru.borshchevskiy.filestorage.util.FileSizeUtil;
 import ru.borshchevskiy.filestorage.web.session.UserSessionData;
@@ -24,8 +25,21 @@ public class FileItemMapper {
      * @return new {@link FileItemDto} based on {@link Item} instance received
      */
     public FileItemDto mapToFileItemDto(Item item) {
+        return mapToFileItemDto(item, userSessionData.getUserDirectory());
+    }
+
+    /**
+     * Method creates new {@link FileItemDto} instance based on Minio's {@link Item} instance received.
+     * Unlike {@link #mapToFileItemDto(Item)} doesn't depend on current session,
+     * so it can be used outside of request processing.
+     *
+     * @param item          Minio's {@link Item} instance
+     * @param userDirectory name of the personal root directory of the user who owns the item.
+     * @return new {@link FileItemDto} based on {@link Item} instance received
+     */
+    public FileItemDto mapToFileItemDto(Item item, String userDirectory) {
         FileItemDto fileItemDto = new FileItemDto();
-        fileItemDto.setFullName(FilePathUtil.removeUserDirectoryFromPath(userSessionData, item.objectName()));
+        fileItemDto.setFullName(FilePathUtil.removeUserDirectoryFromPath(userDirectory, item.objectName()));
         fileItemDto.setName(getName(item));
         fileItemDto.setDirectory(item.isDir());
         fileItemDto.setSize(item.size());
@@ -33,6 +47,28 @@ public class FileItemMapper {
         return fileItemDto;
     }
 
+    /**
+     * Method creates new {@link FileItemDto} instance based on {@link FileEntry} from the index.
+     * Directory's size and item count are its totals maintained by the index.
+     *
+     * @param fileEntry {@link FileEntry} instance
+     * @return new {@link FileItemDto} based on {@link FileEntry} instance received
+     */
+    public FileItemDto mapToFileItemDto(FileEntry fileEntry) {
+        FileItemDto fileItemDto = new FileItemDto();
+        fileItemDto.setFullName(fileEntry.getPath());
+        fileItemDto.setName(fileEntry.getName());
+        fileItemDto.setDirectory(fileEntry.isDirectory());
+        if (fileEntry.isDirectory()) {
+            fileItemDto.setSize(fileEntry.getTotalSize());
+            fileItemDto.setItemCount(fileEntry.getFileCount());
+        } else {
+            fileItemDto.setSize(fileEntry.getSize());
+        }
+        fileItemDto.setViewSize(FileSizeUtil.getViewFileSize(fileItemDto.getSize()));
+        return fileItemDto;
+    }
+
     /**
      * Method retrieves the name of the file or directory from the Minio's {@link Item}.
      * <p>
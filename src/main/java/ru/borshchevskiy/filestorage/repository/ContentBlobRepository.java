@@ -0,0 +1,61 @@
+package ru.borshchevskiy.filestorage.repository;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import ru.borshchevskiy.filestorage.entity.ContentBlob;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Interface used to perform CRUD operations with {@link ContentBlob} in database.
+ */
+public interface ContentBlobRepository extends JpaRepository<ContentBlob, String> {
+
+    /**
+     * Method adds references to the content, creating it if it doesn't exist.
+     * Row of the content stays locked until the end of the transaction.
+     *
+     * @param hash  hash of the content.
+     * @param size  size of the content.
+     * @param count number of references to be added.
+     * @return number of inserted or updated rows.
+     */
+    @Modifying
+    @Query(value = "insert into content_blobs (hash, size, ref_count) values (:hash, :size, :count) "
+            + "on conflict (hash) do update set ref_count = content_blobs.ref_count + :count, unreferenced_at = null",
+            nativeQuery = true)
+    int acquire(@Param("hash") String hash, @Param("size") long size, @Param("count") long count);
+
+    /**
+     * Method removes references to the content. Number of references is never negative,
+     * content left without references is marked as unreferenced.
+     *
+     * @param hash  hash of the content.
+     * @param count number of references to be removed.
+     * @param now   current time.
+     * @return number of updated rows.
+     */
+    @Modifying
+    @Query("update ContentBlob b set b.refCount = case when b.refCount > :count then b.refCount - :count else 0 end, "
+            + "b.unreferencedAt = case when b.refCount > :count then null else :now end where b.hash = :hash")
+    int release(@Param("hash") String hash, @Param("count") long count, @Param("now") Instant now);
+
+    @Query("select b.hash from ContentBlob b where b.refCount = 0 and b.unreferencedAt < :before")
+    List<String> findUnreferenced(@Param("before") Instant before, Pageable pageable);
+
+    /**
+     * Method deletes the content if it is still unreferenced. Row stays locked until the end of the transaction,
+     * so the content can't be referenced again meanwhile.
+     *
+     * @param hash   hash of the content.
+     * @param before content unreferenced at or after this time is not deleted.
+     * @return 1 if content is deleted, 0 otherwise.
+     */
+    @Modifying
+    @Query("delete from ContentBlob b where b.hash = :hash and b.refCount = 0 and b.unreferencedAt < :before")
+    int deleteUnreferenced(@Param("hash") String hash, @Param("before") Instant before);
+}
@@ -0,0 +1,42 @@
+package ru.borshchevskiy.filestorage.repository;
+
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import ru.borshchevskiy.filestorage.entity.ContentReference;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Interface used to perform CRUD operations with {@link ContentReference} in database.
+ * <p>
+ * Prefix parameters of subtree queries are LIKE patterns, so "%", "_" and "\" symbols of the paths
+ * must be escaped with "\" symbol.
+ */
+public interface ContentReferenceRepository extends JpaRepository<ContentReference, String> {
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select r from ContentReference r where r.path = :path")
+    Optional<ContentReference> findForUpdate(@Param("path") String path);
+
+    /**
+     * Method creates the reference unless the file already references some content.
+     *
+     * @param path path of the file.
+     * @param hash hash of the content.
+     * @param size size of the content.
+     * @return 1 if reference is created, 0 otherwise.
+     */
+    @Modifying
+    @Query(value = "insert into content_references (path, hash, size) values (:path, :hash, :size) "
+            + "on conflict (path) do nothing",
+            nativeQuery = true)
+    int insertIfAbsent(@Param("path") String path, @Param("hash") String hash, @Param("size") long size);
+
+    @Query("select r from ContentReference r where r.path like :prefix escape '\\'")
+    List<ContentReference> findSubtree(@Param("prefix") String prefix);
+}
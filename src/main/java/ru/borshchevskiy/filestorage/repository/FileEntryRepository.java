@@ -0,0 +1,69 @@
+package ru.borshchevskiy.filestorage.repository;
+
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import ru.borshchevskiy.filestorage.entity.FileEntry;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Interface used to perform CRUD operations with {@link FileEntry} in database.
+ * <p>
+ * Prefix parameters of subtree queries are LIKE patterns, so "%", "_" and "\" symbols of the paths
+ * must be escaped with "\" symbol.
+ */
+public interface FileEntryRepository extends JpaRepository<FileEntry, Long> {
+
+    List<FileEntry> findByUserIdAndParentPath(Long userId, String parentPath, Sort sort);
+
+    Page<FileEntry> findByUserIdAndParentPath(Long userId, String parentPath, Pageable pageable);
+
+    Optional<FileEntry> findByUserIdAndParentPathAndName(Long userId, String parentPath, String name);
+
+    @Query("select e from FileEntry e where e.userId = :userId and e.parentPath like :prefix escape '\\'")
+    List<FileEntry> findSubtree(@Param("userId") Long userId, @Param("prefix") String prefix);
+
+    /**
+     * Method finds entries which names match the pattern. Uses trigram index, so pattern
+     * may contain wildcards at any position.
+     *
+     * @param userId  id of the user.
+     * @param pattern LIKE pattern.
+     * @return entries sorted by path, directories first.
+     */
+    @Query("select e from FileEntry e where e.userId = :userId and e.name like :pattern escape '\\' "
+            + "order by e.directory desc, e.parentPath, e.name")
+    List<FileEntry> findByNameLike(@Param("userId") Long userId, @Param("pattern") String pattern);
+
+    /**
+     * Method adds size and number of files to totals of directories.
+     * Persistence context is flushed before and cleared after the update.
+     *
+     * @param userId      id of the user.
+     * @param parentPaths parent paths of the directories, used to narrow down the search.
+     * @param paths       paths of the directories.
+     * @param size        size to be added.
+     * @param count       number of files to be added.
+     * @return number of updated directories.
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("update FileEntry e set e.totalSize = e.totalSize + :size, e.fileCount = e.fileCount + :count "
+            + "where e.userId = :userId and e.directory = true and e.parentPath in :parentPaths "
+            + "and concat(e.parentPath, e.name) in :paths")
+    int addToDirectoryTotals(@Param("userId") Long userId,
+                             @Param("parentPaths") Collection<String> parentPaths,
+                             @Param("paths") Collection<String> paths,
+                             @Param("size") long size,
+                             @Param("count") long count);
+
+    @Modifying
+    @Query("delete from FileEntry e where e.userId = :userId and e.parentPath like :prefix escape '\\'")
+    int deleteSubtree(@Param("userId") Long userId, @Param("prefix") String prefix);
+}
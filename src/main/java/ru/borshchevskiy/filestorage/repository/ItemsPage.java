@@ -0,0 +1,30 @@
+package ru.borshchevskiy.filestorage.repository;
+
+import io.minio.messages.Item;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * Class represents a single page of Minio's {@link Item}s returned by
+ * {@link MinioRepository#getItemsPage(String, boolean, String, int)}.
+ */
+@Data
+public class ItemsPage {
+    /**
+     * Items of the current page.
+     */
+    private final List<Item> items;
+    /**
+     * Continuation token which should be passed to get the next page.
+     * Equals null if current page is the last one.
+     */
+    private final String nextContinuationToken;
+
+    /**
+     * @return true if there are more items after the current page.
+     */
+    public boolean hasNext() {
+        return nextContinuationToken != null;
+    }
+}
@@ -3,7 +3,9 @@ package ru.borshchevskiy.filestorage.repository;
 import io.minio.messages.Item;
 
 import java.io.InputStream;
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
 
 /**
  * Interface defines methods to work with objects stored in Minio object storage.
@@ -11,15 +13,31 @@ import java.util.List;
 public interface MinioRepository {
     List<Item> getItemsByPath(String path, boolean isRecursive);
 
+    Stream<Item> getItemsStream(String path, boolean isRecursive);
+
+    ItemsPage getItemsPage(String path, boolean isRecursive, String continuationToken, int maxKeys);
+
     InputStream getFile(String path);
 
+    InputStream getFile(String path, String contentEncoding, long offset, long length);
+
+    InputStream getEncodedFile(String path);
+
+    ObjectInfo statFile(String path);
+
     void putFile(InputStream inputStream, String path);
 
     void deleteFile(String path);
 
+    void deleteFiles(Collection<String> paths);
+
     void deleteDirectory(String path);
 
     void copyFile(String oldPath, String newPath);
 
     void createDirectory(String path);
+
+    String getDownloadUrl(String path, String fileName);
+
+    String getUploadUrl(String path);
 }
@@ -0,0 +1,43 @@
+package ru.borshchevskiy.filestorage.repository;
+
+import lombok.Data;
+
+import java.time.ZonedDateTime;
+import java.util.Map;
+
+/**
+ * Class represents metadata of the object stored in storage.
+ *
+ * @see MinioRepository#statFile(String)
+ */
+@Data
+public class ObjectInfo {
+    /**
+     * Full name of the object in storage.
+     */
+    private String path;
+    /**
+     * Size of the object in bytes. Size of compressed object is the size of its decompressed content.
+     */
+    private long size;
+    /**
+     * Content coding the object is stored with, e.g. "zstd", or null if it is stored as is.
+     */
+    private String contentEncoding;
+    /**
+     * Entity tag of the object without enclosing quotes.
+     */
+    private String etag;
+    /**
+     * Time of the last modification of the object.
+     */
+    private ZonedDateTime lastModified;
+    /**
+     * Content type of the object.
+     */
+    private String contentType;
+    /**
+     * User-defined metadata of the object.
+     */
+    private Map<String, String> userMetadata;
+}
@@ -1,8 +1,12 @@
 package ru.borshchevskiy.filestorage.repository;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import ru.borshchevskiy.filestorage.entity.User;
 
+import java.util.List;
 import java.util.Optional;
 
 /**
@@ -11,4 +15,41 @@ import java.util.Optional;
 public interface UserRepository extends JpaRepository<User, Long> {
 
     Optional<User> findByEmail(String username);
+
+    @Query("select u.id from User u order by u.id")
+    List<Long> findAllIds();
+
+    @Query("select u.id from User u where u.usedSpace is null order by u.id")
+    List<Long> findIdsWithoutUsedSpace();
+
+    /**
+     * Method adds size to used space of the user if the result doesn't exceed user's quota.
+     * If used space is not calculated yet, it is left unchanged.
+     *
+     * @param id           id of the user.
+     * @param size         size to be added.
+     * @param defaultQuota quota applied if user has no personal quota.
+     * @return 1 if space is reserved, 0 otherwise.
+     */
+    @Modifying
+    @Query("update User u set u.usedSpace = u.usedSpace + :size where u.id = :id "
+            + "and (u.usedSpace is null or u.usedSpace + :size <= coalesce(u.spaceQuota, :defaultQuota))")
+    int reserveSpace(@Param("id") Long id, @Param("size") long size, @Param("defaultQuota") long defaultQuota);
+
+    /**
+     * Method adds size to used space of the user, result is never negative.
+     * If used space is not calculated yet, it is left unchanged.
+     *
+     * @param id   id of the user.
+     * @param size size to be added, negative to subtract.
+     * @return number of updated users.
+     */
+    @Modifying
+    @Query("update User u set u.usedSpace = case when u.usedSpace + :size < 0 then 0 else u.usedSpace + :size end "
+            + "where u.id = :id")
+    int addUsedSpace(@Param("id") Long id, @Param("size") long size);
+
+    @Modifying
+    @Query("update User u set u.usedSpace = :usedSpace where u.id = :id and u.usedSpace is null")
+    int initializeUsedSpace(@Param("id") Long id, @Param("usedSpace") long usedSpace);
 }
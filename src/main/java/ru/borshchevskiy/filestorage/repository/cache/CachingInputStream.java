@@ -0,0 +1,120 @@
+package ru.borshchevskiy.filestorage.repository.cache;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.function.Consumer;
+
+/**
+ * {@link InputStream} which writes all bytes read from the source stream to a local file.
+ * <p>
+ * When the stream is closed, file is passed to the completion callback if the whole source
+ * was read, otherwise file is deleted. So reader gets data as soon as it is received from storage
+ * and doesn't wait for the file to be cached.
+ */
+@Slf4j
+class CachingInputStream extends FilterInputStream {
+
+    private final Path file;
+    private final OutputStream fileStream;
+    private final long expectedSize;
+    private final Consumer<Path> onComplete;
+    private long written;
+    private boolean failed;
+    private boolean closed;
+
+    /**
+     * @param source       stream of the object received from storage.
+     * @param file         file where the object should be written.
+     * @param expectedSize size of the object.
+     * @param onComplete   callback receiving the file if the whole object was written.
+     * @throws IOException if file can't be created.
+     */
+    CachingInputStream(InputStream source, Path file, long expectedSize, Consumer<Path> onComplete)
+            throws IOException {
+        super(source);
+        this.file = file;
+        this.fileStream = Files.newOutputStream(file);
+        this.expectedSize = expectedSize;
+        this.onComplete = onComplete;
+    }
+
+    @Override
+    public int read() throws IOException {
+        int b = super.read();
+        if (b != -1) {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+        return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        int read = super.read(b, off, len);
+        if (read > 0) {
+            write(b, off, read);
+        }
+        return read;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        // Skipped bytes are not written, so the file can't be cached.
+        failed = true;
+        return super.skip(n);
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            super.close();
+        } finally {
+            completeFile();
+        }
+    }
+
+    private void write(byte[] b, int off, int len) {
+        if (failed) {
+            return;
+        }
+        try {
+            fileStream.write(b, off, len);
+            written += len;
+        } catch (IOException e) {
+            // Failure of caching must not affect the reader.
+            log.error("Failed to write cache file " + file + ". " + e);
+            failed = true;
+        }
+    }
+
+    private void completeFile() {
+        try {
+            fileStream.close();
+        } catch (IOException e) {
+            failed = true;
+        }
+        if (!failed && written == expectedSize) {
+            onComplete.accept(file);
+            return;
+        }
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.error("Failed to delete cache file " + file + ". " + e);
+        }
+    }
+}
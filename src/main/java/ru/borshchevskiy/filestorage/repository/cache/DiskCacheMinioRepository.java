@@ -0,0 +1,304 @@
+package ru.borshchevskiy.filestorage.repository.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.minio.messages.Item;
+import lombok.extern.slf4j.Slf4j;
+import ru.borshchevskiy.filestorage.config.properties.DiskCacheProperties;
+import ru.borshchevskiy.filestorage.repository.ItemsPage;
+import ru.borshchevskiy.filestorage.repository.MinioRepository;
+import ru.borshchevskiy.filestorage.repository.ObjectInfo;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+/**
+ * {@link MinioRepository} decorator which caches downloaded files on local disk.
+ * <p>
+ * Before a file is served, its current ETag is requested from storage. Cached copy is only used if its ETag
+ * matches, so changes made to the object bypassing this application are never served from cache.
+ * On cache miss file is streamed from storage and written to cache at the same time.
+ * <p>
+ * Total size of cached files is bounded by {@link DiskCacheProperties#getMaxSize()}. Entries are evicted
+ * by Caffeine's size-aware W-TinyLFU policy, evicted files are deleted from disk.
+ * Entries are invalidated when objects are changed or deleted through this repository.
+ */
+@Slf4j
+public class DiskCacheMinioRepository implements MinioRepository {
+
+    private static final String METRICS_PREFIX = "storage.disk-cache";
+    /**
+     * Prefix of names of files created by the cache, so only these files are removed from the directory.
+     */
+    private static final String FILE_PREFIX = "cached-";
+
+    private final MinioRepository delegate;
+    private final Path directory;
+    private final long maxObjectSize;
+    private final Cache<String, CachedFile> cache;
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter servedBytes;
+    private final Counter fetchedBytes;
+    private final Counter evictions;
+
+    public DiskCacheMinioRepository(MinioRepository delegate,
+                                    DiskCacheProperties diskCacheProperties,
+                                    MeterRegistry meterRegistry) {
+        this.delegate = delegate;
+        this.directory = Path.of(diskCacheProperties.getDirectory());
+        this.maxObjectSize = diskCacheProperties.getMaxObjectSize().toBytes();
+        prepareDirectory();
+
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(diskCacheProperties.getMaxSize().toBytes())
+                .weigher((String path, CachedFile file) -> (int) Math.min(file.size(), Integer.MAX_VALUE))
+                .removalListener((String path, CachedFile file, RemovalCause cause) -> onRemoval(file, cause))
+                .build();
+
+        this.hits = Counter.builder(METRICS_PREFIX + ".requests").tag("result", "hit")
+                .description("Downloads served from local disk cache")
+                .register(meterRegistry);
+        this.misses = Counter.builder(METRICS_PREFIX + ".requests").tag("result", "miss")
+                .description("Downloads served from storage")
+                .register(meterRegistry);
+        this.servedBytes = Counter.builder(METRICS_PREFIX + ".bytes.served").baseUnit("bytes")
+                .description("Bytes served from local disk cache")
+                .register(meterRegistry);
+        this.fetchedBytes = Counter.builder(METRICS_PREFIX + ".bytes.fetched").baseUnit("bytes")
+                .description("Bytes of cacheable files fetched from storage")
+                .register(meterRegistry);
+        this.evictions = Counter.builder(METRICS_PREFIX + ".evictions")
+                .description("Files evicted from local disk cache")
+                .register(meterRegistry);
+        Gauge.builder(METRICS_PREFIX + ".size", cache,
+                        c -> c.policy().eviction().map(eviction -> eviction.weightedSize().orElse(0)).orElse(0L))
+                .baseUnit("bytes")
+                .description("Total size of files in local disk cache")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public List<Item> getItemsByPath(String path, boolean isRecursive) {
+        return delegate.getItemsByPath(path, isRecursive);
+    }
+
+    @Override
+    public Stream<Item> getItemsStream(String path, boolean isRecursive) {
+        return delegate.getItemsStream(path, isRecursive);
+    }
+
+    @Override
+    public ItemsPage getItemsPage(String path, boolean isRecursive, String continuationToken, int maxKeys) {
+        return delegate.getItemsPage(path, isRecursive, continuationToken, maxKeys);
+    }
+
+    /**
+     * Method returns file from cache if cached copy is up to date, otherwise file is requested from storage
+     * and cached while it is read.
+     *
+     * @param path path where file is located.
+     * @return {@link InputStream} of the file.
+     */
+    @Override
+    public InputStream getFile(String path) {
+        ObjectInfo objectInfo = delegate.statFile(path);
+        CachedFile cachedFile = getValid(path, objectInfo);
+        if (cachedFile != null) {
+            return openCached(path, cachedFile, objectInfo.getContentEncoding(), 0, cachedFile.size());
+        }
+
+        misses.increment();
+        InputStream inputStream = delegate.getFile(path);
+        if (objectInfo.getSize() > maxObjectSize) {
+            return inputStream;
+        }
+        fetchedBytes.increment(objectInfo.getSize());
+        Path file = directory.resolve(FILE_PREFIX + UUID.randomUUID());
+        try {
+            return new CachingInputStream(inputStream, file, objectInfo.getSize(),
+                    completed -> cache.put(path, new CachedFile(completed, objectInfo.getEtag(), objectInfo.getSize())));
+        } catch (IOException e) {
+            log.error("Failed to create cache file for " + path + ". " + e);
+            return inputStream;
+        }
+    }
+
+    /**
+     * Method returns part of the file from cache if cached copy is up to date, otherwise requested part
+     * is read from storage. Parts are never cached.
+     *
+     * @param path path where file is located.
+     * @param contentEncoding content coding the file is stored with, see {@link ObjectInfo#getContentEncoding()}.
+     * @param offset position of the first byte to be read.
+     * @param length number of bytes to be read.
+     * @return {@link InputStream} of the requested part of the file.
+     */
+    @Override
+    public InputStream getFile(String path, String contentEncoding, long offset, long length) {
+        CachedFile cachedFile = cache.getIfPresent(path);
+        if (cachedFile != null && offset + length <= cachedFile.size()) {
+            cachedFile = getValid(path, delegate.statFile(path));
+            if (cachedFile != null) {
+                return openCached(path, cachedFile, contentEncoding, offset, length);
+            }
+        }
+        misses.increment();
+        return delegate.getFile(path, contentEncoding, offset, length);
+    }
+
+    /**
+     * Method reads the object as it is stored. Stored objects are never cached.
+     */
+    @Override
+    public InputStream getEncodedFile(String path) {
+        return delegate.getEncodedFile(path);
+    }
+
+    @Override
+    public ObjectInfo statFile(String path) {
+        return delegate.statFile(path);
+    }
+
+    @Override
+    public void putFile(InputStream inputStream, String path) {
+        cache.invalidate(path);
+        delegate.putFile(inputStream, path);
+    }
+
+    @Override
+    public void deleteFile(String path) {
+        cache.invalidate(path);
+        delegate.deleteFile(path);
+    }
+
+    @Override
+    public void deleteFiles(Collection<String> paths) {
+        cache.invalidateAll(paths);
+        delegate.deleteFiles(paths);
+    }
+
+    @Override
+    public void deleteDirectory(String path) {
+        cache.invalidateAll(cache.asMap().keySet().stream()
+                .filter(key -> key.startsWith(path))
+                .toList());
+        delegate.deleteDirectory(path);
+    }
+
+    @Override
+    public void copyFile(String oldPath, String newPath) {
+        cache.invalidate(newPath);
+        delegate.copyFile(oldPath, newPath);
+    }
+
+    @Override
+    public void createDirectory(String path) {
+        delegate.createDirectory(path);
+    }
+
+    @Override
+    public String getDownloadUrl(String path, String fileName) {
+        return delegate.getDownloadUrl(path, fileName);
+    }
+
+    /**
+     * Method invalidates cached file, as it may be replaced by the upload.
+     */
+    @Override
+    public String getUploadUrl(String path) {
+        cache.invalidate(path);
+        return delegate.getUploadUrl(path);
+    }
+
+    /**
+     * Method returns cached file if its ETag matches current ETag of the object.
+     * Outdated entry is invalidated.
+     *
+     * @param path       path of the object.
+     * @param objectInfo current metadata of the object.
+     * @return {@link CachedFile} or null if file isn't cached or cached copy is outdated.
+     */
+    private CachedFile getValid(String path, ObjectInfo objectInfo) {
+        CachedFile cachedFile = cache.getIfPresent(path);
+        if (cachedFile == null) {
+            return null;
+        }
+        if (!cachedFile.etag().equals(objectInfo.getEtag())) {
+            cache.asMap().remove(path, cachedFile);
+            return null;
+        }
+        return cachedFile;
+    }
+
+    private InputStream openCached(String path, CachedFile cachedFile, String contentEncoding, long offset,
+                                   long length) {
+        try {
+            InputStream inputStream = new FileChannelInputStream(cachedFile.file(), offset, length);
+            hits.increment();
+            servedBytes.increment(length);
+            return inputStream;
+        } catch (IOException e) {
+            // File was evicted after it had been found in cache.
+            log.debug("Cached file for " + path + " is not available. " + e);
+            misses.increment();
+            return offset == 0 && length == cachedFile.size()
+                    ? delegate.getFile(path)
+                    : delegate.getFile(path, contentEncoding, offset, length);
+        }
+    }
+
+    private void onRemoval(CachedFile file, RemovalCause cause) {
+        if (cause.wasEvicted()) {
+            evictions.increment();
+        }
+        if (file == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(file.file());
+        } catch (IOException e) {
+            log.error("Failed to delete cache file " + file.file() + ". " + e);
+        }
+    }
+
+    /**
+     * Method creates cache directory and removes files left from previous run.
+     * Other files in the directory are kept, so it is safe to configure a shared directory.
+     */
+    private void prepareDirectory() {
+        try {
+            Files.createDirectories(directory);
+            try (Stream<Path> files = Files.list(directory)) {
+                for (Path file : (Iterable<Path>) files::iterator) {
+                    if (Files.isRegularFile(file) && file.getFileName().toString().startsWith(FILE_PREFIX)) {
+                        Files.deleteIfExists(file);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to prepare disk cache directory " + directory + ".", e);
+        }
+    }
+
+    /**
+     * Cached copy of the object.
+     *
+     * @param file local file.
+     * @param etag ETag of the object when it was cached.
+     * @param size size of the object.
+     */
+    private record CachedFile(Path file, String etag, long size) {
+    }
+}
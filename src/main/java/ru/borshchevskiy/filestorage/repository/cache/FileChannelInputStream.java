@@ -0,0 +1,93 @@
+package ru.borshchevskiy.filestorage.repository.cache;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * {@link InputStream} which reads a range of a local file.
+ * <p>
+ * {@link #transferTo(OutputStream)} is implemented with {@link FileChannel#transferTo(long, long, WritableByteChannel)}.
+ * Targets such as servlet output streams are not channels, so they are wrapped with
+ * {@link Channels#newChannel(OutputStream)}, which still copies content through its own heap buffer.
+ * So the method only saves a copy into the caller's buffer, content is not passed to the target with zero-copy.
+ */
+class FileChannelInputStream extends InputStream {
+
+    private final FileChannel channel;
+    private final long end;
+    private long position;
+
+    /**
+     * @param file   file to be read.
+     * @param offset position of the first byte to be read.
+     * @param length number of bytes to be read.
+     * @throws IOException if file can't be opened.
+     */
+    FileChannelInputStream(Path file, long offset, long length) throws IOException {
+        this.channel = FileChannel.open(file, StandardOpenOption.READ);
+        this.position = offset;
+        this.end = offset + length;
+    }
+
+    @Override
+    public int read() throws IOException {
+        byte[] b = new byte[1];
+        return read(b, 0, 1) == -1 ? -1 : b[0] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        if (position >= end) {
+            return -1;
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(b, off, (int) Math.min(len, end - position));
+        int read = channel.read(buffer, position);
+        if (read == -1) {
+            return -1;
+        }
+        position += read;
+        return read;
+    }
+
+    @Override
+    public long transferTo(OutputStream out) throws IOException {
+        WritableByteChannel target = Channels.newChannel(out);
+        long transferred = 0;
+        while (position < end) {
+            long count = channel.transferTo(position, end - position, target);
+            if (count <= 0) {
+                break;
+            }
+            position += count;
+            transferred += count;
+        }
+        return transferred;
+    }
+
+    @Override
+    public long skip(long n) {
+        long skipped = Math.max(0, Math.min(n, end - position));
+        position += skipped;
+        return skipped;
+    }
+
+    @Override
+    public int available() {
+        return (int) Math.min(end - position, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,75 @@
+package ru.borshchevskiy.filestorage.repository.client;
+
+import javax.net.SocketFactory;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.net.SocketException;
+
+/**
+ * {@link SocketFactory} which creates sockets with specified send and receive buffer sizes.
+ * <p>
+ * OkHttp doesn't provide settings for socket buffers, so this factory is used to tune them
+ * for large object transfers.
+ *
+ * @see ru.borshchevskiy.filestorage.config.MinioConfiguration#minioHttpClient()
+ */
+public class BufferSizeSocketFactory extends SocketFactory {
+
+    private final SocketFactory delegate = SocketFactory.getDefault();
+    private final int sendBufferSize;
+    private final int receiveBufferSize;
+
+    /**
+     * @param sendBufferSize    size of send buffer in bytes. Default size is used if not positive.
+     * @param receiveBufferSize size of receive buffer in bytes. Default size is used if not positive.
+     */
+    public BufferSizeSocketFactory(int sendBufferSize, int receiveBufferSize) {
+        this.sendBufferSize = sendBufferSize;
+        this.receiveBufferSize = receiveBufferSize;
+    }
+
+    @Override
+    public Socket createSocket() throws IOException {
+        return configure(delegate.createSocket());
+    }
+
+    @Override
+    public Socket createSocket(String host, int port) throws IOException {
+        return configure(delegate.createSocket(host, port));
+    }
+
+    @Override
+    public Socket createSocket(String host, int port, InetAddress localHost, int localPort) throws IOException {
+        return configure(delegate.createSocket(host, port, localHost, localPort));
+    }
+
+    @Override
+    public Socket createSocket(InetAddress host, int port) throws IOException {
+        return configure(delegate.createSocket(host, port));
+    }
+
+    @Override
+    public Socket createSocket(InetAddress address, int port, InetAddress localAddress, int localPort)
+            throws IOException {
+        return configure(delegate.createSocket(address, port, localAddress, localPort));
+    }
+
+    /**
+     * Method sets buffer sizes. Receive buffer is set before the socket is connected,
+     * so the size is taken into account when TCP window is negotiated.
+     *
+     * @param socket socket to be configured.
+     * @return the same socket.
+     * @throws SocketException if buffer size can't be set.
+     */
+    private Socket configure(Socket socket) throws SocketException {
+        if (sendBufferSize > 0) {
+            socket.setSendBufferSize(sendBufferSize);
+        }
+        if (receiveBufferSize > 0) {
+            socket.setReceiveBufferSize(receiveBufferSize);
+        }
+        return socket;
+    }
+}
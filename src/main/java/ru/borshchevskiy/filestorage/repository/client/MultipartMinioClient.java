@@ -0,0 +1,140 @@
+package ru.borshchevskiy.filestorage.repository.client;
+
+import com.google.common.collect.Multimap;
+import io.minio.*;
+import io.minio.errors.InsufficientDataException;
+import io.minio.errors.InternalException;
+import io.minio.errors.XmlParserException;
+import io.minio.messages.Part;
+
+import java.io.IOException;
+import java.security.InvalidKeyException;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Asynchronous Minio client which exposes low-level multipart upload and listing operations.
+ * <p>
+ * {@link MinioAsyncClient} keeps these operations protected and only uses them internally
+ * from {@link MinioAsyncClient#putObject(PutObjectArgs)}, which uploads parts one by one, and
+ * from {@link MinioAsyncClient#listObjects(ListObjectsArgs)}, which blocks the consuming thread
+ * while the next page is requested. This class makes them available to upload parts concurrently
+ * and to request pages of objects without blocking. Objects are also put directly from byte arrays,
+ * so they are not copied into buffers of the client.
+ *
+ * @see ru.borshchevskiy.filestorage.repository.upload.ParallelUploadEngine
+ */
+public class MultipartMinioClient extends MinioAsyncClient {
+
+    public MultipartMinioClient(MinioAsyncClient client) {
+        super(client);
+    }
+
+    @Override
+    public CompletableFuture<CreateMultipartUploadResponse> createMultipartUploadAsync(
+            String bucketName,
+            String region,
+            String objectName,
+            Multimap<String, String> headers,
+            Multimap<String, String> extraQueryParams)
+            throws InsufficientDataException, InternalException, InvalidKeyException, IOException,
+            NoSuchAlgorithmException, XmlParserException {
+        return super.createMultipartUploadAsync(bucketName, region, objectName, headers, extraQueryParams);
+    }
+
+    @Override
+    public CompletableFuture<ObjectWriteResponse> putObjectAsync(
+            String bucketName,
+            String region,
+            String objectName,
+            Object data,
+            long length,
+            Multimap<String, String> headers,
+            Multimap<String, String> extraQueryParams)
+            throws InsufficientDataException, InternalException, InvalidKeyException, IOException,
+            NoSuchAlgorithmException, XmlParserException {
+        return super.putObjectAsync(bucketName, region, objectName, data, length, headers, extraQueryParams);
+    }
+
+    @Override
+    public CompletableFuture<UploadPartResponse> uploadPartAsync(
+            String bucketName,
+            String region,
+            String objectName,
+            Object data,
+            long length,
+            String uploadId,
+            int partNumber,
+            Multimap<String, String> extraHeaders,
+            Multimap<String, String> extraQueryParams)
+            throws InsufficientDataException, InternalException, InvalidKeyException, IOException,
+            NoSuchAlgorithmException, XmlParserException {
+        return super.uploadPartAsync(bucketName, region, objectName, data, length, uploadId, partNumber,
+                extraHeaders, extraQueryParams);
+    }
+
+    @Override
+    public CompletableFuture<ObjectWriteResponse> completeMultipartUploadAsync(
+            String bucketName,
+            String region,
+            String objectName,
+            String uploadId,
+            Part[] parts,
+            Multimap<String, String> extraHeaders,
+            Multimap<String, String> extraQueryParams)
+            throws InsufficientDataException, InternalException, InvalidKeyException, IOException,
+            NoSuchAlgorithmException, XmlParserException {
+        return super.completeMultipartUploadAsync(bucketName, region, objectName, uploadId, parts,
+                extraHeaders, extraQueryParams);
+    }
+
+    @Override
+    public CompletableFuture<AbortMultipartUploadResponse> abortMultipartUploadAsync(
+            String bucketName,
+            String region,
+            String objectName,
+            String uploadId,
+            Multimap<String, String> extraHeaders,
+            Multimap<String, String> extraQueryParams)
+            throws InsufficientDataException, InternalException, InvalidKeyException, IOException,
+            NoSuchAlgorithmException, XmlParserException {
+        return super.abortMultipartUploadAsync(bucketName, region, objectName, uploadId,
+                extraHeaders, extraQueryParams);
+    }
+
+    @Override
+    public CompletableFuture<ListPartsResponse> listPartsAsync(
+            String bucketName,
+            String region,
+            String objectName,
+            Integer maxParts,
+            Integer partNumberMarker,
+            String uploadId,
+            Multimap<String, String> extraHeaders,
+            Multimap<String, String> extraQueryParams)
+            throws InsufficientDataException, InternalException, InvalidKeyException, IOException,
+            NoSuchAlgorithmException, XmlParserException {
+        return super.listPartsAsync(bucketName, region, objectName, maxParts, partNumberMarker, uploadId,
+                extraHeaders, extraQueryParams);
+    }
+
+    @Override
+    public CompletableFuture<ListObjectsV2Response> listObjectsV2Async(
+            String bucketName,
+            String region,
+            String delimiter,
+            String encodingType,
+            String startAfter,
+            Integer maxKeys,
+            String prefix,
+            String continuationToken,
+            boolean fetchOwner,
+            boolean includeUserMetadata,
+            Multimap<String, String> extraHeaders,
+            Multimap<String, String> extraQueryParams)
+            throws InsufficientDataException, InternalException, InvalidKeyException, IOException,
+            NoSuchAlgorithmException, XmlParserException {
+        return super.listObjectsV2Async(bucketName, region, delimiter, encodingType, startAfter, maxKeys, prefix,
+                continuationToken, fetchOwner, includeUserMetadata, extraHeaders, extraQueryParams);
+    }
+}
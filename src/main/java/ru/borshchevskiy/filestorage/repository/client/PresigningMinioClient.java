@@ -0,0 +1,33 @@
+package ru.borshchevskiy.filestorage.repository.client;
+
+import io.minio.GetPresignedObjectUrlArgs;
+import io.minio.MinioClient;
+import io.minio.errors.*;
+
+import java.io.IOException;
+import java.security.InvalidKeyException;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Minio client which only signs URLs of direct transfers between browsers and storage.
+ * <p>
+ * Its endpoint is the storage URL reachable by browsers, which may differ from the one the application
+ * sends requests to, so it is kept apart from the main {@link MinioClient}. Region of the bucket is configured,
+ * so URLs are signed locally without requests to storage.
+ *
+ * @see ru.borshchevskiy.filestorage.repository.impl.MinioRepositoryImpl
+ */
+public class PresigningMinioClient {
+
+    private final MinioClient client;
+
+    public PresigningMinioClient(MinioClient client) {
+        this.client = client;
+    }
+
+    public String getPresignedObjectUrl(GetPresignedObjectUrlArgs args)
+            throws ErrorResponseException, InsufficientDataException, InternalException, InvalidKeyException,
+            InvalidResponseException, IOException, NoSuchAlgorithmException, XmlParserException, ServerException {
+        return client.getPresignedObjectUrl(args);
+    }
+}
@@ -0,0 +1,101 @@
+package ru.borshchevskiy.filestorage.repository.compression;
+
+import com.github.luben.zstd.ZstdOutputStream;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * {@link InputStream} of Zstandard-compressed content of the source stream.
+ * <p>
+ * Source is read in chunks as compressed bytes are consumed, so only a single chunk and its compressed form
+ * are held in memory. Source stream is read to the end but not closed.
+ */
+public class CompressingInputStream extends InputStream {
+
+    private static final int CHUNK_SIZE = 128 * 1024;
+
+    private final InputStream source;
+    private final Buffer buffer = new Buffer();
+    private final ZstdOutputStream compressor;
+    private final byte[] chunk = new byte[CHUNK_SIZE];
+    private int position;
+    private long decodedSize;
+    private boolean complete;
+    private boolean finished;
+
+    CompressingInputStream(InputStream source, int level) throws IOException {
+        this.source = source;
+        this.compressor = new ZstdOutputStream(buffer, level);
+    }
+
+    @Override
+    public int read() throws IOException {
+        byte[] single = new byte[1];
+        return read(single, 0, 1) < 0 ? -1 : single[0] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        while (position == buffer.size()) {
+            if (finished) {
+                return -1;
+            }
+            buffer.reset();
+            position = 0;
+            int read = source.read(chunk);
+            if (read < 0) {
+                // Writes the end of the frame.
+                compressor.close();
+                complete = true;
+                finished = true;
+            } else {
+                decodedSize += read;
+                compressor.write(chunk, 0, read);
+            }
+        }
+        int count = Math.min(len, buffer.size() - position);
+        System.arraycopy(buffer.array(), position, b, off, count);
+        position += count;
+        return count;
+    }
+
+    /**
+     * @return number of bytes read from the source stream.
+     */
+    public long getDecodedSize() {
+        return decodedSize;
+    }
+
+    /**
+     * @return true if the source stream has been read to the end, so {@link #getDecodedSize()} is final.
+     */
+    public boolean isComplete() {
+        return complete;
+    }
+
+    /**
+     * Method releases the compressor. Source stream is not closed.
+     */
+    @Override
+    public void close() throws IOException {
+        if (!finished) {
+            finished = true;
+            compressor.close();
+        }
+    }
+
+    /**
+     * Buffer of compressed bytes which exposes its array, so bytes are not copied when they are read.
+     */
+    private static class Buffer extends ByteArrayOutputStream {
+
+        byte[] array() {
+            return buf;
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package ru.borshchevskiy.filestorage.repository.compression;
+
+import com.github.luben.zstd.Zstd;
+import io.minio.messages.Item;
+import okhttp3.Headers;
+import org.springframework.stereotype.Component;
+import ru.borshchevskiy.filestorage.config.properties.CompressionProperties;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Compresses content of files stored in storage and decompresses it when files are read.
+ * <p>
+ * Files are compressed with Zstandard if compression of their first {@link CompressionProperties#getSampleSize()}
+ * bytes saves at least {@link CompressionProperties#getMinSavings()} of the sample, so text files are compressed
+ * while already compressed media and archives are stored as is. Compressed objects are marked with
+ * user metadata holding the codec and the size of decompressed content. The codec name is the one used
+ * in "Content-Encoding" header, so compressed content may be sent to clients which accept it as is.
+ *
+ * @see ru.borshchevskiy.filestorage.repository.impl.MinioRepositoryImpl
+ */
+@Component
+public class ContentCodec {
+
+    /**
+     * Name of Zstandard codec, the same as its HTTP content coding.
+     */
+    public static final String ZSTD = "zstd";
+
+    private static final String USER_METADATA_PREFIX = "x-amz-meta-";
+    private static final String CODEC_KEY = "content-codec";
+    private static final String DECODED_SIZE_KEY = "decoded-size";
+
+    private final CompressionProperties compressionProperties;
+
+    public ContentCodec(CompressionProperties compressionProperties) {
+        this.compressionProperties = compressionProperties;
+    }
+
+    /**
+     * @return true if uploaded files should be compressed.
+     */
+    public boolean isEnabled() {
+        return compressionProperties.isEnabled();
+    }
+
+    /**
+     * @return number of first bytes of the file required by {@link #isCompressible(byte[], boolean)}.
+     */
+    public int getSampleSize() {
+        return (int) Math.min(compressionProperties.getSampleSize().toBytes(), Integer.MAX_VALUE - 1);
+    }
+
+    /**
+     * Method decides if the file should be compressed by compressing its first bytes.
+     *
+     * @param sample   first bytes of the file, up to {@link #getSampleSize()}.
+     * @param complete true if the sample is the whole file.
+     * @return true if the file should be compressed.
+     */
+    public boolean isCompressible(byte[] sample, boolean complete) {
+        if (complete && sample.length < compressionProperties.getMinSize().toBytes()) {
+            return false;
+        }
+        byte[] compressed = Zstd.compress(sample, compressionProperties.getLevel());
+        return compressed.length <= sample.length * (1 - compressionProperties.getMinSavings());
+    }
+
+    /**
+     * @param inputStream {@link InputStream} of the file. It is read to the end but not closed.
+     * @return {@link CompressingInputStream} of the compressed content.
+     * @throws IOException if compressor can't be created.
+     */
+    public CompressingInputStream compress(InputStream inputStream) throws IOException {
+        return new CompressingInputStream(inputStream, compressionProperties.getLevel());
+    }
+
+    /**
+     * @param decodedSize size of decompressed content or null if it is not known yet.
+     * @return user metadata of the compressed object.
+     */
+    public Map<String, String> getUserMetadata(Long decodedSize) {
+        Map<String, String> userMetadata = new HashMap<>();
+        userMetadata.put(CODEC_KEY, ZSTD);
+        if (decodedSize != null) {
+            userMetadata.put(DECODED_SIZE_KEY, decodedSize.toString());
+        }
+        return userMetadata;
+    }
+
+    /**
+     * @param userMetadata user metadata of the object, keys may include "X-Amz-Meta-" prefix.
+     * @return codec the object is compressed with or null if it is stored as is.
+     */
+    public String getCodec(Map<String, String> userMetadata) {
+        return getValue(userMetadata, CODEC_KEY);
+    }
+
+    /**
+     * @param headers headers of the response to get object request.
+     * @return codec the object is compressed with or null if it is stored as is.
+     */
+    public String getCodec(Headers headers) {
+        return headers.get(USER_METADATA_PREFIX + CODEC_KEY);
+    }
+
+    /**
+     * @param userMetadata user metadata of the object, keys may include "X-Amz-Meta-" prefix.
+     * @param storedSize   size of the object in storage.
+     * @return size of decompressed content of the object or storedSize if it is stored as is.
+     */
+    public long getDecodedSize(Map<String, String> userMetadata, long storedSize) {
+        String decodedSize = getValue(userMetadata, DECODED_SIZE_KEY);
+        if (getCodec(userMetadata) == null || decodedSize == null) {
+            return storedSize;
+        }
+        try {
+            return Long.parseLong(decodedSize);
+        } catch (NumberFormatException e) {
+            return storedSize;
+        }
+    }
+
+    /**
+     * @param inputStream {@link InputStream} of the object in storage. It is closed when the result is closed.
+     * @param codec       codec the object is compressed with or null if it is stored as is.
+     * @return {@link InputStream} of decompressed content, see {@link DecompressingInputStream}.
+     * @throws IOException if the codec is not supported.
+     */
+    public InputStream decode(InputStream inputStream, String codec) throws IOException {
+        if (codec == null) {
+            return inputStream;
+        }
+        if (!ZSTD.equals(codec)) {
+            inputStream.close();
+            throw new IOException("Unsupported codec " + codec + ".");
+        }
+        return new DecompressingInputStream(inputStream);
+    }
+
+    /**
+     * @param item listed {@link Item}.
+     * @return {@link Item} with size of decompressed content.
+     */
+    public Item decode(Item item) {
+        if (item.isDir() || getCodec(item.userMetadata()) == null) {
+            return item;
+        }
+        return new DecodedItem(item, getDecodedSize(item.userMetadata(), item.size()));
+    }
+
+    private String getValue(Map<String, String> userMetadata, String key) {
+        if (userMetadata == null || userMetadata.isEmpty()) {
+            return null;
+        }
+        for (Map.Entry<String, String> entry : userMetadata.entrySet()) {
+            String name = entry.getKey().toLowerCase(Locale.ROOT);
+            if (name.equals(key) || name.equals(USER_METADATA_PREFIX + key)) {
+                return entry.getValue();
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,77 @@
+package ru.borshchevskiy.filestorage.repository.compression;
+
+import io.minio.messages.Item;
+import io.minio.messages.Owner;
+
+import java.time.ZonedDateTime;
+import java.util.Map;
+
+/**
+ * Listed {@link Item} of a compressed file. Size is the size of decompressed content,
+ * other attributes are the ones of the listed item.
+ */
+class DecodedItem extends Item {
+
+    private final Item item;
+    private final long size;
+
+    DecodedItem(Item item, long size) {
+        this.item = item;
+        this.size = size;
+    }
+
+    @Override
+    public String objectName() {
+        return item.objectName();
+    }
+
+    @Override
+    public ZonedDateTime lastModified() {
+        return item.lastModified();
+    }
+
+    @Override
+    public String etag() {
+        return item.etag();
+    }
+
+    @Override
+    public long size() {
+        return size;
+    }
+
+    @Override
+    public String storageClass() {
+        return item.storageClass();
+    }
+
+    @Override
+    public Owner owner() {
+        return item.owner();
+    }
+
+    @Override
+    public Map<String, String> userMetadata() {
+        return item.userMetadata();
+    }
+
+    @Override
+    public boolean isLatest() {
+        return item.isLatest();
+    }
+
+    @Override
+    public String versionId() {
+        return item.versionId();
+    }
+
+    @Override
+    public boolean isDir() {
+        return item.isDir();
+    }
+
+    @Override
+    public boolean isDeleteMarker() {
+        return item.isDeleteMarker();
+    }
+}
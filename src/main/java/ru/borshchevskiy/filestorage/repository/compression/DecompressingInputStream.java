@@ -0,0 +1,86 @@
+package ru.borshchevskiy.filestorage.repository.compression;
+
+import com.github.luben.zstd.ZstdBufferDecompressingStreamNoFinalizer;
+import com.github.luben.zstd.ZstdInputStream;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * {@link InputStream} of content decompressed from Zstandard-compressed source stream.
+ * <p>
+ * {@link ZstdInputStream} reads the source inside its synchronized methods, so a virtual thread waiting
+ * for storage response would pin its carrier thread. This stream reads the source without holding any monitor
+ * and passes received bytes to the decompressor. Source stream is closed when this stream is closed.
+ */
+public class DecompressingInputStream extends InputStream {
+
+    private static final int SOURCE_BUFFER_SIZE = 128 * 1024;
+
+    private final InputStream source;
+    private final ByteBuffer sourceBuffer = ByteBuffer.allocate(SOURCE_BUFFER_SIZE).limit(0);
+    private final ZstdBufferDecompressingStreamNoFinalizer decompressor;
+    private boolean closed;
+
+    DecompressingInputStream(InputStream source) {
+        this.source = source;
+        this.decompressor = new ZstdBufferDecompressingStreamNoFinalizer(sourceBuffer);
+    }
+
+    @Override
+    public int read() throws IOException {
+        byte[] single = new byte[1];
+        return read(single, 0, 1) < 0 ? -1 : single[0] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        ByteBuffer target = ByteBuffer.wrap(b, off, len);
+        while (true) {
+            int produced = decompressor.read(target);
+            if (produced > 0) {
+                return produced;
+            }
+            if (!decompressor.hasRemaining()) {
+                return -1;
+            }
+            if (!fillSourceBuffer()) {
+                throw new EOFException("Compressed content ended before the end of the frame.");
+            }
+        }
+    }
+
+    /**
+     * Method releases the decompressor and closes the source stream.
+     */
+    @Override
+    public void close() throws IOException {
+        if (!closed) {
+            closed = true;
+            decompressor.close();
+            source.close();
+        }
+    }
+
+    /**
+     * Method reads next bytes of the source if all received bytes have been passed to the decompressor.
+     *
+     * @return false if the source stream has ended.
+     */
+    private boolean fillSourceBuffer() throws IOException {
+        if (sourceBuffer.hasRemaining()) {
+            return true;
+        }
+        int read = source.read(sourceBuffer.array(), 0, sourceBuffer.capacity());
+        if (read < 0) {
+            return false;
+        }
+        sourceBuffer.position(0).limit(read);
+        return true;
+    }
+}
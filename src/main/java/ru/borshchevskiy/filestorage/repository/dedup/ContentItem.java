@@ -0,0 +1,78 @@
+package ru.borshchevskiy.filestorage.repository.dedup;
+
+import io.minio.messages.Item;
+import io.minio.messages.Owner;
+import ru.borshchevskiy.filestorage.entity.ContentReference;
+
+import java.time.ZonedDateTime;
+import java.util.Map;
+
+/**
+ * Listed {@link Item} of a file stored by hash. Size and ETag are the ones of the file's content,
+ * ETag is the hash of the content. Other attributes are the ones of the listed item.
+ */
+class ContentItem extends Item {
+
+    private final Item item;
+    private final ContentReference reference;
+
+    ContentItem(Item item, ContentReference reference) {
+        this.item = item;
+        this.reference = reference;
+    }
+
+    @Override
+    public String objectName() {
+        return item.objectName();
+    }
+
+    @Override
+    public ZonedDateTime lastModified() {
+        return item.lastModified();
+    }
+
+    @Override
+    public String etag() {
+        return reference.getHash();
+    }
+
+    @Override
+    public long size() {
+        return reference.getSize();
+    }
+
+    @Override
+    public String storageClass() {
+        return item.storageClass();
+    }
+
+    @Override
+    public Owner owner() {
+        return item.owner();
+    }
+
+    @Override
+    public Map<String, String> userMetadata() {
+        return item.userMetadata();
+    }
+
+    @Override
+    public boolean isLatest() {
+        return item.isLatest();
+    }
+
+    @Override
+    public String versionId() {
+        return item.versionId();
+    }
+
+    @Override
+    public boolean isDir() {
+        return item.isDir();
+    }
+
+    @Override
+    public boolean isDeleteMarker() {
+        return item.isDeleteMarker();
+    }
+}
@@ -0,0 +1,198 @@
+package ru.borshchevskiy.filestorage.repository.dedup;
+
+import io.minio.messages.Item;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.borshchevskiy.filestorage.entity.ContentReference;
+import ru.borshchevskiy.filestorage.repository.ContentBlobRepository;
+import ru.borshchevskiy.filestorage.repository.ContentReferenceRepository;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Keeps track of files whose content is stored once per hash.
+ * <p>
+ * Every file stored by {@link DeduplicatingMinioRepository} has a {@link ContentReference} to its content,
+ * every content has a number of references. Numbers are changed in the same transaction as references,
+ * so content is removed by {@link UnreferencedContentCollector} only when no file refers to it.
+ * Content is referenced before it is stored and row of the content is locked while it is removed,
+ * so content is never removed while a new file refers to it.
+ */
+@Component
+public class ContentStore {
+
+    private final ContentBlobRepository contentBlobRepository;
+    private final ContentReferenceRepository contentReferenceRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    public ContentStore(ContentBlobRepository contentBlobRepository,
+                        ContentReferenceRepository contentReferenceRepository,
+                        PlatformTransactionManager transactionManager) {
+        this.contentBlobRepository = contentBlobRepository;
+        this.contentReferenceRepository = contentReferenceRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Method returns reference of the file.
+     *
+     * @param path storage path of the file.
+     * @return reference or empty {@link Optional} if file content is not stored by hash.
+     */
+    public Optional<ContentReference> find(String path) {
+        return contentReferenceRepository.findById(path);
+    }
+
+    /**
+     * Method replaces sizes and ETags of listed files stored by hash with the ones of their content.
+     * References of all items are requested with a single query.
+     *
+     * @param items listed items.
+     * @return items in the same order.
+     */
+    public List<Item> resolve(List<Item> items) {
+        List<String> paths = items.stream()
+                .filter(item -> !item.isDir() && item.size() == 0)
+                .map(Item::objectName)
+                .toList();
+        if (paths.isEmpty()) {
+            return items;
+        }
+        Map<String, ContentReference> references = contentReferenceRepository.findAllById(paths).stream()
+                .collect(Collectors.toMap(ContentReference::getPath, Function.identity()));
+        if (references.isEmpty()) {
+            return items;
+        }
+        return items.stream()
+                .map(item -> {
+                    ContentReference reference = references.get(item.objectName());
+                    return reference == null ? item : new ContentItem(item, reference);
+                })
+                .toList();
+    }
+
+    /**
+     * Method makes the file refer to the content. Previous content of the file is released.
+     * Reference to the content is counted in a separate transaction before storeContent is called,
+     * so content is not removed while it is stored, and no database rows stay locked during storage requests.
+     * Reference of the file is changed in another short transaction afterwards. If any step fails,
+     * the counted reference is released.
+     *
+     * @param path         storage path of the file.
+     * @param hash         hash of the content.
+     * @param size         size of the content.
+     * @param storeContent action which makes sure the content is present in storage.
+     */
+    public void reference(String path, String hash, long size, Runnable storeContent) {
+        transactionTemplate.executeWithoutResult(status -> contentBlobRepository.acquire(hash, size, 1));
+        try {
+            storeContent.run();
+            transactionTemplate.executeWithoutResult(status -> {
+                if (contentReferenceRepository.insertIfAbsent(path, hash, size) > 0) {
+                    return;
+                }
+                ContentReference reference = contentReferenceRepository.findForUpdate(path).orElseThrow();
+                String previousHash = reference.getHash();
+                reference.setHash(hash);
+                reference.setSize(size);
+                contentBlobRepository.release(previousHash, 1, Instant.now());
+            });
+        } catch (RuntimeException e) {
+            transactionTemplate.executeWithoutResult(status -> contentBlobRepository.release(hash, 1, Instant.now()));
+            throw e;
+        }
+    }
+
+    /**
+     * Method makes the file at newPath refer to the same content as the file at oldPath.
+     * If the source file has no reference, the copy holds its own content, so its previous reference is removed.
+     *
+     * @param oldPath storage path of the source file.
+     * @param newPath storage path of the copy.
+     */
+    public void copy(String oldPath, String newPath) {
+        contentReferenceRepository.findById(oldPath).ifPresentOrElse(
+                reference -> reference(newPath, reference.getHash(), reference.getSize(), () -> {
+                }),
+                () -> release(List.of(newPath)));
+    }
+
+    /**
+     * Method removes references of the files and releases their content.
+     *
+     * @param paths storage paths of the files.
+     */
+    public void release(Collection<String> paths) {
+        transactionTemplate.executeWithoutResult(status ->
+                release(contentReferenceRepository.findAllById(paths)));
+    }
+
+    /**
+     * Method removes references of all files in the directory and its subdirectories and releases their content.
+     *
+     * @param path storage path of the directory, ends with "/".
+     */
+    public void releaseSubtree(String path) {
+        transactionTemplate.executeWithoutResult(status ->
+                release(contentReferenceRepository.findSubtree(escapeLike(path) + "%")));
+    }
+
+    /**
+     * Method returns hashes of content which is unreferenced since before the specified time.
+     *
+     * @param before time the content must have been unreferenced before.
+     * @param limit  maximum number of hashes.
+     * @return hashes of the content.
+     */
+    public List<String> findUnreferenced(Instant before, int limit) {
+        return contentBlobRepository.findUnreferenced(before, PageRequest.ofSize(limit));
+    }
+
+    /**
+     * Method removes the content if it is still unreferenced since before the specified time.
+     * Content row stays locked while removeContent is called, so the content can't be referenced meanwhile.
+     * If removeContent fails, the content is kept.
+     *
+     * @param hash          hash of the content.
+     * @param before        time the content must have been unreferenced before.
+     * @param removeContent action which removes the content from storage.
+     * @return true if the content is removed.
+     */
+    public boolean remove(String hash, Instant before, Runnable removeContent) {
+        Boolean removed = transactionTemplate.execute(status -> {
+            if (contentBlobRepository.deleteUnreferenced(hash, before) == 0) {
+                return false;
+            }
+            removeContent.run();
+            return true;
+        });
+        return Boolean.TRUE.equals(removed);
+    }
+
+    private void release(List<ContentReference> references) {
+        if (references.isEmpty()) {
+            return;
+        }
+        contentReferenceRepository.deleteAllInBatch(references);
+        Instant now = Instant.now();
+        // Content rows are updated in the order of hashes, so concurrent releases don't deadlock.
+        references.stream()
+                .collect(Collectors.groupingBy(ContentReference::getHash, TreeMap::new, Collectors.counting()))
+                .forEach((hash, count) -> contentBlobRepository.release(hash, count, now));
+    }
+
+    private static String escapeLike(String value) {
+        return value.replace("\\", "\\\\")
+                .replace("%", "\\%")
+                .replace("_", "\\_");
+    }
+}
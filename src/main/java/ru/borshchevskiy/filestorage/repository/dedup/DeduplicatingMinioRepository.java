@@ -0,0 +1,264 @@
+package ru.borshchevskiy.filestorage.repository.dedup;
+
+import io.minio.messages.Item;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.io.input.CountingInputStream;
+import ru.borshchevskiy.filestorage.config.properties.DedupProperties;
+import ru.borshchevskiy.filestorage.entity.ContentReference;
+import ru.borshchevskiy.filestorage.exception.ResourceNotFoundException;
+import ru.borshchevskiy.filestorage.exception.repository.PutObjectException;
+import ru.borshchevskiy.filestorage.repository.ItemsPage;
+import ru.borshchevskiy.filestorage.repository.MinioRepository;
+import ru.borshchevskiy.filestorage.repository.ObjectInfo;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.UUID;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * {@link MinioRepository} decorator which stores content of files once per SHA-256 hash.
+ * <p>
+ * Uploaded file is hashed while it is sent to a temporary object. Then the temporary object is copied
+ * to {@link DedupProperties#getBlobPrefix()} + hash unless content with the same hash is already stored,
+ * and an empty object is written at the path of the file, so listings and directories work as before.
+ * Path of the file is recorded in {@link ContentStore} as a reference to the content.
+ * <p>
+ * Reads of files with references are redirected to their content, sizes and ETags of such files are the ones
+ * of their content in listings and metadata. Files without references, e.g. uploaded before deduplication
+ * was enabled, are read from their own objects. Deletes and copies of files change their references,
+ * content without references is removed by {@link UnreferencedContentCollector}.
+ */
+@Slf4j
+public class DeduplicatingMinioRepository implements MinioRepository {
+
+    /**
+     * Directory of temporary objects within {@link DedupProperties#getBlobPrefix()}.
+     */
+    static final String TEMP_DIRECTORY = "tmp/";
+    /**
+     * Number of listed items whose references are requested with a single query.
+     */
+    private static final int RESOLVE_BATCH_SIZE = 1000;
+
+    private final MinioRepository delegate;
+    private final ContentStore contentStore;
+    private final String blobPrefix;
+
+    public DeduplicatingMinioRepository(MinioRepository delegate,
+                                        ContentStore contentStore,
+                                        DedupProperties dedupProperties) {
+        this.delegate = delegate;
+        this.contentStore = contentStore;
+        this.blobPrefix = dedupProperties.getBlobPrefix();
+    }
+
+    @Override
+    public List<Item> getItemsByPath(String path, boolean isRecursive) {
+        return contentStore.resolve(delegate.getItemsByPath(path, isRecursive));
+    }
+
+    /**
+     * Method returns lazy {@link Stream} of items. References of items are requested in batches
+     * while the stream is consumed.
+     */
+    @Override
+    public Stream<Item> getItemsStream(String path, boolean isRecursive) {
+        Stream<Item> items = delegate.getItemsStream(path, isRecursive);
+        Iterator<Item> iterator = items.iterator();
+        Iterator<Item> resolved = new Iterator<>() {
+            private Iterator<Item> batch = List.<Item>of().iterator();
+
+            @Override
+            public boolean hasNext() {
+                if (!batch.hasNext() && iterator.hasNext()) {
+                    List<Item> next = new ArrayList<>(RESOLVE_BATCH_SIZE);
+                    while (next.size() < RESOLVE_BATCH_SIZE && iterator.hasNext()) {
+                        next.add(iterator.next());
+                    }
+                    batch = contentStore.resolve(next).iterator();
+                }
+                return batch.hasNext();
+            }
+
+            @Override
+            public Item next() {
+                hasNext();
+                return batch.next();
+            }
+        };
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(resolved, Spliterator.ORDERED), false)
+                .onClose(items::close);
+    }
+
+    @Override
+    public ItemsPage getItemsPage(String path, boolean isRecursive, String continuationToken, int maxKeys) {
+        ItemsPage page = delegate.getItemsPage(path, isRecursive, continuationToken, maxKeys);
+        return new ItemsPage(contentStore.resolve(page.getItems()), page.getNextContinuationToken());
+    }
+
+    @Override
+    public InputStream getFile(String path) {
+        return delegate.getFile(contentPath(path));
+    }
+
+    @Override
+    public InputStream getEncodedFile(String path) {
+        return delegate.getEncodedFile(contentPath(path));
+    }
+
+    @Override
+    public InputStream getFile(String path, String contentEncoding, long offset, long length) {
+        return delegate.getFile(contentPath(path), contentEncoding, offset, length);
+    }
+
+    @Override
+    public ObjectInfo statFile(String path) {
+        ObjectInfo objectInfo = delegate.statFile(path);
+        findReference(path).ifPresent(reference -> {
+            objectInfo.setSize(reference.getSize());
+            objectInfo.setEtag(reference.getHash());
+            // Content may be compressed, while the file's own object is always empty.
+            objectInfo.setContentEncoding(delegate.statFile(blobPrefix + reference.getHash()).getContentEncoding());
+        });
+        return objectInfo;
+    }
+
+    /**
+     * Method saves file to storage. Content is stored once per hash, an empty object is written
+     * at the path of the file.
+     *
+     * @param inputStream {@link InputStream} of the file to be saved.
+     * @param path        path of the file to be saved.
+     * @throws PutObjectException in case if any exception is thrown during upload.
+     */
+    @Override
+    public void putFile(InputStream inputStream, String path) {
+        if (isContent(path)) {
+            delegate.putFile(inputStream, path);
+            return;
+        }
+        MessageDigest digest = sha256();
+        CountingInputStream countingStream = new CountingInputStream(new DigestInputStream(inputStream, digest));
+        String tempPath = blobPrefix + TEMP_DIRECTORY + UUID.randomUUID();
+
+        delegate.putFile(countingStream, tempPath);
+        try {
+            String hash = HexFormat.of().formatHex(digest.digest());
+            long size = countingStream.getByteCount();
+            contentStore.reference(path, hash, size, () -> {
+                storeContent(tempPath, blobPrefix + hash);
+                delegate.putFile(new ByteArrayInputStream(new byte[0]), path);
+            });
+            log.debug("File " + path + " of " + size + " bytes stored as " + hash + ".");
+        } finally {
+            deleteTemp(tempPath);
+        }
+    }
+
+    @Override
+    public void deleteFile(String path) {
+        delegate.deleteFile(path);
+        if (!isContent(path)) {
+            contentStore.release(List.of(path));
+        }
+    }
+
+    @Override
+    public void deleteFiles(Collection<String> paths) {
+        delegate.deleteFiles(paths);
+        contentStore.release(paths.stream()
+                .filter(path -> !isContent(path))
+                .toList());
+    }
+
+    @Override
+    public void deleteDirectory(String path) {
+        delegate.deleteDirectory(path);
+        contentStore.releaseSubtree(path);
+    }
+
+    /**
+     * Method copies file. Copy of a file stored by hash refers to the same content.
+     */
+    @Override
+    public void copyFile(String oldPath, String newPath) {
+        delegate.copyFile(oldPath, newPath);
+        contentStore.copy(oldPath, newPath);
+    }
+
+    @Override
+    public void createDirectory(String path) {
+        delegate.createDirectory(path);
+    }
+
+    /**
+     * Method returns URL of the content of the file, so it is downloaded without the application.
+     */
+    @Override
+    public String getDownloadUrl(String path, String fileName) {
+        return delegate.getDownloadUrl(contentPath(path), fileName);
+    }
+
+    /**
+     * Method returns URL of an object at the path itself. Content uploaded directly is not hashed,
+     * it is deduplicated only if it is copied to another path afterwards.
+     */
+    @Override
+    public String getUploadUrl(String path) {
+        return delegate.getUploadUrl(path);
+    }
+
+    /**
+     * Method copies temporary object to the path of the content unless the content is already stored.
+     */
+    private void storeContent(String tempPath, String contentPath) {
+        try {
+            delegate.statFile(contentPath);
+        } catch (ResourceNotFoundException e) {
+            delegate.copyFile(tempPath, contentPath);
+        }
+    }
+
+    private void deleteTemp(String tempPath) {
+        try {
+            delegate.deleteFile(tempPath);
+        } catch (RuntimeException e) {
+            log.error("Failed to delete temporary object " + tempPath + ". " + e);
+        }
+    }
+
+    private String contentPath(String path) {
+        return findReference(path)
+                .map(reference -> blobPrefix + reference.getHash())
+                .orElse(path);
+    }
+
+    private Optional<ContentReference> findReference(String path) {
+        return isContent(path) ? Optional.empty() : contentStore.find(path);
+    }
+
+    private boolean isContent(String path) {
+        return path.startsWith(blobPrefix);
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not supported.", e);
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package ru.borshchevskiy.filestorage.repository.dedup;
+
+import io.minio.messages.Item;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.borshchevskiy.filestorage.config.properties.DedupProperties;
+import ru.borshchevskiy.filestorage.repository.MinioRepository;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Periodically removes content stored by {@link DeduplicatingMinioRepository} which is not referenced
+ * by any file for longer than {@link DedupProperties#getGracePeriod()}.
+ * Temporary objects left by failed uploads are removed after the same period.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class UnreferencedContentCollector {
+
+    private final ContentStore contentStore;
+    private final MinioRepository minioRepository;
+    private final DedupProperties dedupProperties;
+
+    @Scheduled(initialDelayString = "#{@dedupProperties.collectInterval.toMillis()}",
+            fixedDelayString = "#{@dedupProperties.collectInterval.toMillis()}")
+    public void collect() {
+        if (!dedupProperties.isEnabled()) {
+            return;
+        }
+        long startTime = System.currentTimeMillis();
+        Instant before = Instant.now().minus(dedupProperties.getGracePeriod());
+        long removed = 0;
+        List<String> hashes;
+        do {
+            hashes = contentStore.findUnreferenced(before, dedupProperties.getCollectBatchSize());
+            for (String hash : hashes) {
+                try {
+                    if (contentStore.remove(hash, before,
+                            () -> minioRepository.deleteFile(dedupProperties.getBlobPrefix() + hash))) {
+                        removed++;
+                    }
+                } catch (RuntimeException e) {
+                    log.error("Failed to remove content " + hash + ". " + e);
+                    return;
+                }
+            }
+        } while (hashes.size() == dedupProperties.getCollectBatchSize());
+
+        long removedTemp = removeTemp(before);
+        log.info("Unreferenced content collected in " + (System.currentTimeMillis() - startTime) + " ms. Removed "
+                + removed + " objects and " + removedTemp + " temporary objects.");
+    }
+
+    private long removeTemp(Instant before) {
+        String tempDirectory = dedupProperties.getBlobPrefix() + DeduplicatingMinioRepository.TEMP_DIRECTORY;
+        List<String> paths;
+        try (Stream<Item> items = minioRepository.getItemsStream(tempDirectory, true)) {
+            paths = items.filter(item -> item.lastModified() != null
+                            && item.lastModified().toInstant().isBefore(before))
+                    .map(Item::objectName)
+                    .toList();
+        }
+        int batchSize = dedupProperties.getCollectBatchSize();
+        for (int i = 0; i < paths.size(); i += batchSize) {
+            minioRepository.deleteFiles(paths.subList(i, Math.min(i + batchSize, paths.size())));
+        }
+        return paths.size();
+    }
+}
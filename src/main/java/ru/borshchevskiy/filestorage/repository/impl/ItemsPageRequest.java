@@ -0,0 +1,71 @@
+package ru.borshchevskiy.filestorage.repository.impl;
+
+import io.minio.errors.InsufficientDataException;
+import io.minio.errors.InternalException;
+import io.minio.errors.XmlParserException;
+import io.minio.messages.Item;
+import io.minio.messages.ListBucketResultV2;
+import io.minio.messages.Prefix;
+import ru.borshchevskiy.filestorage.repository.ItemsPage;
+import ru.borshchevskiy.filestorage.repository.client.MultipartMinioClient;
+import ru.borshchevskiy.filestorage.repository.compression.ContentCodec;
+
+import java.io.IOException;
+import java.security.InvalidKeyException;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Requests a single page of items with ListObjectsV2 request.
+ * <p>
+ * Continuation token of the page is the token returned by storage, so it resumes listing right after
+ * the last returned key or common prefix.
+ */
+final class ItemsPageRequest {
+
+    private static final String DELIMITER = "/";
+
+    private ItemsPageRequest() {
+    }
+
+    /**
+     * Method requests a page of items.
+     *
+     * @param minioClient       {@link MultipartMinioClient}.
+     * @param bucket            bucket where objects are located.
+     * @param contentCodec      {@link ContentCodec} decoding sizes of compressed objects.
+     * @param path              path where objects are located.
+     * @param isRecursive       boolean flag, determining if selection should be recursive.
+     * @param continuationToken token received with the previous page or null for the first page.
+     * @param pageSize          maximum number of items in the page.
+     * @return future of {@link ItemsPage}, items are ordered by name.
+     */
+    static CompletableFuture<ItemsPage> send(MultipartMinioClient minioClient,
+                                             String bucket,
+                                             ContentCodec contentCodec,
+                                             String path,
+                                             boolean isRecursive,
+                                             String continuationToken,
+                                             int pageSize)
+            throws InsufficientDataException, InternalException, InvalidKeyException, IOException,
+            NoSuchAlgorithmException, XmlParserException {
+        return minioClient.listObjectsV2Async(bucket, null, isRecursive ? null : DELIMITER, null, null, pageSize,
+                        path, continuationToken, false, true, null, null)
+                .thenApply(response -> toPage(response.result(), contentCodec));
+    }
+
+    private static ItemsPage toPage(ListBucketResultV2 result, ContentCodec contentCodec) {
+        List<Item> items = new ArrayList<>(result.contents().size() + result.commonPrefixes().size());
+        result.contents().stream()
+                .map(contentCodec::decode)
+                .forEach(items::add);
+        result.commonPrefixes().stream()
+                .map(Prefix::toItem)
+                .forEach(items::add);
+        items.sort(Comparator.comparing(Item::objectName));
+        return new ItemsPage(items, result.isTruncated() ? result.nextContinuationToken() : null);
+    }
+}
@@ -2,34 +2,73 @@ package ru.borshchevskiy.filestorage.repository.impl;
 
 import io.minio.*;
 import io.minio.errors.*;
+import io.minio.http.Method;
 import io.minio.messages.DeleteError;
 import io.minio.messages.DeleteObject;
 import io.minio.messages.Item;
 import lombok.RequiredArgsConstructor;
+import org.apache.commons.io.input.BoundedInputStream;
+import org.apache.commons.io.input.CloseShieldInputStream;
 import org.springframework.stereotype.Repository;
 import ru.borshchevskiy.filestorage.config.properties.MinioProperties;
+import ru.borshchevskiy.filestorage.exception.ResourceNotFoundException;
 import ru.borshchevskiy.filestorage.exception.repository.*;
+import ru.borshchevskiy.filestorage.repository.ItemsPage;
 import ru.borshchevskiy.filestorage.repository.MinioRepository;
+import ru.borshchevskiy.filestorage.repository.ObjectInfo;
+import ru.borshchevskiy.filestorage.repository.client.MultipartMinioClient;
+import ru.borshchevskiy.filestorage.repository.client.PresigningMinioClient;
+import ru.borshchevskiy.filestorage.repository.compression.CompressingInputStream;
+import ru.borshchevskiy.filestorage.repository.compression.ContentCodec;
+import ru.borshchevskiy.filestorage.repository.upload.ParallelUploadEngine;
 
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
 import java.security.InvalidKeyException;
 import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * Class provides methods to work with objects stored in Minio object storage.
+ * <p>
+ * If compression is enabled, compressible files are compressed by {@link ContentCodec} while they are uploaded
+ * and decompressed while they are read. Sizes of compressed files in listings and metadata are the sizes
+ * of their decompressed content.
  */
 @Repository
 @RequiredArgsConstructor
 public class MinioRepositoryImpl implements MinioRepository {
+
+    /**
+     * Error code returned by storage when requested object doesn't exist.
+     */
+    private static final String NO_SUCH_KEY = "NoSuchKey";
+
     private final MinioClient minioClient;
+    private final MultipartMinioClient multipartMinioClient;
     private final MinioProperties minioProperties;
+    private final ParallelUploadEngine parallelUploadEngine;
+    private final PresigningMinioClient presigningMinioClient;
+    private final ContentCodec contentCodec;
 
     /**
      * Method retrieves list of Minio's {@link Item}s stored by specified path.
+     * <p>
+     * All items are collected into memory, so for large directories
+     * {@link #getItemsStream(String, boolean)} or {@link #getItemsPage(String, boolean, String, int)}
+     * should be preferred.
      *
      * @param path path where objects are located.
      * @param isRecursive boolean flag, determining if selection should be recursive.
@@ -47,24 +86,70 @@ public class MinioRepositoryImpl implements MinioRepository {
      */
     @Override
     public List<Item> getItemsByPath(String path, boolean isRecursive) {
+        try (Stream<Item> items = getItemsStream(path, isRecursive)) {
+            return items.toList();
+        }
+    }
+
+    /**
+     * Method returns lazy {@link Stream} of Minio's {@link Item}s stored by specified path.
+     * Items are requested from storage page by page while the stream is consumed, each page contains
+     * up to {@link MinioProperties#getListPageSize()} items. So only the current page is held in memory
+     * regardless of the number of objects stored by path.
+     *
+     * @param path path where objects are located.
+     * @param isRecursive boolean flag, determining if selection should be recursive.
+     *                    See {@link #getItemsByPath(String, boolean)} for details.
+     * @return lazy {@link Stream} of {@link Item}s.
+     * @throws GetObjectsListException in case if any exception is thrown by {@link #minioClient}
+     * while the stream is consumed.
+     */
+    @Override
+    public Stream<Item> getItemsStream(String path, boolean isRecursive) {
         Iterable<Result<Item>> results = minioClient.listObjects(ListObjectsArgs.builder()
                 .bucket(minioProperties.getBucket())
                 .prefix(path)
                 .recursive(isRecursive)
+                .maxKeys(minioProperties.getListPageSize())
+                .includeUserMetadata(true)
                 .build());
-        List<Item> itemList = new ArrayList<>();
 
+        return StreamSupport.stream(results.spliterator(), false)
+                .map(this::getItem);
+    }
+
+    /**
+     * Method retrieves a single page of Minio's {@link Item}s stored by specified path.
+     * <p>
+     * To get the first page continuationToken must be null. To get the next page
+     * {@link ItemsPage#getNextContinuationToken()} of the previous page must be passed.
+     * Page is requested with {@link ItemsPageRequest}, see it for details of continuation tokens.
+     *
+     * @param path path where objects are located.
+     * @param isRecursive boolean flag, determining if selection should be recursive.
+     *                    See {@link #getItemsByPath(String, boolean)} for details.
+     * @param continuationToken token received with the previous page or null for the first page.
+     * @param maxKeys maximum number of items in the page.
+     * @return {@link ItemsPage} with up to maxKeys items.
+     * @throws GetObjectsListException in case if any exception is thrown by {@link #multipartMinioClient}.
+     */
+    @Override
+    public ItemsPage getItemsPage(String path, boolean isRecursive, String continuationToken, int maxKeys) {
+        if (maxKeys <= 0) {
+            throw new IllegalArgumentException("maxKeys must be positive.");
+        }
+        int pageSize = Math.min(maxKeys, minioProperties.getListPageSize());
         try {
-            for (Result<Item> result : results) {
-                itemList.add(result.get());
-            }
-        } catch (ServerException | InsufficientDataException | ErrorResponseException | IOException |
-                 NoSuchAlgorithmException | InvalidKeyException | InvalidResponseException | XmlParserException |
-                 InternalException e) {
+            return ItemsPageRequest.send(multipartMinioClient, minioProperties.getBucket(), contentCodec, path,
+                    isRecursive, continuationToken, pageSize).join();
+        } catch (CompletionException e) {
+            throw new GetObjectsListException("Error while getting files data.", e.getCause());
+        } catch (InsufficientDataException | InternalException | InvalidKeyException | IOException |
+                 NoSuchAlgorithmException | XmlParserException e) {
             throw new GetObjectsListException("Error while getting files data.", e);
         }
-        return itemList;
     }
+
     /**
      * Method retrieves file from storage and returns it as InputStream.
      *
@@ -75,6 +160,74 @@ public class MinioRepositoryImpl implements MinioRepository {
      */
     @Override
     public InputStream getFile(String path) {
+        try {
+            GetObjectResponse response = minioClient.getObject(GetObjectArgs.builder()
+                    .bucket(minioProperties.getBucket())
+                    .object(path)
+                    .build());
+            return contentCodec.decode(response, contentCodec.getCodec(response.headers()));
+        } catch (ServerException | InsufficientDataException | ErrorResponseException | IOException |
+                 NoSuchAlgorithmException | InvalidKeyException | InvalidResponseException | XmlParserException |
+                 InternalException e) {
+            throw new GetObjectException("Error while getting file.", e);
+        }
+    }
+
+    /**
+     * Method retrieves part of the file from storage and returns it as InputStream.
+     * Only requested bytes are read from storage, unless the file is compressed. Offsets are positions
+     * in decompressed content, so compressed file is never requested by range: it is decompressed
+     * from the beginning and bytes before the offset are skipped.
+     *
+     * @param path path where file is located.
+     * @param contentEncoding content coding the file is stored with, see {@link ObjectInfo#getContentEncoding()}.
+     *                        If the file turns out to be compressed while it is requested as uncompressed,
+     *                        it is decompressed as well.
+     * @param offset position of the first byte to be read.
+     * @param length number of bytes to be read.
+     * @return {@link InputStream} of the requested part of the file.
+     * @throws GetObjectException in case if any exception is thrown by {@link #minioClient}.
+     */
+    @Override
+    public InputStream getFile(String path, String contentEncoding, long offset, long length) {
+        try {
+            if (contentEncoding == null) {
+                GetObjectResponse response = minioClient.getObject(GetObjectArgs.builder()
+                        .bucket(minioProperties.getBucket())
+                        .object(path)
+                        .offset(offset)
+                        .length(length)
+                        .build());
+                if (contentCodec.getCodec(response.headers()) == null) {
+                    return response;
+                }
+                // File was replaced with compressed one after its metadata had been read.
+                response.close();
+            }
+            InputStream inputStream = getFile(path);
+            try {
+                inputStream.skipNBytes(offset);
+            } catch (IOException e) {
+                inputStream.close();
+                throw e;
+            }
+            return new BoundedInputStream(inputStream, length);
+        } catch (ServerException | InsufficientDataException | ErrorResponseException | IOException |
+                 NoSuchAlgorithmException | InvalidKeyException | InvalidResponseException | XmlParserException |
+                 InternalException e) {
+            throw new GetObjectException("Error while getting file.", e);
+        }
+    }
+
+    /**
+     * Method retrieves file from storage as it is stored, compressed files are not decompressed.
+     *
+     * @param path path where file is located.
+     * @return {@link InputStream} of the stored object.
+     * @throws GetObjectException in case if any exception is thrown by {@link #minioClient}.
+     */
+    @Override
+    public InputStream getEncodedFile(String path) {
         try {
             return minioClient.getObject(GetObjectArgs.builder()
                     .bucket(minioProperties.getBucket())
@@ -87,25 +240,82 @@ public class MinioRepositoryImpl implements MinioRepository {
         }
     }
 
+    /**
+     * Method retrieves metadata of the file without reading its content.
+     * Size of compressed file is the size of its decompressed content.
+     *
+     * @param path path where file is located.
+     * @return {@link ObjectInfo} of the file.
+     * @throws ResourceNotFoundException if file doesn't exist.
+     * @throws GetObjectException in case if any other exception is thrown by {@link #minioClient}.
+     */
+    @Override
+    public ObjectInfo statFile(String path) {
+        try {
+            StatObjectResponse response = minioClient.statObject(StatObjectArgs.builder()
+                    .bucket(minioProperties.getBucket())
+                    .object(path)
+                    .build());
+
+            ObjectInfo objectInfo = new ObjectInfo();
+            objectInfo.setPath(path);
+            objectInfo.setSize(contentCodec.getDecodedSize(response.userMetadata(), response.size()));
+            objectInfo.setContentEncoding(contentCodec.getCodec(response.userMetadata()));
+            objectInfo.setEtag(response.etag());
+            objectInfo.setLastModified(response.lastModified());
+            objectInfo.setContentType(response.contentType());
+            objectInfo.setUserMetadata(response.userMetadata());
+            return objectInfo;
+        } catch (ErrorResponseException e) {
+            if (NO_SUCH_KEY.equals(e.errorResponse().code())) {
+                throw new ResourceNotFoundException("File " + path + " not found.", e);
+            }
+            throw new GetObjectException("Error while getting file.", e);
+        } catch (ServerException | InsufficientDataException | IOException |
+                 NoSuchAlgorithmException | InvalidKeyException | InvalidResponseException | XmlParserException |
+                 InternalException e) {
+            throw new GetObjectException("Error while getting file.", e);
+        }
+    }
+
     /**
      * Method saves file to storage.
+     * File is uploaded by {@link ParallelUploadEngine}, which sends its parts concurrently.
+     * <p>
+     * If compression is enabled and the beginning of the file is compressible, the file is compressed while
+     * it is uploaded, so compressed content is only held in buffers of the engine. Size of content of files
+     * which fit into a single part is added to their metadata when they are uploaded. Size of larger files is
+     * added to their metadata afterwards.
      *
      * @param inputStream {@link InputStream} of the file to be saved.
      * @param fileName name of the file to be saved.
-     * @throws PutObjectException in case if any exception is thrown by {@link #minioClient}.
+     * @throws PutObjectException in case if any exception is thrown during upload.
      */
     @Override
     public void putFile(InputStream inputStream, String fileName) {
+        if (!contentCodec.isEnabled()) {
+            parallelUploadEngine.upload(inputStream, fileName);
+            return;
+        }
+        int sampleSize = Math.min(contentCodec.getSampleSize(), minioProperties.getUpload().getPartSize());
         try {
-            minioClient.putObject(PutObjectArgs
-                    .builder()
-                    .stream(inputStream, -1, 10485760)
-                    .bucket(minioProperties.getBucket())
-                    .object(fileName)
-                    .build());
-        } catch (ServerException | InsufficientDataException | ErrorResponseException | IOException
-                 | NoSuchAlgorithmException | InvalidKeyException | InvalidResponseException
-                 | XmlParserException | InternalException e) {
+            byte[] sample = inputStream.readNBytes(sampleSize);
+            boolean complete = sample.length < sampleSize;
+            if (!contentCodec.isCompressible(sample, complete)) {
+                parallelUploadEngine.upload(join(sample, inputStream), fileName);
+                return;
+            }
+            try (CompressingInputStream compressed = contentCodec.compress(join(sample, inputStream))) {
+                AtomicBoolean isDecodedSizeStored = new AtomicBoolean();
+                parallelUploadEngine.upload(compressed, fileName, () -> {
+                    isDecodedSizeStored.set(compressed.isComplete());
+                    return contentCodec.getUserMetadata(compressed.isComplete() ? compressed.getDecodedSize() : null);
+                });
+                if (!isDecodedSizeStored.get()) {
+                    setDecodedSize(fileName, compressed.getDecodedSize());
+                }
+            }
+        } catch (IOException e) {
             throw new PutObjectException("Upload failed.", e);
         }
     }
@@ -127,18 +337,52 @@ public class MinioRepositoryImpl implements MinioRepository {
             throw new DeleteObjectException("Delete failed.", e);
         }
     }
+    /**
+     * Method deletes specified files from storage with a single request.
+     * @param paths paths to the files to be deleted. Storage accepts at most 1000 objects per request.
+     * @throws DeleteObjectException in case if any exception is thrown by {@link #minioClient}
+     * or if any of the files couldn't be deleted.
+     */
+    @Override
+    public void deleteFiles(Collection<String> paths) {
+        List<DeleteObject> objects = paths.stream()
+                .map(DeleteObject::new)
+                .toList();
+
+        Iterable<Result<DeleteError>> results = minioClient.removeObjects(RemoveObjectsArgs.builder()
+                .bucket(minioProperties.getBucket())
+                .objects(objects)
+                .build());
+
+        for (Result<DeleteError> result : results) {
+            DeleteError error;
+            try {
+                error = result.get();
+            } catch (ErrorResponseException | InsufficientDataException | InternalException | InvalidKeyException |
+                     InvalidResponseException | IOException | NoSuchAlgorithmException | ServerException |
+                     XmlParserException e) {
+                throw new DeleteObjectException("Delete failed.", e);
+            }
+            if (error != null) {
+                throw new DeleteObjectException("Delete failed. Object " + error.objectName()
+                        + " wasn't deleted: " + error.message());
+            }
+        }
+    }
     /**
      * Method deletes directory from storage.
      * All directory's files and subdirectories are deleted recursively.
+     * Objects are listed lazily and passed to storage in batches, so the whole directory tree
+     * is never held in memory.
      * @param path path to the directory to be deleted.
      * @throws DeleteObjectException in case if any exception is thrown by {@link #minioClient}.
      */
     @Override
     public void deleteDirectory(String path) {
-        List<Item> allItemsByPath = getItemsByPath(path, true);
-        List<DeleteObject> objects = allItemsByPath.stream()
+        Iterable<DeleteObject> objects = () -> getItemsStream(path, true)
                 .map(Item::objectName)
-                .map(DeleteObject::new).toList();
+                .map(DeleteObject::new)
+                .iterator();
 
         Iterable<Result<DeleteError>> results = minioClient.removeObjects(RemoveObjectsArgs.builder()
                 .bucket(minioProperties.getBucket())
@@ -201,5 +445,114 @@ public class MinioRepositoryImpl implements MinioRepository {
         }
     }
 
+    /**
+     * Method returns URL by which the file can be downloaded directly from storage.
+     * URL is valid for {@link MinioProperties.Presign#getExpiry()}, the file is downloaded as an attachment
+     * with specified name.
+     *
+     * @param path     path where file is located.
+     * @param fileName name of the downloaded file.
+     * @return presigned GET URL of the file.
+     * @throws GetObjectException in case if any exception is thrown by {@link #presigningMinioClient}.
+     */
+    @Override
+    public String getDownloadUrl(String path, String fileName) {
+        String contentDisposition = "attachment; filename*=UTF-8''"
+                + URLEncoder.encode(fileName, StandardCharsets.UTF_8).replace("+", "%20");
+        try {
+            return presigningMinioClient.getPresignedObjectUrl(GetPresignedObjectUrlArgs.builder()
+                    .method(Method.GET)
+                    .bucket(minioProperties.getBucket())
+                    .object(path)
+                    .expiry(getPresignExpiry(), TimeUnit.SECONDS)
+                    .extraQueryParams(Map.of("response-content-disposition", contentDisposition))
+                    .build());
+        } catch (ServerException | InsufficientDataException | ErrorResponseException | IOException |
+                 NoSuchAlgorithmException | InvalidKeyException | InvalidResponseException | XmlParserException |
+                 InternalException e) {
+            throw new GetObjectException("Error while signing download URL.", e);
+        }
+    }
 
+    /**
+     * Method returns URL by which the file can be uploaded directly to storage.
+     * URL is valid for {@link MinioProperties.Presign#getExpiry()}. Size of the uploaded file is not limited
+     * by the URL, so it must be checked after the upload.
+     *
+     * @param path path where file should be saved.
+     * @return presigned PUT URL of the file.
+     * @throws PutObjectException in case if any exception is thrown by {@link #presigningMinioClient}.
+     */
+    @Override
+    public String getUploadUrl(String path) {
+        try {
+            return presigningMinioClient.getPresignedObjectUrl(GetPresignedObjectUrlArgs.builder()
+                    .method(Method.PUT)
+                    .bucket(minioProperties.getBucket())
+                    .object(path)
+                    .expiry(getPresignExpiry(), TimeUnit.SECONDS)
+                    .build());
+        } catch (ServerException | InsufficientDataException | ErrorResponseException | IOException |
+                 NoSuchAlgorithmException | InvalidKeyException | InvalidResponseException | XmlParserException |
+                 InternalException e) {
+            throw new PutObjectException("Error while signing upload URL.", e);
+        }
+    }
+
+    private int getPresignExpiry() {
+        return (int) minioProperties.getPresign().getExpiry().toSeconds();
+    }
+
+    /**
+     * Method adds size of decompressed content to metadata of compressed object by copying the object
+     * to itself. The object is deleted if its metadata can't be replaced.
+     *
+     * @param path        path of the object.
+     * @param decodedSize size of decompressed content.
+     * @throws PutObjectException in case if any exception is thrown by {@link #minioClient}.
+     */
+    private void setDecodedSize(String path, long decodedSize) {
+        try {
+            minioClient.copyObject(CopyObjectArgs.builder()
+                    .bucket(minioProperties.getBucket())
+                    .object(path)
+                    .source(CopySource.builder()
+                            .bucket(minioProperties.getBucket())
+                            .object(path)
+                            .build())
+                    .metadataDirective(Directive.REPLACE)
+                    .userMetadata(contentCodec.getUserMetadata(decodedSize))
+                    .build());
+        } catch (ErrorResponseException | InsufficientDataException | InternalException | InvalidKeyException |
+                 InvalidResponseException | IOException | NoSuchAlgorithmException | ServerException |
+                 XmlParserException e) {
+            deleteFile(path);
+            throw new PutObjectException("Upload failed.", e);
+        }
+    }
+
+    /**
+     * @return stream of the bytes already read from the stream followed by the rest of the stream.
+     * The stream is not closed.
+     */
+    private InputStream join(byte[] head, InputStream inputStream) {
+        return new SequenceInputStream(new ByteArrayInputStream(head), CloseShieldInputStream.wrap(inputStream));
+    }
+
+    /**
+     * Method retrieves {@link Item} from Minio's {@link Result}.
+     *
+     * @param result {@link Result} of listing operation.
+     * @return {@link Item}.
+     * @throws GetObjectsListException in case if any exception is thrown by {@link #minioClient}.
+     */
+    private Item getItem(Result<Item> result) {
+        try {
+            return contentCodec.decode(result.get());
+        } catch (ServerException | InsufficientDataException | ErrorResponseException | IOException |
+                 NoSuchAlgorithmException | InvalidKeyException | InvalidResponseException | XmlParserException |
+                 InternalException e) {
+            throw new GetObjectsListException("Error while getting files data.", e);
+        }
+    }
 }
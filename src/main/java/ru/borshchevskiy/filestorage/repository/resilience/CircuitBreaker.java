@@ -0,0 +1,139 @@
+package ru.borshchevskiy.filestorage.repository.resilience;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+
+/**
+ * Circuit breaker which stops requests to storage after several consecutive failures.
+ * <p>
+ * In {@link State#CLOSED} state all requests are permitted. When number of consecutive failures reaches
+ * the threshold, breaker goes to {@link State#OPEN} state and rejects all requests. After open duration
+ * expires, breaker goes to {@link State#HALF_OPEN} state and permits a single trial request. If trial
+ * request succeeds, breaker is closed, otherwise it is opened again.
+ * <p>
+ * State is guarded by a {@link ReentrantLock} rather than by synchronized methods, so virtual threads
+ * calling storage don't pin their carrier threads while state transition is logged.
+ */
+@Slf4j
+public class CircuitBreaker {
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final int failureThreshold;
+    private final long openDurationNanos;
+    private final LongSupplier nanoClock;
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private long openedAt;
+    private boolean trialInProgress;
+
+    public CircuitBreaker(int failureThreshold, Duration openDuration) {
+        this(failureThreshold, openDuration, System::nanoTime);
+    }
+
+    CircuitBreaker(int failureThreshold, Duration openDuration, LongSupplier nanoClock) {
+        if (failureThreshold < 1) {
+            throw new IllegalArgumentException("Failure threshold must be positive.");
+        }
+        this.failureThreshold = failureThreshold;
+        this.openDurationNanos = openDuration.toNanos();
+        this.nanoClock = nanoClock;
+    }
+
+    /**
+     * Method checks if request can be sent to storage.
+     * Every permitted request must be followed by {@link #onSuccess()}, {@link #onFailure()}
+     * or {@link #releasePermission()} call.
+     *
+     * @return true if request is permitted.
+     */
+    public boolean tryAcquirePermission() {
+        lock.lock();
+        try {
+            if (state == State.OPEN && nanoClock.getAsLong() - openedAt >= openDurationNanos) {
+                transitionTo(State.HALF_OPEN);
+            }
+            return switch (state) {
+                case CLOSED -> true;
+                case OPEN -> false;
+                case HALF_OPEN -> {
+                    if (trialInProgress) {
+                        yield false;
+                    }
+                    trialInProgress = true;
+                    yield true;
+                }
+            };
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Method records successful request. Any response received from storage, including error responses
+     * which are not caused by storage unavailability, is considered successful.
+     */
+    public void onSuccess() {
+        lock.lock();
+        try {
+            consecutiveFailures = 0;
+            trialInProgress = false;
+            if (state != State.CLOSED) {
+                transitionTo(State.CLOSED);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Method records failed request.
+     */
+    public void onFailure() {
+        lock.lock();
+        try {
+            consecutiveFailures++;
+            trialInProgress = false;
+            if (state == State.HALF_OPEN || (state == State.CLOSED && consecutiveFailures >= failureThreshold)) {
+                openedAt = nanoClock.getAsLong();
+                transitionTo(State.OPEN);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Method releases permission of the request which result says nothing about storage availability.
+     * State of the breaker is not changed, but the next trial request is permitted in {@link State#HALF_OPEN} state.
+     */
+    public void releasePermission() {
+        lock.lock();
+        try {
+            trialInProgress = false;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public State getState() {
+        lock.lock();
+        try {
+            return state;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void transitionTo(State newState) {
+        log.warn("Storage circuit breaker state changed from " + state + " to " + newState + ".");
+        state = newState;
+    }
+}
@@ -0,0 +1,257 @@
+package ru.borshchevskiy.filestorage.repository.resilience;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.minio.errors.ErrorResponseException;
+import io.minio.errors.ServerException;
+import io.minio.messages.Item;
+import lombok.extern.slf4j.Slf4j;
+import ru.borshchevskiy.filestorage.config.properties.MinioProperties;
+import ru.borshchevskiy.filestorage.exception.repository.MinioRepositoryException;
+import ru.borshchevskiy.filestorage.exception.repository.StorageUnavailableException;
+import ru.borshchevskiy.filestorage.repository.ItemsPage;
+import ru.borshchevskiy.filestorage.repository.MinioRepository;
+import ru.borshchevskiy.filestorage.repository.ObjectInfo;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * {@link MinioRepository} decorator which retries failed requests and stops sending requests
+ * while storage is unavailable.
+ * <p>
+ * Only failures caused by storage unavailability are handled: network errors, 5xx responses and
+ * throttling error codes. Other errors (e.g. missing object) are rethrown at once.
+ * <p>
+ * Idempotent requests are retried up to {@link MinioProperties.Resilience#getMaxAttempts()} times with
+ * exponential backoff and full jitter. Uploads are never retried, because the source stream
+ * is already consumed. Lazy listing streams and file streams are only protected when they are opened,
+ * failures while they are read are propagated to the caller.
+ * <p>
+ * All requests pass through {@link CircuitBreaker}. While it is open, requests fail immediately
+ * with {@link StorageUnavailableException}.
+ */
+@Slf4j
+public class ResilientMinioRepository implements MinioRepository {
+
+    /**
+     * Error codes returned by storage when it is temporarily unable to handle the request.
+     */
+    private static final Set<String> TRANSIENT_ERROR_CODES = Set.of("InternalError", "ServiceUnavailable",
+            "SlowDown", "RequestTimeout", "XMinioServerNotInitialized");
+
+    private final MinioRepository delegate;
+    private final MinioProperties.Resilience resilience;
+    private final CircuitBreaker circuitBreaker;
+    private final MeterRegistry meterRegistry;
+    private final Counter rejectedRequests;
+
+    public ResilientMinioRepository(MinioRepository delegate,
+                                    MinioProperties minioProperties,
+                                    MeterRegistry meterRegistry) {
+        this.delegate = delegate;
+        this.resilience = minioProperties.getResilience();
+        this.circuitBreaker = new CircuitBreaker(resilience.getFailureThreshold(), resilience.getOpenDuration());
+        this.meterRegistry = meterRegistry;
+        this.rejectedRequests = Counter.builder("storage.circuit.rejected")
+                .description("Storage requests rejected by open circuit breaker")
+                .register(meterRegistry);
+        Gauge.builder("storage.circuit.state", circuitBreaker, breaker -> breaker.getState().ordinal())
+                .description("State of storage circuit breaker: 0 - closed, 1 - open, 2 - half-open")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public List<Item> getItemsByPath(String path, boolean isRecursive) {
+        return execute("list", true, () -> delegate.getItemsByPath(path, isRecursive));
+    }
+
+    @Override
+    public Stream<Item> getItemsStream(String path, boolean isRecursive) {
+        return execute("list", true, () -> delegate.getItemsStream(path, isRecursive));
+    }
+
+    @Override
+    public ItemsPage getItemsPage(String path, boolean isRecursive, String continuationToken, int maxKeys) {
+        return execute("list", true,
+                () -> delegate.getItemsPage(path, isRecursive, continuationToken, maxKeys));
+    }
+
+    @Override
+    public InputStream getFile(String path) {
+        return execute("get", true, () -> delegate.getFile(path));
+    }
+
+    @Override
+    public InputStream getEncodedFile(String path) {
+        return execute("get", true, () -> delegate.getEncodedFile(path));
+    }
+
+    @Override
+    public InputStream getFile(String path, String contentEncoding, long offset, long length) {
+        return execute("get", true, () -> delegate.getFile(path, contentEncoding, offset, length));
+    }
+
+    @Override
+    public ObjectInfo statFile(String path) {
+        return execute("stat", true, () -> delegate.statFile(path));
+    }
+
+    @Override
+    public void putFile(InputStream inputStream, String path) {
+        execute("put", false, () -> {
+            delegate.putFile(inputStream, path);
+            return null;
+        });
+    }
+
+    @Override
+    public void deleteFile(String path) {
+        execute("delete", true, () -> {
+            delegate.deleteFile(path);
+            return null;
+        });
+    }
+
+    @Override
+    public void deleteFiles(Collection<String> paths) {
+        execute("delete", true, () -> {
+            delegate.deleteFiles(paths);
+            return null;
+        });
+    }
+
+    @Override
+    public void deleteDirectory(String path) {
+        execute("delete", true, () -> {
+            delegate.deleteDirectory(path);
+            return null;
+        });
+    }
+
+    @Override
+    public void copyFile(String oldPath, String newPath) {
+        execute("copy", true, () -> {
+            delegate.copyFile(oldPath, newPath);
+            return null;
+        });
+    }
+
+    @Override
+    public void createDirectory(String path) {
+        execute("put", true, () -> {
+            delegate.createDirectory(path);
+            return null;
+        });
+    }
+
+    /**
+     * Method signs URL locally, so circuit breaker and retries are not applied.
+     */
+    @Override
+    public String getDownloadUrl(String path, String fileName) {
+        return delegate.getDownloadUrl(path, fileName);
+    }
+
+    @Override
+    public String getUploadUrl(String path) {
+        return delegate.getUploadUrl(path);
+    }
+
+    /**
+     * Method executes request, retrying it if it is idempotent and failed due to storage unavailability.
+     *
+     * @param operation  name of the operation used as metrics tag.
+     * @param idempotent flag determining if the request can be retried.
+     * @param request    request to storage.
+     * @param <T>        type of the result.
+     * @return result of the request.
+     * @throws StorageUnavailableException if circuit breaker is open.
+     */
+    private <T> T execute(String operation, boolean idempotent, Supplier<T> request) {
+        int maxAttempts = idempotent ? Math.max(resilience.getMaxAttempts(), 1) : 1;
+        for (int attempt = 1; ; attempt++) {
+            if (!circuitBreaker.tryAcquirePermission()) {
+                rejectedRequests.increment();
+                throw new StorageUnavailableException("Storage is temporarily unavailable. Please, try again later.");
+            }
+            boolean recorded = false;
+            try {
+                T result = request.get();
+                circuitBreaker.onSuccess();
+                recorded = true;
+                return result;
+            } catch (RuntimeException e) {
+                if (!isTransient(e)) {
+                    circuitBreaker.onSuccess();
+                    recorded = true;
+                    throw e;
+                }
+                circuitBreaker.onFailure();
+                recorded = true;
+                if (attempt >= maxAttempts) {
+                    throw e;
+                }
+                meterRegistry.counter("storage.retries", "operation", operation).increment();
+                log.warn("Storage " + operation + " request failed, attempt " + attempt + " of " + maxAttempts
+                        + ". " + e.getCause());
+                if (!sleep(attempt)) {
+                    throw e;
+                }
+            } finally {
+                // Request failed with an Error, which says nothing about storage availability.
+                if (!recorded) {
+                    circuitBreaker.releasePermission();
+                }
+            }
+        }
+    }
+
+    /**
+     * Method checks if exception is caused by storage unavailability.
+     *
+     * @param exception exception thrown by delegate.
+     * @return true if the request may succeed when repeated.
+     */
+    private boolean isTransient(RuntimeException exception) {
+        if (!(exception instanceof MinioRepositoryException)) {
+            return false;
+        }
+        for (Throwable cause = exception.getCause(); cause != null; cause = cause.getCause()) {
+            if (cause instanceof ServerException || cause instanceof IOException) {
+                return true;
+            }
+            if (cause instanceof ErrorResponseException e) {
+                return TRANSIENT_ERROR_CODES.contains(e.errorResponse().code());
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Method waits before the next attempt. Delay is random between zero and exponentially growing bound.
+     *
+     * @param attempt number of the failed attempt.
+     * @return false if waiting was interrupted.
+     */
+    private boolean sleep(int attempt) {
+        double bound = resilience.getInitialBackoff().toMillis()
+                * Math.pow(resilience.getBackoffMultiplier(), attempt - 1);
+        long maxDelay = (long) Math.min(bound, resilience.getMaxBackoff().toMillis());
+        try {
+            TimeUnit.MILLISECONDS.sleep(ThreadLocalRandom.current().nextLong(maxDelay + 1));
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package ru.borshchevskiy.filestorage.repository.upload;
+
+import io.minio.errors.InsufficientDataException;
+import io.minio.errors.InternalException;
+import io.minio.errors.XmlParserException;
+import io.minio.messages.Part;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Repository;
+import ru.borshchevskiy.filestorage.config.properties.MinioProperties;
+import ru.borshchevskiy.filestorage.exception.repository.DeleteObjectException;
+import ru.borshchevskiy.filestorage.exception.repository.PutObjectException;
+import ru.borshchevskiy.filestorage.repository.client.MultipartMinioClient;
+
+import java.io.IOException;
+import java.security.InvalidKeyException;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Class provides methods to upload objects part by part, when parts are received in separate requests.
+ * <p>
+ * Parts are invisible until the upload is completed. Part uploaded again with the same number replaces
+ * the previous one, so retries of part uploads are safe.
+ *
+ * @see ParallelUploadEngine
+ */
+@Repository
+@RequiredArgsConstructor
+public class MultipartUploadRepository {
+
+    private final MultipartMinioClient minioClient;
+    private final MinioProperties minioProperties;
+
+    /**
+     * Method initiates multipart upload.
+     *
+     * @param objectName name of the object.
+     * @return id of the multipart upload.
+     * @throws PutObjectException in case if any exception is thrown by {@link #minioClient}.
+     */
+    public String create(String objectName) {
+        try {
+            return minioClient.createMultipartUploadAsync(minioProperties.getBucket(), null, objectName,
+                            null, null)
+                    .join()
+                    .result()
+                    .uploadId();
+        } catch (CompletionException e) {
+            throw new PutObjectException("Upload failed.", e.getCause());
+        } catch (InsufficientDataException | InternalException | InvalidKeyException | IOException
+                 | NoSuchAlgorithmException | XmlParserException e) {
+            throw new PutObjectException("Upload failed.", e);
+        }
+    }
+
+    /**
+     * Method uploads part of the object.
+     *
+     * @param objectName name of the object.
+     * @param uploadId   id of the multipart upload.
+     * @param partNumber number of the part, starting from 1.
+     * @param data       buffer holding content of the part.
+     * @param length     size of the part.
+     * @return ETag of the part.
+     * @throws PutObjectException in case if any exception is thrown by {@link #minioClient}.
+     */
+    public String uploadPart(String objectName, String uploadId, int partNumber, byte[] data, int length) {
+        try {
+            return minioClient.uploadPartAsync(minioProperties.getBucket(), null, objectName, data, length,
+                            uploadId, partNumber, null, null)
+                    .join()
+                    .etag();
+        } catch (CompletionException e) {
+            throw new PutObjectException("Upload failed.", e.getCause());
+        } catch (InsufficientDataException | InternalException | InvalidKeyException | IOException
+                 | NoSuchAlgorithmException | XmlParserException e) {
+            throw new PutObjectException("Upload failed.", e);
+        }
+    }
+
+    /**
+     * Method completes multipart upload, so the object becomes visible.
+     *
+     * @param objectName name of the object.
+     * @param uploadId   id of the multipart upload.
+     * @param parts      uploaded parts sorted by their numbers.
+     * @throws PutObjectException in case if any exception is thrown by {@link #minioClient}.
+     */
+    public void complete(String objectName, String uploadId, Part[] parts) {
+        try {
+            minioClient.completeMultipartUploadAsync(minioProperties.getBucket(), null, objectName, uploadId,
+                    parts, null, null).join();
+        } catch (CompletionException e) {
+            throw new PutObjectException("Upload failed.", e.getCause());
+        } catch (InsufficientDataException | InternalException | InvalidKeyException | IOException
+                 | NoSuchAlgorithmException | XmlParserException e) {
+            throw new PutObjectException("Upload failed.", e);
+        }
+    }
+
+    /**
+     * Method aborts multipart upload, so uploaded parts are removed from storage.
+     *
+     * @param objectName name of the object.
+     * @param uploadId   id of the multipart upload.
+     * @throws DeleteObjectException in case if any exception is thrown by {@link #minioClient}.
+     */
+    public void abort(String objectName, String uploadId) {
+        try {
+            minioClient.abortMultipartUploadAsync(minioProperties.getBucket(), null, objectName, uploadId,
+                    null, null).join();
+        } catch (CompletionException e) {
+            throw new DeleteObjectException("Abort failed.", e.getCause());
+        } catch (InsufficientDataException | InternalException | InvalidKeyException | IOException
+                 | NoSuchAlgorithmException | XmlParserException e) {
+            throw new DeleteObjectException("Abort failed.", e);
+        }
+    }
+}
@@ -0,0 +1,352 @@
+package ru.borshchevskiy.filestorage.repository.upload;
+
+import com.google.common.collect.HashMultimap;
+import com.google.common.collect.Multimap;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.minio.errors.InsufficientDataException;
+import io.minio.errors.InternalException;
+import io.minio.errors.XmlParserException;
+import io.minio.messages.Part;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import ru.borshchevskiy.filestorage.config.properties.MinioProperties;
+import ru.borshchevskiy.filestorage.exception.repository.PutObjectException;
+import ru.borshchevskiy.filestorage.repository.client.MultipartMinioClient;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.InvalidKeyException;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Uploads objects of unknown size to storage using concurrent multipart uploads.
+ * <p>
+ * Parts are read sequentially from the source stream and sent to storage asynchronously, so reading
+ * of the next part overlaps with uploading of the previous ones. Number of parts uploaded concurrently
+ * is bounded by {@link MinioProperties.Upload#getParallelism()}. Parts are read into buffers taken from
+ * {@link PartBufferPool}, which bounds memory used by all uploads together. Buffers are sent to storage
+ * as they are, without copying.
+ * <p>
+ * Objects smaller than one part are read into a single pooled buffer and uploaded with a single request,
+ * so every upload, however small, is read within the budget of the pool.
+ * If any part fails, multipart upload is aborted, so no incomplete parts are left in storage.
+ *
+ * @see MultipartMinioClient
+ */
+@Slf4j
+@Component
+public class ParallelUploadEngine {
+
+    /**
+     * Minimum part size allowed by S3 for all parts except the last one.
+     */
+    private static final int MIN_PART_SIZE = 5 * 1024 * 1024;
+    /**
+     * Maximum number of parts allowed by S3 for a single object.
+     */
+    private static final int MAX_PARTS = 10000;
+    /**
+     * Prefix of headers holding user metadata of the object.
+     */
+    private static final String USER_METADATA_PREFIX = "x-amz-meta-";
+    private static final String CONTENT_TYPE_HEADER = "Content-Type";
+    private static final String DEFAULT_CONTENT_TYPE = "application/octet-stream";
+
+    private final MultipartMinioClient minioClient;
+    private final MinioProperties minioProperties;
+    private final PartBufferPool partBufferPool;
+    private final Timer uploadTimer;
+    private final DistributionSummary uploadSize;
+    private final DistributionSummary uploadThroughput;
+    private final AtomicInteger partsInFlight = new AtomicInteger();
+
+    public ParallelUploadEngine(MultipartMinioClient minioClient,
+                                MinioProperties minioProperties,
+                                PartBufferPool partBufferPool,
+                                MeterRegistry meterRegistry) {
+        MinioProperties.Upload upload = minioProperties.getUpload();
+        if (upload.getPartSize() < MIN_PART_SIZE) {
+            throw new IllegalStateException("Upload part size must be at least " + MIN_PART_SIZE + " bytes.");
+        }
+        if (upload.getParallelism() < 1) {
+            throw new IllegalStateException("Upload parallelism must be positive.");
+        }
+        this.minioClient = minioClient;
+        this.minioProperties = minioProperties;
+        this.partBufferPool = partBufferPool;
+        this.uploadTimer = Timer.builder("storage.upload.duration")
+                .description("Time spent uploading objects to storage")
+                .register(meterRegistry);
+        this.uploadSize = DistributionSummary.builder("storage.upload.size")
+                .description("Size of objects uploaded to storage")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        this.uploadThroughput = DistributionSummary.builder("storage.upload.throughput")
+                .description("Throughput of a single object upload")
+                .baseUnit("bytes/s")
+                .register(meterRegistry);
+        meterRegistry.gauge("storage.upload.parts.in-flight", partsInFlight);
+    }
+
+    /**
+     * Method uploads content of the stream to storage.
+     *
+     * @param inputStream {@link InputStream} of the object to be saved. Stream is read to the end but not closed.
+     * @param objectName  name of the object to be saved.
+     * @return size of the uploaded object in bytes.
+     * @throws PutObjectException in case if reading of the stream or any storage request fails.
+     */
+    public long upload(InputStream inputStream, String objectName) {
+        return upload(inputStream, objectName, Map.of());
+    }
+
+    /**
+     * Method uploads content of the stream to storage.
+     *
+     * @param inputStream  {@link InputStream} of the object to be saved. Stream is read to the end but not closed.
+     * @param objectName   name of the object to be saved.
+     * @param userMetadata user metadata of the object.
+     * @return size of the uploaded object in bytes.
+     * @throws PutObjectException in case if reading of the stream or any storage request fails.
+     */
+    public long upload(InputStream inputStream, String objectName, Map<String, String> userMetadata) {
+        return upload(inputStream, objectName, () -> userMetadata);
+    }
+
+    /**
+     * Method uploads content of the stream to storage. User metadata is requested right before the first
+     * request which sends it: after the whole object is read if it fits into a single part, or after
+     * the first part is read otherwise.
+     *
+     * @param inputStream  {@link InputStream} of the object to be saved. Stream is read to the end but not closed.
+     * @param objectName   name of the object to be saved.
+     * @param userMetadata supplier of user metadata of the object.
+     * @return size of the uploaded object in bytes.
+     * @throws PutObjectException in case if reading of the stream or any storage request fails.
+     */
+    public long upload(InputStream inputStream, String objectName, Supplier<Map<String, String>> userMetadata) {
+        long startTime = System.nanoTime();
+        long size;
+
+        try {
+            size = putBuffered(inputStream, objectName, userMetadata);
+        } catch (IOException e) {
+            throw new PutObjectException("Upload failed.", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new PutObjectException("Upload interrupted.", e);
+        }
+
+        long elapsedNanos = System.nanoTime() - startTime;
+        uploadTimer.record(elapsedNanos, TimeUnit.NANOSECONDS);
+        uploadSize.record(size);
+        if (elapsedNanos > 0) {
+            uploadThroughput.record(size * (double) TimeUnit.SECONDS.toNanos(1) / elapsedNanos);
+        }
+        log.debug("Object " + objectName + " of " + size + " bytes uploaded in "
+                + TimeUnit.NANOSECONDS.toMillis(elapsedNanos) + " ms.");
+        return size;
+    }
+
+    /**
+     * Method reads the object into a pooled buffer. Object which fits into the buffer is uploaded with a single
+     * request, larger object is uploaded part by part.
+     *
+     * @param inputStream  {@link InputStream} of the object.
+     * @param objectName   name of the object.
+     * @param userMetadata supplier of user metadata of the object.
+     * @return size of the object.
+     * @throws InterruptedException if the thread is interrupted while waiting for a buffer.
+     */
+    private long putBuffered(InputStream inputStream, String objectName,
+                             Supplier<Map<String, String>> userMetadata) throws IOException, InterruptedException {
+        byte[] buffer = partBufferPool.acquire();
+        boolean multipart = false;
+        try {
+            int length = inputStream.readNBytes(buffer, 0, buffer.length);
+            if (length < buffer.length) {
+                return putSinglePart(buffer, length, objectName, userMetadata.get());
+            }
+            multipart = true;
+            return putMultipart(inputStream, buffer, objectName, userMetadata);
+        } finally {
+            if (!multipart) {
+                partBufferPool.release(buffer);
+            }
+        }
+    }
+
+    /**
+     * Method uploads object which fits into a single part with one request.
+     *
+     * @param data         buffer holding content of the object.
+     * @param length       size of the object.
+     * @param objectName   name of the object.
+     * @param userMetadata user metadata of the object.
+     * @return size of the object.
+     */
+    private long putSinglePart(byte[] data, int length, String objectName, Map<String, String> userMetadata) {
+        Multimap<String, String> headers = getHeaders(userMetadata);
+        headers.put(CONTENT_TYPE_HEADER, DEFAULT_CONTENT_TYPE);
+        try {
+            minioClient.putObjectAsync(minioProperties.getBucket(), null, objectName, data, length, headers, null)
+                    .join();
+        } catch (CompletionException e) {
+            throw new PutObjectException("Upload failed.", e.getCause());
+        } catch (InsufficientDataException | InternalException | InvalidKeyException | IOException
+                 | NoSuchAlgorithmException | XmlParserException e) {
+            throw new PutObjectException("Upload failed.", e);
+        }
+        return length;
+    }
+
+    /**
+     * Method uploads object part by part. Next part is read from the stream while previous parts are uploaded.
+     * Number of parts uploaded concurrently is limited by {@link MinioProperties.Upload#getParallelism()}.
+     * Every part is read into a pooled buffer, which is released when the part is uploaded.
+     *
+     * @param inputStream  {@link InputStream} positioned after the first part.
+     * @param firstPart    pooled buffer filled with the first part. Released by this method.
+     * @param objectName   name of the object.
+     * @param userMetadata supplier of user metadata of the object.
+     * @return size of the object.
+     */
+    private long putMultipart(InputStream inputStream, byte[] firstPart, String objectName,
+                              Supplier<Map<String, String>> userMetadata) {
+        String bucket = minioProperties.getBucket();
+        int partSize = minioProperties.getUpload().getPartSize();
+        String uploadId;
+        try {
+            uploadId = createMultipartUpload(objectName, userMetadata.get());
+        } catch (RuntimeException e) {
+            partBufferPool.release(firstPart);
+            throw e;
+        }
+
+        Semaphore permits = new Semaphore(minioProperties.getUpload().getParallelism());
+        AtomicBoolean failed = new AtomicBoolean();
+        List<CompletableFuture<Part>> parts = new ArrayList<>();
+        long size = 0;
+        byte[] buffer = firstPart;
+
+        try {
+            int length = firstPart.length;
+            while (length > 0 && !failed.get()) {
+                int partNumber = parts.size() + 1;
+                if (partNumber > MAX_PARTS) {
+                    throw new PutObjectException("Upload failed. Object exceeds maximum number of parts.");
+                }
+                permits.acquire();
+                partsInFlight.incrementAndGet();
+                byte[] data = buffer;
+                CompletableFuture<Part> part = minioClient
+                        .uploadPartAsync(bucket, null, objectName, data, length, uploadId, partNumber,
+                                null, null)
+                        .thenApply(response -> new Part(partNumber, response.etag()))
+                        .whenComplete((result, throwable) -> {
+                            partBufferPool.release(data);
+                            partsInFlight.decrementAndGet();
+                            permits.release();
+                            if (throwable != null) {
+                                failed.set(true);
+                            }
+                        });
+                buffer = null;
+                parts.add(part);
+                size += length;
+                if (length < partSize) {
+                    break;
+                }
+                buffer = partBufferPool.acquire();
+                length = inputStream.readNBytes(buffer, 0, partSize);
+            }
+
+            Part[] uploadedParts = parts.stream()
+                    .map(CompletableFuture::join)
+                    .toArray(Part[]::new);
+            minioClient.completeMultipartUploadAsync(bucket, null, objectName, uploadId, uploadedParts,
+                    null, null).join();
+            return size;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            abortMultipartUpload(objectName, uploadId);
+            throw new PutObjectException("Upload interrupted.", e);
+        } catch (CompletionException e) {
+            abortMultipartUpload(objectName, uploadId);
+            throw new PutObjectException("Upload failed.", e.getCause());
+        } catch (InsufficientDataException | InternalException | InvalidKeyException | IOException
+                 | NoSuchAlgorithmException | XmlParserException e) {
+            abortMultipartUpload(objectName, uploadId);
+            throw new PutObjectException("Upload failed.", e);
+        } catch (RuntimeException e) {
+            abortMultipartUpload(objectName, uploadId);
+            throw e;
+        } finally {
+            if (buffer != null) {
+                partBufferPool.release(buffer);
+            }
+        }
+    }
+
+    /**
+     * Method initiates multipart upload.
+     *
+     * @param objectName   name of the object.
+     * @param userMetadata user metadata of the object.
+     * @return id of the multipart upload.
+     */
+    private String createMultipartUpload(String objectName, Map<String, String> userMetadata) {
+        try {
+            return minioClient.createMultipartUploadAsync(minioProperties.getBucket(), null, objectName,
+                            getHeaders(userMetadata), null)
+                    .join()
+                    .result()
+                    .uploadId();
+        } catch (CompletionException e) {
+            throw new PutObjectException("Upload failed.", e.getCause());
+        } catch (InsufficientDataException | InternalException | InvalidKeyException | IOException
+                 | NoSuchAlgorithmException | XmlParserException e) {
+            throw new PutObjectException("Upload failed.", e);
+        }
+    }
+
+    /**
+     * @param userMetadata user metadata of the object.
+     * @return headers holding user metadata.
+     */
+    private Multimap<String, String> getHeaders(Map<String, String> userMetadata) {
+        Multimap<String, String> headers = HashMultimap.create();
+        userMetadata.forEach((key, value) -> headers.put(USER_METADATA_PREFIX + key, value));
+        return headers;
+    }
+
+    /**
+     * Method aborts multipart upload, so already uploaded parts are removed from storage.
+     * Failure of this operation is only logged, because it is always called when upload has already failed.
+     *
+     * @param objectName name of the object.
+     * @param uploadId   id of the multipart upload.
+     */
+    private void abortMultipartUpload(String objectName, String uploadId) {
+        try {
+            minioClient.abortMultipartUploadAsync(minioProperties.getBucket(), null, objectName, uploadId,
+                    null, null).join();
+            log.debug("Multipart upload " + uploadId + " of object " + objectName + " aborted.");
+        } catch (CompletionException | InsufficientDataException | InternalException | InvalidKeyException
+                 | IOException | NoSuchAlgorithmException | XmlParserException e) {
+            log.error("Failed to abort multipart upload " + uploadId + " of object " + objectName + ". " + e);
+        }
+    }
+}
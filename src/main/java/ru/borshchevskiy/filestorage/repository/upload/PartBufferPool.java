@@ -0,0 +1,142 @@
+package ru.borshchevskiy.filestorage.repository.upload;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+import ru.borshchevskiy.filestorage.config.properties.MinioProperties;
+
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Pool of part buffers shared by all uploads.
+ * <p>
+ * Buffers have size of an upload part and are reused by subsequent uploads instead of being allocated
+ * for every part. Memory of all buffers in use is bounded by {@link MinioProperties.Upload#getBufferBudget()},
+ * so memory used by uploads depends on configuration rather than on number of concurrent uploads. When the budget
+ * is exhausted, uploads wait until any buffer is released. Released buffers are kept for reuse, so pool may hold
+ * the whole budget after a peak of uploads.
+ * <p>
+ * Other buffers, e.g. for received chunks or extracted files, are allocated within the same budget
+ * by {@link #acquire(int)}. They are not reused and never take more than the budget reduced by one part.
+ * <p>
+ * Owner of a part buffer must not wait for another buffer. Owner of other buffers may wait for part buffers
+ * one at a time, but not for other buffers. Part of the budget left to part buffers is only held by owners
+ * which don't wait, so such waits always end and owners never wait for each other forever.
+ *
+ * @see ParallelUploadEngine
+ */
+@Component
+public class PartBufferPool {
+
+    /**
+     * Budget is counted in units of this size, so budgets larger than 2GB fit into the semaphore.
+     */
+    private static final int UNIT = 1024;
+
+    private final int bufferSize;
+    private final int budgetUnits;
+    private final int otherBudgetUnits;
+    private final Semaphore permits;
+    private final Semaphore otherPermits;
+    private final Queue<byte[]> idleBuffers = new ConcurrentLinkedQueue<>();
+    /**
+     * Buffers acquired by {@link #acquire(int)}. Arrays are compared by identity.
+     */
+    private final Set<byte[]> otherBuffers = ConcurrentHashMap.newKeySet();
+    private final Timer waitTimer;
+
+    public PartBufferPool(MinioProperties minioProperties, MeterRegistry meterRegistry) {
+        MinioProperties.Upload upload = minioProperties.getUpload();
+        long budget = upload.getBufferBudget().toBytes();
+        this.bufferSize = upload.getPartSize();
+        this.budgetUnits = (int) Math.min(Integer.MAX_VALUE, budget / UNIT);
+        this.otherBudgetUnits = budgetUnits - units(bufferSize);
+        if (otherBudgetUnits <= 0) {
+            throw new IllegalStateException("Upload buffer budget must be larger than one part.");
+        }
+        this.permits = new Semaphore(budgetUnits);
+        this.otherPermits = new Semaphore(otherBudgetUnits);
+        this.waitTimer = Timer.builder("storage.upload.buffers.wait")
+                .description("Time spent by uploads waiting for a free buffer")
+                .register(meterRegistry);
+        Gauge.builder("storage.upload.buffers.used", permits,
+                        semaphore -> (double) (budgetUnits - semaphore.availablePermits()) * UNIT)
+                .description("Memory of upload buffers in use")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Method takes a buffer from the pool, waiting if all buffers are in use.
+     * Every acquired buffer must be returned with {@link #release(byte[])}.
+     *
+     * @return buffer of upload part size. Contents of the buffer are undefined.
+     * @throws InterruptedException if the thread is interrupted while waiting.
+     */
+    public byte[] acquire() throws InterruptedException {
+        acquirePermits(permits, units(bufferSize));
+        byte[] buffer = idleBuffers.poll();
+        return buffer == null ? new byte[bufferSize] : buffer;
+    }
+
+    /**
+     * Method allocates a buffer of the specified size within the budget of the pool, waiting if the budget
+     * is exhausted. Buffers allocated by this method never take the last part of the budget.
+     * Every acquired buffer must be returned with {@link #release(byte[])}.
+     *
+     * @param size size of the buffer.
+     * @return buffer of the specified size. Contents of the buffer are undefined.
+     * @throws IllegalArgumentException if the buffer is larger than the budget reduced by one part.
+     * @throws InterruptedException     if the thread is interrupted while waiting.
+     */
+    public byte[] acquire(int size) throws InterruptedException {
+        int units = units(size);
+        if (units > otherBudgetUnits) {
+            throw new IllegalArgumentException("Buffer of " + size
+                    + " bytes exceeds upload buffer budget reduced by one part.");
+        }
+        acquirePermits(otherPermits, units);
+        try {
+            acquirePermits(permits, units);
+        } catch (InterruptedException e) {
+            otherPermits.release(units);
+            throw e;
+        }
+        byte[] buffer = new byte[size];
+        otherBuffers.add(buffer);
+        return buffer;
+    }
+
+    /**
+     * Method returns the buffer to the pool.
+     *
+     * @param buffer buffer acquired with {@link #acquire()} or {@link #acquire(int)}.
+     */
+    public void release(byte[] buffer) {
+        int units = units(buffer.length);
+        if (otherBuffers.remove(buffer)) {
+            otherPermits.release(units);
+        } else {
+            idleBuffers.offer(buffer);
+        }
+        permits.release(units);
+    }
+
+    private void acquirePermits(Semaphore semaphore, int units) throws InterruptedException {
+        if (!semaphore.tryAcquire(units)) {
+            long startTime = System.nanoTime();
+            semaphore.acquire(units);
+            waitTimer.record(System.nanoTime() - startTime, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private static int units(int size) {
+        return (int) ((size + (long) UNIT - 1) / UNIT);
+    }
+}
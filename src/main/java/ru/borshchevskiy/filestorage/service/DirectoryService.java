@@ -1,5 +1,7 @@
 package ru.borshchevskiy.filestorage.service;
 
+import ru.borshchevskiy.filestorage.service.bulk.BulkOperationResult;
+
 /**
  * Defines methods to perform operations with directories.
  */
@@ -8,7 +10,7 @@ public interface DirectoryService {
 
     void deleteDirectory(String path, String name);
 
-    void renameDirectory(String path, String oldName, String newName);
+    BulkOperationResult renameDirectory(String path, String oldName, String newName);
 
     void createDirectory(String path, String directoryName);
 }
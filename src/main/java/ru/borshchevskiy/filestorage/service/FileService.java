@@ -1,6 +1,12 @@
 package ru.borshchevskiy.filestorage.service;
 
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import ru.borshchevskiy.filestorage.dto.file.FileItemDto;
+import ru.borshchevskiy.filestorage.repository.ObjectInfo;
+
+import ru.borshchevskiy.filestorage.service.archive.ArchiveWriter;
+import ru.borshchevskiy.filestorage.service.archive.ExtractionResult;
 
 import java.io.InputStream;
 import java.util.List;
@@ -11,12 +17,30 @@ public interface FileService {
 
     List<FileItemDto> getItemsByPath(String prefix);
 
+    Page<FileItemDto> getItemsPage(String path, Pageable pageable);
+
     InputStream downloadFile(String path, String name);
 
+    InputStream downloadFile(String path, String name, String contentEncoding, long offset, long length);
+
+    InputStream downloadEncodedFile(String path, String name);
+
+    ObjectInfo getFileInfo(String path, String name);
+
+    String getDownloadUrl(String path, String name);
+
+    ArchiveWriter downloadArchive(String path, List<String> names, boolean compress);
+
+    ExtractionResult extractArchive(InputStream inputStream, String path, String archiveName);
+
+    ExtractionResult extractStoredArchive(String path, String name);
+
     void uploadFile(InputStream inputStream, String path, String name);
 
     void deleteFile(String path, String name);
 
+    void deleteFiles(String path, List<String> names);
+
     void renameFile(String path, String oldName, String newName);
 
 }
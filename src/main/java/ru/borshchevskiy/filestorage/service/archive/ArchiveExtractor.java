@@ -0,0 +1,367 @@
+package ru.borshchevskiy.filestorage.service.archive;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.compress.archivers.ArchiveEntry;
+import org.apache.commons.compress.archivers.ArchiveInputStream;
+import org.apache.commons.compress.archivers.tar.TarArchiveInputStream;
+import org.apache.commons.compress.archivers.zip.ZipArchiveInputStream;
+import org.apache.commons.compress.compressors.gzip.GzipCompressorInputStream;
+import org.apache.commons.io.input.CloseShieldInputStream;
+import org.apache.commons.io.input.CountingInputStream;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.stereotype.Component;
+import ru.borshchevskiy.filestorage.config.properties.ArchiveProperties;
+import ru.borshchevskiy.filestorage.config.properties.BulkOperationProperties;
+import ru.borshchevskiy.filestorage.config.properties.UploadProperties;
+import ru.borshchevskiy.filestorage.exception.MultipartProcessingException;
+import ru.borshchevskiy.filestorage.exception.ResourceNotFoundException;
+import ru.borshchevskiy.filestorage.exception.UnsupportedArchiveException;
+import ru.borshchevskiy.filestorage.repository.MinioRepository;
+import ru.borshchevskiy.filestorage.repository.upload.PartBufferPool;
+import ru.borshchevskiy.filestorage.service.quota.QuotaService;
+import ru.borshchevskiy.filestorage.util.FilePathUtil;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Extracts ZIP and TAR archives to storage.
+ * <p>
+ * Archive is read sequentially from the stream, entries are saved to storage as they are read. Files not larger
+ * than {@link ArchiveProperties#getExtractBufferSize()} are read into memory and saved concurrently
+ * in {@link ru.borshchevskiy.filestorage.config.ExecutorConfiguration#bulkOperationExecutor()}, so
+ * extraction of many small files is limited by bandwidth rather than by latency of storage requests.
+ * Number of concurrent requests is limited by {@link BulkOperationProperties#getConcurrency()}, which
+ * also bounds memory used by an extraction. Files are read into buffers allocated within the budget
+ * of {@link PartBufferPool}, so memory used by all extractions is bounded as well. Larger files are streamed
+ * from the archive to storage.
+ * <p>
+ * Directories of all files, as well as directories stored in the archive, are collected and created together
+ * after files are saved, so each directory is created once.
+ * <p>
+ * Entries with absolute names or names containing ".." are skipped. Size of every file, reduced by size
+ * of the file it replaces, is reserved in user's quota, files not fitting in the quota are skipped.
+ * Streamed files are saved under {@link UploadProperties#getStagingPrefix()} first and copied to the target
+ * directory only after their size is reserved, so existing files are never lost because of the quota.
+ */
+@Slf4j
+@Component
+public class ArchiveExtractor {
+
+    private final MinioRepository minioRepository;
+    private final QuotaService quotaService;
+    private final TaskExecutor executor;
+    private final ArchiveProperties archiveProperties;
+    private final BulkOperationProperties bulkOperationProperties;
+    private final UploadProperties uploadProperties;
+    private final PartBufferPool partBufferPool;
+
+    public ArchiveExtractor(MinioRepository minioRepository,
+                            QuotaService quotaService,
+                            @Qualifier("bulkOperationExecutor") TaskExecutor executor,
+                            ArchiveProperties archiveProperties,
+                            BulkOperationProperties bulkOperationProperties,
+                            UploadProperties uploadProperties,
+                            PartBufferPool partBufferPool) {
+        this.minioRepository = minioRepository;
+        this.quotaService = quotaService;
+        this.executor = executor;
+        this.archiveProperties = archiveProperties;
+        this.bulkOperationProperties = bulkOperationProperties;
+        this.uploadProperties = uploadProperties;
+        this.partBufferPool = partBufferPool;
+    }
+
+    /**
+     * Method extracts the archive to the directory.
+     *
+     * @param inputStream {@link InputStream} of the archive. It is read to the end of the archive but not closed.
+     * @param format      format of the archive.
+     * @param targetPath  storage path of the directory the archive is extracted to, ends with "/".
+     * @param userId      id of the user who owns the directory.
+     * @return {@link ExtractionResult} with results of all entries.
+     * @throws UnsupportedArchiveException if the archive can't be read.
+     */
+    public ExtractionResult extract(InputStream inputStream, ArchiveFormat format, String targetPath, Long userId) {
+        long startTime = System.currentTimeMillis();
+        int concurrency = bulkOperationProperties.getConcurrency();
+        int bufferSize = getBufferSize();
+
+        Semaphore permits = new Semaphore(concurrency);
+        List<CompletableFuture<ExtractionResult.EntryResult>> results = new ArrayList<>();
+        Set<String> directories = new LinkedHashSet<>();
+
+        try {
+            ArchiveInputStream archive = open(inputStream, format);
+            ArchiveEntry entry;
+            while ((entry = archive.getNextEntry()) != null) {
+                String name = entry.getName();
+                String path = normalize(name, entry.isDirectory());
+                if (path == null) {
+                    results.add(CompletableFuture.completedFuture(
+                            failure(name, null, entry.isDirectory(), "Invalid name.")));
+                    continue;
+                }
+                if (entry.isDirectory()) {
+                    addDirectories(directories, path);
+                    continue;
+                }
+                addDirectories(directories, FilePathUtil.getParent(path));
+
+                byte[] buffer = partBufferPool.acquire(bufferSize + 1);
+                int length;
+                try {
+                    length = archive.readNBytes(buffer, 0, bufferSize + 1);
+                } catch (IOException | RuntimeException e) {
+                    partBufferPool.release(buffer);
+                    throw e;
+                }
+                if (length <= bufferSize) {
+                    results.add(saveAsync(buffer, length, name, path, targetPath, userId, permits));
+                } else {
+                    // SequenceInputStream closes streams it has read to the end, the archive must stay open.
+                    InputStream content = new SequenceInputStream(new ByteArrayInputStream(buffer, 0, length),
+                            CloseShieldInputStream.wrap(archive));
+                    try {
+                        results.add(CompletableFuture.completedFuture(
+                                save(content, name, path, targetPath, userId)));
+                    } finally {
+                        partBufferPool.release(buffer);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            throw new UnsupportedArchiveException("Archive can't be read. " + e.getMessage(), e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MultipartProcessingException("Error occurred while processing request! Please, try again.", e);
+        } finally {
+            // Wait for all saves started by this extraction.
+            permits.acquireUninterruptibly(concurrency);
+            permits.release(concurrency);
+        }
+
+        long createdDirectories = createDirectories(directories, targetPath, permits, concurrency);
+
+        ExtractionResult result = new ExtractionResult();
+        result.setEntries(results.stream().map(CompletableFuture::join).toList());
+        for (ExtractionResult.EntryResult entryResult : result.getEntries()) {
+            if (entryResult.directory()) {
+                continue;
+            }
+            result.setTotal(result.getTotal() + 1);
+            if (entryResult.successful()) {
+                result.setExtracted(result.getExtracted() + 1);
+                result.setExtractedBytes(result.getExtractedBytes() + entryResult.size());
+            } else {
+                result.setFailed(result.getFailed() + 1);
+            }
+        }
+        result.setDirectories(createdDirectories);
+        result.setDurationMillis(System.currentTimeMillis() - startTime);
+        log.debug("Archive extracted to " + targetPath + ". Extracted " + result.getExtracted() + " of "
+                + result.getTotal() + " files, " + result.getExtractedBytes() + " bytes in "
+                + result.getDurationMillis() + " ms.");
+        return result;
+    }
+
+    private ArchiveInputStream open(InputStream inputStream, ArchiveFormat format) throws IOException {
+        return switch (format) {
+            case ZIP -> new ZipArchiveInputStream(inputStream, StandardCharsets.UTF_8.name(), true, true);
+            case TAR -> new TarArchiveInputStream(inputStream, StandardCharsets.UTF_8.name());
+            case TAR_GZ -> new TarArchiveInputStream(new GzipCompressorInputStream(inputStream),
+                    StandardCharsets.UTF_8.name());
+        };
+    }
+
+    /**
+     * Method returns maximum size of files read into memory.
+     */
+    private int getBufferSize() {
+        return (int) Math.min(archiveProperties.getExtractBufferSize().toBytes(), Integer.MAX_VALUE - 1);
+    }
+
+    /**
+     * Method saves the file in background. Waits until the number of concurrent saves is below the limit.
+     * Size of the file replaced by the saved one is requested in background as well.
+     * Buffer is returned to {@link PartBufferPool} when the file is saved or fails.
+     */
+    private CompletableFuture<ExtractionResult.EntryResult> saveAsync(byte[] buffer, int length, String name,
+                                                                      String path, String targetPath, Long userId,
+                                                                      Semaphore permits) {
+        CompletableFuture<ExtractionResult.EntryResult> result = new CompletableFuture<>();
+        permits.acquireUninterruptibly();
+        try {
+            executor.execute(() -> {
+                try {
+                    long reservedSize = length - getStoredSize(targetPath + path);
+                    if (!quotaService.tryReserve(userId, reservedSize)) {
+                        result.complete(failure(name, path, false, "Quota exceeded."));
+                        return;
+                    }
+                    try {
+                        minioRepository.putFile(new ByteArrayInputStream(buffer, 0, length), targetPath + path);
+                    } catch (RuntimeException e) {
+                        quotaService.addUsedSpace(userId, -reservedSize);
+                        throw e;
+                    }
+                    result.complete(new ExtractionResult.EntryResult(name, path, false, length, true, null));
+                } catch (RuntimeException e) {
+                    log.error("Failed to extract " + name + " to " + targetPath + path + ". " + e);
+                    result.complete(failure(name, path, false, e.getMessage()));
+                } finally {
+                    partBufferPool.release(buffer);
+                    permits.release();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            partBufferPool.release(buffer);
+            permits.release();
+            throw e;
+        }
+        return result;
+    }
+
+    /**
+     * Method streams the file to storage. Its size is only known after it is saved, so file is saved
+     * to a staging object and copied to the target path only if it fits in user's quota.
+     * Staging object is deleted in any case, existing file on the target path is kept if the file
+     * doesn't fit.
+     */
+    private ExtractionResult.EntryResult save(InputStream content, String name, String path, String targetPath,
+                                              Long userId) {
+        String stagingPath = uploadProperties.getStagingPrefix() + UUID.randomUUID();
+        CountingInputStream countingStream = new CountingInputStream(content);
+        try {
+            minioRepository.putFile(countingStream, stagingPath);
+            long size = countingStream.getByteCount();
+            long reservedSize = size - getStoredSize(targetPath + path);
+            if (!quotaService.tryReserve(userId, reservedSize)) {
+                return failure(name, path, false, "Quota exceeded.");
+            }
+            try {
+                minioRepository.copyFile(stagingPath, targetPath + path);
+            } catch (RuntimeException e) {
+                quotaService.addUsedSpace(userId, -reservedSize);
+                throw e;
+            }
+            return new ExtractionResult.EntryResult(name, path, false, size, true, null);
+        } catch (RuntimeException e) {
+            log.error("Failed to extract " + name + " to " + targetPath + path + ". " + e);
+            return failure(name, path, false, e.getMessage());
+        } finally {
+            deleteStaging(stagingPath);
+        }
+    }
+
+    private void deleteStaging(String stagingPath) {
+        try {
+            minioRepository.deleteFile(stagingPath);
+        } catch (RuntimeException e) {
+            log.error("Failed to delete staging object " + stagingPath + ". " + e);
+        }
+    }
+
+    private long getStoredSize(String storagePath) {
+        try {
+            return minioRepository.statFile(storagePath).getSize();
+        } catch (ResourceNotFoundException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * Method creates directories concurrently.
+     *
+     * @return number of created directories.
+     */
+    private long createDirectories(Set<String> directories, String targetPath, Semaphore permits, int concurrency) {
+        List<CompletableFuture<Boolean>> created = new ArrayList<>(directories.size());
+        try {
+            for (String directory : directories) {
+                permits.acquireUninterruptibly();
+                try {
+                    created.add(CompletableFuture.supplyAsync(() -> {
+                        try {
+                            minioRepository.createDirectory(targetPath + directory);
+                            return true;
+                        } catch (RuntimeException e) {
+                            log.error("Failed to create directory " + targetPath + directory + ". " + e);
+                            return false;
+                        } finally {
+                            permits.release();
+                        }
+                    }, executor));
+                } catch (RejectedExecutionException e) {
+                    permits.release();
+                    throw e;
+                }
+            }
+        } finally {
+            permits.acquireUninterruptibly(concurrency);
+            permits.release(concurrency);
+        }
+        return created.stream().filter(CompletableFuture::join).count();
+    }
+
+    /**
+     * Method adds the directory and all its parent directories to the set.
+     *
+     * @param directories set of directories.
+     * @param path        path of the directory, "" for the target directory itself.
+     */
+    private void addDirectories(Set<String> directories, String path) {
+        while (!path.isEmpty() && directories.add(path)) {
+            path = FilePathUtil.getParent(path);
+        }
+    }
+
+    /**
+     * Method converts name of archive entry to a path relative to the target directory.
+     * Backslashes are treated as separators, empty and "." segments are dropped.
+     *
+     * @param name        name of the entry.
+     * @param isDirectory true if entry is a directory.
+     * @return path of the entry, directory paths end with "/" symbol, or null if the name is absolute,
+     * contains ".." segments or is empty.
+     */
+    static String normalize(String name, boolean isDirectory) {
+        String separated = name.replace('\\', '/');
+        if (separated.startsWith("/") || separated.matches("^[A-Za-z]:/.*")) {
+            return null;
+        }
+        StringBuilder path = new StringBuilder();
+        for (String segment : separated.split("/")) {
+            if (segment.isEmpty() || segment.equals(".")) {
+                continue;
+            }
+            if (segment.equals("..")) {
+                return null;
+            }
+            if (!path.isEmpty()) {
+                path.append('/');
+            }
+            path.append(segment);
+        }
+        if (path.isEmpty()) {
+            return null;
+        }
+        return isDirectory ? path.append('/').toString() : path.toString();
+    }
+
+    private ExtractionResult.EntryResult failure(String name, String path, boolean isDirectory, String error) {
+        return new ExtractionResult.EntryResult(name, path, isDirectory, 0, false, error);
+    }
+}
@@ -0,0 +1,35 @@
+package ru.borshchevskiy.filestorage.service.archive;
+
+import java.util.Locale;
+import java.util.Optional;
+
+/**
+ * Formats of archives which can be extracted to storage.
+ *
+ * @see ArchiveExtractor
+ */
+public enum ArchiveFormat {
+    ZIP,
+    TAR,
+    TAR_GZ;
+
+    /**
+     * Method determines format of the archive by its name.
+     *
+     * @param name name of the archive file.
+     * @return {@link Optional} of {@link ArchiveFormat}, empty if format is not supported.
+     */
+    public static Optional<ArchiveFormat> fromFileName(String name) {
+        String lowerCaseName = name.toLowerCase(Locale.ROOT);
+        if (lowerCaseName.endsWith(".zip")) {
+            return Optional.of(ZIP);
+        }
+        if (lowerCaseName.endsWith(".tar")) {
+            return Optional.of(TAR);
+        }
+        if (lowerCaseName.endsWith(".tar.gz") || lowerCaseName.endsWith(".tgz")) {
+            return Optional.of(TAR_GZ);
+        }
+        return Optional.empty();
+    }
+}
@@ -0,0 +1,14 @@
+package ru.borshchevskiy.filestorage.service.archive;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Writes prepared archive to the output stream.
+ * Archive contents are read from storage only when archive is written.
+ */
+@FunctionalInterface
+public interface ArchiveWriter {
+
+    void writeTo(OutputStream outputStream) throws IOException;
+}
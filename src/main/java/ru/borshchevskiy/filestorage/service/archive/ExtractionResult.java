@@ -0,0 +1,63 @@
+package ru.borshchevskiy.filestorage.service.archive;
+
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * Class represents summary of archive extraction with results of all archive entries.
+ *
+ * @see ArchiveExtractor
+ */
+@Data
+public class ExtractionResult {
+    /**
+     * Number of files in the archive.
+     */
+    private long total;
+    /**
+     * Number of files saved to storage.
+     */
+    private long extracted;
+    /**
+     * Number of files which couldn't be saved.
+     */
+    private long failed;
+    /**
+     * Total size of saved files in bytes.
+     */
+    private long extractedBytes;
+    /**
+     * Number of directories created in storage.
+     */
+    private long directories;
+    /**
+     * Results of archive entries in the order they were read from the archive.
+     */
+    private List<EntryResult> entries;
+    /**
+     * Duration of the extraction in milliseconds.
+     */
+    private long durationMillis;
+
+    /**
+     * @return true if all files were saved.
+     */
+    public boolean isSuccessful() {
+        return failed == 0;
+    }
+
+    /**
+     * Result of a single archive entry.
+     *
+     * @param name       name of the entry in the archive.
+     * @param path       path of the saved object relative to the target directory, null if name is invalid.
+     * @param directory  true if entry is a directory.
+     * @param size       size of the saved file in bytes.
+     * @param successful true if entry was saved.
+     * @param error      reason of the failure, null if entry was saved.
+     */
+    public record EntryResult(String name, String path, boolean directory, long size, boolean successful,
+                              String error) {
+    }
+}
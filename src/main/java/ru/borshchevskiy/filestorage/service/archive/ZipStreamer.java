@@ -0,0 +1,203 @@
+package ru.borshchevskiy.filestorage.service.archive;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.stereotype.Component;
+import ru.borshchevskiy.filestorage.config.properties.ArchiveProperties;
+import ru.borshchevskiy.filestorage.repository.MinioRepository;
+import ru.borshchevskiy.filestorage.repository.ObjectInfo;
+import ru.borshchevskiy.filestorage.util.FilePathUtil;
+import ru.borshchevskiy.filestorage.util.FutureUtil;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Streams ZIP archives of storage objects.
+ * <p>
+ * Archive is written directly to the output stream, nothing is stored in temporary files. Objects are listed
+ * lazily and up to {@link ArchiveProperties#getPrefetchCount()} next objects are read from storage
+ * in {@link ru.borshchevskiy.filestorage.config.ExecutorConfiguration#bulkOperationExecutor()} while
+ * the current one is written, so small files don't wait for storage one by one. Only files not larger than
+ * {@link ArchiveProperties#getPrefetchMaxSize()} are read ahead, which bounds memory used by an archive,
+ * larger files are streamed from storage when their turn comes.
+ * <p>
+ * Files with extensions from {@link ArchiveProperties#getStoredExtensions()}, as well as all files
+ * if compression is not requested, are not compressed. Read ahead files are stored as is, streamed files
+ * are deflated with no compression, as their checksum is not known before they are written.
+ */
+@Slf4j
+@Component
+public class ZipStreamer {
+
+    private final MinioRepository minioRepository;
+    private final TaskExecutor executor;
+    private final ArchiveProperties archiveProperties;
+
+    public ZipStreamer(MinioRepository minioRepository,
+                       @Qualifier("bulkOperationExecutor") TaskExecutor executor,
+                       ArchiveProperties archiveProperties) {
+        this.minioRepository = minioRepository;
+        this.executor = executor;
+        this.archiveProperties = archiveProperties;
+    }
+
+    /**
+     * Method writes ZIP archive of files and directories. Names of archive entries are paths of objects
+     * relative to basePath.
+     * E.g. basePath = "user-1-files/dir/", paths = ["user-1-files/dir/sub/", "user-1-files/dir/file.txt"]:
+     * entries are "sub/", "sub/..." and "file.txt".
+     *
+     * @param basePath     storage path of the directory where archived items are located.
+     * @param paths        storage paths of files and directories to be archived, directories end with "/".
+     * @param compress     false if files should be stored without compression.
+     * @param outputStream stream the archive is written to. It is not closed.
+     * @throws IOException if archive can't be written.
+     */
+    public void write(String basePath, List<String> paths, boolean compress, OutputStream outputStream)
+            throws IOException {
+        long startTime = System.currentTimeMillis();
+        long prefetchMaxSize = archiveProperties.getPrefetchMaxSize().toBytes();
+        Deque<PendingEntry> window = new ArrayDeque<>();
+        int entries = 0;
+
+        ZipOutputStream zip = new ZipOutputStream(outputStream);
+        try (Stream<ArchiveItem> items = paths.stream().flatMap(this::listItems)) {
+            Iterator<ArchiveItem> iterator = items.iterator();
+            fillWindow(window, iterator, prefetchMaxSize);
+            while (!window.isEmpty()) {
+                PendingEntry entry = window.poll();
+                fillWindow(window, iterator, prefetchMaxSize);
+                writeEntry(zip, entry, basePath, compress);
+                entries++;
+            }
+            zip.finish();
+        } finally {
+            window.forEach(entry -> {
+                if (entry.content() != null) {
+                    entry.content().cancel(false);
+                }
+            });
+        }
+        log.debug("Archive of " + paths.size() + " items in " + basePath + " written: " + entries
+                + " entries in " + (System.currentTimeMillis() - startTime) + " ms.");
+    }
+
+    private Stream<ArchiveItem> listItems(String path) {
+        if (!path.endsWith("/")) {
+            ObjectInfo objectInfo = minioRepository.statFile(path);
+            return Stream.of(new ArchiveItem(path, objectInfo.getSize(), objectInfo.getLastModified() == null
+                    ? null
+                    : objectInfo.getLastModified().toInstant()));
+        }
+        return minioRepository.getItemsStream(path, true)
+                .map(item -> new ArchiveItem(item.objectName(), item.size(), item.lastModified() == null
+                        ? null
+                        : item.lastModified().toInstant()));
+    }
+
+    /**
+     * Method adds next items to the window until it is full, starting reads of small files.
+     */
+    private void fillWindow(Deque<PendingEntry> window, Iterator<ArchiveItem> items, long prefetchMaxSize) {
+        int windowSize = Math.max(1, archiveProperties.getPrefetchCount());
+        while (window.size() < windowSize && items.hasNext()) {
+            ArchiveItem item = items.next();
+            CompletableFuture<byte[]> content = null;
+            if (!item.isDirectory() && item.size() <= prefetchMaxSize) {
+                content = CompletableFuture.supplyAsync(() -> readFile(item.path()), executor);
+            }
+            window.add(new PendingEntry(item, content));
+        }
+    }
+
+    private void writeEntry(ZipOutputStream zip, PendingEntry entry, String basePath, boolean compress)
+            throws IOException {
+        ArchiveItem item = entry.item();
+        ZipEntry zipEntry = new ZipEntry(item.path().substring(basePath.length()));
+        if (item.lastModified() != null) {
+            zipEntry.setLastModifiedTime(FileTime.from(item.lastModified()));
+        }
+        if (item.isDirectory()) {
+            zip.putNextEntry(zipEntry);
+            zip.closeEntry();
+            return;
+        }
+
+        boolean store = !compress || isCompressed(item.path());
+        if (entry.content() != null) {
+            byte[] content = FutureUtil.join(entry.content());
+            if (store) {
+                CRC32 crc = new CRC32();
+                crc.update(content);
+                zipEntry.setMethod(ZipEntry.STORED);
+                zipEntry.setSize(content.length);
+                zipEntry.setCompressedSize(content.length);
+                zipEntry.setCrc(crc.getValue());
+            } else {
+                zip.setLevel(Deflater.DEFAULT_COMPRESSION);
+            }
+            zip.putNextEntry(zipEntry);
+            zip.write(content);
+        } else {
+            zip.setLevel(store ? Deflater.NO_COMPRESSION : Deflater.DEFAULT_COMPRESSION);
+            zip.putNextEntry(zipEntry);
+            try (InputStream inputStream = minioRepository.getFile(item.path())) {
+                inputStream.transferTo(zip);
+            }
+        }
+        zip.closeEntry();
+    }
+
+    private byte[] readFile(String path) {
+        try (InputStream inputStream = minioRepository.getFile(path)) {
+            return inputStream.readAllBytes();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read " + path + ".", e);
+        }
+    }
+
+    private boolean isCompressed(String path) {
+        String extension = FilePathUtil.getFileExtension(path);
+        return archiveProperties.getStoredExtensions().contains(extension.toLowerCase(Locale.ROOT));
+    }
+
+    /**
+     * Object to be written to the archive.
+     *
+     * @param path         storage path of the object, directories end with "/".
+     * @param size         size of the object.
+     * @param lastModified time of the last modification of the object, if known.
+     */
+    private record ArchiveItem(String path, long size, Instant lastModified) {
+
+        boolean isDirectory() {
+            return path.endsWith("/");
+        }
+    }
+
+    /**
+     * Object waiting to be written to the archive.
+     *
+     * @param item    the object.
+     * @param content future of the contents of the file if it is read ahead, null otherwise.
+     */
+    private record PendingEntry(ArchiveItem item, CompletableFuture<byte[]> content) {
+    }
+}
@@ -0,0 +1,145 @@
+package ru.borshchevskiy.filestorage.service.bulk;
+
+import io.minio.messages.Item;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.stereotype.Component;
+import ru.borshchevskiy.filestorage.config.properties.BulkOperationProperties;
+import ru.borshchevskiy.filestorage.repository.MinioRepository;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Moves all objects stored by one prefix to another prefix.
+ * <p>
+ * Objects are copied by storage server, copies are performed concurrently in
+ * {@link ru.borshchevskiy.filestorage.config.ExecutorConfiguration#bulkOperationExecutor()}.
+ * Number of concurrent copies of a single operation is limited by {@link BulkOperationProperties#getConcurrency()}.
+ * Source objects are deleted in batches of {@link BulkOperationProperties#getDeleteBatchSize()} objects
+ * once they are copied. Source object is never deleted if its copy failed.
+ * <p>
+ * Objects are listed lazily, so memory usage doesn't depend on the number of objects moved.
+ */
+@Slf4j
+@Component
+public class BulkMoveEngine {
+
+    /**
+     * Maximum number of objects deleted by a single request allowed by S3.
+     */
+    private static final int MAX_DELETE_BATCH_SIZE = 1000;
+
+    private final MinioRepository minioRepository;
+    private final TaskExecutor executor;
+    private final BulkOperationProperties bulkOperationProperties;
+
+    public BulkMoveEngine(MinioRepository minioRepository,
+                          @Qualifier("bulkOperationExecutor") TaskExecutor executor,
+                          BulkOperationProperties bulkOperationProperties) {
+        this.minioRepository = minioRepository;
+        this.executor = executor;
+        this.bulkOperationProperties = bulkOperationProperties;
+    }
+
+    /**
+     * Method moves all objects which names start with sourcePrefix, replacing sourcePrefix with targetPrefix.
+     * E.g. sourcePrefix = "dir/old/", targetPrefix = "dir/new/": "dir/old/sub/file.txt" -> "dir/new/sub/file.txt".
+     *
+     * @param sourcePrefix prefix of objects to be moved.
+     * @param targetPrefix new prefix of the objects.
+     * @return {@link BulkOperationResult} with summary of the operation.
+     */
+    public BulkOperationResult move(String sourcePrefix, String targetPrefix) {
+        long startTime = System.currentTimeMillis();
+        int concurrency = bulkOperationProperties.getConcurrency();
+        int deleteBatchSize = Math.min(bulkOperationProperties.getDeleteBatchSize(), MAX_DELETE_BATCH_SIZE);
+
+        Semaphore permits = new Semaphore(concurrency);
+        Queue<String> copiedObjects = new ConcurrentLinkedQueue<>();
+        Queue<String> failedObjects = new ConcurrentLinkedQueue<>();
+        AtomicLong copied = new AtomicLong();
+        AtomicLong failed = new AtomicLong();
+        long total = 0;
+        long deleted = 0;
+
+        try (Stream<Item> items = minioRepository.getItemsStream(sourcePrefix, true)) {
+            for (Item item : (Iterable<Item>) items::iterator) {
+                String sourceName = item.objectName();
+                String targetName = targetPrefix + sourceName.substring(sourcePrefix.length());
+                total++;
+
+                permits.acquireUninterruptibly();
+                try {
+                    executor.execute(() -> {
+                        try {
+                            minioRepository.copyFile(sourceName, targetName);
+                            copied.incrementAndGet();
+                            copiedObjects.add(sourceName);
+                        } catch (RuntimeException e) {
+                            log.error("Failed to copy " + sourceName + " to " + targetName + ". " + e);
+                            failed.incrementAndGet();
+                            if (failedObjects.size() < BulkOperationResult.MAX_REPORTED_FAILURES) {
+                                failedObjects.add(sourceName);
+                            }
+                        } finally {
+                            permits.release();
+                        }
+                    });
+                } catch (RejectedExecutionException e) {
+                    permits.release();
+                    throw e;
+                }
+
+                if (copiedObjects.size() >= deleteBatchSize) {
+                    deleted += deleteBatch(copiedObjects, deleteBatchSize);
+                }
+            }
+        } finally {
+            // Wait for all copies started by this operation.
+            permits.acquireUninterruptibly(concurrency);
+            permits.release(concurrency);
+        }
+
+        while (!copiedObjects.isEmpty()) {
+            deleted += deleteBatch(copiedObjects, deleteBatchSize);
+        }
+
+        BulkOperationResult result = new BulkOperationResult();
+        result.setTotal(total);
+        result.setCopied(copied.get());
+        result.setDeleted(deleted);
+        result.setFailed(failed.get());
+        result.setFailedObjects(List.copyOf(failedObjects));
+        result.setDurationMillis(System.currentTimeMillis() - startTime);
+        log.debug("Moved " + sourcePrefix + " to " + targetPrefix + ". " + result);
+        return result;
+    }
+
+    /**
+     * Method deletes up to batchSize objects from the queue with a single request.
+     *
+     * @param objects   queue of objects names to be deleted.
+     * @param batchSize maximum number of objects to be deleted.
+     * @return number of deleted objects.
+     */
+    private int deleteBatch(Queue<String> objects, int batchSize) {
+        List<String> batch = new ArrayList<>(Math.min(objects.size(), batchSize));
+        String object;
+        while (batch.size() < batchSize && (object = objects.poll()) != null) {
+            batch.add(object);
+        }
+        if (!batch.isEmpty()) {
+            minioRepository.deleteFiles(Collections.unmodifiableList(batch));
+        }
+        return batch.size();
+    }
+}
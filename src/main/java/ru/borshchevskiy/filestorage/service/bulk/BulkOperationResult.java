@@ -0,0 +1,50 @@
+package ru.borshchevskiy.filestorage.service.bulk;
+
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * Class represents summary of a bulk operation with storage objects.
+ *
+ * @see BulkMoveEngine
+ */
+@Data
+public class BulkOperationResult {
+    /**
+     * Maximum number of failed objects names kept in the result.
+     */
+    public static final int MAX_REPORTED_FAILURES = 100;
+
+    /**
+     * Total number of objects processed by the operation.
+     */
+    private long total;
+    /**
+     * Number of objects successfully copied to new location.
+     */
+    private long copied;
+    /**
+     * Number of source objects deleted after copying.
+     */
+    private long deleted;
+    /**
+     * Number of objects which couldn't be processed.
+     */
+    private long failed;
+    /**
+     * Names of objects which couldn't be processed. Contains at most {@link #MAX_REPORTED_FAILURES} names.
+     */
+    private List<String> failedObjects;
+    /**
+     * Duration of the operation in milliseconds.
+     */
+    private long durationMillis;
+
+    /**
+     * @return true if all objects were processed successfully.
+     */
+    public boolean isSuccessful() {
+        return failed == 0;
+    }
+}
@@ -0,0 +1,65 @@
+package ru.borshchevskiy.filestorage.service.cache;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Supplier;
+
+/**
+ * Loads missing values of {@link AsyncCache} in the calling thread.
+ * <p>
+ * Synchronous cache loads missing value inside {@link java.util.concurrent.ConcurrentHashMap#compute},
+ * i.e. holding a monitor, so a virtual thread loading value from storage pins its carrier thread, and threads
+ * requesting other keys of the same hash bin are blocked. Here only an incomplete future is put into the cache,
+ * value is loaded without holding any monitor and other threads requesting the same key wait for the future.
+ * <p>
+ * Value invalidated while it is loaded is returned to the caller, but is not left in the cache.
+ * Failed loads are removed from the cache.
+ */
+final class AsyncCacheLoading {
+
+    private AsyncCacheLoading() {
+    }
+
+    /**
+     * Method returns cached value or loads it if it isn't cached.
+     *
+     * @param cache  {@link AsyncCache}.
+     * @param key    key of the value.
+     * @param loader function which loads the value.
+     * @return cached or loaded value.
+     */
+    static <K, V> V get(AsyncCache<K, V> cache, K key, Supplier<V> loader) {
+        CompletableFuture<V> loading = new CompletableFuture<>();
+        CompletableFuture<V> cached = cache.asMap().putIfAbsent(key, loading);
+        if (cached != null) {
+            return join(cached);
+        }
+        try {
+            V value = loader.get();
+            loading.complete(value);
+            return value;
+        } catch (RuntimeException | Error e) {
+            loading.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    /**
+     * Method waits for the value, exception thrown by its loader is rethrown as is.
+     *
+     * @param future cached value.
+     * @return the value.
+     */
+    static <V> V join(CompletableFuture<V> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+}
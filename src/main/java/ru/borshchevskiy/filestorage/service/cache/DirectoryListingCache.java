@@ -0,0 +1,228 @@
+package ru.borshchevskiy.filestorage.service.cache;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.stereotype.Component;
+import ru.borshchevskiy.filestorage.config.properties.ListingCacheProperties;
+import ru.borshchevskiy.filestorage.dto.file.FileItemDto;
+import ru.borshchevskiy.filestorage.service.event.StorageChangeEvent;
+import ru.borshchevskiy.filestorage.util.FilePathUtil;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Supplier;
+
+/**
+ * Cache of directories listings.
+ * <p>
+ * Listings are cached per user and per directory. Total number of cached items is bounded by
+ * {@link ListingCacheProperties#getMaxItems()}. Listing older than {@link ListingCacheProperties#getRefreshAfter()}
+ * is still served, while a fresh listing is loaded in background. Missing listings are loaded outside of
+ * cache locks, see {@link AsyncCacheLoading}.
+ * <p>
+ * Entries are invalidated by {@link StorageChangeEvent}s: change of an object invalidates listing of its parent
+ * directory and of all directories up to {@link StorageChangeEvent#getTargetDirectory()}, change of a directory
+ * also invalidates listings of all its subdirectories. Both old and new locations of moved objects are invalidated.
+ * <p>
+ * If {@link RedisListingStore} is available, local cache serves as a near cache in front of it: listings missing
+ * in local cache are taken from Redis and loaded from storage only if Redis doesn't have them either.
+ * Invalidations are propagated to all application instances through Redis.
+ */
+@Slf4j
+@Component
+public class DirectoryListingCache {
+
+    private static final String METRICS_PREFIX = "listing.cache";
+
+    private final boolean enabled;
+    private final long refreshAfterNanos;
+    private final TaskExecutor refreshExecutor;
+    private final AsyncCache<ListingKey, Listing> cache;
+    private final Set<ListingKey> refreshing = ConcurrentHashMap.newKeySet();
+    private final RedisListingStore sharedStore;
+    private final Counter hits;
+    private final Counter misses;
+
+    public DirectoryListingCache(ListingCacheProperties listingCacheProperties,
+                                 @Qualifier("listingRefreshExecutor") TaskExecutor refreshExecutor,
+                                 ObjectProvider<RedisListingStore> sharedStore,
+                                 MeterRegistry meterRegistry) {
+        this.enabled = listingCacheProperties.isEnabled();
+        this.refreshAfterNanos = listingCacheProperties.getRefreshAfter().toNanos();
+        this.refreshExecutor = refreshExecutor;
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(listingCacheProperties.getMaxItems())
+                .weigher((ListingKey key, Listing listing) -> listing.items.size() + 1)
+                .expireAfterWrite(listingCacheProperties.getExpireAfter())
+                .buildAsync();
+        this.hits = Counter.builder(METRICS_PREFIX + ".requests").tag("result", "hit")
+                .description("Directory listings served from cache")
+                .register(meterRegistry);
+        this.misses = Counter.builder(METRICS_PREFIX + ".requests").tag("result", "miss")
+                .description("Directory listings loaded from storage")
+                .register(meterRegistry);
+        meterRegistry.gauge(METRICS_PREFIX + ".size", cache, c -> c.synchronous().estimatedSize());
+
+        this.sharedStore = enabled ? sharedStore.getIfAvailable() : null;
+        if (this.sharedStore != null) {
+            this.sharedStore.subscribe(this::invalidateLocal);
+        }
+    }
+
+    /**
+     * Method returns cached listing of the directory or loads it if it isn't cached.
+     * <p>
+     * Loader may be called in background thread, so it must not depend on current request or session.
+     *
+     * @param userDirectory user's personal root directory.
+     * @param storagePath   storage-specific path of the directory.
+     * @param loader        function which loads listing from storage.
+     * @return {@link List} of {@link FileItemDto}.
+     */
+    public List<FileItemDto> get(String userDirectory, String storagePath, Supplier<List<FileItemDto>> loader) {
+        if (!enabled) {
+            return loader.get();
+        }
+        Supplier<List<FileItemDto>> listingLoader = sharedStore == null
+                ? loader
+                : () -> sharedStore.get(userDirectory, storagePath, loader);
+        ListingKey key = new ListingKey(userDirectory, storagePath);
+        CompletableFuture<Listing> cached = cache.getIfPresent(key);
+        if (cached == null) {
+            misses.increment();
+            return AsyncCacheLoading.get(cache, key, () -> new Listing(listingLoader.get())).items;
+        }
+        hits.increment();
+        Listing listing = AsyncCacheLoading.join(cached);
+        if (System.nanoTime() - listing.loadedAt >= refreshAfterNanos) {
+            refresh(key, cached, listingLoader);
+        }
+        return listing.items;
+    }
+
+    /**
+     * Method invalidates listings affected by the change.
+     *
+     * @param event {@link StorageChangeEvent}.
+     */
+    @EventListener
+    public void onStorageChange(StorageChangeEvent event) {
+        if (!enabled) {
+            return;
+        }
+        String userDirectory = event.getUserDirectory();
+        Set<String> paths = new HashSet<>();
+        addParents(paths, event.getPath(), event.getTargetDirectory());
+        List<String> trees = new ArrayList<>();
+        if (event.isDirectory()) {
+            trees.add(event.getPath());
+        }
+        if (event.getNewPath() != null) {
+            addParents(paths, event.getNewPath(), event.getTargetDirectory());
+            if (event.isDirectory()) {
+                trees.add(event.getNewPath());
+            }
+        }
+
+        paths.forEach(path -> cache.synchronous().invalidate(new ListingKey(userDirectory, path)));
+        trees.forEach(path -> invalidateTree(userDirectory, path));
+        if (sharedStore != null) {
+            sharedStore.invalidate(userDirectory, paths, trees);
+        }
+    }
+
+    /**
+     * Method adds parent directory of the object and all directories between it and the target directory.
+     *
+     * @param paths           set of directories whose listings are changed.
+     * @param path            path of changed object.
+     * @param targetDirectory directory the change was requested in or null.
+     */
+    private static void addParents(Set<String> paths, String path, String targetDirectory) {
+        String parent = FilePathUtil.getParent(path);
+        paths.add(parent);
+        while (targetDirectory != null && parent.length() > targetDirectory.length()
+                && parent.startsWith(targetDirectory)) {
+            parent = FilePathUtil.getParent(parent);
+            paths.add(parent);
+        }
+    }
+
+    /**
+     * Method invalidates local listings after invalidation made by any application instance.
+     *
+     * @param userDirectory user's personal root directory.
+     * @param fields        invalidated fields of {@link RedisListingStore}.
+     */
+    private void invalidateLocal(String userDirectory, List<String> fields) {
+        for (String field : fields) {
+            String path = RedisListingStore.path(field);
+            if (RedisListingStore.isTree(field)) {
+                invalidateTree(userDirectory, path);
+            } else {
+                cache.synchronous().invalidate(new ListingKey(userDirectory, path));
+            }
+        }
+    }
+
+    private void invalidateTree(String userDirectory, String storagePath) {
+        cache.synchronous().invalidateAll(cache.asMap().keySet().stream()
+                .filter(key -> key.userDirectory().equals(userDirectory) && key.storagePath().startsWith(storagePath))
+                .toList());
+    }
+
+    /**
+     * Method reloads listing in background. Reloaded listing replaces the cached one only if it is still cached,
+     * so listing invalidated during reload is never restored.
+     *
+     * @param key    key of the listing.
+     * @param stale  cached listing.
+     * @param loader function which loads listing from storage.
+     */
+    private void refresh(ListingKey key, CompletableFuture<Listing> stale, Supplier<List<FileItemDto>> loader) {
+        if (!refreshing.add(key)) {
+            return;
+        }
+        try {
+            refreshExecutor.execute(() -> {
+                try {
+                    cache.asMap().replace(key, stale, CompletableFuture.completedFuture(new Listing(loader.get())));
+                } catch (RuntimeException e) {
+                    log.error("Failed to refresh listing of " + key.storagePath() + ". " + e);
+                } finally {
+                    refreshing.remove(key);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            refreshing.remove(key);
+        }
+    }
+
+    private record ListingKey(String userDirectory, String storagePath) {
+    }
+
+    /**
+     * Cached listing. Cached futures are compared by identity, so a reloaded listing never matches
+     * the one it replaces.
+     */
+    private static final class Listing {
+        private final List<FileItemDto> items;
+        private final long loadedAt = System.nanoTime();
+
+        private Listing(List<FileItemDto> items) {
+            this.items = items;
+        }
+    }
+}
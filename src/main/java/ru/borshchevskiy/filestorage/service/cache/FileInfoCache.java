@@ -0,0 +1,128 @@
+package ru.borshchevskiy.filestorage.service.cache;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import ru.borshchevskiy.filestorage.config.properties.FileInfoCacheProperties;
+import ru.borshchevskiy.filestorage.config.properties.ListingCacheProperties;
+import ru.borshchevskiy.filestorage.repository.ObjectInfo;
+import ru.borshchevskiy.filestorage.service.event.StorageChangeEvent;
+import ru.borshchevskiy.filestorage.util.FilePathUtil;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Cache of files metadata, so repeated downloads of the same file and conditional requests
+ * don't request metadata from storage every time.
+ * <p>
+ * Entries are keyed by storage-specific path of the file and invalidated by {@link StorageChangeEvent}s:
+ * change of a file invalidates its metadata, change of a directory invalidates metadata of all files in it.
+ * Metadata of missing files is not cached. Metadata is requested from storage outside of cache locks,
+ * see {@link AsyncCacheLoading}.
+ * <p>
+ * If listings are shared through {@link RedisListingStore} (see {@link ListingCacheProperties#isShared()}),
+ * changes made on other application instances invalidate metadata of all files in the changed directories.
+ * Otherwise such changes are noticed after {@link FileInfoCacheProperties#getExpireAfter()}.
+ */
+@Component
+public class FileInfoCache {
+
+    private static final String METRICS_PREFIX = "file-info.cache";
+
+    private final boolean enabled;
+    private final AsyncCache<String, ObjectInfo> cache;
+    private final Counter hits;
+    private final Counter misses;
+
+    public FileInfoCache(FileInfoCacheProperties fileInfoCacheProperties,
+                         ObjectProvider<RedisListingStore> sharedStore,
+                         MeterRegistry meterRegistry) {
+        this.enabled = fileInfoCacheProperties.isEnabled();
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(fileInfoCacheProperties.getMaxEntries())
+                .expireAfterWrite(fileInfoCacheProperties.getExpireAfter())
+                .buildAsync();
+        this.hits = Counter.builder(METRICS_PREFIX + ".requests").tag("result", "hit")
+                .description("Files metadata served from cache")
+                .register(meterRegistry);
+        this.misses = Counter.builder(METRICS_PREFIX + ".requests").tag("result", "miss")
+                .description("Files metadata requested from storage")
+                .register(meterRegistry);
+
+        RedisListingStore store = enabled ? sharedStore.getIfAvailable() : null;
+        if (store != null) {
+            store.subscribe(this::invalidateLocal);
+        }
+    }
+
+    /**
+     * Method returns cached metadata of the file or loads it if it isn't cached.
+     *
+     * @param storagePath storage-specific path of the file.
+     * @param loader      function which requests metadata from storage.
+     * @return {@link ObjectInfo} of the file.
+     */
+    public ObjectInfo get(String storagePath, Supplier<ObjectInfo> loader) {
+        if (!enabled) {
+            return loader.get();
+        }
+        CompletableFuture<ObjectInfo> cached = cache.getIfPresent(storagePath);
+        if (cached != null) {
+            hits.increment();
+            return AsyncCacheLoading.join(cached);
+        }
+        misses.increment();
+        return AsyncCacheLoading.get(cache, storagePath, loader);
+    }
+
+    /**
+     * Method invalidates metadata of files affected by the change.
+     *
+     * @param event {@link StorageChangeEvent}.
+     */
+    @EventListener
+    public void onStorageChange(StorageChangeEvent event) {
+        if (!enabled) {
+            return;
+        }
+        if (event.isDirectory()) {
+            invalidateIf(path -> path.startsWith(event.getPath())
+                    || event.getNewPath() != null && path.startsWith(event.getNewPath()));
+            return;
+        }
+        cache.synchronous().invalidate(event.getPath());
+        if (event.getNewPath() != null) {
+            cache.synchronous().invalidate(event.getNewPath());
+        }
+    }
+
+    /**
+     * Method invalidates local metadata after invalidation of listings made by any application instance.
+     *
+     * @param userDirectory user's personal root directory.
+     * @param fields        invalidated fields of {@link RedisListingStore}.
+     */
+    private void invalidateLocal(String userDirectory, List<String> fields) {
+        for (String field : fields) {
+            String path = RedisListingStore.path(field);
+            if (RedisListingStore.isTree(field)) {
+                invalidateIf(key -> key.startsWith(path));
+            } else {
+                invalidateIf(key -> FilePathUtil.getParent(key).equals(path));
+            }
+        }
+    }
+
+    private void invalidateIf(Predicate<String> predicate) {
+        cache.synchronous().invalidateAll(cache.asMap().keySet().stream()
+                .filter(predicate)
+                .toList());
+    }
+}
@@ -0,0 +1,80 @@
+package ru.borshchevskiy.filestorage.service.cache;
+
+import ru.borshchevskiy.filestorage.dto.file.FileItemDto;
+import ru.borshchevskiy.filestorage.util.FileSizeUtil;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compact binary representation of directory listing stored in shared cache.
+ * <p>
+ * Only fields received from storage are written, human-readable size is calculated when listing is read.
+ * Format starts with version byte, so listings written in an older format are ignored after format change.
+ */
+final class ListingCodec {
+
+    private static final byte FORMAT_VERSION = 2;
+    private static final long NO_COUNT = -1;
+    private static final long NO_SIZE = -1;
+
+    private ListingCodec() {
+    }
+
+    static byte[] encode(List<FileItemDto> items) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 * items.size() + 8);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(FORMAT_VERSION);
+            out.writeInt(items.size());
+            for (FileItemDto item : items) {
+                out.writeBoolean(item.isDirectory());
+                out.writeUTF(item.getName());
+                out.writeUTF(item.getFullName());
+                out.writeLong(item.getSize() == null ? NO_SIZE : item.getSize());
+                out.writeLong(item.getItemCount() == null ? NO_COUNT : item.getItemCount());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * @param data encoded listing.
+     * @return decoded listing or null if listing is written in unsupported format.
+     */
+    static List<FileItemDto> decode(byte[] data) {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(data))) {
+            if (in.readByte() != FORMAT_VERSION) {
+                return null;
+            }
+            int count = in.readInt();
+            List<FileItemDto> items = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                FileItemDto item = new FileItemDto();
+                item.setDirectory(in.readBoolean());
+                item.setName(in.readUTF());
+                item.setFullName(in.readUTF());
+                long size = in.readLong();
+                if (size != NO_SIZE) {
+                    item.setSize(size);
+                    item.setViewSize(FileSizeUtil.getViewFileSize(size));
+                }
+                long itemCount = in.readLong();
+                if (itemCount != NO_COUNT) {
+                    item.setItemCount(itemCount);
+                }
+                items.add(item);
+            }
+            return List.copyOf(items);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
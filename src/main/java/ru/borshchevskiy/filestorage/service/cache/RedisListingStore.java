@@ -0,0 +1,196 @@
+package ru.borshchevskiy.filestorage.service.cache;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.data.redis.serializer.GenericToStringSerializer;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import ru.borshchevskiy.filestorage.config.properties.ListingCacheProperties;
+import ru.borshchevskiy.filestorage.dto.file.FileItemDto;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
+
+/**
+ * Shared tier of directory listing cache, stored in Redis and used by all application instances.
+ * <p>
+ * Listings of each user are stored in a single Redis hash: field is storage path of the directory,
+ * value is listing encoded by {@link ListingCodec}. The hash also holds version of user's listings,
+ * which is incremented on every invalidation. Listing loaded from storage is only saved if version
+ * hasn't changed while it was loaded, so listing made stale by concurrent change on another instance
+ * is never saved.
+ * <p>
+ * Invalidations are published to {@link #CHANNEL}, so every instance can invalidate its local cache.
+ * If Redis is unavailable, listings are loaded from storage.
+ *
+ * @see DirectoryListingCache
+ */
+@Slf4j
+public class RedisListingStore {
+
+    static final String CHANNEL = "listing-invalidation";
+    private static final String KEY_PREFIX = "listing:";
+    private static final String VERSION_FIELD = "#version";
+    private static final char PARENT_MARKER = 'P';
+    private static final char TREE_MARKER = 'T';
+    private static final RedisSerializer<Long> RESULT_SERIALIZER = new GenericToStringSerializer<>(Long.class);
+
+    /**
+     * Saves listing if version of user's listings is unchanged.
+     * KEYS[1] - hash, ARGV[1] - expected version, ARGV[2] - field, ARGV[3] - listing, ARGV[4] - TTL in ms.
+     */
+    private static final RedisScript<Long> PUT_SCRIPT = new DefaultRedisScript<>("""
+            local version = redis.call('HGET', KEYS[1], '#version') or '0'
+            if version ~= ARGV[1] then
+                return 0
+            end
+            redis.call('HSET', KEYS[1], ARGV[2], ARGV[3])
+            redis.call('PEXPIRE', KEYS[1], ARGV[4])
+            return 1
+            """, Long.class);
+    /**
+     * Increments version of user's listings and removes listings. Hash expires after TTL, even if it only
+     * holds the version, so hashes of inactive users don't stay in Redis forever.
+     * KEYS[1] - hash, ARGV[1] - TTL in ms, other ARGV - fields prefixed with 'P' (single listing)
+     * or 'T' (listing and all nested listings).
+     */
+    private static final RedisScript<Long> INVALIDATE_SCRIPT = new DefaultRedisScript<>("""
+            redis.call('HINCRBY', KEYS[1], '#version', 1)
+            redis.call('PEXPIRE', KEYS[1], ARGV[1])
+            local fields = nil
+            for i = 2, #ARGV do
+                local arg = ARGV[i]
+                local path = string.sub(arg, 2)
+                if string.sub(arg, 1, 1) == 'P' then
+                    redis.call('HDEL', KEYS[1], path)
+                else
+                    fields = fields or redis.call('HKEYS', KEYS[1])
+                    for _, field in ipairs(fields) do
+                        if string.sub(field, 1, #path) == path then
+                            redis.call('HDEL', KEYS[1], field)
+                        end
+                    end
+                end
+            end
+            return 1
+            """, Long.class);
+
+    private final RedisTemplate<String, byte[]> redisTemplate;
+    private final RedisMessageListenerContainer listenerContainer;
+    private final long ttlMillis;
+    private final Counter hits;
+    private final Counter misses;
+
+    public RedisListingStore(RedisTemplate<String, byte[]> redisTemplate,
+                             RedisMessageListenerContainer listenerContainer,
+                             ListingCacheProperties listingCacheProperties,
+                             MeterRegistry meterRegistry) {
+        this.redisTemplate = redisTemplate;
+        this.listenerContainer = listenerContainer;
+        this.ttlMillis = listingCacheProperties.getExpireAfter().toMillis();
+        this.hits = Counter.builder("listing.cache.shared.requests").tag("result", "hit")
+                .description("Directory listings served from shared cache")
+                .register(meterRegistry);
+        this.misses = Counter.builder("listing.cache.shared.requests").tag("result", "miss")
+                .description("Directory listings not found in shared cache")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Method returns listing from shared cache or loads it and saves to shared cache.
+     *
+     * @param userDirectory user's personal root directory.
+     * @param storagePath   storage-specific path of the directory.
+     * @param loader        function which loads listing from storage.
+     * @return {@link List} of {@link FileItemDto}.
+     */
+    public List<FileItemDto> get(String userDirectory, String storagePath, Supplier<List<FileItemDto>> loader) {
+        String key = KEY_PREFIX + userDirectory;
+        String version;
+        try {
+            byte[] cached = (byte[]) redisTemplate.opsForHash().get(key, storagePath);
+            List<FileItemDto> items = cached == null ? null : ListingCodec.decode(cached);
+            if (items != null) {
+                hits.increment();
+                return items;
+            }
+            byte[] cachedVersion = (byte[]) redisTemplate.opsForHash().get(key, VERSION_FIELD);
+            version = cachedVersion == null ? "0" : new String(cachedVersion, StandardCharsets.UTF_8);
+        } catch (DataAccessException e) {
+            log.error("Failed to get listing of " + storagePath + " from Redis. " + e);
+            return loader.get();
+        }
+
+        misses.increment();
+        List<FileItemDto> items = loader.get();
+        try {
+            redisTemplate.execute(PUT_SCRIPT, RedisSerializer.byteArray(), RESULT_SERIALIZER,
+                    List.of(key), bytes(version), bytes(storagePath), ListingCodec.encode(items),
+                    bytes(String.valueOf(ttlMillis)));
+        } catch (DataAccessException e) {
+            log.error("Failed to save listing of " + storagePath + " to Redis. " + e);
+        }
+        return items;
+    }
+
+    /**
+     * Method removes listings from shared cache and notifies all instances.
+     *
+     * @param userDirectory user's personal root directory.
+     * @param paths         storage-specific paths of directories which listings should be removed.
+     * @param trees         storage-specific paths of directories which listings and all nested listings
+     *                      should be removed.
+     */
+    public void invalidate(String userDirectory, Collection<String> paths, Collection<String> trees) {
+        List<String> fields = new ArrayList<>();
+        paths.forEach(path -> fields.add(PARENT_MARKER + path));
+        trees.forEach(path -> fields.add(TREE_MARKER + path));
+        Object[] args = new Object[fields.size() + 1];
+        args[0] = bytes(String.valueOf(ttlMillis));
+        for (int i = 0; i < fields.size(); i++) {
+            args[i + 1] = bytes(fields.get(i));
+        }
+        try {
+            redisTemplate.execute(INVALIDATE_SCRIPT, RedisSerializer.byteArray(), RESULT_SERIALIZER,
+                    List.of(KEY_PREFIX + userDirectory), args);
+            redisTemplate.convertAndSend(CHANNEL, bytes(userDirectory + "\n" + String.join("\n", fields)));
+        } catch (DataAccessException e) {
+            log.error("Failed to invalidate listings of " + userDirectory + " in Redis. " + e);
+        }
+    }
+
+    /**
+     * Method subscribes to invalidations made by all instances.
+     *
+     * @param onInvalidate callback receiving user's personal root directory and invalidated fields
+     *                     in the same format as they are passed to {@link #INVALIDATE_SCRIPT}.
+     */
+    void subscribe(BiConsumer<String, List<String>> onInvalidate) {
+        listenerContainer.addMessageListener((message, pattern) -> {
+            String[] lines = new String(message.getBody(), StandardCharsets.UTF_8).split("\n");
+            onInvalidate.accept(lines[0], List.of(lines).subList(1, lines.length));
+        }, new ChannelTopic(CHANNEL));
+    }
+
+    static boolean isTree(String field) {
+        return field.charAt(0) == TREE_MARKER;
+    }
+
+    static String path(String field) {
+        return field.substring(1);
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,83 @@
+package ru.borshchevskiy.filestorage.service.event;
+
+import lombok.Data;
+
+/**
+ * Event published after content of user's storage is changed.
+ * <p>
+ * All paths are storage-specific, i.e. include user's personal root directory.
+ * Directory paths always end with "/" symbol.
+ *
+ * @see ru.borshchevskiy.filestorage.service.impl.FileServiceImpl
+ * @see ru.borshchevskiy.filestorage.service.impl.DirectoryServiceImpl
+ */
+@Data
+public class StorageChangeEvent {
+
+    public enum Type {
+        FILE_CREATED,
+        FILE_DELETED,
+        FILE_MOVED,
+        DIRECTORY_CREATED,
+        DIRECTORY_DELETED,
+        DIRECTORY_MOVED,
+        /**
+         * Any contents of the directory may have changed, e.g. after an archive is extracted to it.
+         */
+        DIRECTORY_UPDATED
+    }
+
+    private final Type type;
+    /**
+     * Id of the user who owns changed object.
+     */
+    private final Long userId;
+    /**
+     * User's personal root directory.
+     */
+    private final String userDirectory;
+    /**
+     * Path of changed object. For moved objects - old path.
+     */
+    private final String path;
+    /**
+     * New path of moved object, null for other types of changes.
+     */
+    private final String newPath;
+    /**
+     * Directory the change was requested in, null if it is the parent directory of changed object.
+     * Files uploaded with relative names (e.g. "folder/sub/file.txt" uploaded with a directory) implicitly
+     * create directories between this directory and the file, so all of them are changed.
+     */
+    private final String targetDirectory;
+
+    public StorageChangeEvent(Type type, Long userId, String userDirectory, String path) {
+        this(type, userId, userDirectory, path, null);
+    }
+
+    public StorageChangeEvent(Type type, Long userId, String userDirectory, String path, String newPath) {
+        this(type, userId, userDirectory, path, newPath, null);
+    }
+
+    public StorageChangeEvent(Type type,
+                              Long userId,
+                              String userDirectory,
+                              String path,
+                              String newPath,
+                              String targetDirectory) {
+        this.type = type;
+        this.userId = userId;
+        this.userDirectory = userDirectory;
+        this.path = path;
+        this.newPath = newPath;
+        this.targetDirectory = targetDirectory;
+    }
+
+    /**
+     * @return true if changed object is a directory.
+     */
+    public boolean isDirectory() {
+        return type == Type.DIRECTORY_CREATED || type == Type.DIRECTORY_DELETED || type == Type.DIRECTORY_MOVED
+                || type == Type.DIRECTORY_UPDATED;
+    }
+}
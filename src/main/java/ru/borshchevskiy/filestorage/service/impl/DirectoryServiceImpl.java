@@ -3,13 +3,21 @@ package ru.borshchevskiy.filestorage.service.impl;
 import io.minio.messages.Item;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
+import ru.borshchevskiy.filestorage.entity.FileEntry;
+import ru.borshchevskiy.filestorage.exception.repository.CopyObjectException;
 import ru.borshchevskiy.filestorage.repository.MinioRepository;
 import ru.borshchevskiy.filestorage.service.DirectoryService;
+import ru.borshchevskiy.filestorage.service.bulk.BulkMoveEngine;
+import ru.borshchevskiy.filestorage.service.bulk.BulkOperationResult;
+import ru.borshchevskiy.filestorage.service.event.StorageChangeEvent;
+import ru.borshchevskiy.filestorage.service.index.FileIndexService;
+import ru.borshchevskiy.filestorage.service.quota.QuotaService;
 import ru.borshchevskiy.filestorage.util.FilePathUtil;
 import ru.borshchevskiy.filestorage.web.session.UserSessionData;
 
-import java.util.List;
+import java.util.stream.Stream;
 
 /**
  *  Class provides methods to manipulate directories in storage.
@@ -21,6 +29,10 @@ public class DirectoryServiceImpl implements DirectoryService {
 
     private final MinioRepository minioRepository;
     private final UserSessionData userSessionData;
+    private final BulkMoveEngine bulkMoveEngine;
+    private final FileIndexService fileIndexService;
+    private final QuotaService quotaService;
+    private final ApplicationEventPublisher eventPublisher;
 
     /**
      * Method creates new directory on specified path.
@@ -36,6 +48,7 @@ public class DirectoryServiceImpl implements DirectoryService {
         String storagePath = FilePathUtil.addUserDirectoryToPath(userSessionData, path);
         String newDirectoryPath = storagePath + directoryName + "/";
         minioRepository.createDirectory(newDirectoryPath);
+        publishEvent(StorageChangeEvent.Type.DIRECTORY_CREATED, newDirectoryPath, null);
         log.debug("Directory " + newDirectoryPath + " created.");
     }
     /**
@@ -44,28 +57,38 @@ public class DirectoryServiceImpl implements DirectoryService {
      * path = "dir/", oldName = "olddir/", newName = "newdir" -> result = "dir/newdir/".
      * <p>
      * Renaming is performed by changing directory's name in paths of all items which has specified directory in it.
+     * Items are copied concurrently by {@link BulkMoveEngine}, source items are deleted in batches once copied.
+     * If any item couldn't be copied, it is left in the old directory and exception is thrown after all other
+     * items are moved.
      * <p>
      * Path parameter value is used to create storage-specific path value.
      * @param path path to the directory which should be renamed.
      * @param oldName old name of the directory.
      * @param newName new name of the new directory.
+     * @return {@link BulkOperationResult} with summary of the operation.
+     * @throws CopyObjectException if any item couldn't be copied.
      */
     @Override
-    public void renameDirectory(String path, String oldName, String newName) {
+    public BulkOperationResult renameDirectory(String path, String oldName, String newName) {
         String storagePath = FilePathUtil.addUserDirectoryToPath(userSessionData, path);
         String oldFullPath = storagePath + oldName;
         String newFullPath = storagePath + newName + "/";
 
-        List<String> oldPathFileNames = minioRepository.getItemsByPath(oldFullPath, true).stream()
-                .map(Item::objectName)
-                .toList();
+        BulkOperationResult result;
+        try {
+            result = bulkMoveEngine.move(oldFullPath, newFullPath);
+        } finally {
+            // Some items may be moved even if the operation failed.
+            publishEvent(StorageChangeEvent.Type.DIRECTORY_MOVED, oldFullPath, newFullPath);
+        }
+        log.debug("Directory " + oldFullPath + " renamed to " + newFullPath + ". Moved " + result.getDeleted()
+                + " of " + result.getTotal() + " items in " + result.getDurationMillis() + " ms.");
 
-        for (String oldPathFileName : oldPathFileNames) {
-            String newPathFileName = oldPathFileName.replaceFirst(oldFullPath, newFullPath);
-            minioRepository.copyFile(oldPathFileName, newPathFileName);
-            minioRepository.deleteFile(oldPathFileName);
+        if (!result.isSuccessful()) {
+            throw new CopyObjectException("Failed to move " + result.getFailed() + " of " + result.getTotal()
+                    + " items of directory " + oldFullPath + ": " + result.getFailedObjects());
         }
-        log.debug("Directory " + oldFullPath + " renamed to " + newFullPath + ".");
+        return result;
     }
     /**
      * Method deletes directory on specified path.
@@ -76,20 +99,54 @@ public class DirectoryServiceImpl implements DirectoryService {
      * If this path is empty (no items found for this path) it means that Minio deleted it.
      * So in this case this path is recreated.
      * <p>
+     * Size of the directory is subtracted from used space of the user once the directory is deleted.
+     * If deletion fails, used space is left unchanged.
+     * <p>
      * Path parameter value is used to create storage-specific path value.
      * @param path path to the directory to be deleted is located.
      * @param name name of the directory which should be deleted.
      */
     @Override
     public void deleteDirectory(String path, String name) {
+        Long userId = userSessionData.getId();
         String storagePath = FilePathUtil.addUserDirectoryToPath(userSessionData, path);
         String fullPath = storagePath + name;
-        minioRepository.deleteDirectory(fullPath);
+        try {
+            long size = getDirectorySize(userId, path + name, fullPath);
+            minioRepository.deleteDirectory(fullPath);
+            quotaService.addUsedSpace(userId, -size);
 
-        List<Item> items = minioRepository.getItemsByPath(path, false);
-        if (items.isEmpty() && !path.isEmpty()) {
-            minioRepository.createDirectory(storagePath);
+            if (!path.isEmpty() && minioRepository.getItemsPage(storagePath, false, null, 1).getItems().isEmpty()) {
+                minioRepository.createDirectory(storagePath);
+            }
+        } finally {
+            // Some items may be deleted even if the operation failed.
+            publishEvent(StorageChangeEvent.Type.DIRECTORY_DELETED, fullPath, null);
         }
         log.debug("Directory " + fullPath + " deleted.");
     }
+
+    /**
+     * Method returns total size of files in the directory. Size is taken from index if it is ready,
+     * otherwise directory is listed.
+     * @param userId id of the user.
+     * @param path path of the directory relative to user's personal root directory.
+     * @param storagePath storage-specific path of the directory.
+     * @return total size of files in the directory and its subdirectories.
+     */
+    private long getDirectorySize(Long userId, String path, String storagePath) {
+        if (fileIndexService.isReady()) {
+            return fileIndexService.getEntry(userId, path)
+                    .map(FileEntry::getTotalSize)
+                    .orElse(0L);
+        }
+        try (Stream<Item> items = minioRepository.getItemsStream(storagePath, true)) {
+            return items.mapToLong(Item::size).sum();
+        }
+    }
+
+    private void publishEvent(StorageChangeEvent.Type type, String path, String newPath) {
+        eventPublisher.publishEvent(new StorageChangeEvent(type, userSessionData.getId(),
+                userSessionData.getUserDirectory(), path, newPath));
+    }
 }
@@ -3,17 +3,39 @@ package ru.borshchevskiy.filestorage.service.impl;
 import io.minio.messages.Item;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.apache.commons.io.input.CountingInputStream;
 import org.springframework.stereotype.Service;
 import ru.borshchevskiy.filestorage.dto.file.FileItemDto;
+import ru.borshchevskiy.filestorage.exception.ResourceNotFoundException;
 import ru.borshchevskiy.filestorage.mapper.FileItemMapper;
 import ru.borshchevskiy.filestorage.repository.MinioRepository;
+import ru.borshchevskiy.filestorage.repository.ObjectInfo;
 import ru.borshchevskiy.filestorage.service.FileService;
+import ru.borshchevskiy.filestorage.exception.UnsupportedArchiveException;
+import ru.borshchevskiy.filestorage.service.archive.ArchiveExtractor;
+import ru.borshchevskiy.filestorage.service.archive.ArchiveFormat;
+import ru.borshchevskiy.filestorage.service.archive.ArchiveWriter;
+import ru.borshchevskiy.filestorage.service.archive.ExtractionResult;
+import ru.borshchevskiy.filestorage.service.archive.ZipStreamer;
+import ru.borshchevskiy.filestorage.service.cache.DirectoryListingCache;
+import ru.borshchevskiy.filestorage.service.cache.FileInfoCache;
+import ru.borshchevskiy.filestorage.service.event.StorageChangeEvent;
+import ru.borshchevskiy.filestorage.service.index.FileIndexService;
+import ru.borshchevskiy.filestorage.service.quota.QuotaService;
 import ru.borshchevskiy.filestorage.util.FilePathUtil;
 import ru.borshchevskiy.filestorage.web.session.UserSessionData;
 
+import java.io.IOException;
 import java.io.InputStream;
 import java.util.Comparator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
 
 /**
  *  Class provides methods to manipulate files in storage.
@@ -26,11 +48,20 @@ public class FileServiceImpl implements FileService {
     private final MinioRepository minioRepository;
     private final FileItemMapper fileItemMapper;
     private final UserSessionData userSessionData;
+    private final DirectoryListingCache directoryListingCache;
+    private final FileInfoCache fileInfoCache;
+    private final FileIndexService fileIndexService;
+    private final QuotaService quotaService;
+    private final ZipStreamer zipStreamer;
+    private final ArchiveExtractor archiveExtractor;
+    private final ApplicationEventPublisher eventPublisher;
 
     /**
      * Method returns {@link List} of {@link FileItemDto} reflecting files and directories located by specified path.
      * Selection is not recursive, which means that only directories located by specified path are selected, but not
-     * their contents.
+     * their contents. Items are mapped page by page as they are received from storage.
+     * <p>
+     * Listings are cached by {@link DirectoryListingCache}.
      * <p>
      * Path parameter value is used to create storage-specific path value.
      * @param path path to objects. Indicates directory where objects are located.
@@ -38,15 +69,60 @@ public class FileServiceImpl implements FileService {
      */
     @Override
     public List<FileItemDto> getItemsByPath(String path) {
+        Long userId = userSessionData.getId();
+        String userDirectory = userSessionData.getUserDirectory();
         String storagePath = FilePathUtil.addUserDirectoryToPath(userSessionData, path);
-        List<Item> itemList = minioRepository.getItemsByPath(storagePath, false);
+        return directoryListingCache.get(userDirectory, storagePath,
+                () -> loadItems(userId, userDirectory, storagePath));
+    }
 
-        return itemList.stream()
-                .map(fileItemMapper::mapToFileItemDto)
-                .sorted(Comparator.comparing(FileItemDto::isDirectory).reversed()
-                        .thenComparing(FileItemDto::getName))
-                .filter(dto -> !dto.getName().isBlank())
-                .toList();
+    /**
+     * Method returns a page of {@link FileItemDto} reflecting files and directories located by specified path.
+     * Directories always precede files.
+     * <p>
+     * Page is selected and sorted by {@link FileIndexService}. Until the index is ready, page is cut
+     * from the whole listing and requested sort is ignored.
+     * <p>
+     * Path parameter value is used to create storage-specific path value.
+     * @param path path to objects. Indicates directory where objects are located.
+     * @param pageable {@link Pageable} with requested page and sort.
+     * @return {@link Page} of {@link FileItemDto}.
+     */
+    @Override
+    public Page<FileItemDto> getItemsPage(String path, Pageable pageable) {
+        if (fileIndexService.isReady()) {
+            return fileIndexService.getEntries(userSessionData.getId(), path, pageable)
+                    .map(fileItemMapper::mapToFileItemDto);
+        }
+        List<FileItemDto> items = getItemsByPath(path);
+        int fromIndex = (int) Math.min(pageable.getOffset(), items.size());
+        int toIndex = Math.min(fromIndex + pageable.getPageSize(), items.size());
+        return new PageImpl<>(items.subList(fromIndex, toIndex), pageable, items.size());
+    }
+
+    /**
+     * Method loads listing of the directory from index if it is ready or from storage otherwise.
+     * Doesn't depend on current session, so it can be called by {@link DirectoryListingCache} in background.
+     * @param userId id of the user.
+     * @param userDirectory user's personal root directory.
+     * @param storagePath storage-specific path of the directory.
+     * @return {@link List} of {@link FileItemDto}, directories first, ordered by name.
+     */
+    private List<FileItemDto> loadItems(Long userId, String userDirectory, String storagePath) {
+        if (fileIndexService.isReady()) {
+            String path = FilePathUtil.removeUserDirectoryFromPath(userDirectory, storagePath);
+            return fileIndexService.getEntries(userId, path).stream()
+                    .map(fileItemMapper::mapToFileItemDto)
+                    .toList();
+        }
+        try (Stream<Item> items = minioRepository.getItemsStream(storagePath, false)) {
+            return items
+                    .map(item -> fileItemMapper.mapToFileItemDto(item, userDirectory))
+                    .filter(dto -> !dto.getName().isBlank())
+                    .sorted(Comparator.comparing(FileItemDto::isDirectory).reversed()
+                            .thenComparing(FileItemDto::getName))
+                    .toList();
+        }
     }
 
     /**
@@ -65,8 +141,154 @@ public class FileServiceImpl implements FileService {
         return minioRepository.getFile(fullName);
     }
 
+    /**
+     * Method returns an {@link InputStream} of the part of the file.
+     * <p>
+     * Path parameter value is used to create storage-specific path value.
+     * @param path to directory where required file is located.
+     * @param name name of the file.
+     * @param contentEncoding content coding the file is stored with, see {@link ObjectInfo#getContentEncoding()}.
+     * @param offset position of the first byte to be read.
+     * @param length number of bytes to be read.
+     * @return {@link InputStream} of the requested part of the file.
+     */
+    @Override
+    public InputStream downloadFile(String path, String name, String contentEncoding, long offset, long length) {
+        String storagePath = FilePathUtil.addUserDirectoryToPath(userSessionData, path);
+        String fullName = storagePath + name;
+        log.debug("Bytes " + offset + "-" + (offset + length - 1) + " of file " + fullName
+                + " requested for download.");
+        return minioRepository.getFile(fullName, contentEncoding, offset, length);
+    }
+
+    /**
+     * Method returns an {@link InputStream} of the file as it is stored, compressed file is not decompressed.
+     * See {@link ObjectInfo#getContentEncoding()}.
+     * <p>
+     * Path parameter value is used to create storage-specific path value.
+     * @param path to directory where required file is located.
+     * @param name name of the file.
+     * @return {@link InputStream} of the stored file.
+     */
+    @Override
+    public InputStream downloadEncodedFile(String path, String name) {
+        String storagePath = FilePathUtil.addUserDirectoryToPath(userSessionData, path);
+        String fullName = storagePath + name;
+        log.debug("Encoded file " + fullName + " requested for download.");
+        return minioRepository.getEncodedFile(fullName);
+    }
+
+    /**
+     * Method returns metadata of the file.
+     * <p>
+     * Metadata is cached by {@link FileInfoCache}.
+     * <p>
+     * Path parameter value is used to create storage-specific path value.
+     * @param path to directory where required file is located.
+     * @param name name of the file.
+     * @return {@link ObjectInfo} of the file.
+     */
+    @Override
+    public ObjectInfo getFileInfo(String path, String name) {
+        String storagePath = FilePathUtil.addUserDirectoryToPath(userSessionData, path);
+        String fullName = storagePath + name;
+        return fileInfoCache.get(fullName, () -> minioRepository.statFile(fullName));
+    }
+
+    /**
+     * Method returns presigned URL by which the file can be downloaded directly from storage.
+     * Existence of the file is not checked.
+     * <p>
+     * Path parameter value is used to create storage-specific path value.
+     * @param path to directory where required file is located.
+     * @param name name of the file.
+     * @return presigned URL of the file.
+     */
+    @Override
+    public String getDownloadUrl(String path, String name) {
+        String storagePath = FilePathUtil.addUserDirectoryToPath(userSessionData, path);
+        String fullName = storagePath + name;
+        log.debug("File " + fullName + " requested for direct download.");
+        return minioRepository.getDownloadUrl(fullName, name);
+    }
+
+    /**
+     * Method prepares ZIP archive of files and directories located in the same directory.
+     * Directories are archived with all their contents. Storage is accessed only when the archive is written,
+     * see {@link ZipStreamer} for details.
+     * <p>
+     * Path parameter value is used to create storage-specific path value.
+     * @param path path to the directory where archived items are located.
+     * @param names names of files and directories to be archived, names of directories end with "/".
+     * @param compress false if files should be stored in archive without compression.
+     * @return {@link ArchiveWriter} writing the archive.
+     */
+    @Override
+    public ArchiveWriter downloadArchive(String path, List<String> names, boolean compress) {
+        String storagePath = FilePathUtil.addUserDirectoryToPath(userSessionData, path);
+        List<String> storagePaths = names.stream()
+                .map(name -> storagePath + name)
+                .toList();
+        log.debug("Archive of " + storagePaths + " requested for download.");
+        return outputStream -> zipStreamer.write(storagePath, storagePaths, compress, outputStream);
+    }
+
+    /**
+     * Method extracts ZIP or TAR archive to specified directory. Archive format is determined by its name.
+     * See {@link ArchiveExtractor} for details.
+     * <p>
+     * Path parameter value is used to create storage-specific path value.
+     * @param inputStream {@link InputStream} of the archive.
+     * @param path path to the directory where archive should be extracted.
+     * @param archiveName name of the archive file.
+     * @return {@link ExtractionResult} with results of all archive entries.
+     * @throws UnsupportedArchiveException if archive format is not supported or archive can't be read.
+     */
+    @Override
+    public ExtractionResult extractArchive(InputStream inputStream, String path, String archiveName) {
+        return extractArchive(inputStream, getArchiveFormat(archiveName), path);
+    }
+
+    /**
+     * Method extracts ZIP or TAR archive stored in storage to the directory where the archive is located.
+     * <p>
+     * Path parameter value is used to create storage-specific path value.
+     * @param path path to the directory where archive is located.
+     * @param name name of the archive file.
+     * @return {@link ExtractionResult} with results of all archive entries.
+     * @throws UnsupportedArchiveException if archive format is not supported or archive can't be read.
+     * @see #extractArchive(InputStream, String, String)
+     */
+    @Override
+    public ExtractionResult extractStoredArchive(String path, String name) {
+        ArchiveFormat format = getArchiveFormat(name);
+        try (InputStream inputStream = downloadFile(path, name)) {
+            return extractArchive(inputStream, format, path);
+        } catch (IOException e) {
+            throw new UnsupportedArchiveException("Archive " + name + " can't be read.", e);
+        }
+    }
+
+    private ExtractionResult extractArchive(InputStream inputStream, ArchiveFormat format, String path) {
+        String storagePath = FilePathUtil.addUserDirectoryToPath(userSessionData, path);
+        try {
+            return archiveExtractor.extract(inputStream, format, storagePath, userSessionData.getId());
+        } finally {
+            // Some files may be extracted even if the operation failed.
+            publishEvent(StorageChangeEvent.Type.DIRECTORY_UPDATED, storagePath, null);
+        }
+    }
+
+    private ArchiveFormat getArchiveFormat(String archiveName) {
+        return ArchiveFormat.fromFileName(archiveName)
+                .orElseThrow(() -> new UnsupportedArchiveException("Archive " + archiveName
+                        + " is not supported. Supported formats are .zip, .tar, .tar.gz and .tgz."));
+    }
+
     /**
      * Method saves the file to storage by specified path.
+     * Used space of the user is changed by the difference between sizes of the new and replaced files,
+     * quota is not checked.
      * <p>
      * Path parameter value is used to create storage-specific path value.
      * @param inputStream {@link InputStream} of the file to be saved to storage.
@@ -76,7 +298,12 @@ public class FileServiceImpl implements FileService {
     public void uploadFile(InputStream inputStream, String path, String name) {
         String storagePath = FilePathUtil.addUserDirectoryToPath(userSessionData, path);
         String fullPath = storagePath + name;
-        minioRepository.putFile(inputStream, fullPath);
+        long replacedSize = getStoredSize(fullPath);
+        CountingInputStream countingStream = new CountingInputStream(inputStream);
+        minioRepository.putFile(countingStream, fullPath);
+        quotaService.addUsedSpace(userSessionData.getId(), countingStream.getByteCount() - replacedSize);
+        eventPublisher.publishEvent(new StorageChangeEvent(StorageChangeEvent.Type.FILE_CREATED,
+                userSessionData.getId(), userSessionData.getUserDirectory(), fullPath, null, storagePath));
         log.debug("File " + fullPath + " saved to storage.");
     }
 
@@ -85,6 +312,8 @@ public class FileServiceImpl implements FileService {
      * E.g. for storage element = "dir/file.txt":
      * path = "dir/" oldName = "file.txt", newName = "newFile" -> result = "dir/newFile.txt"
      * <p>
+     * If a file with the new name exists, it is replaced and its size is subtracted from used space of the user.
+     * <p>
      * Path parameter value is used to create storage-specific path value.
      * @param path path to the directory where file is located.
      * @param oldName old name of the file.
@@ -97,8 +326,11 @@ public class FileServiceImpl implements FileService {
         String oldFullPath = storagePath + oldName;
         String newFullPath = storagePath + newName + (extension.isBlank() ? "" : "." + extension);
 
+        long replacedSize = newFullPath.equals(oldFullPath) ? 0 : getStoredSize(newFullPath);
         minioRepository.copyFile(oldFullPath, newFullPath);
         minioRepository.deleteFile(oldFullPath);
+        quotaService.addUsedSpace(userSessionData.getId(), -replacedSize);
+        publishEvent(StorageChangeEvent.Type.FILE_MOVED, oldFullPath, newFullPath);
         log.debug("File " + oldFullPath + " was renamed to " + newFullPath + ".");
     }
 
@@ -107,25 +339,74 @@ public class FileServiceImpl implements FileService {
      * E.g. for storage element = "dir/file.txt":
      * path = "dir/" name = "file.txt" -> result = "dir/"
      * <p>
-     * Due to Minio specifics, if the deleted file was the only file in the directory, then this directory
-     * and all empty parent directories will also be deleted. To cover this case, path of the file
-     * is checked after file deletion. If this path is empty (no items found for this path) it means
-     * that Minio deleted it. So in this case this path is recreated.
-     * <p>
-     * Path parameter value is used to create storage-specific path value.
+     * See {@link #deleteFiles(String, List)} for details.
      * @param path path to the directory where file is located.
      * @param name name of the file to be deleted.
      */
     @Override
     public void deleteFile(String path, String name) {
+        deleteFiles(path, List.of(name));
+    }
+
+    /**
+     * Method deletes several files located in the same directory.
+     * All files are deleted with a single request.
+     * <p>
+     * Due to Minio specifics, if the deleted files were the only files in the directory, then this directory
+     * and all empty parent directories will also be deleted. To cover this case, path of the files
+     * is checked after all files are deleted. If this path is empty (no items found for this path) it means
+     * that Minio deleted it. So in this case this path is recreated. Only a single item is requested
+     * for this check.
+     * <p>
+     * Sizes of the deleted files are subtracted from used space of the user. If the request fails,
+     * only sizes of the files which don't exist anymore are subtracted.
+     * <p>
+     * Path parameter value is used to create storage-specific path value.
+     * @param path path to the directory where files are located.
+     * @param names names of the files to be deleted.
+     */
+    @Override
+    public void deleteFiles(String path, List<String> names) {
+        Long userId = userSessionData.getId();
         String storagePath = FilePathUtil.addUserDirectoryToPath(userSessionData, path);
-        String fullPath = storagePath + name;
-        minioRepository.deleteFile(fullPath);
-        log.debug("File " + fullPath + " was deleted.");
+        Map<String, Long> sizes = new LinkedHashMap<>();
+        names.forEach(name -> sizes.put(storagePath + name, getStoredSize(storagePath + name)));
+
+        try {
+            minioRepository.deleteFiles(sizes.keySet());
+        } catch (RuntimeException e) {
+            sizes.forEach((fullPath, size) -> {
+                if (getStoredSize(fullPath) == 0) {
+                    quotaService.addUsedSpace(userId, -size);
+                }
+            });
+            throw e;
+        } finally {
+            // Some files may be deleted even if the operation failed.
+            sizes.keySet().forEach(fullPath -> publishEvent(StorageChangeEvent.Type.FILE_DELETED, fullPath, null));
+        }
+        quotaService.addUsedSpace(userId, -sizes.values().stream().mapToLong(Long::longValue).sum());
+        log.debug("Files " + sizes.keySet() + " were deleted.");
 
-        List<Item> items = minioRepository.getItemsByPath(storagePath, false);
-        if (items.isEmpty() && !path.isEmpty()) {
+        if (!path.isEmpty() && minioRepository.getItemsPage(storagePath, false, null, 1).getItems().isEmpty()) {
             minioRepository.createDirectory(storagePath);
         }
     }
+
+    /**
+     * @param storagePath storage-specific path of the file.
+     * @return size of the file or 0 if it doesn't exist.
+     */
+    private long getStoredSize(String storagePath) {
+        try {
+            return minioRepository.statFile(storagePath).getSize();
+        } catch (ResourceNotFoundException e) {
+            return 0;
+        }
+    }
+
+    private void publishEvent(StorageChangeEvent.Type type, String path, String newPath) {
+        eventPublisher.publishEvent(new StorageChangeEvent(type, userSessionData.getId(),
+                userSessionData.getUserDirectory(), path, newPath));
+    }
 }
@@ -7,14 +7,15 @@ import ru.borshchevskiy.filestorage.dto.file.FileItemDto;
 import ru.borshchevskiy.filestorage.mapper.FileItemMapper;
 import ru.borshchevskiy.filestorage.repository.MinioRepository;
 import ru.borshchevskiy.filestorage.service.SearchService;
+import ru.borshchevskiy.filestorage.service.index.FileIndexService;
+import ru.borshchevskiy.filestorage.service.search.DirectoryMatcher;
+import ru.borshchevskiy.filestorage.service.search.InMemorySearchIndex;
 import ru.borshchevskiy.filestorage.util.FilePathUtil;
 import ru.borshchevskiy.filestorage.web.session.UserSessionData;
 
 import java.util.ArrayList;
-import java.util.HashSet;
 import java.util.List;
-import java.util.Set;
-import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * Class provides methods to perform search actions in storage.
@@ -26,11 +27,38 @@ public class SearchServiceImpl implements SearchService {
     private final MinioRepository minioRepository;
     private final FileItemMapper fileItemMapper;
     private final UserSessionData userSessionData;
+    private final FileIndexService fileIndexService;
+    private final InMemorySearchIndex inMemorySearchIndex;
+
+    /**
+     * Method performs search of files and directories which contain query value in their names.
+     * <p>
+     * If {@link FileIndexService index} is ready, search is served by its trigram index of names,
+     * so search time depends on the number of matching items, not on the number of user's items.
+     * If database index is disabled, search is served by {@link InMemorySearchIndex}.
+     * Otherwise, user's items are scanned in storage, see {@link #searchStorage(String)}.
+     *
+     * @param query value to be found.
+     * @return {@link List} of {@link FileItemDto} reflecting files and directories found.
+     */
+    @Override
+    public List<FileItemDto> search(String query) {
+        if (fileIndexService.isReady()) {
+            return fileIndexService.search(userSessionData.getId(), query).stream()
+                    .map(fileItemMapper::mapToFileItemDto)
+                    .toList();
+        }
+        if (inMemorySearchIndex.isEnabled()) {
+            return inMemorySearchIndex.search(userSessionData.getId(), userSessionData.getUserDirectory(), query);
+        }
+        return searchStorage(query);
+    }
 
     /**
      * Method performs search of files and directories which contain query value in their path or name.
-     * At first all user's items are found, then files and directories are searched separately,
-     * then results are combined into final list.
+     * At first user's items containing query are found, then files and directories are searched separately,
+     * then results are combined into final list. User's items are filtered page by page as they are received
+     * from storage, so only matching items are held in memory.
      * <p>
      * Because search is made recursively from the root, all elements in 'allUserItems'
      * will be of 'file' type in Minio's representation (their {@link Item#isDir()} method will return false).
@@ -43,16 +71,16 @@ public class SearchServiceImpl implements SearchService {
      * @param query value to be found.
      * @return {@link List} of {@link FileItemDto} reflecting files and directories found.
      */
-    @Override
-    public List<FileItemDto> search(String query) {
-        List<Item> itemsContainQuery = minioRepository
-                .getItemsByPath(userSessionData.getUserDirectory(), true)
-                .stream()
-                .filter(item -> item.objectName().contains(query))
-                .toList();
+    private List<FileItemDto> searchStorage(String query) {
+        List<Item> itemsContainQuery;
+        try (Stream<Item> items = minioRepository.getItemsStream(userSessionData.getUserDirectory(), true)) {
+            itemsContainQuery = items
+                    .filter(item -> item.objectName().contains(query))
+                    .toList();
+        }
 
         List<FileItemDto> files = searchFiles(query, itemsContainQuery);
-        Set<FileItemDto> directories = searchDirectories(query, itemsContainQuery);
+        List<FileItemDto> directories = searchDirectories(query, itemsContainQuery);
 
         List<FileItemDto> results = new ArrayList<>();
         results.addAll(directories);
@@ -64,40 +92,33 @@ public class SearchServiceImpl implements SearchService {
     /**
      * Method used to search directories which contain query value in their path or name.
      * First, method filters all paths that are directory paths (end with '/').
-     * After that, each path is checked to find all subpaths corresponding search query.
+     * After that, directories of all paths are matched by {@link DirectoryMatcher},
+     * which matches each distinct directory once.
      * <p>
      * E.g. if storage has the only path = "dir1/dir/dir1/" and search query = "1",
      * correct search result should be 2 paths: "dir<b>1</b>/" and "dir1/dir/dir<b>1</b>/".
      *
      * @param query value to be found.
      * @param items list of all user's objects.
-     * @return set of {@link FileItemDto} representing directories found.
+     * @return list of {@link FileItemDto} representing directories found.
      */
-    private Set<FileItemDto> searchDirectories(String query, List<Item> items) {
-        Set<FileItemDto> directories = new HashSet<>();
-        Set<String> pathsContainingQuery = items.stream()
+    private List<FileItemDto> searchDirectories(String query, List<Item> items) {
+        List<String> directoryPaths = items.stream()
                 .map(item -> FilePathUtil.removeUserDirectoryFromPath(userSessionData, item.objectName()))
                 .filter(itemName -> itemName.endsWith("/"))
-                .collect(Collectors.toSet());
-
-        for (String path : pathsContainingQuery) {
-            StringBuilder directoryPath = new StringBuilder();
-            for (String pathPart : path.split("/")) {
-                directoryPath.append(pathPart).append("/");
-                if (pathPart.contains(query)) {
+                .toList();
 
-                    String fullName = directoryPath.toString();
-                    FileItemDto directory = new FileItemDto();
+        List<FileItemDto> directories = new ArrayList<>();
+        for (String fullName : DirectoryMatcher.findDirectories(directoryPaths, query)) {
+            FileItemDto directory = new FileItemDto();
 
-                    directory.setFullName(fullName);
-                    directory.setName(FilePathUtil.getName(fullName));
-                    directory.setDirectory(true);
-                    directory.setSize(0L);
-                    directory.setViewSize("");
+            directory.setFullName(fullName);
+            directory.setName(FilePathUtil.getName(fullName));
+            directory.setDirectory(true);
+            directory.setSize(0L);
+            directory.setViewSize("");
 
-                    directories.add(directory);
-                }
-            }
+            directories.add(directory);
         }
         return directories;
     }
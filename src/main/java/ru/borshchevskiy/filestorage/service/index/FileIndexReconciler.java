@@ -0,0 +1,46 @@
+package ru.borshchevskiy.filestorage.service.index;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.borshchevskiy.filestorage.repository.UserRepository;
+
+/**
+ * Periodically reconciles {@link FileIndexService index} of all users with the storage.
+ * <p>
+ * The first reconciliation starts on application startup. Index is used to serve listings once it completes.
+ * Users are reconciled one by one, failure to reconcile one user doesn't stop reconciliation of the others.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class FileIndexReconciler {
+
+    private final FileIndexService fileIndexService;
+    private final UserRepository userRepository;
+
+    @Scheduled(initialDelayString = "#{@fileIndexProperties.reconcileOnStartup ? 0 "
+            + ": @fileIndexProperties.reconcileInterval.toMillis()}",
+            fixedDelayString = "#{@fileIndexProperties.reconcileInterval.toMillis()}")
+    public void reconcile() {
+        if (!fileIndexService.isEnabled()) {
+            return;
+        }
+        long startTime = System.currentTimeMillis();
+        int failed = 0;
+        for (Long userId : userRepository.findAllIds()) {
+            try {
+                fileIndexService.reconcile(userId);
+            } catch (RuntimeException e) {
+                log.error("Failed to reconcile index of user " + userId + ". " + e);
+                failed++;
+            }
+        }
+        if (failed == 0) {
+            fileIndexService.markReady();
+        }
+        log.info("Index reconciled in " + (System.currentTimeMillis() - startTime) + " ms. Failed users: "
+                + failed + ".");
+    }
+}
@@ -0,0 +1,477 @@
+package ru.borshchevskiy.filestorage.service.index;
+
+import io.minio.messages.Item;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.borshchevskiy.filestorage.config.properties.FileIndexProperties;
+import ru.borshchevskiy.filestorage.entity.FileEntry;
+import ru.borshchevskiy.filestorage.repository.FileEntryRepository;
+import ru.borshchevskiy.filestorage.repository.MinioRepository;
+import ru.borshchevskiy.filestorage.repository.ObjectInfo;
+import ru.borshchevskiy.filestorage.service.event.StorageChangeEvent;
+import ru.borshchevskiy.filestorage.util.FilePathUtil;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * Class maintains database index of stored files and directories and provides queries over it.
+ * <p>
+ * Index is updated after every change of the storage made by the application
+ * (see {@link StorageChangeEvent}). Failures of index updates don't fail storage operations,
+ * differences between the index and the storage are eliminated by {@link #reconcile(Long, String)},
+ * which is periodically run by {@link FileIndexReconciler}.
+ * <p>
+ * Index is used only when it is enabled and initial reconciliation is completed, see {@link #isReady()}.
+ */
+@Slf4j
+@Service
+public class FileIndexService {
+
+    /**
+     * Directories first, then by name.
+     */
+    public static final Sort DEFAULT_SORT = Sort.by(Sort.Order.desc("directory"), Sort.Order.asc("name"));
+    /**
+     * Properties of {@link FileEntry} which may be used to sort items.
+     */
+    private static final Set<String> SORTABLE_PROPERTIES = Set.of("name", "size", "lastModified");
+
+    private final FileEntryRepository fileEntryRepository;
+    private final MinioRepository minioRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private volatile boolean ready;
+
+    @Value("${app.user-folder.prefix:user-}")
+    private String userFolderPrefix;
+
+    @Value("${app.user-folder.suffix:-files}")
+    private String userFolderSuffix;
+
+    public FileIndexService(FileEntryRepository fileEntryRepository,
+                            MinioRepository minioRepository,
+                            PlatformTransactionManager transactionManager,
+                            FileIndexProperties fileIndexProperties) {
+        this.fileEntryRepository = fileEntryRepository;
+        this.minioRepository = minioRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.enabled = fileIndexProperties.isEnabled();
+        this.ready = enabled && !fileIndexProperties.isReconcileOnStartup();
+    }
+
+    /**
+     * @return true if index is maintained.
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @return true if listings may be served from the index.
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    void markReady() {
+        ready = enabled;
+    }
+
+    /**
+     * Method returns entry of the file or directory.
+     *
+     * @param userId id of the user who owns the item.
+     * @param path   path of the item relative to user's personal root directory.
+     * @return {@link Optional} of {@link FileEntry}, empty if item is not indexed.
+     */
+    @Transactional(readOnly = true)
+    public Optional<FileEntry> getEntry(Long userId, String path) {
+        return fileEntryRepository.findByUserIdAndParentPathAndName(userId,
+                FilePathUtil.getParent(path), FilePathUtil.getName(path));
+    }
+
+    /**
+     * Method returns items of the directory.
+     *
+     * @param userId     id of the user who owns the directory.
+     * @param parentPath path of the directory relative to user's personal root directory.
+     * @return {@link List} of {@link FileEntry} sorted according to {@link #DEFAULT_SORT}.
+     */
+    @Transactional(readOnly = true)
+    public List<FileEntry> getEntries(Long userId, String parentPath) {
+        return fileEntryRepository.findByUserIdAndParentPath(userId, parentPath, DEFAULT_SORT);
+    }
+
+    /**
+     * Method returns a page of items of the directory. Directories always precede files,
+     * requested sort is applied within directories and within files. Items are sorted by name if sort
+     * is not requested. Sorting by properties other than name, size and last modification time is ignored.
+     *
+     * @param userId     id of the user who owns the directory.
+     * @param parentPath path of the directory relative to user's personal root directory.
+     * @param pageable   {@link Pageable} with requested page and sort.
+     * @return {@link Page} of {@link FileEntry}.
+     */
+    @Transactional(readOnly = true)
+    public Page<FileEntry> getEntries(Long userId, String parentPath, Pageable pageable) {
+        Sort requestedSort = Sort.by(pageable.getSort().filter(order ->
+                SORTABLE_PROPERTIES.contains(order.getProperty())).toList());
+        Sort sort = Sort.by(Sort.Order.desc("directory"))
+                .and(requestedSort.isSorted() ? requestedSort : Sort.by("name"));
+        return fileEntryRepository.findByUserIdAndParentPath(userId, parentPath,
+                PageRequest.of(pageable.getPageNumber(), pageable.getPageSize(), sort));
+    }
+
+    /**
+     * Method finds files and directories which names contain the query. Search is case-sensitive
+     * and is served by trigram index of the names.
+     *
+     * @param userId id of the user.
+     * @param query  value to be found.
+     * @return {@link List} of {@link FileEntry} sorted by path, directories first.
+     */
+    @Transactional(readOnly = true)
+    public List<FileEntry> search(Long userId, String query) {
+        // Names can't contain separators, but directory names end with one.
+        if (query.contains("/")) {
+            return List.of();
+        }
+        return fileEntryRepository.findByNameLike(userId, "%" + escapeLike(query) + "%");
+    }
+
+    /**
+     * Method updates index after the storage is changed.
+     * Errors are logged and not rethrown, as storage is already changed at this point.
+     * <p>
+     * Runs before other listeners, so caches invalidated by them are reloaded from updated index.
+     *
+     * @param event {@link StorageChangeEvent}.
+     */
+    @EventListener
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public void onStorageChange(StorageChangeEvent event) {
+        if (!enabled) {
+            return;
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status -> applyChange(event));
+        } catch (RuntimeException e) {
+            log.error("Failed to update index after " + event.getType() + " of " + event.getPath() + ". " + e);
+        }
+    }
+
+    private void applyChange(StorageChangeEvent event) {
+        Long userId = event.getUserId();
+        String userDirectory = event.getUserDirectory();
+        String path = FilePathUtil.removeUserDirectoryFromPath(userDirectory, event.getPath());
+        String newPath = event.getNewPath() == null
+                ? null
+                : FilePathUtil.removeUserDirectoryFromPath(userDirectory, event.getNewPath());
+
+        switch (event.getType()) {
+            case FILE_CREATED -> indexFile(userId, event.getPath(), path);
+            case DIRECTORY_CREATED -> indexDirectories(userId, path, Instant.now());
+            case FILE_DELETED -> deleteEntry(userId, path);
+            case DIRECTORY_DELETED -> {
+                deleteEntry(userId, path);
+                fileEntryRepository.deleteSubtree(userId, toPrefixPattern(path));
+            }
+            case FILE_MOVED -> {
+                deleteEntry(userId, path);
+                indexFile(userId, event.getNewPath(), newPath);
+            }
+            case DIRECTORY_MOVED -> {
+                // Some items may be left in the old directory if the move failed, so both trees are rescanned.
+                reconcile(userId, userDirectory, path);
+                reconcile(userId, userDirectory, newPath);
+            }
+            case DIRECTORY_UPDATED -> reconcile(userId, userDirectory, path);
+        }
+    }
+
+    /**
+     * Method makes user's index consistent with the storage.
+     *
+     * @param userId        id of the user.
+     * @param userDirectory user's personal root directory.
+     */
+    @Transactional
+    public void reconcile(Long userId, String userDirectory) {
+        reconcile(userId, userDirectory, "");
+    }
+
+    /**
+     * Method makes user's index consistent with the storage.
+     *
+     * @param userId id of the user.
+     */
+    @Transactional
+    public void reconcile(Long userId) {
+        reconcile(userId, userFolderPrefix + userId + userFolderSuffix);
+    }
+
+    /**
+     * Method makes index of the directory and all its subdirectories consistent with the storage.
+     * <p>
+     * Missing entries are added, changed entries are updated, entries of deleted objects are removed.
+     * Entries written after reconciliation started are not touched, as they may reflect changes
+     * which are not seen by the storage listing.
+     * <p>
+     * Totals of the directories of the subtree are recalculated, totals of the directories above it
+     * are adjusted by the difference between new and old totals of the subtree.
+     *
+     * @param userId        id of the user.
+     * @param userDirectory user's personal root directory.
+     * @param path          path of the directory relative to user's personal root directory, "" for the root.
+     */
+    private void reconcile(Long userId, String userDirectory, String path) {
+        Instant startTime = Instant.now();
+
+        Map<String, FileEntry> indexed = new HashMap<>();
+        fileEntryRepository.findSubtree(userId, toPrefixPattern(path))
+                .forEach(entry -> indexed.put(entry.getPath(), entry));
+        if (!path.isEmpty()) {
+            fileEntryRepository.findByUserIdAndParentPathAndName(userId,
+                            FilePathUtil.getParent(path), FilePathUtil.getName(path))
+                    .ifPresent(entry -> indexed.put(entry.getPath(), entry));
+        }
+
+        Map<String, FileEntry> stored = new HashMap<>();
+        try (Stream<Item> items = minioRepository.getItemsStream(userDirectory + "/" + path, true)) {
+            items.forEach(item -> {
+                String itemPath = FilePathUtil.removeUserDirectoryFromPath(userDirectory, item.objectName());
+                String directory = item.objectName().endsWith("/") ? itemPath : FilePathUtil.getParent(itemPath);
+                addDirectories(stored, userId, directory, startTime);
+                if (!item.objectName().endsWith("/")) {
+                    FileEntry entry = newEntry(userId, itemPath, false, startTime);
+                    entry.setSize(item.size());
+                    entry.setEtag(normalizeEtag(item.etag()));
+                    entry.setLastModified(item.lastModified() == null ? null : item.lastModified().toInstant());
+                    stored.put(itemPath, entry);
+                }
+            });
+        }
+        // Directories above the reconciled one are not part of it.
+        stored.keySet().removeIf(storedPath -> !storedPath.startsWith(path));
+        calculateTotals(stored);
+
+        FileEntry oldRoot = path.isEmpty() ? null : indexed.get(path);
+        long oldRootSize = oldRoot == null ? 0 : oldRoot.getTotalSize();
+        long oldRootCount = oldRoot == null ? 0 : oldRoot.getFileCount();
+        FileEntry newRoot = path.isEmpty() ? null : stored.get(path);
+
+        int added = 0;
+        int updated = 0;
+        for (FileEntry storedEntry : stored.values()) {
+            FileEntry indexedEntry = indexed.remove(storedEntry.getPath());
+            if (indexedEntry == null) {
+                fileEntryRepository.save(storedEntry);
+                added++;
+            } else if (!isSame(indexedEntry, storedEntry) && indexedEntry.getIndexedAt().isBefore(startTime)) {
+                indexedEntry.setDirectory(storedEntry.isDirectory());
+                indexedEntry.setSize(storedEntry.getSize());
+                indexedEntry.setEtag(storedEntry.getEtag());
+                indexedEntry.setLastModified(storedEntry.getLastModified());
+                indexedEntry.setTotalSize(storedEntry.getTotalSize());
+                indexedEntry.setFileCount(storedEntry.getFileCount());
+                indexedEntry.setIndexedAt(startTime);
+                updated++;
+            }
+        }
+        List<FileEntry> deleted = indexed.values().stream()
+                .filter(entry -> entry.getIndexedAt().isBefore(startTime))
+                .toList();
+        fileEntryRepository.deleteAllInBatch(deleted);
+
+        if (!path.isEmpty()) {
+            long newRootSize = newRoot == null ? 0 : newRoot.getTotalSize();
+            long newRootCount = newRoot == null ? 0 : newRoot.getFileCount();
+            addToParents(userId, path, newRootSize - oldRootSize, newRootCount - oldRootCount);
+        }
+
+        log.debug("Index of " + userDirectory + "/" + path + " reconciled: " + added + " added, "
+                + updated + " updated, " + deleted.size() + " deleted.");
+    }
+
+    private void indexFile(Long userId, String storagePath, String path) {
+        ObjectInfo objectInfo = minioRepository.statFile(storagePath);
+        Instant now = Instant.now();
+        indexDirectories(userId, FilePathUtil.getParent(path), now);
+
+        FileEntry entry = fileEntryRepository.findByUserIdAndParentPathAndName(userId,
+                        FilePathUtil.getParent(path), FilePathUtil.getName(path))
+                .orElse(null);
+        long sizeDelta = objectInfo.getSize();
+        long countDelta = 1;
+        if (entry == null) {
+            entry = newEntry(userId, path, false, now);
+        } else {
+            sizeDelta -= entry.getSize();
+            countDelta = 0;
+        }
+        entry.setSize(objectInfo.getSize());
+        entry.setEtag(normalizeEtag(objectInfo.getEtag()));
+        entry.setLastModified(objectInfo.getLastModified() == null ? null : objectInfo.getLastModified().toInstant());
+        entry.setIndexedAt(now);
+        fileEntryRepository.save(entry);
+        addToParents(userId, path, sizeDelta, countDelta);
+    }
+
+    /**
+     * Method adds entries of the directory and all its parent directories if they are not indexed yet.
+     *
+     * @param userId id of the user.
+     * @param path   path of the directory relative to user's personal root directory.
+     * @param now    time of indexing.
+     */
+    private void indexDirectories(Long userId, String path, Instant now) {
+        Map<String, FileEntry> directories = new HashMap<>();
+        addDirectories(directories, userId, path, now);
+        for (FileEntry directory : directories.values()) {
+            if (fileEntryRepository.findByUserIdAndParentPathAndName(userId, directory.getParentPath(),
+                    directory.getName()).isEmpty()) {
+                fileEntryRepository.save(directory);
+            }
+        }
+    }
+
+    private void deleteEntry(Long userId, String path) {
+        fileEntryRepository.findByUserIdAndParentPathAndName(userId,
+                        FilePathUtil.getParent(path), FilePathUtil.getName(path))
+                .ifPresent(entry -> {
+                    fileEntryRepository.delete(entry);
+                    if (entry.isDirectory()) {
+                        addToParents(userId, path, -entry.getTotalSize(), -entry.getFileCount());
+                    } else {
+                        addToParents(userId, path, -entry.getSize(), -1);
+                    }
+                });
+    }
+
+    /**
+     * Method adds size and number of files to totals of all directories containing the item.
+     *
+     * @param userId id of the user.
+     * @param path   path of the item relative to user's personal root directory.
+     * @param size   size to be added, negative to subtract.
+     * @param count  number of files to be added, negative to subtract.
+     */
+    private void addToParents(Long userId, String path, long size, long count) {
+        if (size == 0 && count == 0) {
+            return;
+        }
+        List<String> parents = new ArrayList<>();
+        List<String> grandparents = new ArrayList<>();
+        String parent = FilePathUtil.getParent(path);
+        while (!parent.isEmpty()) {
+            parents.add(parent);
+            parent = FilePathUtil.getParent(parent);
+            grandparents.add(parent);
+        }
+        if (!parents.isEmpty()) {
+            fileEntryRepository.addToDirectoryTotals(userId, grandparents, parents, size, count);
+        }
+    }
+
+    /**
+     * Method calculates total size and number of files of every directory in the map.
+     * Only files present in the map are taken into account.
+     *
+     * @param entries map of entries by their paths.
+     */
+    private void calculateTotals(Map<String, FileEntry> entries) {
+        for (FileEntry entry : entries.values()) {
+            if (entry.isDirectory()) {
+                continue;
+            }
+            String parent = entry.getParentPath();
+            FileEntry directory;
+            while (!parent.isEmpty() && (directory = entries.get(parent)) != null) {
+                directory.setTotalSize(directory.getTotalSize() + entry.getSize());
+                directory.setFileCount(directory.getFileCount() + 1);
+                parent = directory.getParentPath();
+            }
+        }
+    }
+
+    /**
+     * Method adds entries of the directory and all its parent directories to the map.
+     *
+     * @param entries map of entries by their paths.
+     * @param userId  id of the user.
+     * @param path    path of the directory relative to user's personal root directory, e.g. "dir/subdir/".
+     * @param now     time of indexing.
+     */
+    private void addDirectories(Map<String, FileEntry> entries, Long userId, String path, Instant now) {
+        String directory = path;
+        while (!directory.isEmpty() && !entries.containsKey(directory)) {
+            entries.put(directory, newEntry(userId, directory, true, now));
+            directory = FilePathUtil.getParent(directory);
+        }
+    }
+
+    private FileEntry newEntry(Long userId, String path, boolean isDirectory, Instant now) {
+        FileEntry entry = new FileEntry();
+        entry.setUserId(userId);
+        entry.setParentPath(FilePathUtil.getParent(path));
+        entry.setName(FilePathUtil.getName(path));
+        entry.setDirectory(isDirectory);
+        entry.setIndexedAt(now);
+        return entry;
+    }
+
+    private boolean isSame(FileEntry indexed, FileEntry stored) {
+        return indexed.isDirectory() == stored.isDirectory()
+                && indexed.getSize() == stored.getSize()
+                && indexed.getTotalSize() == stored.getTotalSize()
+                && indexed.getFileCount() == stored.getFileCount()
+                && (stored.isDirectory() || stored.getEtag() == null || stored.getEtag().equals(indexed.getEtag()));
+    }
+
+    /**
+     * Method removes quotes which enclose entity tags returned by object listing.
+     *
+     * @param etag entity tag.
+     * @return entity tag without quotes.
+     */
+    private String normalizeEtag(String etag) {
+        if (etag != null && etag.length() > 1 && etag.startsWith("\"") && etag.endsWith("\"")) {
+            return etag.substring(1, etag.length() - 1);
+        }
+        return etag;
+    }
+
+    /**
+     * Method builds LIKE pattern matching all paths which start with specified prefix.
+     *
+     * @param prefix path prefix.
+     * @return LIKE pattern.
+     */
+    static String toPrefixPattern(String prefix) {
+        return escapeLike(prefix) + "%";
+    }
+
+    private static String escapeLike(String value) {
+        return value.replace("\\", "\\\\")
+                .replace("%", "\\%")
+                .replace("_", "\\_");
+    }
+}
@@ -0,0 +1,154 @@
+package ru.borshchevskiy.filestorage.service.quota;
+
+import io.minio.messages.Item;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.borshchevskiy.filestorage.config.properties.QuotaProperties;
+import ru.borshchevskiy.filestorage.dto.user.StorageUsageDto;
+import ru.borshchevskiy.filestorage.entity.User;
+import ru.borshchevskiy.filestorage.exception.QuotaExceededException;
+import ru.borshchevskiy.filestorage.exception.ResourceNotFoundException;
+import ru.borshchevskiy.filestorage.repository.MinioRepository;
+import ru.borshchevskiy.filestorage.repository.UserRepository;
+import ru.borshchevskiy.filestorage.util.FileSizeUtil;
+
+import java.util.stream.Stream;
+
+/**
+ * Class keeps track of storage space used by users' files and enforces users' quotas.
+ * <p>
+ * Used space is stored in users table and is changed by atomic update statements, so concurrent
+ * writes don't lose changes and checking the quota doesn't require scanning user's files.
+ * Services report every write and delete of files by {@link #addUsedSpace(Long, long)}.
+ * <p>
+ * Used space of users created before quotas were introduced is calculated by a single storage scan
+ * after application startup. Until then their uploads are not limited.
+ */
+@Slf4j
+@Service
+public class QuotaService {
+
+    private final UserRepository userRepository;
+    private final MinioRepository minioRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final QuotaProperties quotaProperties;
+
+    @Value("${app.user-folder.prefix:user-}")
+    private String userFolderPrefix;
+
+    @Value("${app.user-folder.suffix:-files}")
+    private String userFolderSuffix;
+
+    public QuotaService(UserRepository userRepository,
+                        MinioRepository minioRepository,
+                        PlatformTransactionManager transactionManager,
+                        QuotaProperties quotaProperties) {
+        this.userRepository = userRepository;
+        this.minioRepository = minioRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.quotaProperties = quotaProperties;
+    }
+
+    /**
+     * Method adds size to used space of the user if the result doesn't exceed user's quota.
+     * Reserved space should be released by {@link #addUsedSpace(Long, long)} with negative size.
+     * If quotas are disabled, space is reserved without checking the quota.
+     *
+     * @param userId id of the user.
+     * @param size   size to be reserved.
+     * @throws QuotaExceededException if reservation would exceed user's quota.
+     */
+    public void reserve(Long userId, long size) {
+        if (!tryReserve(userId, size)) {
+            throw new QuotaExceededException("Not enough space to upload " + FileSizeUtil.getViewFileSize(size)
+                    + ". Please, delete some files and try again.");
+        }
+    }
+
+    /**
+     * Method adds size to used space of the user if the result doesn't exceed user's quota.
+     * If quotas are disabled, space is reserved without checking the quota.
+     *
+     * @param userId id of the user.
+     * @param size   size to be reserved.
+     * @return true if space is reserved, false if reservation would exceed user's quota.
+     */
+    public boolean tryReserve(Long userId, long size) {
+        if (!quotaProperties.isEnabled()) {
+            addUsedSpace(userId, size);
+            return true;
+        }
+        long defaultQuota = quotaProperties.getDefaultQuota().toBytes();
+        Integer reserved = transactionTemplate.execute(status ->
+                userRepository.reserveSpace(userId, size, defaultQuota));
+        return reserved != null && reserved > 0;
+    }
+
+    /**
+     * Method adds size to used space of the user. Never fails, errors are logged.
+     *
+     * @param userId id of the user.
+     * @param size   size to be added, negative to subtract.
+     */
+    public void addUsedSpace(Long userId, long size) {
+        if (size == 0) {
+            return;
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status -> userRepository.addUsedSpace(userId, size));
+        } catch (RuntimeException e) {
+            log.error("Failed to add " + size + " bytes to used space of user " + userId + ". " + e);
+        }
+    }
+
+    /**
+     * Method returns space used by user's files and user's quota.
+     *
+     * @param userId id of the user.
+     * @return {@link StorageUsageDto}.
+     * @throws ResourceNotFoundException if user doesn't exist.
+     */
+    public StorageUsageDto getUsage(Long userId) {
+        User user = userRepository.findById(userId)
+                .orElseThrow(() -> new ResourceNotFoundException("User with id " + userId + " not found."));
+        long quota = user.getSpaceQuota() == null
+                ? quotaProperties.getDefaultQuota().toBytes()
+                : user.getSpaceQuota();
+
+        StorageUsageDto usage = new StorageUsageDto();
+        usage.setUsedSpace(user.getUsedSpace());
+        usage.setQuota(quota);
+        usage.setViewQuota(FileSizeUtil.getViewFileSize(quota));
+        if (user.getUsedSpace() != null) {
+            usage.setViewUsedSpace(FileSizeUtil.getViewFileSize(user.getUsedSpace()));
+            usage.setUsedPercent(quota == 0 ? 100 : (int) Math.min(100, user.getUsedSpace() * 100 / quota));
+        } else {
+            usage.setViewUsedSpace("");
+        }
+        return usage;
+    }
+
+    /**
+     * Method calculates used space of users whose used space is not calculated yet by scanning their files.
+     * Changes made by users while their files are scanned are not taken into account.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void initializeUsedSpace() {
+        for (Long userId : userRepository.findIdsWithoutUsedSpace()) {
+            String userDirectory = userFolderPrefix + userId + userFolderSuffix;
+            try (Stream<Item> items = minioRepository.getItemsStream(userDirectory + "/", true)) {
+                long usedSpace = items.mapToLong(Item::size).sum();
+                transactionTemplate.executeWithoutResult(status ->
+                        userRepository.initializeUsedSpace(userId, usedSpace));
+                log.info("Used space of user " + userId + " calculated: " + usedSpace + " bytes.");
+            } catch (RuntimeException e) {
+                log.error("Failed to calculate used space of user " + userId + ". " + e);
+            }
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package ru.borshchevskiy.filestorage.service.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Finds directories which names contain a query among all directories of the given paths.
+ * <p>
+ * Paths are inserted into a trie of directory names, so each distinct directory is matched exactly once,
+ * no matter how many paths share it. Path of a directory is only created if the directory matches.
+ * <p>
+ * Trie nodes are stored in arrays and are looked up in a single open addressing hash table by parent node
+ * and name. Names are not copied: each node refers to the region of the path it was first seen in.
+ * <p>
+ * E.g. for paths "dir1/dir/dir1/" and "dir1/dir/" and query "1", result is "dir1/" and "dir1/dir/dir1/".
+ */
+public final class DirectoryMatcher {
+
+    private static final int ROOT = 0;
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private final String query;
+    private final List<String> matches = new ArrayList<>();
+
+    private String[] nodePaths = new String[INITIAL_CAPACITY];
+    private int[] nodeStarts = new int[INITIAL_CAPACITY];
+    private int[] nodeEnds = new int[INITIAL_CAPACITY];
+    private int[] nodeParents = new int[INITIAL_CAPACITY];
+    private int[] nodeHashes = new int[INITIAL_CAPACITY];
+    private int nodeCount = 1;
+    /**
+     * Hash table of node ids increased by one, 0 marks an empty slot.
+     */
+    private int[] table = new int[INITIAL_CAPACITY * 2];
+
+    private DirectoryMatcher(String query) {
+        this.query = query;
+    }
+
+    /**
+     * Method finds directories which names contain the query.
+     *
+     * @param directoryPaths paths of directories, each ending with "/" symbol.
+     * @param query          value to be found.
+     * @return paths of matching directories, each directory is returned once.
+     */
+    public static List<String> findDirectories(Iterable<String> directoryPaths, String query) {
+        DirectoryMatcher matcher = new DirectoryMatcher(query);
+        for (String path : directoryPaths) {
+            matcher.add(path);
+        }
+        return matcher.matches;
+    }
+
+    private void add(String path) {
+        int node = ROOT;
+        int start = 0;
+        int end;
+        while ((end = path.indexOf('/', start)) >= 0) {
+            node = findOrAddChild(node, path, start, end);
+            start = end + 1;
+        }
+    }
+
+    /**
+     * Method finds child node with the name equal to the region of the path. If there is no such child,
+     * it is created and its name is matched with the query.
+     *
+     * @param parent id of the parent node.
+     * @param path   path containing the name.
+     * @param start  index of the first character of the name.
+     * @param end    index after the last character of the name.
+     * @return id of the child node.
+     */
+    private int findOrAddChild(int parent, String path, int start, int end) {
+        int hash = parent * 0x9E3779B9;
+        for (int i = start; i < end; i++) {
+            hash = 31 * hash + path.charAt(i);
+        }
+        hash ^= hash >>> 16;
+
+        int length = end - start;
+        int mask = table.length - 1;
+        int slot = hash & mask;
+        while (table[slot] != 0) {
+            int node = table[slot] - 1;
+            if (nodeHashes[node] == hash && nodeParents[node] == parent
+                    && nodeEnds[node] - nodeStarts[node] == length
+                    && path.regionMatches(start, nodePaths[node], nodeStarts[node], length)) {
+                return node;
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        int node = addNode(parent, path, start, end, hash);
+        table[slot] = node + 1;
+        if (nodeCount * 2 > table.length) {
+            rehash();
+        }
+        if (containsQuery(path, start, end)) {
+            matches.add(path.substring(0, end + 1));
+        }
+        return node;
+    }
+
+    private int addNode(int parent, String path, int start, int end, int hash) {
+        if (nodeCount == nodePaths.length) {
+            int capacity = nodePaths.length * 2;
+            nodePaths = Arrays.copyOf(nodePaths, capacity);
+            nodeStarts = Arrays.copyOf(nodeStarts, capacity);
+            nodeEnds = Arrays.copyOf(nodeEnds, capacity);
+            nodeParents = Arrays.copyOf(nodeParents, capacity);
+            nodeHashes = Arrays.copyOf(nodeHashes, capacity);
+        }
+        int node = nodeCount++;
+        nodePaths[node] = path;
+        nodeStarts[node] = start;
+        nodeEnds[node] = end;
+        nodeParents[node] = parent;
+        nodeHashes[node] = hash;
+        return node;
+    }
+
+    private void rehash() {
+        table = new int[table.length * 2];
+        int mask = table.length - 1;
+        for (int node = 1; node < nodeCount; node++) {
+            int slot = nodeHashes[node] & mask;
+            while (table[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            table[slot] = node + 1;
+        }
+    }
+
+    private boolean containsQuery(String path, int start, int end) {
+        for (int i = start; i + query.length() <= end; i++) {
+            if (path.startsWith(query, i)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,177 @@
+package ru.borshchevskiy.filestorage.service.search;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.minio.messages.Item;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import ru.borshchevskiy.filestorage.config.properties.FileIndexProperties;
+import ru.borshchevskiy.filestorage.config.properties.SearchIndexProperties;
+import ru.borshchevskiy.filestorage.dto.file.FileItemDto;
+import ru.borshchevskiy.filestorage.repository.MinioRepository;
+import ru.borshchevskiy.filestorage.service.event.StorageChangeEvent;
+import ru.borshchevskiy.filestorage.util.FilePathUtil;
+import ru.borshchevskiy.filestorage.util.FileSizeUtil;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+/**
+ * In-memory search index of users' files and directories, used when database index is disabled.
+ * <p>
+ * Index of a user is built by a single storage scan on the user's first search, after that it is updated by
+ * {@link StorageChangeEvent}s, so repeated searches don't access storage. Moving a directory or bulk update
+ * of its contents drops the index, so it is rebuilt on the next search.
+ * <p>
+ * Total estimated memory of all indexes is bounded by {@link SearchIndexProperties#getMaxMemory()},
+ * indexes of least recently searched users are evicted first.
+ *
+ * @see UserSearchIndex
+ */
+@Slf4j
+@Component
+public class InMemorySearchIndex {
+
+    private static final String METRICS_PREFIX = "search.index";
+
+    private final MinioRepository minioRepository;
+    private final boolean enabled;
+    private final Cache<Long, UserSearchIndex> cache;
+    /**
+     * Indexes which are being built. Changes are applied to them too, so they are not lost.
+     */
+    private final Map<Long, UserSearchIndex> building = new ConcurrentHashMap<>();
+    private final Counter builds;
+
+    public InMemorySearchIndex(MinioRepository minioRepository,
+                               SearchIndexProperties searchIndexProperties,
+                               FileIndexProperties fileIndexProperties,
+                               MeterRegistry meterRegistry) {
+        this.minioRepository = minioRepository;
+        this.enabled = searchIndexProperties.isEnabled() && !fileIndexProperties.isEnabled();
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(searchIndexProperties.getMaxMemory().toBytes())
+                .weigher((Long userId, UserSearchIndex index) ->
+                        (int) Math.min(Integer.MAX_VALUE, index.getEstimatedBytes()))
+                .build();
+        this.builds = Counter.builder(METRICS_PREFIX + ".builds")
+                .description("Search indexes built by storage scan")
+                .register(meterRegistry);
+        meterRegistry.gauge(METRICS_PREFIX + ".memory", cache,
+                c -> c.policy().eviction().map(eviction -> eviction.weightedSize().orElse(0)).orElse(0L));
+    }
+
+    /**
+     * @return true if searches should be served by the index.
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Method finds user's files and directories which names contain the query.
+     * Builds user's index if it isn't built yet.
+     *
+     * @param userId        id of the user.
+     * @param userDirectory user's personal root directory.
+     * @param query         value to be found.
+     * @return {@link List} of {@link FileItemDto} sorted by path, directories first.
+     */
+    public List<FileItemDto> search(Long userId, String userDirectory, String query) {
+        UserSearchIndex index = cache.get(userId, id -> build(id, userDirectory));
+        if (index.isInvalidated()) {
+            cache.asMap().remove(userId, index);
+        }
+        return index.search(query).stream()
+                .map(this::toFileItemDto)
+                .toList();
+    }
+
+    /**
+     * Method applies the change to the index of the user if it is built.
+     *
+     * @param event {@link StorageChangeEvent}.
+     */
+    @EventListener
+    public void onStorageChange(StorageChangeEvent event) {
+        if (!enabled) {
+            return;
+        }
+        Long userId = event.getUserId();
+        UserSearchIndex index = building.get(userId);
+        if (index == null) {
+            index = cache.getIfPresent(userId);
+        }
+        if (index == null) {
+            return;
+        }
+        if (event.getType() == StorageChangeEvent.Type.DIRECTORY_MOVED
+                || event.getType() == StorageChangeEvent.Type.DIRECTORY_UPDATED) {
+            index.invalidate();
+            cache.asMap().remove(userId, index);
+            return;
+        }
+
+        String userDirectory = event.getUserDirectory();
+        String path = FilePathUtil.removeUserDirectoryFromPath(userDirectory, event.getPath());
+        switch (event.getType()) {
+            case FILE_CREATED -> index.addFile(path, getSize(event.getPath()));
+            case DIRECTORY_CREATED -> index.addDirectory(path);
+            case FILE_DELETED -> index.remove(path);
+            case DIRECTORY_DELETED -> index.removeTree(path);
+            case FILE_MOVED -> {
+                index.remove(path);
+                index.addFile(FilePathUtil.removeUserDirectoryFromPath(userDirectory, event.getNewPath()),
+                        getSize(event.getNewPath()));
+            }
+        }
+        // Replacing the index with itself makes the cache recalculate its weight.
+        cache.asMap().replace(userId, index, index);
+    }
+
+    private UserSearchIndex build(Long userId, String userDirectory) {
+        long startTime = System.currentTimeMillis();
+        UserSearchIndex index = new UserSearchIndex();
+        building.put(userId, index);
+        try (Stream<Item> items = minioRepository.getItemsStream(userDirectory + "/", true)) {
+            items.forEach(item -> {
+                String path = FilePathUtil.removeUserDirectoryFromPath(userDirectory, item.objectName());
+                if (path.endsWith("/")) {
+                    index.addDirectory(path);
+                } else {
+                    index.addFile(path, item.size());
+                }
+            });
+        } finally {
+            building.remove(userId);
+        }
+        builds.increment();
+        log.debug("Search index of " + userDirectory + " built in " + (System.currentTimeMillis() - startTime)
+                + " ms, estimated size " + index.getEstimatedBytes() + " bytes.");
+        return index;
+    }
+
+    private long getSize(String storagePath) {
+        try {
+            return minioRepository.statFile(storagePath).getSize();
+        } catch (RuntimeException e) {
+            log.error("Failed to get size of " + storagePath + " for search index. " + e);
+            return 0;
+        }
+    }
+
+    private FileItemDto toFileItemDto(UserSearchIndex.Match match) {
+        FileItemDto fileItemDto = new FileItemDto();
+        fileItemDto.setFullName(match.path());
+        fileItemDto.setName(FilePathUtil.getName(match.path()));
+        fileItemDto.setDirectory(match.isDirectory());
+        fileItemDto.setSize(match.size());
+        fileItemDto.setViewSize(match.isDirectory() ? "" : FileSizeUtil.getViewFileSize(match.size()));
+        return fileItemDto;
+    }
+}
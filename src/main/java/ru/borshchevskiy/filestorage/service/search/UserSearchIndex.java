@@ -0,0 +1,352 @@
+package ru.borshchevskiy.filestorage.service.search;
+
+import ru.borshchevskiy.filestorage.util.FilePathUtil;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Trigram index of names of a single user's files and directories.
+ * <p>
+ * Each item gets an ordinal, every trigram of the item's name is mapped to a sorted list of ordinals
+ * of the items containing it. Query is matched by intersecting lists of its trigrams and checking names
+ * of the remaining candidates, queries shorter than a trigram are matched by checking all names.
+ * <p>
+ * Removed items leave their ordinals in posting lists until the index is compacted, which happens
+ * once removed items outnumber live ones.
+ * <p>
+ * All paths are relative to user's personal root directory, directory paths end with "/" symbol.
+ * Names are matched in the same way as by storage scan: file's name or directory's own name without "/".
+ * Class is thread-safe.
+ */
+final class UserSearchIndex {
+
+    private static final int GRAM = 3;
+    private static final int MIN_COMPACTION_SIZE = 1024;
+    /**
+     * Estimated memory used by an item besides its path and postings: ordinal map entry, path reference, size.
+     */
+    private static final int ITEM_OVERHEAD = 80;
+    /**
+     * Estimated memory used by a posting list besides its ordinals: map entry, boxed key, list object.
+     */
+    private static final int POSTING_LIST_OVERHEAD = 96;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final List<String> paths = new ArrayList<>();
+    private final Map<String, Integer> ordinals = new HashMap<>();
+    private final Map<Long, PostingList> postings = new HashMap<>();
+    private long[] sizes = new long[16];
+    private int removed;
+    private long estimatedBytes;
+    private volatile boolean invalidated;
+
+    /**
+     * Method adds the file and all its parent directories to the index.
+     *
+     * @param path path of the file.
+     * @param size size of the file in bytes.
+     */
+    void addFile(String path, long size) {
+        lock.writeLock().lock();
+        try {
+            addDirectoryAndParents(FilePathUtil.getParent(path));
+            int ordinal = add(path);
+            sizes[ordinal] = size;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Method adds the directory and all its parent directories to the index.
+     *
+     * @param path path of the directory.
+     */
+    void addDirectory(String path) {
+        lock.writeLock().lock();
+        try {
+            addDirectoryAndParents(path);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Method removes the item from the index.
+     *
+     * @param path path of the item.
+     */
+    void remove(String path) {
+        lock.writeLock().lock();
+        try {
+            removeOrdinal(ordinals.remove(path));
+            compactIfNeeded();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Method removes the directory and all its content from the index.
+     *
+     * @param path path of the directory.
+     */
+    void removeTree(String path) {
+        lock.writeLock().lock();
+        try {
+            ordinals.entrySet().removeIf(entry -> {
+                if (entry.getKey().startsWith(path)) {
+                    removeOrdinal(entry.getValue());
+                    return true;
+                }
+                return false;
+            });
+            compactIfNeeded();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Method finds items which names contain the query.
+     *
+     * @param query value to be found.
+     * @return {@link List} of {@link Match}es sorted by path, directories first.
+     */
+    List<Match> search(String query) {
+        List<Match> matches = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            if (query.length() < GRAM) {
+                for (int ordinal = 0; ordinal < paths.size(); ordinal++) {
+                    addIfMatches(matches, ordinal, query);
+                }
+            } else {
+                int[] candidates = findCandidates(query);
+                for (int ordinal : candidates) {
+                    addIfMatches(matches, ordinal, query);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        matches.sort(Comparator.comparing(Match::isDirectory).reversed().thenComparing(Match::path));
+        return matches;
+    }
+
+    /**
+     * Method marks the index as outdated, so it is rebuilt instead of being updated.
+     */
+    void invalidate() {
+        invalidated = true;
+    }
+
+    boolean isInvalidated() {
+        return invalidated;
+    }
+
+    /**
+     * @return estimated memory used by the index in bytes.
+     */
+    long getEstimatedBytes() {
+        lock.readLock().lock();
+        try {
+            return estimatedBytes;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void addDirectoryAndParents(String path) {
+        String directory = path;
+        while (!directory.isEmpty() && !ordinals.containsKey(directory)) {
+            add(directory);
+            directory = FilePathUtil.getParent(directory);
+        }
+    }
+
+    private int add(String path) {
+        Integer existing = ordinals.get(path);
+        if (existing != null) {
+            return existing;
+        }
+        int ordinal = paths.size();
+        paths.add(path);
+        ordinals.put(path, ordinal);
+        if (ordinal == sizes.length) {
+            sizes = Arrays.copyOf(sizes, sizes.length * 2);
+        }
+        estimatedBytes += ITEM_OVERHEAD + 2L * path.length();
+
+        for (long trigram : trigrams(getName(path))) {
+            PostingList postingList = postings.get(trigram);
+            if (postingList == null) {
+                postingList = new PostingList();
+                postings.put(trigram, postingList);
+                estimatedBytes += POSTING_LIST_OVERHEAD;
+            }
+            estimatedBytes += postingList.add(ordinal);
+        }
+        return ordinal;
+    }
+
+    private void removeOrdinal(Integer ordinal) {
+        if (ordinal != null) {
+            estimatedBytes -= ITEM_OVERHEAD + 2L * paths.get(ordinal).length();
+            paths.set(ordinal, null);
+            removed++;
+        }
+    }
+
+    /**
+     * Method rebuilds the index from live items if removed items outnumber them.
+     */
+    private void compactIfNeeded() {
+        if (removed < MIN_COMPACTION_SIZE || removed < paths.size() - removed) {
+            return;
+        }
+        List<String> livePaths = new ArrayList<>(paths.size() - removed);
+        List<Long> liveSizes = new ArrayList<>(paths.size() - removed);
+        for (int ordinal = 0; ordinal < paths.size(); ordinal++) {
+            if (paths.get(ordinal) != null) {
+                livePaths.add(paths.get(ordinal));
+                liveSizes.add(sizes[ordinal]);
+            }
+        }
+        paths.clear();
+        ordinals.clear();
+        postings.clear();
+        sizes = new long[Math.max(16, livePaths.size())];
+        removed = 0;
+        estimatedBytes = 0;
+        for (int i = 0; i < livePaths.size(); i++) {
+            sizes[add(livePaths.get(i))] = liveSizes.get(i);
+        }
+    }
+
+    /**
+     * Method intersects posting lists of all trigrams of the query, starting from the shortest one.
+     *
+     * @param query value to be found, at least {@link #GRAM} characters long.
+     * @return sorted ordinals of items which names contain all trigrams of the query.
+     */
+    private int[] findCandidates(String query) {
+        List<PostingList> lists = new ArrayList<>();
+        for (long trigram : trigrams(query)) {
+            PostingList postingList = postings.get(trigram);
+            if (postingList == null) {
+                return new int[0];
+            }
+            lists.add(postingList);
+        }
+        lists.sort(Comparator.comparingInt(PostingList::size));
+
+        int[] result = Arrays.copyOf(lists.get(0).ordinals, lists.get(0).size);
+        int resultSize = result.length;
+        for (int i = 1; i < lists.size() && resultSize > 0; i++) {
+            resultSize = intersect(result, resultSize, lists.get(i));
+        }
+        return Arrays.copyOf(result, resultSize);
+    }
+
+    /**
+     * Method leaves in the first array only ordinals which are present in the posting list.
+     *
+     * @param result      sorted ordinals, modified in place.
+     * @param resultSize  number of ordinals in the first array.
+     * @param postingList posting list.
+     * @return number of ordinals left in the first array.
+     */
+    private static int intersect(int[] result, int resultSize, PostingList postingList) {
+        int size = 0;
+        int j = 0;
+        for (int i = 0; i < resultSize && j < postingList.size; i++) {
+            while (j < postingList.size && postingList.ordinals[j] < result[i]) {
+                j++;
+            }
+            if (j < postingList.size && postingList.ordinals[j] == result[i]) {
+                result[size++] = result[i];
+            }
+        }
+        return size;
+    }
+
+    private void addIfMatches(List<Match> matches, int ordinal, String query) {
+        String path = paths.get(ordinal);
+        if (path != null && getName(path).contains(query)) {
+            boolean isDirectory = path.endsWith("/");
+            matches.add(new Match(path, isDirectory, isDirectory ? 0 : sizes[ordinal]));
+        }
+    }
+
+    /**
+     * @param path path of the item.
+     * @return name of the item which is matched with queries.
+     */
+    private static String getName(String path) {
+        String name = FilePathUtil.getName(path);
+        return name.endsWith("/") ? name.substring(0, name.length() - 1) : name;
+    }
+
+    /**
+     * Method returns distinct trigrams of the value, each packed into a long.
+     *
+     * @param value string to be split into trigrams.
+     * @return set of trigrams.
+     */
+    private static Set<Long> trigrams(String value) {
+        Set<Long> trigrams = new LinkedHashSet<>();
+        for (int i = 0; i + GRAM <= value.length(); i++) {
+            trigrams.add(((long) value.charAt(i) << 32) | ((long) value.charAt(i + 1) << 16) | value.charAt(i + 2));
+        }
+        return trigrams;
+    }
+
+    /**
+     * Item matching a query.
+     *
+     * @param path        path of the item.
+     * @param isDirectory true if item is a directory.
+     * @param size        size of the file in bytes, 0 for directories.
+     */
+    record Match(String path, boolean isDirectory, long size) {
+    }
+
+    /**
+     * Growable sorted array of ordinals.
+     */
+    private static final class PostingList {
+
+        private int[] ordinals = new int[4];
+        private int size;
+
+        /**
+         * Method appends ordinal, which must be greater than all ordinals in the list.
+         *
+         * @param ordinal ordinal of the item.
+         * @return number of bytes the list has grown by.
+         */
+        int add(int ordinal) {
+            int grownBy = 0;
+            if (size == ordinals.length) {
+                grownBy = Integer.BYTES * ordinals.length;
+                ordinals = Arrays.copyOf(ordinals, ordinals.length * 2);
+            }
+            ordinals[size++] = ordinal;
+            return grownBy;
+        }
+
+        int size() {
+            return size;
+        }
+    }
+}
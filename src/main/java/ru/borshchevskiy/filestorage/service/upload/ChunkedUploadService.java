@@ -0,0 +1,406 @@
+package ru.borshchevskiy.filestorage.service.upload;
+
+import io.minio.messages.Part;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import ru.borshchevskiy.filestorage.config.properties.UploadProperties;
+import ru.borshchevskiy.filestorage.dto.file.UploadSessionDto;
+import ru.borshchevskiy.filestorage.exception.InvalidChunkException;
+import ru.borshchevskiy.filestorage.exception.MultipartProcessingException;
+import ru.borshchevskiy.filestorage.exception.QuotaExceededException;
+import ru.borshchevskiy.filestorage.exception.ResourceNotFoundException;
+import ru.borshchevskiy.filestorage.repository.MinioRepository;
+import ru.borshchevskiy.filestorage.repository.upload.MultipartUploadRepository;
+import ru.borshchevskiy.filestorage.repository.upload.PartBufferPool;
+import ru.borshchevskiy.filestorage.service.event.StorageChangeEvent;
+import ru.borshchevskiy.filestorage.service.quota.QuotaService;
+import ru.borshchevskiy.filestorage.util.FilePathUtil;
+import ru.borshchevskiy.filestorage.web.session.UserSessionData;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.IntStream;
+
+/**
+ * Service for resumable chunked uploads.
+ * <p>
+ * Client creates an upload session, sends chunks of the file by their indexes in any order and concurrently,
+ * and completes the session when all chunks are sent. Chunks are uploaded as parts of a multipart upload
+ * of a staging object as soon as they are received, nothing is stored on application instances.
+ * Chunks are read into buffers allocated within the budget of {@link PartBufferPool}.
+ * Chunk sent again replaces the previous one, so client may retry failed chunks and query received chunks
+ * to resume the upload after failures. Session state is kept in {@link UploadSessionStore},
+ * so chunks may be received by any application instance.
+ * <p>
+ * Size of the whole file is reserved in user's quota when the session is created. On completion staging object
+ * is assembled from the parts and copied to user's directory. Sessions without activity
+ * for {@link UploadProperties#getSessionTimeout()} are aborted.
+ * <p>
+ * Alternatively, client may upload the whole file directly to storage by a presigned URL of the staging object,
+ * so file content doesn't pass through application instances. Such session is completed the same way.
+ */
+@Slf4j
+@Service
+public class ChunkedUploadService {
+
+    /**
+     * Minimum part size allowed by S3 for all parts except the last one.
+     */
+    private static final long MIN_CHUNK_SIZE = 5 * 1024 * 1024;
+
+    private final UploadSessionStore uploadSessionStore;
+    private final MultipartUploadRepository multipartUploadRepository;
+    private final MinioRepository minioRepository;
+    private final QuotaService quotaService;
+    private final UserSessionData userSessionData;
+    private final ApplicationEventPublisher eventPublisher;
+    private final UploadProperties uploadProperties;
+    private final PartBufferPool partBufferPool;
+
+    @Value("${app.max-file-size:10485760}")
+    private long maxFileSize;
+
+    @Value("${minio.presign.enabled:false}")
+    private boolean directUploadEnabled;
+
+    public ChunkedUploadService(UploadSessionStore uploadSessionStore,
+                                MultipartUploadRepository multipartUploadRepository,
+                                MinioRepository minioRepository,
+                                QuotaService quotaService,
+                                UserSessionData userSessionData,
+                                ApplicationEventPublisher eventPublisher,
+                                UploadProperties uploadProperties,
+                                PartBufferPool partBufferPool) {
+        if (uploadProperties.getChunkSize().toBytes() < MIN_CHUNK_SIZE
+                || uploadProperties.getChunkSize().toBytes() > Integer.MAX_VALUE - 1) {
+            throw new IllegalStateException("Upload chunk size must be at least " + MIN_CHUNK_SIZE
+                    + " bytes and fit into a byte array.");
+        }
+        this.uploadSessionStore = uploadSessionStore;
+        this.multipartUploadRepository = multipartUploadRepository;
+        this.minioRepository = minioRepository;
+        this.quotaService = quotaService;
+        this.userSessionData = userSessionData;
+        this.eventPublisher = eventPublisher;
+        this.uploadProperties = uploadProperties;
+        this.partBufferPool = partBufferPool;
+    }
+
+    /**
+     * Method creates upload session of the file.
+     *
+     * @param path path to the directory where file should be uploaded.
+     * @param name name of the file, files of uploaded folders are named by their paths relative to the directory.
+     * @param size size of the file in bytes.
+     * @return {@link UploadSessionDto} with id of the session and sizes of chunks.
+     * @throws MultipartProcessingException if file is too large.
+     * @throws QuotaExceededException       if file would exceed user's quota.
+     */
+    public UploadSessionDto createSession(String path, String name, long size) {
+        UploadSession session = newSession(path, name, size);
+        session.setChunkSize(uploadProperties.getChunkSize().toBytes());
+        session.setChunkCount((int) Math.max(1, (size + session.getChunkSize() - 1) / session.getChunkSize()));
+        try {
+            session.setUploadId(multipartUploadRepository.create(session.getStagingPath()));
+            uploadSessionStore.save(session);
+        } catch (RuntimeException e) {
+            quotaService.addUsedSpace(session.getUserId(), -size);
+            throw e;
+        }
+        log.debug("Upload session " + session.getId() + " of " + session.getStoragePath() + name + " created.");
+        return toDto(session);
+    }
+
+    /**
+     * Method creates upload session of the file which is uploaded by the client directly to storage
+     * with a single request to {@link UploadSessionDto#getUploadUrl()}. The session is completed
+     * by {@link #complete(String)} as any other session.
+     *
+     * @param path path to the directory where file should be uploaded.
+     * @param name name of the file.
+     * @param size size of the file in bytes.
+     * @return {@link UploadSessionDto} with id of the session and presigned URL of the staging object.
+     * @throws MultipartProcessingException if file is too large or presigned URLs are disabled.
+     * @throws QuotaExceededException       if file would exceed user's quota.
+     */
+    public UploadSessionDto createDirectSession(String path, String name, long size) {
+        if (!directUploadEnabled) {
+            throw new MultipartProcessingException("Direct uploads are disabled.");
+        }
+        UploadSession session = newSession(path, name, size);
+        session.setDirect(true);
+        // Staging object is written by the client as a whole, there are no parts to assemble.
+        session.setAssembled(true);
+        try {
+            uploadSessionStore.save(session);
+        } catch (RuntimeException e) {
+            quotaService.addUsedSpace(session.getUserId(), -size);
+            throw e;
+        }
+        log.debug("Direct upload session " + session.getId() + " of " + session.getStoragePath() + name
+                + " created.");
+        return toDto(session);
+    }
+
+    /**
+     * Method checks the file and reserves its size in user's quota.
+     *
+     * @return {@link UploadSession} without chunks.
+     */
+    private UploadSession newSession(String path, String name, long size) {
+        if (size < 0 || size > maxFileSize) {
+            throw new MultipartProcessingException("Error occurred while processing request! File is too large.");
+        }
+        if (!isValidName(name)) {
+            throw new InvalidChunkException("Invalid file name " + name + ".");
+        }
+        Long userId = userSessionData.getId();
+        quotaService.reserve(userId, size);
+
+        UploadSession session = new UploadSession();
+        session.setId(UUID.randomUUID().toString());
+        session.setUserId(userId);
+        session.setUserDirectory(userSessionData.getUserDirectory());
+        session.setPath(path);
+        session.setStoragePath(FilePathUtil.addUserDirectoryToPath(userSessionData, path));
+        session.setName(name);
+        session.setSize(size);
+        session.setStagingPath(uploadProperties.getStagingPrefix() + session.getId());
+        return session;
+    }
+
+    /**
+     * @param id id of the session.
+     * @return {@link UploadSessionDto} with indexes of received chunks.
+     * @throws ResourceNotFoundException if session doesn't exist or belongs to another user.
+     */
+    public UploadSessionDto getSession(String id) {
+        return toDto(getOwnSession(id));
+    }
+
+    /**
+     * Method uploads chunk of the file. Chunk uploaded again replaces the previous one.
+     *
+     * @param id          id of the session.
+     * @param index       index of the chunk, starting from 0.
+     * @param inputStream {@link InputStream} of the chunk. It is read but not closed.
+     * @throws ResourceNotFoundException if session doesn't exist or belongs to another user.
+     * @throws InvalidChunkException     if index or size of the chunk doesn't match the session.
+     */
+    public void uploadChunk(String id, int index, InputStream inputStream) {
+        UploadSession session = getOwnSession(id);
+        if (index < 0 || index >= session.getChunkCount()) {
+            throw new InvalidChunkException("Invalid chunk index " + index + ". Upload has "
+                    + session.getChunkCount() + " chunks.");
+        }
+        int length = (int) session.getChunkLength(index);
+        // One more byte is read to detect chunks longer than expected.
+        byte[] buffer = acquireBuffer(length + 1);
+        try {
+            int read;
+            try {
+                read = inputStream.readNBytes(buffer, 0, length + 1);
+            } catch (IOException e) {
+                throw new MultipartProcessingException("Error occurred while processing request! Please, try again.",
+                        e);
+            }
+            if (read != length) {
+                throw new InvalidChunkException("Chunk " + index + " must be " + length + " bytes long.");
+            }
+
+            String etag = multipartUploadRepository.uploadPart(session.getStagingPath(), session.getUploadId(),
+                    index + 1, buffer, length);
+            if (!uploadSessionStore.putPart(id, index + 1, etag)) {
+                throw new ResourceNotFoundException("Upload session " + id + " not found.");
+            }
+        } finally {
+            partBufferPool.release(buffer);
+        }
+    }
+
+    /**
+     * Method takes a buffer for the chunk from {@link PartBufferPool}, so received chunks share memory budget
+     * with other uploads.
+     */
+    private byte[] acquireBuffer(int size) {
+        try {
+            return partBufferPool.acquire(size);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MultipartProcessingException("Error occurred while processing request! Please, try again.", e);
+        }
+    }
+
+    /**
+     * Method completes the upload, so the file appears in user's directory. If completion fails,
+     * it may be retried.
+     *
+     * @param id id of the session.
+     * @return path to the directory where file is uploaded.
+     * @throws ResourceNotFoundException if session doesn't exist or belongs to another user.
+     * @throws InvalidChunkException     if some chunks are not received yet, directly uploaded file doesn't match
+     *                                   the session or session is already being completed.
+     */
+    public String complete(String id) {
+        UploadSession session = getOwnSession(id);
+        List<Integer> missing = IntStream.range(0, session.getChunkCount())
+                .filter(index -> !session.getParts().containsKey(index + 1))
+                .boxed()
+                .toList();
+        if (!missing.isEmpty()) {
+            throw new InvalidChunkException("Chunks " + missing + " are not received.");
+        }
+        if (!uploadSessionStore.startCompletion(id)) {
+            throw new InvalidChunkException("Upload is already being completed.");
+        }
+
+        String fullPath = session.getStoragePath() + session.getName();
+        try {
+            if (!session.isAssembled()) {
+                Part[] parts = session.getParts().entrySet().stream()
+                        .map(part -> new Part(part.getKey(), part.getValue()))
+                        .toArray(Part[]::new);
+                multipartUploadRepository.complete(session.getStagingPath(), session.getUploadId(), parts);
+                uploadSessionStore.markAssembled(id);
+            }
+            if (session.isDirect()) {
+                checkStagingObject(session);
+            }
+            long replacedSize = getStoredSize(fullPath);
+            minioRepository.copyFile(session.getStagingPath(), fullPath);
+            quotaService.addUsedSpace(session.getUserId(), -replacedSize);
+        } catch (RuntimeException e) {
+            uploadSessionStore.cancelCompletion(id);
+            throw e;
+        }
+        uploadSessionStore.remove(id);
+        deleteStagingObject(session);
+        eventPublisher.publishEvent(new StorageChangeEvent(StorageChangeEvent.Type.FILE_CREATED,
+                session.getUserId(), session.getUserDirectory(), fullPath, null, session.getStoragePath()));
+        log.debug("Upload session " + id + " completed, file " + fullPath + " saved to storage.");
+        return session.getPath();
+    }
+
+    /**
+     * Method aborts the upload, uploaded chunks are removed and reserved space is released.
+     *
+     * @param id id of the session.
+     * @throws ResourceNotFoundException if session doesn't exist or belongs to another user.
+     */
+    public void abort(String id) {
+        UploadSession session = getOwnSession(id);
+        if (uploadSessionStore.remove(id)) {
+            abort(session);
+        }
+    }
+
+    /**
+     * Method aborts sessions without activity for {@link UploadProperties#getSessionTimeout()}.
+     */
+    @Scheduled(initialDelayString = "#{@uploadProperties.cleanupInterval.toMillis()}",
+            fixedDelayString = "#{@uploadProperties.cleanupInterval.toMillis()}")
+    public void abortInactiveSessions() {
+        Instant before = Instant.now().minus(uploadProperties.getSessionTimeout());
+        List<String> aborted = new ArrayList<>();
+        for (String id : uploadSessionStore.findInactive(before)) {
+            try {
+                UploadSession session = uploadSessionStore.find(id).orElse(null);
+                if (uploadSessionStore.remove(id) && session != null) {
+                    abort(session);
+                    aborted.add(id);
+                }
+            } catch (RuntimeException e) {
+                log.error("Failed to abort upload session " + id + ". " + e);
+            }
+        }
+        if (!aborted.isEmpty()) {
+            log.info("Inactive upload sessions aborted: " + aborted + ".");
+        }
+    }
+
+    private void abort(UploadSession session) {
+        quotaService.addUsedSpace(session.getUserId(), -session.getSize());
+        if (session.isAssembled()) {
+            deleteStagingObject(session);
+        } else {
+            multipartUploadRepository.abort(session.getStagingPath(), session.getUploadId());
+        }
+        log.debug("Upload session " + session.getId() + " aborted.");
+    }
+
+    /**
+     * Method checks that the name is a relative path without empty, "." and ".." segments.
+     */
+    private static boolean isValidName(String name) {
+        return Arrays.stream(name.split("/", -1))
+                .noneMatch(segment -> segment.isBlank() || segment.equals(".") || segment.equals(".."));
+    }
+
+    /**
+     * Method checks that the client uploaded exactly the declared number of bytes, as presigned URL
+     * doesn't limit size of the uploaded object. The object of wrong size is deleted, so the client
+     * may upload the file again.
+     */
+    private void checkStagingObject(UploadSession session) {
+        long size;
+        try {
+            size = minioRepository.statFile(session.getStagingPath()).getSize();
+        } catch (ResourceNotFoundException e) {
+            throw new InvalidChunkException("File " + session.getName() + " is not uploaded.", e);
+        }
+        if (size != session.getSize()) {
+            deleteStagingObject(session);
+            throw new InvalidChunkException("Uploaded file must be " + session.getSize() + " bytes long.");
+        }
+    }
+
+    private void deleteStagingObject(UploadSession session) {
+        try {
+            minioRepository.deleteFile(session.getStagingPath());
+        } catch (RuntimeException e) {
+            log.error("Failed to delete staging object " + session.getStagingPath() + ". " + e);
+        }
+    }
+
+    private UploadSession getOwnSession(String id) {
+        return uploadSessionStore.find(id)
+                .filter(session -> session.getUserId().equals(userSessionData.getId()))
+                .orElseThrow(() -> new ResourceNotFoundException("Upload session " + id + " not found."));
+    }
+
+    /**
+     * @param storagePath storage-specific path of the file.
+     * @return size of the file or 0 if it doesn't exist.
+     */
+    private long getStoredSize(String storagePath) {
+        try {
+            return minioRepository.statFile(storagePath).getSize();
+        } catch (ResourceNotFoundException e) {
+            return 0;
+        }
+    }
+
+    private UploadSessionDto toDto(UploadSession session) {
+        UploadSessionDto dto = new UploadSessionDto();
+        dto.setId(session.getId());
+        dto.setName(session.getName());
+        dto.setSize(session.getSize());
+        dto.setChunkSize(session.getChunkSize());
+        dto.setChunkCount(session.getChunkCount());
+        dto.setReceivedChunks(session.getParts().keySet().stream()
+                .map(partNumber -> partNumber - 1)
+                .toList());
+        if (session.isDirect()) {
+            dto.setUploadUrl(minioRepository.getUploadUrl(session.getStagingPath()));
+        }
+        return dto;
+    }
+}
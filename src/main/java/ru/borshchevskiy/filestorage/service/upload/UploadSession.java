@@ -0,0 +1,58 @@
+package ru.borshchevskiy.filestorage.service.upload;
+
+import lombok.Data;
+
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * Class represents state of a chunked upload shared by all application instances.
+ *
+ * @see UploadSessionStore
+ */
+@Data
+public class UploadSession {
+    private String id;
+    private Long userId;
+    private String userDirectory;
+    /**
+     * Path of the target directory relative to user's personal root directory.
+     */
+    private String path;
+    /**
+     * Storage path of the target directory.
+     */
+    private String storagePath;
+    private String name;
+    private long size;
+    private long chunkSize;
+    private int chunkCount;
+    /**
+     * Storage path of the object the chunks are uploaded to.
+     */
+    private String stagingPath;
+    /**
+     * Id of the multipart upload of the staging object, null for direct uploads.
+     */
+    private String uploadId;
+    /**
+     * True if the client uploads the file directly to storage instead of sending chunks.
+     */
+    private boolean direct;
+    /**
+     * True if all chunks are assembled into the staging object.
+     */
+    private boolean assembled;
+    /**
+     * ETags of uploaded parts by part numbers, starting from 1.
+     */
+    private SortedMap<Integer, String> parts = new TreeMap<>();
+
+    /**
+     * @param index index of the chunk, starting from 0.
+     * @return size of the chunk.
+     */
+    public long getChunkLength(int index) {
+        return index < chunkCount - 1 ? chunkSize : size - chunkSize * (chunkCount - 1);
+    }
+}
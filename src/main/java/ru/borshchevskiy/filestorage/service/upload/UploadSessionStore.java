@@ -0,0 +1,171 @@
+package ru.borshchevskiy.filestorage.service.upload;
+
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Stores state of chunked uploads in Redis, so chunks of the same upload may be received by any
+ * application instance.
+ * <p>
+ * Every session is a Redis hash holding its attributes and ETags of uploaded parts in "part:N" fields.
+ * Time of the last activity of every session is kept in {@link #ACTIVITY_KEY} sorted set,
+ * which is used to find abandoned sessions.
+ */
+@Component
+public class UploadSessionStore {
+
+    private static final String KEY_PREFIX = "upload:";
+    private static final String ACTIVITY_KEY = "upload-activity";
+    private static final String PART_PREFIX = "part:";
+    private static final String COMPLETING_FIELD = "completing";
+
+    /**
+     * Saves ETag of the part if the session still exists.
+     * KEYS[1] - session hash, KEYS[2] - activity set, ARGV[1] - field, ARGV[2] - ETag, ARGV[3] - session id,
+     * ARGV[4] - current time in ms.
+     */
+    private static final RedisScript<Long> PUT_PART_SCRIPT = new DefaultRedisScript<>("""
+            if redis.call('EXISTS', KEYS[1]) == 0 then
+                return 0
+            end
+            redis.call('HSET', KEYS[1], ARGV[1], ARGV[2])
+            redis.call('ZADD', KEYS[2], ARGV[4], ARGV[3])
+            return 1
+            """, Long.class);
+
+    private final StringRedisTemplate redisTemplate;
+
+    public UploadSessionStore(StringRedisTemplate redisTemplate) {
+        this.redisTemplate = redisTemplate;
+    }
+
+    /**
+     * Method saves the session and marks it active.
+     *
+     * @param session {@link UploadSession}.
+     */
+    public void save(UploadSession session) {
+        Map<String, String> fields = new HashMap<>();
+        fields.put("userId", session.getUserId().toString());
+        fields.put("userDirectory", session.getUserDirectory());
+        fields.put("path", session.getPath());
+        fields.put("storagePath", session.getStoragePath());
+        fields.put("name", session.getName());
+        fields.put("size", Long.toString(session.getSize()));
+        fields.put("chunkSize", Long.toString(session.getChunkSize()));
+        fields.put("chunkCount", Integer.toString(session.getChunkCount()));
+        fields.put("stagingPath", session.getStagingPath());
+        if (session.getUploadId() != null) {
+            fields.put("uploadId", session.getUploadId());
+        }
+        fields.put("direct", Boolean.toString(session.isDirect()));
+        fields.put("assembled", Boolean.toString(session.isAssembled()));
+        session.getParts().forEach((partNumber, etag) -> fields.put(PART_PREFIX + partNumber, etag));
+        redisTemplate.opsForHash().putAll(KEY_PREFIX + session.getId(), fields);
+        redisTemplate.opsForZSet().add(ACTIVITY_KEY, session.getId(), Instant.now().toEpochMilli());
+    }
+
+    /**
+     * @param id id of the session.
+     * @return {@link UploadSession} or empty {@link Optional} if the session doesn't exist.
+     */
+    public Optional<UploadSession> find(String id) {
+        Map<Object, Object> fields = redisTemplate.opsForHash().entries(KEY_PREFIX + id);
+        if (fields.isEmpty()) {
+            return Optional.empty();
+        }
+        UploadSession session = new UploadSession();
+        session.setId(id);
+        session.setUserId(Long.valueOf((String) fields.get("userId")));
+        session.setUserDirectory((String) fields.get("userDirectory"));
+        session.setPath((String) fields.get("path"));
+        session.setStoragePath((String) fields.get("storagePath"));
+        session.setName((String) fields.get("name"));
+        session.setSize(Long.parseLong((String) fields.get("size")));
+        session.setChunkSize(Long.parseLong((String) fields.get("chunkSize")));
+        session.setChunkCount(Integer.parseInt((String) fields.get("chunkCount")));
+        session.setStagingPath((String) fields.get("stagingPath"));
+        session.setUploadId((String) fields.get("uploadId"));
+        session.setDirect(Boolean.parseBoolean((String) fields.get("direct")));
+        session.setAssembled(Boolean.parseBoolean((String) fields.get("assembled")));
+        fields.forEach((field, value) -> {
+            String name = (String) field;
+            if (name.startsWith(PART_PREFIX)) {
+                session.getParts().put(Integer.valueOf(name.substring(PART_PREFIX.length())), (String) value);
+            }
+        });
+        return Optional.of(session);
+    }
+
+    /**
+     * Method saves ETag of the uploaded part and marks the session active.
+     *
+     * @param id         id of the session.
+     * @param partNumber number of the part.
+     * @param etag       ETag of the part.
+     * @return false if the session doesn't exist.
+     */
+    public boolean putPart(String id, int partNumber, String etag) {
+        Long result = redisTemplate.execute(PUT_PART_SCRIPT, List.of(KEY_PREFIX + id, ACTIVITY_KEY),
+                PART_PREFIX + partNumber, etag, id, Long.toString(Instant.now().toEpochMilli()));
+        return result != null && result > 0;
+    }
+
+    /**
+     * Method marks all chunks of the session assembled.
+     *
+     * @param id id of the session.
+     */
+    public void markAssembled(String id) {
+        redisTemplate.opsForHash().put(KEY_PREFIX + id, "assembled", Boolean.toString(true));
+    }
+
+    /**
+     * Method marks the session being completed, so it is completed by a single request at a time.
+     *
+     * @param id id of the session.
+     * @return true if the caller should complete the session, false if it is already being completed.
+     */
+    public boolean startCompletion(String id) {
+        return Boolean.TRUE.equals(redisTemplate.opsForHash()
+                .putIfAbsent(KEY_PREFIX + id, COMPLETING_FIELD, Long.toString(Instant.now().toEpochMilli())));
+    }
+
+    /**
+     * Method removes the mark set by {@link #startCompletion(String)}, so completion can be retried.
+     *
+     * @param id id of the session.
+     */
+    public void cancelCompletion(String id) {
+        redisTemplate.opsForHash().delete(KEY_PREFIX + id, COMPLETING_FIELD);
+    }
+
+    /**
+     * Method removes the session.
+     *
+     * @param id id of the session.
+     * @return true if the session is removed by this call.
+     */
+    public boolean remove(String id) {
+        redisTemplate.opsForZSet().remove(ACTIVITY_KEY, id);
+        return Boolean.TRUE.equals(redisTemplate.delete(KEY_PREFIX + id));
+    }
+
+    /**
+     * @param before time of the last activity.
+     * @return ids of sessions without activity since the specified time.
+     */
+    public Set<String> findInactive(Instant before) {
+        Set<String> ids = redisTemplate.opsForZSet().rangeByScore(ACTIVITY_KEY, 0, before.toEpochMilli());
+        return ids == null ? Set.of() : ids;
+    }
+}
@@ -40,7 +40,21 @@ public class FilePathUtil {
      * @see UserSessionData
      */
     public static String removeUserDirectoryFromPath(UserSessionData userSessionData, String path) {
-        return path.replaceFirst(userSessionData.getUserDirectory() + "/", "");
+        return removeUserDirectoryFromPath(userSessionData.getUserDirectory(), path);
+    }
+
+    /**
+     * Method removes root user directory from the beginning of the path.
+     * Unlike {@link #removeUserDirectoryFromPath(UserSessionData, String)} doesn't depend on current session,
+     * so it can be used outside of request processing.
+     *
+     * @param userDirectory name of the user's personal root directory.
+     * @param path          path from which personal directory should be removed.
+     * @return path without personal directory.
+     */
+    public static String removeUserDirectoryFromPath(String userDirectory, String path) {
+        String prefix = userDirectory + "/";
+        return path.startsWith(prefix) ? path.substring(prefix.length()) : path;
     }
 
     /**
@@ -0,0 +1,47 @@
+package ru.borshchevskiy.filestorage.util;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Utility class to work with {@link CompletableFuture}s.
+ */
+public class FutureUtil {
+
+    /**
+     * Method waits for the future to complete and returns its result.
+     * Unlike {@link CompletableFuture#join()}, unchecked exception the future was completed with
+     * is rethrown as is, without {@link CompletionException} wrapper, so it is handled the same way
+     * as exception thrown by a synchronous call.
+     *
+     * @param future future to wait for.
+     * @param <T>    type of the result.
+     * @return result of the future.
+     */
+    public static <T> T join(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            if (e.getCause() instanceof Error cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Method returns cause of the exception if it is a {@link CompletionException} wrapper.
+     *
+     * @param throwable exception the future was completed with.
+     * @return original exception.
+     */
+    public static Throwable unwrap(Throwable throwable) {
+        if (throwable instanceof CompletionException && throwable.getCause() != null) {
+            return throwable.getCause();
+        }
+        return throwable;
+    }
+}
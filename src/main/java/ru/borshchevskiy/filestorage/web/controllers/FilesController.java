@@ -7,26 +7,41 @@ import org.apache.commons.fileupload2.jakarta.JakartaServletFileUpload;
 import org.apache.commons.io.input.BoundedInputStream;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
-import org.springframework.util.FileCopyUtils;
 import org.springframework.util.StringUtils;
+import org.springframework.web.bind.MissingServletRequestParameterException;
+import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import org.springframework.web.servlet.mvc.support.RedirectAttributes;
+import ru.borshchevskiy.filestorage.dto.file.UploadSessionDto;
+import ru.borshchevskiy.filestorage.exception.InvalidChunkException;
+import ru.borshchevskiy.filestorage.exception.LengthRequiredException;
 import ru.borshchevskiy.filestorage.exception.MultipartProcessingException;
 import ru.borshchevskiy.filestorage.exception.NotMultipartRequestException;
+import ru.borshchevskiy.filestorage.exception.QuotaExceededException;
 import ru.borshchevskiy.filestorage.service.FileService;
+import ru.borshchevskiy.filestorage.service.archive.ExtractionResult;
+import ru.borshchevskiy.filestorage.service.quota.QuotaService;
+import ru.borshchevskiy.filestorage.service.upload.ChunkedUploadService;
+import ru.borshchevskiy.filestorage.web.download.FileDownloadHandler;
+import ru.borshchevskiy.filestorage.web.session.UserSessionData;
 
 import java.io.IOException;
 import java.io.InputStream;
-import java.net.URLEncoder;
-import java.nio.charset.StandardCharsets;
+import java.util.List;
 
-import static org.springframework.http.HttpStatus.OK;
 import static org.springframework.http.MediaType.APPLICATION_OCTET_STREAM_VALUE;
 
 /**
@@ -37,40 +52,71 @@ import static org.springframework.http.MediaType.APPLICATION_OCTET_STREAM_VALUE;
 @RequestMapping("/files")
 public class FilesController {
 
+    private static final String NAME_PARAMETER = "name";
+
     @Value("${app.max-file-size:10485760}")
     private long maxFileSize;
     private final FileService fileService;
+    private final FileDownloadHandler fileDownloadHandler;
+    private final QuotaService quotaService;
+    private final ChunkedUploadService chunkedUploadService;
+    private final UserSessionData userSessionData;
 
     /**
      * Method allows client to download file on specified path.
+     * Supports partial downloads with "Range" and "If-Range" headers and conditional downloads with
+     * "If-None-Match" and "If-Modified-Since" headers. "HEAD" requests are also handled by this method.
      *
      * @param path to directory where required file is located.
      * @param file name of the file.
+     * @param method method of the request.
+     * @param requestHeaders headers of the request.
      * @return {@link ResponseEntity} with {@link StreamingResponseBody} representing {@link InputStream}
-     * of required file.
+     * of required file or its requested parts.
+     * @see FileDownloadHandler
      */
     @GetMapping(value = "/download", produces = APPLICATION_OCTET_STREAM_VALUE)
     public ResponseEntity<StreamingResponseBody> downloadFile(@RequestParam(value = "path") String path,
-                                                              @RequestParam(value = "file") String file) {
-        String filename = URLEncoder.encode(file, StandardCharsets.UTF_8)
-                .replace("+", "%20");
-        StreamingResponseBody stream = outputStream ->
-                FileCopyUtils.copy(fileService.downloadFile(path, file), outputStream);
-
-        return ResponseEntity
-                .status(OK)
-                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=" + filename)
-                .body(stream);
+                                                              @RequestParam(value = "file") String file,
+                                                              HttpMethod method,
+                                                              @RequestHeader HttpHeaders requestHeaders) {
+        return fileDownloadHandler.download(path, file, method, requestHeaders);
+    }
+
+    /**
+     * Method allows client to download ZIP archive of files and directories located in the same directory.
+     *
+     * @param path     path to directory where archived items are located.
+     * @param compress false if files should be stored in archive without compression.
+     * @param request  {@link HttpServletRequest} with names of files and directories to be archived
+     *                 as "name" parameters, see {@link #getNames(HttpServletRequest)}.
+     *                 Names of directories end with "/".
+     * @return {@link ResponseEntity} with {@link StreamingResponseBody} writing the archive.
+     * @see FileDownloadHandler
+     */
+    @GetMapping(value = "/download-archive")
+    public ResponseEntity<StreamingResponseBody> downloadArchive(
+            @RequestParam(value = "path") String path,
+            @RequestParam(value = "compress", defaultValue = "true") boolean compress,
+            HttpServletRequest request) throws MissingServletRequestParameterException {
+        return fileDownloadHandler.downloadArchive(path, getNames(request), compress);
     }
 
     /**
      * Method allows client to upload file to server on specified path.
      * File uploaded using Apache Commons FileUpload 2.
+     * <p>
+     * Space for the whole request is reserved in user's quota according to "Content-Length" header before
+     * the upload starts and is released when it ends, so uploads exceeding the quota are rejected
+     * without reading them. Requests without "Content-Length" header (e.g. chunked transfer encoding)
+     * are rejected, since their size can't be reserved.
      *
      * @param path               path to directory where file should be uploaded.
      * @param request            {@link HttpServletRequest}.
      * @param redirectAttributes {@link RedirectAttributes}.
      * @return redirect to update viewed file list.
+     * @throws LengthRequiredException if request doesn't declare its length.
+     * @throws QuotaExceededException  if upload would exceed user's quota.
      */
     @PostMapping(value = "/upload")
     public String uploadFile(@RequestParam(value = "path") String path,
@@ -82,6 +128,13 @@ public class FilesController {
             throw new NotMultipartRequestException("No file found within request!");
         }
 
+        long reservedSize = request.getContentLengthLong();
+        if (reservedSize < 0) {
+            throw new LengthRequiredException("Request must declare length of uploaded files!");
+        }
+        Long userId = userSessionData.getId();
+        quotaService.reserve(userId, reservedSize);
+
         JakartaServletFileUpload<?, ?> upload = new JakartaServletFileUpload<>();
         upload.setFileSizeMax(maxFileSize);
         try {
@@ -109,11 +162,163 @@ public class FilesController {
             throw new MultipartProcessingException("Error occurred while processing request! File is too large.", e);
         } catch (IOException e) {
             throw new MultipartProcessingException("Error occurred while processing request! Please, try again.", e);
+        } finally {
+            quotaService.addUsedSpace(userId, -reservedSize);
         }
         redirectAttributes.addAttribute("path", path);
         return "redirect:/updateFilesList";
     }
 
+    /**
+     * Method starts resumable chunked upload of the file. Client should split the file into chunks
+     * of {@link UploadSessionDto#getChunkSize()} bytes and send them by {@link #uploadChunk(String, int,
+     * HttpServletRequest)}, several chunks may be sent concurrently.
+     *
+     * @param path path to directory where file should be uploaded.
+     * @param name name of the file.
+     * @param size size of the file in bytes.
+     * @return {@link UploadSessionDto} of the created upload session.
+     * @throws QuotaExceededException if upload would exceed user's quota.
+     * @see ChunkedUploadService
+     */
+    @PostMapping(value = "/uploads")
+    @ResponseBody
+    public UploadSessionDto createUploadSession(@RequestParam(value = "path") String path,
+                                                @RequestParam(value = "name") String name,
+                                                @RequestParam(value = "size") long size) {
+        return chunkedUploadService.createSession(path, name, size);
+    }
+
+    /**
+     * Method starts upload of the file directly to storage. Client should send the file with a single PUT request
+     * to {@link UploadSessionDto#getUploadUrl()} and then complete the upload
+     * by {@link #completeUpload(String, RedirectAttributes)}.
+     *
+     * @param path path to directory where file should be uploaded.
+     * @param name name of the file.
+     * @param size size of the file in bytes.
+     * @return {@link UploadSessionDto} of the created upload session with presigned URL.
+     * @throws QuotaExceededException if upload would exceed user's quota.
+     * @see ChunkedUploadService#createDirectSession(String, String, long)
+     */
+    @PostMapping(value = "/uploads/direct")
+    @ResponseBody
+    public UploadSessionDto createDirectUploadSession(@RequestParam(value = "path") String path,
+                                                      @RequestParam(value = "name") String name,
+                                                      @RequestParam(value = "size") long size) {
+        return chunkedUploadService.createDirectSession(path, name, size);
+    }
+
+    /**
+     * Method returns state of the upload session, so client can resume the upload by sending
+     * chunks which are not received yet.
+     *
+     * @param id id of the upload session.
+     * @return {@link UploadSessionDto} with indexes of received chunks.
+     */
+    @GetMapping(value = "/uploads/{id}")
+    @ResponseBody
+    public UploadSessionDto getUploadSession(@PathVariable(value = "id") String id) {
+        return chunkedUploadService.getSession(id);
+    }
+
+    /**
+     * Method receives chunk of the file as request body. Chunk sent again replaces the previous one,
+     * so failed chunks can be safely retried.
+     *
+     * @param id      id of the upload session.
+     * @param index   index of the chunk, starting from 0.
+     * @param request {@link HttpServletRequest} with the chunk as body.
+     * @throws InvalidChunkException if index or size of the chunk doesn't match the upload session.
+     */
+    @PutMapping(value = "/uploads/{id}/chunks/{index}")
+    @ResponseStatus(HttpStatus.NO_CONTENT)
+    public void uploadChunk(@PathVariable(value = "id") String id,
+                            @PathVariable(value = "index") int index,
+                            HttpServletRequest request) {
+        try (InputStream stream = request.getInputStream()) {
+            chunkedUploadService.uploadChunk(id, index, stream);
+        } catch (IOException e) {
+            throw new MultipartProcessingException("Error occurred while processing request! Please, try again.", e);
+        }
+    }
+
+    /**
+     * Method completes the upload after all chunks are sent or the file is uploaded directly to storage.
+     *
+     * @param id                 id of the upload session.
+     * @param redirectAttributes {@link RedirectAttributes}.
+     * @return redirect to update viewed file list.
+     * @throws InvalidChunkException if some chunks are not received yet.
+     */
+    @PostMapping(value = "/uploads/{id}/complete")
+    public String completeUpload(@PathVariable(value = "id") String id,
+                                 RedirectAttributes redirectAttributes) {
+        String path = chunkedUploadService.complete(id);
+        redirectAttributes.addAttribute("path", path);
+        return "redirect:/updateFilesList";
+    }
+
+    /**
+     * Method aborts the upload, received chunks are discarded.
+     *
+     * @param id id of the upload session.
+     */
+    @DeleteMapping(value = "/uploads/{id}")
+    @ResponseStatus(HttpStatus.NO_CONTENT)
+    public void abortUpload(@PathVariable(value = "id") String id) {
+        chunkedUploadService.abort(id);
+    }
+
+    /**
+     * Method allows client to upload ZIP or TAR archive which is extracted to specified path.
+     * Archive is extracted as it is received, it is not saved to storage.
+     *
+     * @param path    path to directory where archive should be extracted.
+     * @param request {@link HttpServletRequest} with the archive as the first file.
+     * @return {@link ExtractionResult} with results of all archive entries.
+     */
+    @PostMapping(value = "/extract")
+    @ResponseBody
+    public ExtractionResult extractArchive(@RequestParam(value = "path") String path,
+                                           HttpServletRequest request) {
+
+        boolean isMultipart = JakartaServletFileUpload.isMultipartContent(request);
+        if (!isMultipart) {
+            throw new NotMultipartRequestException("No archive found within request!");
+        }
+
+        JakartaServletFileUpload<?, ?> upload = new JakartaServletFileUpload<>();
+        try {
+            FileItemInputIterator itemIterator = upload.getItemIterator(request);
+            while (itemIterator.hasNext()) {
+                FileItemInput item = itemIterator.next();
+                if (!item.isFormField() && StringUtils.hasText(item.getName())) {
+                    try (InputStream stream = item.getInputStream()) {
+                        return fileService.extractArchive(stream, path, item.getName());
+                    }
+                }
+            }
+        } catch (IOException e) {
+            throw new MultipartProcessingException("Error occurred while processing request! Please, try again.", e);
+        }
+        throw new NotMultipartRequestException("No archive found within request!");
+    }
+
+    /**
+     * Method extracts ZIP or TAR archive stored in storage to the directory where the archive is located.
+     *
+     * @param path path to the directory where archive is located.
+     * @param name name of the archive.
+     * @return {@link ExtractionResult} with results of all archive entries.
+     */
+    @PostMapping(value = "/extract-stored")
+    @ResponseBody
+    public ExtractionResult extractStoredArchive(@RequestParam(value = "path") String path,
+                                                 @RequestParam(value = "name") String name) {
+        return fileService.extractStoredArchive(path, name);
+    }
+
     /**
      * Method handles file renaming requests.
      *
@@ -136,21 +341,39 @@ public class FilesController {
     }
 
     /**
-     * Method deletes specified file.
+     * Method deletes specified files.
      *
-     * @param path               path to the directory where file is located.
-     * @param name               name of the file to be deleted.
+     * @param path               path to the directory where files are located.
+     * @param request            {@link HttpServletRequest} with names of the files to be deleted
+     *                           as "name" parameters, see {@link #getNames(HttpServletRequest)}.
      * @param redirectAttributes {@link RedirectAttributes}.
      * @return redirect to update viewed file list.
      */
     @PostMapping(value = "/delete")
     public String deleteFile(@RequestParam(value = "path") String path,
-                             @RequestParam(value = "name") String name,
-                             RedirectAttributes redirectAttributes) {
+                             HttpServletRequest request,
+                             RedirectAttributes redirectAttributes) throws MissingServletRequestParameterException {
 
-        fileService.deleteFile(path, name);
+        fileService.deleteFiles(path, getNames(request));
         redirectAttributes.addAttribute("path", path);
 
         return "redirect:/updateFilesList";
     }
+
+    /**
+     * Method returns values of all "name" parameters of the request.
+     * Unlike binding to a {@link List} with {@link RequestParam}, single value is not split by commas,
+     * so names containing commas are preserved.
+     *
+     * @param request {@link HttpServletRequest}.
+     * @return names passed with the request.
+     * @throws MissingServletRequestParameterException if request has no "name" parameter.
+     */
+    private static List<String> getNames(HttpServletRequest request) throws MissingServletRequestParameterException {
+        String[] names = request.getParameterValues(NAME_PARAMETER);
+        if (names == null) {
+            throw new MissingServletRequestParameterException(NAME_PARAMETER, String.class.getSimpleName());
+        }
+        return List.of(names);
+    }
 }
@@ -2,6 +2,9 @@ package ru.borshchevskiy.filestorage.web.controllers;
 
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.web.PageableDefault;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Controller;
@@ -9,6 +12,7 @@ import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
+import ru.borshchevskiy.filestorage.dto.file.FileItemDto;
 import ru.borshchevskiy.filestorage.service.FileService;
 import ru.borshchevskiy.filestorage.util.FilePathUtil;
 import ru.borshchevskiy.filestorage.util.FileSizeUtil;
@@ -25,6 +29,8 @@ public class MainPageController {
 
     @Value("${app.max-file-size:10485760}")
     private long maxFileSize;
+    @Value("${minio.presign.enabled:false}")
+    private boolean directUploadEnabled;
     private final FileService fileService;
 
     /**
@@ -47,6 +53,7 @@ public class MainPageController {
             model.addAttribute("breadcrumbs", FilePathUtil.generateBreadcrumbs(decodedPath));
             model.addAttribute("filesList", fileService.getItemsByPath(decodedPath));
             model.addAttribute("maxFileSize", FileSizeUtil.getViewFileSize(maxFileSize));
+            model.addAttribute("directUploadEnabled", directUploadEnabled);
 
             if (!path.isEmpty()) {
                 model.addAttribute("parentPath", FilePathUtil.getParent(decodedPath));
@@ -74,4 +81,29 @@ public class MainPageController {
 
         return "fragments/main/fragment-filesList :: filesList";
     }
+
+    /**
+     * Updates files' list on main page with a single page of items.
+     * Supports "page", "size" and "sort" parameters, e.g. "sort=size,desc". Items can be sorted by
+     * name, size and lastModified, directories always precede files.
+     * @param path storage path which content should be viewed.
+     * @param pageable requested page.
+     * @param model MVC {@link Model}.
+     * @return fragment to be updated on main page.
+     */
+    @GetMapping("/updateFilesPage")
+    public String updateFilesPage(@RequestParam(value = "path", required = false, defaultValue = "") String path,
+                                  @PageableDefault(size = 100) Pageable pageable,
+                                  Model model) {
+        Page<FileItemDto> page = fileService.getItemsPage(path, pageable);
+        model.addAttribute("path", path);
+        model.addAttribute("page", page);
+        model.addAttribute("filesList", page.getContent());
+
+        if (!path.isEmpty()) {
+            model.addAttribute("parentPath", FilePathUtil.getParent(path));
+        }
+
+        return "fragments/main/fragment-filesList :: filesList";
+    }
 }
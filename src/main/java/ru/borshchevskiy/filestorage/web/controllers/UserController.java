@@ -17,6 +17,7 @@ import ru.borshchevskiy.filestorage.dto.user.UserResponseDto;
 import ru.borshchevskiy.filestorage.dto.validation.groups.OnPasswordUpdate;
 import ru.borshchevskiy.filestorage.dto.validation.groups.OnUpdate;
 import ru.borshchevskiy.filestorage.service.UserService;
+import ru.borshchevskiy.filestorage.service.quota.QuotaService;
 import ru.borshchevskiy.filestorage.web.session.UserSessionData;
 import ru.borshchevskiy.filestorage.util.ControllerUtil;
 
@@ -32,9 +33,10 @@ public class UserController {
 
     private final UserService userService;
     private final UserSessionData userSessionData;
+    private final QuotaService quotaService;
 
     /**
-     * Returns profile page view.
+     * Returns profile page view with user's data and storage usage.
      * @param userDetails {@link UserDetails} object representing current user.
      * @param model MVC {@link Model}.
      * @return profile page view name.
@@ -44,6 +46,7 @@ public class UserController {
                                  Model model) {
         UserResponseDto userResponseDto = userService.findByEmail(userDetails.getUsername());
         model.addAttribute("user", userResponseDto);
+        model.addAttribute("storageUsage", quotaService.getUsage(userResponseDto.getId()));
         return "profile";
     }
 
@@ -0,0 +1,434 @@
+package ru.borshchevskiy.filestorage.web.download;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpRange;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.util.MimeTypeUtils;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.borshchevskiy.filestorage.config.properties.MinioProperties;
+import ru.borshchevskiy.filestorage.repository.ObjectInfo;
+import ru.borshchevskiy.filestorage.service.FileService;
+import ru.borshchevskiy.filestorage.service.archive.ArchiveWriter;
+import ru.borshchevskiy.filestorage.util.FilePathUtil;
+
+import java.io.InputStream;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Builds responses for file download requests.
+ * <p>
+ * Supports partial downloads according to RFC 9110: single range requests are answered with
+ * "206 Partial Content", multiple ranges - with "multipart/byteranges" body, unsatisfiable ranges - with
+ * "416 Range Not Satisfiable". "If-Range" header is honored, so ranges are only applied if the file
+ * hasn't changed since the client received its validator.
+ * <p>
+ * Only requested bytes are read from storage.
+ * <p>
+ * Responses carry strong validators: "ETag" and "Last-Modified" headers. Conditional requests with
+ * "If-None-Match" or "If-Modified-Since" headers matching the file are answered with "304 Not Modified",
+ * "HEAD" requests - with headers only. Neither of them opens the file in storage, metadata of the file
+ * is usually taken from cache, see {@link ru.borshchevskiy.filestorage.service.cache.FileInfoCache}.
+ * Clients are told to revalidate the file before reuse, so explicit "Cache-Control" header also prevents
+ * caching from being disabled by default security headers.
+ * <p>
+ * Files compressed in storage are sent compressed with "Content-Encoding" header if the client accepts
+ * their coding and requests the whole file, otherwise they are decompressed by the application.
+ * Compressed representation has its own strong "ETag", the file's one suffixed with the coding,
+ * so caches never mix up the representations. Both tags are accepted as validators of the file.
+ * <p>
+ * If presigned URLs are enabled, client is redirected to storage and downloads the file directly,
+ * storage handles ranges itself. Compressed files are never downloaded directly.
+ * <p>
+ * Several files and directories can be downloaded as a single ZIP archive streamed as it is created.
+ *
+ * @see ru.borshchevskiy.filestorage.web.controllers.FilesController
+ */
+@Component
+@RequiredArgsConstructor
+public class FileDownloadHandler {
+
+    private static final String BYTES_UNIT = "bytes";
+    private static final String CRLF = "\r\n";
+    private static final String ANY_ETAG = "*";
+    private static final String WEAK_ETAG_PREFIX = "W/";
+    private static final String DEFAULT_ARCHIVE_NAME = "files";
+    private static final MediaType ZIP_MEDIA_TYPE = MediaType.parseMediaType("application/zip");
+
+    private final FileService fileService;
+    private final MinioProperties minioProperties;
+
+    /**
+     * Method builds response with the whole file or its requested parts.
+     * Response to "HEAD" request has the same status and headers, but no body.
+     *
+     * @param path           path to directory where required file is located.
+     * @param file           name of the file.
+     * @param method         method of the download request, "GET" or "HEAD".
+     * @param requestHeaders headers of the download request.
+     * @return {@link ResponseEntity} with {@link StreamingResponseBody} writing required bytes of the file,
+     * "304 Not Modified" response or redirect to presigned URL of the file.
+     */
+    public ResponseEntity<StreamingResponseBody> download(String path,
+                                                          String file,
+                                                          HttpMethod method,
+                                                          HttpHeaders requestHeaders) {
+        ResponseEntity<StreamingResponseBody> response = fileResponse(path, file, requestHeaders);
+        if (HttpMethod.HEAD.equals(method) && response.hasBody()) {
+            // Body is written lazily, so storage is not accessed when it is dropped.
+            return new ResponseEntity<>(response.getHeaders(), response.getStatusCode());
+        }
+        return response;
+    }
+
+    /**
+     * Method builds response to download request. See {@link #download(String, String, HttpMethod, HttpHeaders)}.
+     *
+     * @param path           path to directory where required file is located.
+     * @param file           name of the file.
+     * @param requestHeaders headers of the download request.
+     * @return {@link ResponseEntity}.
+     */
+    private ResponseEntity<StreamingResponseBody> fileResponse(String path, String file, HttpHeaders requestHeaders) {
+        ObjectInfo objectInfo = fileService.getFileInfo(path, file);
+        String contentEncoding = objectInfo.getContentEncoding();
+        List<HttpRange> requestedRanges = getRequestedRanges(requestHeaders, objectInfo);
+        boolean isEncoded = requestedRanges.isEmpty() && contentEncoding != null
+                && isEncodingAccepted(requestHeaders, contentEncoding);
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setETag(isEncoded ? getEncodedETag(objectInfo) : getETag(objectInfo));
+        if (objectInfo.getLastModified() != null) {
+            headers.setLastModified(objectInfo.getLastModified());
+        }
+        headers.setCacheControl(CacheControl.noCache().cachePrivate());
+        if (contentEncoding != null) {
+            headers.setVary(List.of(HttpHeaders.ACCEPT_ENCODING));
+        }
+        if (isNotModified(requestHeaders, objectInfo)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                    .headers(headers)
+                    .build();
+        }
+
+        if (minioProperties.getPresign().isEnabled() && contentEncoding == null) {
+            return ResponseEntity.status(HttpStatus.FOUND)
+                    .location(URI.create(fileService.getDownloadUrl(path, file)))
+                    .build();
+        }
+        long size = objectInfo.getSize();
+
+        headers.set(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=" + encodeFileName(file));
+        headers.set(HttpHeaders.ACCEPT_RANGES, BYTES_UNIT);
+
+        if (isEncoded) {
+            // Length of compressed content is not known without another request, so body is sent in chunks.
+            headers.setContentType(MediaType.APPLICATION_OCTET_STREAM);
+            headers.set(HttpHeaders.CONTENT_ENCODING, contentEncoding);
+            return ResponseEntity.status(HttpStatus.OK)
+                    .headers(headers)
+                    .body(outputStream -> {
+                        try (InputStream inputStream = fileService.downloadEncodedFile(path, file)) {
+                            inputStream.transferTo(outputStream);
+                        }
+                    });
+        }
+        if (requestedRanges.isEmpty()) {
+            headers.setContentType(MediaType.APPLICATION_OCTET_STREAM);
+            headers.setContentLength(size);
+            return ResponseEntity.status(HttpStatus.OK)
+                    .headers(headers)
+                    .body(outputStream -> {
+                        try (InputStream inputStream = fileService.downloadFile(path, file)) {
+                            inputStream.transferTo(outputStream);
+                        }
+                    });
+        }
+
+        List<ByteRange> ranges = getSatisfiableRanges(requestedRanges, size);
+        if (ranges.isEmpty()) {
+            headers.set(HttpHeaders.CONTENT_RANGE, BYTES_UNIT + " */" + size);
+            return ResponseEntity.status(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE)
+                    .headers(headers)
+                    .body(null);
+        }
+
+        if (ranges.size() == 1) {
+            ByteRange range = ranges.get(0);
+            headers.setContentType(MediaType.APPLICATION_OCTET_STREAM);
+            headers.setContentLength(range.length());
+            headers.set(HttpHeaders.CONTENT_RANGE, range.contentRange(size));
+            return ResponseEntity.status(HttpStatus.PARTIAL_CONTENT)
+                    .headers(headers)
+                    .body(outputStream -> {
+                        try (InputStream inputStream =
+                                     fileService.downloadFile(path, file, contentEncoding, range.start(),
+                                             range.length())) {
+                            inputStream.transferTo(outputStream);
+                        }
+                    });
+        }
+
+        return multipartResponse(path, file, contentEncoding, ranges, size, headers);
+    }
+
+    /**
+     * Method builds response with ZIP archive of files and directories located in the same directory.
+     * Archive is streamed as it is created, so its length is unknown and ranges are not supported.
+     * <p>
+     * Archive is named after the archived item if it is the only one, otherwise - after the directory.
+     *
+     * @param path     path to directory where archived items are located.
+     * @param names    names of files and directories to be archived, names of directories end with "/".
+     * @param compress false if files should be stored in archive without compression.
+     * @return {@link ResponseEntity} with {@link StreamingResponseBody} writing the archive.
+     */
+    public ResponseEntity<StreamingResponseBody> downloadArchive(String path, List<String> names, boolean compress) {
+        ArchiveWriter archiveWriter = fileService.downloadArchive(path, names, compress);
+        String name = names.size() == 1 ? names.get(0) : FilePathUtil.getName(path);
+        if (name.endsWith("/")) {
+            name = name.substring(0, name.length() - 1);
+        }
+        String archiveName = (name.isEmpty() ? DEFAULT_ARCHIVE_NAME : name) + ".zip";
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=" + encodeFileName(archiveName));
+        headers.setContentType(ZIP_MEDIA_TYPE);
+        return ResponseEntity.status(HttpStatus.OK)
+                .headers(headers)
+                .body(archiveWriter::writeTo);
+    }
+
+    /**
+     * Method builds "multipart/byteranges" response. Each part is read from storage with a separate request.
+     *
+     * @param path            path to directory where required file is located.
+     * @param file            name of the file.
+     * @param contentEncoding content coding the file is stored with.
+     * @param ranges          satisfiable ranges.
+     * @param size            size of the file.
+     * @param headers         response headers.
+     * @return {@link ResponseEntity} with "206 Partial Content" status.
+     */
+    private ResponseEntity<StreamingResponseBody> multipartResponse(String path,
+                                                                    String file,
+                                                                    String contentEncoding,
+                                                                    List<ByteRange> ranges,
+                                                                    long size,
+                                                                    HttpHeaders headers) {
+        String boundary = MimeTypeUtils.generateMultipartBoundaryString();
+        List<byte[]> partHeaders = new ArrayList<>();
+        long contentLength = 0;
+
+        for (ByteRange range : ranges) {
+            byte[] partHeader = (CRLF + "--" + boundary + CRLF
+                    + HttpHeaders.CONTENT_TYPE + ": " + MediaType.APPLICATION_OCTET_STREAM_VALUE + CRLF
+                    + HttpHeaders.CONTENT_RANGE + ": " + range.contentRange(size) + CRLF
+                    + CRLF).getBytes(StandardCharsets.US_ASCII);
+            partHeaders.add(partHeader);
+            contentLength += partHeader.length + range.length();
+        }
+        byte[] closingBoundary = (CRLF + "--" + boundary + "--" + CRLF).getBytes(StandardCharsets.US_ASCII);
+        contentLength += closingBoundary.length;
+
+        headers.set(HttpHeaders.CONTENT_TYPE, "multipart/byteranges; boundary=" + boundary);
+        headers.setContentLength(contentLength);
+
+        return ResponseEntity.status(HttpStatus.PARTIAL_CONTENT)
+                .headers(headers)
+                .body(outputStream -> {
+                    for (int i = 0; i < ranges.size(); i++) {
+                        ByteRange range = ranges.get(i);
+                        outputStream.write(partHeaders.get(i));
+                        try (InputStream inputStream =
+                                     fileService.downloadFile(path, file, contentEncoding, range.start(),
+                                             range.length())) {
+                            inputStream.transferTo(outputStream);
+                        }
+                    }
+                    outputStream.write(closingBoundary);
+                });
+    }
+
+    /**
+     * Method retrieves ranges requested by the client.
+     * Ranges are ignored (and the whole file should be sent) if "Range" header is absent or malformed,
+     * or if "If-Range" header doesn't match current validator of the file.
+     *
+     * @param requestHeaders headers of the download request.
+     * @param objectInfo     metadata of the file.
+     * @return list of requested ranges or empty list if the whole file should be sent.
+     */
+    private List<HttpRange> getRequestedRanges(HttpHeaders requestHeaders, ObjectInfo objectInfo) {
+        String range = requestHeaders.getFirst(HttpHeaders.RANGE);
+        if (range == null || !range.startsWith(BYTES_UNIT + "=")) {
+            return Collections.emptyList();
+        }
+        if (!isIfRangeMatched(requestHeaders, objectInfo)) {
+            return Collections.emptyList();
+        }
+        try {
+            return HttpRange.parseRanges(range);
+        } catch (IllegalArgumentException e) {
+            return Collections.emptyList();
+        }
+    }
+
+    /**
+     * Method evaluates "If-None-Match" and "If-Modified-Since" preconditions. "If-Modified-Since" is ignored
+     * if "If-None-Match" is present. Entity tags are compared using weak comparison with tags of both
+     * representations of the file, dates are compared with one second precision.
+     *
+     * @param requestHeaders headers of the download request.
+     * @param objectInfo     metadata of the file.
+     * @return true if the client has current version of the file and "304 Not Modified" should be sent.
+     */
+    private boolean isNotModified(HttpHeaders requestHeaders, ObjectInfo objectInfo) {
+        List<String> ifNoneMatch = requestHeaders.getOrEmpty(HttpHeaders.IF_NONE_MATCH);
+        if (!ifNoneMatch.isEmpty()) {
+            List<String> etags = getETags(objectInfo);
+            for (String value : ifNoneMatch) {
+                for (String tag : value.split(",")) {
+                    tag = tag.trim();
+                    if (tag.equals(ANY_ETAG) || etags.contains(stripWeakPrefix(tag))) {
+                        return true;
+                    }
+                }
+            }
+            return false;
+        }
+        if (objectInfo.getLastModified() == null) {
+            return false;
+        }
+        try {
+            long ifModifiedSince = requestHeaders.getIfModifiedSince();
+            return ifModifiedSince >= 0 && objectInfo.getLastModified().toEpochSecond() * 1000 <= ifModifiedSince;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Method checks "If-Range" precondition. Entity tags are compared using strong comparison with tags
+     * of both representations of the file, dates must exactly match last modification time of the file.
+     *
+     * @param requestHeaders headers of the download request.
+     * @param objectInfo     metadata of the file.
+     * @return true if "If-Range" header is absent or matches the file.
+     */
+    private boolean isIfRangeMatched(HttpHeaders requestHeaders, ObjectInfo objectInfo) {
+        String ifRange = requestHeaders.getFirst(HttpHeaders.IF_RANGE);
+        if (ifRange == null) {
+            return true;
+        }
+        if (ifRange.startsWith("\"") || ifRange.startsWith("W/")) {
+            return getETags(objectInfo).contains(ifRange);
+        }
+        try {
+            long ifRangeDate = requestHeaders.getFirstDate(HttpHeaders.IF_RANGE);
+            return objectInfo.getLastModified() != null
+                    && objectInfo.getLastModified().toEpochSecond() * 1000 == ifRangeDate;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Method checks if the client accepts content coding according to "Accept-Encoding" header.
+     * Coding is accepted if it is listed with non-zero quality value.
+     *
+     * @param requestHeaders headers of the download request.
+     * @param contentEncoding content coding of the file.
+     * @return true if the file may be sent encoded.
+     */
+    private boolean isEncodingAccepted(HttpHeaders requestHeaders, String contentEncoding) {
+        for (String acceptEncoding : requestHeaders.getOrEmpty(HttpHeaders.ACCEPT_ENCODING)) {
+            for (String coding : acceptEncoding.split(",")) {
+                String[] parameters = coding.split(";");
+                if (!parameters[0].trim().equalsIgnoreCase(contentEncoding)) {
+                    continue;
+                }
+                for (int i = 1; i < parameters.length; i++) {
+                    String parameter = parameters[i].trim();
+                    if (parameter.startsWith("q=") && parameter.substring(2).matches("0(\\.0{0,3})?")) {
+                        return false;
+                    }
+                }
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Method filters out ranges which can't be satisfied for the file of specified size.
+     *
+     * @param requestedRanges ranges requested by the client.
+     * @param size            size of the file.
+     * @return list of satisfiable ranges in the order they were requested.
+     */
+    private List<ByteRange> getSatisfiableRanges(List<HttpRange> requestedRanges, long size) {
+        List<ByteRange> ranges = new ArrayList<>();
+        for (HttpRange requestedRange : requestedRanges) {
+            if (size == 0) {
+                break;
+            }
+            long start = requestedRange.getRangeStart(size);
+            long end = requestedRange.getRangeEnd(size);
+            if (start < size && start <= end) {
+                ranges.add(new ByteRange(start, end));
+            }
+        }
+        return ranges;
+    }
+
+    private String getETag(ObjectInfo objectInfo) {
+        return "\"" + objectInfo.getEtag() + "\"";
+    }
+
+    private String getEncodedETag(ObjectInfo objectInfo) {
+        return "\"" + objectInfo.getEtag() + "-" + objectInfo.getContentEncoding() + "\"";
+    }
+
+    /**
+     * Method returns entity tags of all representations of the file.
+     */
+    private List<String> getETags(ObjectInfo objectInfo) {
+        return objectInfo.getContentEncoding() == null
+                ? List.of(getETag(objectInfo))
+                : List.of(getETag(objectInfo), getEncodedETag(objectInfo));
+    }
+
+    private String stripWeakPrefix(String etag) {
+        return etag.startsWith(WEAK_ETAG_PREFIX) ? etag.substring(WEAK_ETAG_PREFIX.length()) : etag;
+    }
+
+    private String encodeFileName(String file) {
+        return URLEncoder.encode(file, StandardCharsets.UTF_8)
+                .replace("+", "%20");
+    }
+
+    /**
+     * Satisfiable byte range with inclusive bounds.
+     */
+    private record ByteRange(long start, long end) {
+
+        long length() {
+            return end - start + 1;
+        }
+
+        String contentRange(long size) {
+            return BYTES_UNIT + " " + start + "-" + end + "/" + size;
+        }
+    }
+}
@@ -9,9 +9,15 @@ import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.servlet.mvc.support.RedirectAttributes;
+import ru.borshchevskiy.filestorage.exception.InvalidChunkException;
+import ru.borshchevskiy.filestorage.exception.LengthRequiredException;
 import ru.borshchevskiy.filestorage.exception.MultipartProcessingException;
 import ru.borshchevskiy.filestorage.exception.NotMultipartRequestException;
+import ru.borshchevskiy.filestorage.exception.QuotaExceededException;
+import ru.borshchevskiy.filestorage.exception.ResourceNotFoundException;
+import ru.borshchevskiy.filestorage.exception.UnsupportedArchiveException;
 import ru.borshchevskiy.filestorage.exception.repository.MinioRepositoryException;
+import ru.borshchevskiy.filestorage.exception.repository.StorageUnavailableException;
 import ru.borshchevskiy.filestorage.web.controllers.DirectoriesController;
 import ru.borshchevskiy.filestorage.web.controllers.FilesController;
 
@@ -33,6 +39,24 @@ public class FilesExceptionHandler {
         return "errors/error500";
     }
 
+    @ExceptionHandler(StorageUnavailableException.class)
+    @ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+    public String handleStorageUnavailableException(StorageUnavailableException exception,
+                                                    Model model) {
+        model.addAttribute("exceptionMessages", List.of(exception.getMessage()));
+        log.error("Storage is unavailable. " + exception.getMessage());
+        return "errors/error500";
+    }
+
+    @ExceptionHandler(ResourceNotFoundException.class)
+    @ResponseStatus(HttpStatus.NOT_FOUND)
+    public String handleResourceNotFoundException(ResourceNotFoundException exception,
+                                                  Model model) {
+        model.addAttribute("exceptionMessages", List.of(exception.getMessage()));
+        log.error("Resource not found. " + exception.getMessage());
+        return "errors/error400";
+    }
+
     @ExceptionHandler(NotMultipartRequestException.class)
     @ResponseStatus(HttpStatus.BAD_REQUEST)
     public String handleNotMultipartRequestException(NotMultipartRequestException exception,
@@ -51,6 +75,42 @@ public class FilesExceptionHandler {
         return "errors/error400";
     }
 
+    @ExceptionHandler(LengthRequiredException.class)
+    @ResponseStatus(HttpStatus.LENGTH_REQUIRED)
+    public String handleLengthRequiredException(LengthRequiredException exception,
+                                                Model model) {
+        model.addAttribute("exceptionMessages", List.of(exception.getMessage()));
+        log.error("Content length required. " + exception.getMessage());
+        return "errors/error400";
+    }
+
+    @ExceptionHandler(QuotaExceededException.class)
+    @ResponseStatus(HttpStatus.PAYLOAD_TOO_LARGE)
+    public String handleQuotaExceededException(QuotaExceededException exception,
+                                               Model model) {
+        model.addAttribute("exceptionMessages", List.of(exception.getMessage()));
+        log.error("Quota exceeded. " + exception.getMessage());
+        return "errors/error400";
+    }
+
+    @ExceptionHandler(UnsupportedArchiveException.class)
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    public String handleUnsupportedArchiveException(UnsupportedArchiveException exception,
+                                                    Model model) {
+        model.addAttribute("exceptionMessages", List.of(exception.getMessage()));
+        log.error("Unsupported archive. " + exception.getMessage());
+        return "errors/error400";
+    }
+
+    @ExceptionHandler(InvalidChunkException.class)
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    public String handleInvalidChunkException(InvalidChunkException exception,
+                                              Model model) {
+        model.addAttribute("exceptionMessages", List.of(exception.getMessage()));
+        log.error("Invalid chunk. " + exception.getMessage());
+        return "errors/error400";
+    }
+
     @ExceptionHandler(ConstraintViolationException.class)
     @ResponseStatus(HttpStatus.BAD_REQUEST)
     public String handleConstraintViolationException(ConstraintViolationException exception,
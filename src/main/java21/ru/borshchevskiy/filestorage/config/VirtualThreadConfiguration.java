@@ -0,0 +1,68 @@
+package ru.borshchevskiy.filestorage.config;
+
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.support.TaskExecutorAdapter;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.borshchevskiy.filestorage.config.properties.VirtualThreadProperties;
+
+import java.util.concurrent.Executors;
+
+/**
+ * Configuration running request handling and storage operations on virtual threads,
+ * see {@link VirtualThreadProperties}.
+ * <p>
+ * Tomcat handles every request on a new virtual thread, so number of concurrent requests is not bounded
+ * by worker pool and slow clients of large downloads don't hold platform threads. {@link StreamingResponseBody}s
+ * are written on virtual threads as well. Thread pools performing storage operations in background keep
+ * their sizes, which bound load on storage, but create virtual threads, see {@link ExecutorConfiguration}.
+ * <p>
+ * Virtual threads must not block inside synchronized sections, because then they pin their carrier threads.
+ * On the storage path, requests are sent by OkHttp dispatcher threads and virtual threads only wait for
+ * their futures. Responses are read without holding monitors: compressed content is decoded by
+ * {@link ru.borshchevskiy.filestorage.repository.compression.DecompressingInputStream} rather than by
+ * Zstandard's synchronized stream, and circuit breaker state is guarded by a lock.
+ * Remaining pinning is reported with "-Djdk.tracePinnedThreads=short" option, which is set
+ * for "spring-boot:run" goal by "jdk21" Maven profile.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "app.virtual-threads", name = "enabled", havingValue = "true")
+public class VirtualThreadConfiguration implements WebMvcConfigurer {
+
+    @Bean
+    public TomcatProtocolHandlerCustomizer<?> virtualThreadProtocolHandlerCustomizer() {
+        return protocolHandler -> protocolHandler.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+    }
+
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        configurer.setTaskExecutor(new TaskExecutorAdapter(Executors.newVirtualThreadPerTaskExecutor()));
+    }
+
+    /**
+     * Post processor making thread pools create virtual threads named after their prefixes.
+     * Declared static, so it is registered before executors are created.
+     *
+     * @return {@link BeanPostProcessor}.
+     */
+    @Bean
+    public static BeanPostProcessor virtualThreadPoolPostProcessor() {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessBeforeInitialization(Object bean, String beanName) {
+                if (bean instanceof ThreadPoolTaskExecutor executor) {
+                    executor.setThreadFactory(Thread.ofVirtual()
+                            .name(executor.getThreadNamePrefix(), 0)
+                            .factory());
+                }
+                return bean;
+            }
+        };
+    }
+}
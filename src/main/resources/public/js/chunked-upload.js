@@ -0,0 +1,154 @@
+// Resumable chunked uploads, see FilesController#createUploadSession.
+// Every file is split into chunks of the size returned by the server, chunks are sent concurrently.
+// If some chunks fail, state of the upload is requested and only the chunks which the server hasn't received
+// are sent again.
+
+const UPLOADS_URL = '/files/uploads';
+const FILE_UPLOAD_CONCURRENCY = 2;
+const CHUNK_UPLOAD_CONCURRENCY = 4;
+const CHUNK_UPLOAD_ATTEMPTS = 3;
+
+// Error of a request rejected by the server, response is shown to the user as is.
+class UploadError extends Error {
+    constructor(response) {
+        super('Upload request failed with status ' + response.status);
+        this.response = response;
+    }
+}
+
+function uploadRequestOptions(method, body) {
+    const headers = new Headers();
+    headers.set(header, token);
+    return {
+        method: method,
+        body: body,
+        headers: headers,
+        credentials: 'include',
+    };
+}
+
+async function sendUploadRequest(url, method, body) {
+    const response = await fetch(url, uploadRequestOptions(method, body));
+    if (!response.ok) {
+        throw new UploadError(response);
+    }
+    return response;
+}
+
+// Calls task for every item, at most concurrency tasks run at the same time.
+// Returns items whose tasks failed.
+async function runBounded(items, concurrency, task) {
+    const failed = [];
+    let next = 0;
+
+    async function worker() {
+        while (next < items.length) {
+            const item = items[next++];
+            try {
+                await task(item);
+            } catch (error) {
+                failed.push(item);
+            }
+        }
+    }
+
+    const workers = [];
+    for (let i = 0; i < Math.min(concurrency, items.length); i++) {
+        workers.push(worker());
+    }
+    await Promise.all(workers);
+    return failed;
+}
+
+async function createUploadSession(path, file, name) {
+    const params = new URLSearchParams({path: path, name: name, size: file.size});
+    const response = await sendUploadRequest(UPLOADS_URL + '?' + params, 'POST');
+    return response.json();
+}
+
+async function getMissingChunks(session) {
+    const response = await sendUploadRequest(UPLOADS_URL + '/' + session.id, 'GET');
+    const received = new Set((await response.json()).receivedChunks);
+    return [...Array(session.chunkCount).keys()].filter(index => !received.has(index));
+}
+
+function sendChunk(session, file, index) {
+    const start = index * session.chunkSize;
+    const chunk = file.slice(start, Math.min(start + session.chunkSize, file.size));
+    return sendUploadRequest(UPLOADS_URL + '/' + session.id + '/chunks/' + index, 'PUT', chunk);
+}
+
+function completeUpload(session) {
+    return sendUploadRequest(UPLOADS_URL + '/' + session.id + '/complete', 'POST');
+}
+
+async function abortUpload(session) {
+    try {
+        await sendUploadRequest(UPLOADS_URL + '/' + session.id, 'DELETE');
+    } catch (error) {
+        // Session is aborted by the server after timeout anyway.
+    }
+}
+
+// Uploads the file to the directory by chunks. Returns response of the completed upload.
+async function uploadFileInChunks(path, file, name) {
+    const session = await createUploadSession(path, file, name);
+    let missing = [...Array(session.chunkCount).keys()];
+    for (let attempt = 1; ; attempt++) {
+        const failed = await runBounded(missing, CHUNK_UPLOAD_CONCURRENCY, index => sendChunk(session, file, index));
+        if (failed.length === 0) {
+            break;
+        }
+        // Failed request may have reached the server, so received chunks are requested.
+        missing = await getMissingChunks(session);
+        if (missing.length === 0) {
+            break;
+        }
+        if (attempt === CHUNK_UPLOAD_ATTEMPTS) {
+            await abortUpload(session);
+            throw new Error('Chunks ' + missing + ' of ' + name + ' are not uploaded.');
+        }
+    }
+    try {
+        return await completeUpload(session);
+    } catch (error) {
+        await abortUpload(session);
+        throw error;
+    }
+}
+
+// Uploads the files to the directory, upload is a function uploading a single file.
+// Returns response of the last completed upload. Error of the first failed file is thrown
+// after all files are processed.
+async function uploadFiles(path, files, upload) {
+    let lastResponse = null;
+    let firstError = null;
+    await runBounded(files, FILE_UPLOAD_CONCURRENCY, async file => {
+        try {
+            lastResponse = await upload(path, file);
+        } catch (error) {
+            firstError = firstError || error;
+            throw error;
+        }
+    });
+    if (firstError) {
+        throw firstError;
+    }
+    return lastResponse;
+}
+
+// Shows the error to the user, errors rejected by the server are shown as returned.
+async function handleUploadError(error, messagePlaceholder, message) {
+    if (error instanceof UploadError) {
+        await handleFormSubmitResponse(error.response);
+        return;
+    }
+    const wrapper = document.createElement('div');
+    wrapper.innerHTML = [
+        '<div class="alert alert-danger alert-dismissible" role="alert">' +
+        '   <div>' + message + '</div>' +
+        '   <button type="button" class="btn-close" data-bs-dismiss="alert" aria-label="Close"></button>' +
+        '</div>'
+    ].join('');
+    messagePlaceholder.append(wrapper);
+}
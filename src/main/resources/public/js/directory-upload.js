@@ -63,32 +63,19 @@ async function handleDirSubmit(event) {
     disableDirInputElements();
 
     const form = event.currentTarget;
-    const url = new URL(form.action);
-    const formData = new FormData(form);
-    const headers = new Headers();
-
-    headers.set(header, token);
-
-    const fetchOptions = {
-        method: form.method,
-        body: formData,
-        headers: headers,
-        credentials: 'include',
-    };
+    const path = new URL(form.action).searchParams.get('path') || '';
 
     try {
-        let response = await fetch(url, fetchOptions);
-        await handleFormSubmitResponse(response);
+        // Files of the folder are named by their paths relative to the selected directory.
+        let response = await uploadFiles(path, [...dirInput.files],
+            (path, file) => uploadFileInChunks(path, file, file.webkitRelativePath));
+        if (response) {
+            await handleFormSubmitResponse(response);
+        }
     } catch (error) {
         const messagePlaceholder = document.getElementById('dirUploadResultMessagePlaceholder');
-        const wrapper = document.createElement('div');
-        wrapper.innerHTML = [
-            '<div class="alert alert-danger alert-dismissible" role="alert">' +
-            '   <div>"Error while uploading one of the files. You might be exceeding file size limit</div>' +
-            '   <button type="button" class="btn-close" data-bs-dismiss="alert" aria-label="Close"></button>' +
-            '</div>'
-        ].join('');
-        messagePlaceholder.append(wrapper);
+        await handleUploadError(error, messagePlaceholder,
+            'Error while uploading one of the files. Please, try again.');
     }
     removeDirNames();
     enableDirInputElements();
@@ -48,6 +48,30 @@ function enableFilesInputElements() {
     filesSpinner.setAttribute('hidden', '');
 }
 
+// Uploads the file directly to storage by presigned URL, see FilesController#createDirectUploadSession.
+// If storage can't be reached from the browser, the file is uploaded by chunks through the application.
+async function uploadFileDirectly(path, file, name) {
+    const params = new URLSearchParams({path: path, name: name, size: file.size});
+    const response = await sendUploadRequest(UPLOADS_URL + '/direct?' + params, 'POST');
+    const session = await response.json();
+    try {
+        // Presigned URL authorizes the request, so no credentials are sent to storage.
+        const storageResponse = await fetch(session.uploadUrl, {method: 'PUT', body: file});
+        if (!storageResponse.ok) {
+            throw new Error('Storage rejected the file with status ' + storageResponse.status);
+        }
+    } catch (error) {
+        await abortUpload(session);
+        return uploadFileInChunks(path, file, name);
+    }
+    try {
+        return await completeUpload(session);
+    } catch (error) {
+        await abortUpload(session);
+        throw error;
+    }
+}
+
 async function handleFilesSubmit(event) {
     event.preventDefault();
     const messagePlaceholder = document.getElementById('uploadResultMessagePlaceholder');
@@ -55,31 +79,18 @@ async function handleFilesSubmit(event) {
     disableFilesInputElements();
 
     const form = event.currentTarget;
-    const url = new URL(form.action);
-    const formData = new FormData(form);
-    const headers = new Headers();
-
-    headers.set(header, token);
-    const fetchOptions = {
-        method: form.method,
-        body: formData,
-        headers: headers,
-        credentials: 'include',
-    };
+    const path = new URL(form.action).searchParams.get('path') || '';
 
     try {
-        let response = await fetch(url, fetchOptions);
-        await handleFormSubmitResponse(response);
+        const upload = form.dataset.directUpload === 'true' ? uploadFileDirectly : uploadFileInChunks;
+        let response = await uploadFiles(path, [...filesInput.files],
+            (path, file) => upload(path, file, file.name));
+        if (response) {
+            await handleFormSubmitResponse(response);
+        }
     } catch (error) {
-        const messagePlaceholder = document.getElementById('uploadResultMessagePlaceholder');
-        const wrapper = document.createElement('div');
-        wrapper.innerHTML = [
-            '<div class="alert alert-danger alert-dismissible" role="alert">' +
-            '   <div>"Error while uploading file. You might be exceeding file size limit</div>' +
-            '   <button type="button" class="btn-close" data-bs-dismiss="alert" aria-label="Close"></button>' +
-            '</div>'
-        ].join('');
-        messagePlaceholder.append(wrapper);
+        await handleUploadError(error, messagePlaceholder,
+            'Error while uploading file. Please, try again.');
     }
     removeFileNames();
     enableFilesInputElements();
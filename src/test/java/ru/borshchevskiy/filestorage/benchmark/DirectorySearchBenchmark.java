@@ -0,0 +1,95 @@
+package ru.borshchevskiy.filestorage.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import ru.borshchevskiy.filestorage.dto.file.FileItemDto;
+import ru.borshchevskiy.filestorage.service.search.DirectoryMatcher;
+import ru.borshchevskiy.filestorage.util.FilePathUtil;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares matching of directories by splitting every path (previous implementation of
+ * {@link ru.borshchevskiy.filestorage.service.impl.SearchServiceImpl} search) with {@link DirectoryMatcher}.
+ * <p>
+ * Paths are 100 000 directory paths of a tree with 3-6 levels, so most directories are shared by many paths.
+ * Run with {@link #main(String[])}, allocation rate per operation is reported by "gc.alloc.rate.norm".
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DirectorySearchBenchmark {
+
+    private static final int PATHS = 100_000;
+
+    @Param({"1", "dir-7"})
+    private String query;
+    private List<String> paths;
+
+    @Setup
+    public void generatePaths() {
+        Random random = new Random(42);
+        paths = new ArrayList<>(PATHS);
+        for (int i = 0; i < PATHS; i++) {
+            StringBuilder path = new StringBuilder();
+            int depth = 3 + random.nextInt(4);
+            for (int level = 0; level < depth; level++) {
+                path.append("dir-").append(random.nextInt(level < 2 ? 10 : 30)).append('/');
+            }
+            paths.add(path.toString());
+        }
+    }
+
+    @Benchmark
+    public Set<FileItemDto> splitPaths() {
+        Set<FileItemDto> directories = new HashSet<>();
+        for (String path : new HashSet<>(paths)) {
+            StringBuilder directoryPath = new StringBuilder();
+            for (String pathPart : path.split("/")) {
+                directoryPath.append(pathPart).append("/");
+                if (pathPart.contains(query)) {
+                    directories.add(toDirectory(directoryPath.toString()));
+                }
+            }
+        }
+        return directories;
+    }
+
+    @Benchmark
+    public List<FileItemDto> trie() {
+        List<FileItemDto> directories = new ArrayList<>();
+        for (String fullName : DirectoryMatcher.findDirectories(paths, query)) {
+            directories.add(toDirectory(fullName));
+        }
+        return directories;
+    }
+
+    private static FileItemDto toDirectory(String fullName) {
+        FileItemDto directory = new FileItemDto();
+        directory.setFullName(fullName);
+        directory.setName(FilePathUtil.getName(fullName));
+        directory.setDirectory(true);
+        directory.setSize(0L);
+        directory.setViewSize("");
+        return directory;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(DirectorySearchBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build())
+                .run();
+    }
+}
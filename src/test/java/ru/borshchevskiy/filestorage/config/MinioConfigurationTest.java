@@ -0,0 +1,70 @@
+package ru.borshchevskiy.filestorage.config;
+
+import io.minio.MinioClient;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import ru.borshchevskiy.filestorage.config.properties.MinioProperties;
+import ru.borshchevskiy.filestorage.repository.client.MultipartMinioClient;
+import ru.borshchevskiy.filestorage.repository.client.PresigningMinioClient;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MinioConfigurationTest {
+
+    private MinioConfiguration minioConfiguration;
+
+    @BeforeEach
+    public void createConfiguration() {
+        MinioProperties minioProperties = new MinioProperties();
+        minioProperties.setUrl("http://localhost:9000");
+        minioProperties.setUser("user");
+        minioProperties.setPassword("password");
+        MinioProperties.Http http = minioProperties.getHttp();
+        http.setMaxRequests(16);
+        http.setMaxRequestsPerHost(8);
+        http.setConnectTimeout(Duration.ofSeconds(3));
+        http.setReadTimeout(Duration.ofSeconds(30));
+        http.setWriteTimeout(Duration.ofSeconds(40));
+        minioConfiguration = new MinioConfiguration(minioProperties);
+    }
+
+    @Test
+    @DisplayName("Test minioHttpClient - timeouts and dispatcher limits are taken from properties")
+    public void minioHttpClient() {
+        OkHttpClient httpClient = minioConfiguration.minioHttpClient();
+
+        assertThat(httpClient.connectTimeoutMillis()).isEqualTo(3000);
+        assertThat(httpClient.readTimeoutMillis()).isEqualTo(30000);
+        assertThat(httpClient.writeTimeoutMillis()).isEqualTo(40000);
+        assertThat(httpClient.dispatcher().getMaxRequests()).isEqualTo(16);
+        assertThat(httpClient.dispatcher().getMaxRequestsPerHost()).isEqualTo(8);
+        assertThat(httpClient.protocols()).isEqualTo(List.of(Protocol.HTTP_1_1));
+    }
+
+    @Test
+    @DisplayName("Test Minio clients - all clients share the same HTTP client, its connection pool and dispatcher")
+    public void clientsShareHttpClient() {
+        OkHttpClient httpClient = minioConfiguration.minioHttpClient();
+
+        MinioClient minioClient = minioConfiguration.minioClient(httpClient);
+        MultipartMinioClient multipartMinioClient = minioConfiguration.multipartMinioClient(httpClient);
+        PresigningMinioClient presigningMinioClient = minioConfiguration.presigningMinioClient(httpClient);
+
+        assertThat(getHttpClient(ReflectionTestUtils.getField(minioClient, "asyncClient"))).isSameAs(httpClient);
+        assertThat(getHttpClient(multipartMinioClient)).isSameAs(httpClient);
+        MinioClient presigningClient = (MinioClient) ReflectionTestUtils.getField(presigningMinioClient, "client");
+        assertThat(getHttpClient(ReflectionTestUtils.getField(presigningClient, "asyncClient")))
+                .isSameAs(httpClient);
+    }
+
+    private OkHttpClient getHttpClient(Object client) {
+        return (OkHttpClient) ReflectionTestUtils.getField(client, "httpClient");
+    }
+}
@@ -42,7 +42,7 @@ public abstract class IntegrationTestBase {
     }
 
     @DynamicPropertySource
-    static void properties(DynamicPropertyRegistry registry) {
+    protected static void properties(DynamicPropertyRegistry registry) {
         registry.add("spring.datasource.url", postgreSQLContainer::getJdbcUrl);
         registry.add("spring.datasource.username", postgreSQLContainer::getUsername);
         registry.add("spring.datasource.password", postgreSQLContainer::getPassword);
@@ -0,0 +1,121 @@
+package ru.borshchevskiy.filestorage.repository.cache;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import ru.borshchevskiy.filestorage.config.properties.DiskCacheProperties;
+import ru.borshchevskiy.filestorage.repository.MinioRepository;
+import ru.borshchevskiy.filestorage.repository.ObjectInfo;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class DiskCacheMinioRepositoryTest {
+
+    private static final String PATH = "user-1-files/file.txt";
+    private static final String CONTENT = "0123456789";
+
+    @Mock
+    private MinioRepository delegate;
+    @TempDir
+    private Path directory;
+    private DiskCacheMinioRepository repository;
+
+    @BeforeEach
+    public void createRepository() {
+        repository = new DiskCacheMinioRepository(delegate, properties(), new SimpleMeterRegistry());
+    }
+
+    @Test
+    @DisplayName("Test getFile twice - second request served from cache")
+    public void getFileFromCache() throws IOException {
+        doReturn(objectInfo("etag")).when(delegate).statFile(PATH);
+        doReturn(new ByteArrayInputStream(CONTENT.getBytes())).when(delegate).getFile(PATH);
+
+        assertThat(read(repository.getFile(PATH))).isEqualTo(CONTENT);
+        assertThat(read(repository.getFile(PATH))).isEqualTo(CONTENT);
+        assertThat(read(repository.getFile(PATH, null, 2, 4))).isEqualTo("2345");
+
+        verify(delegate, times(1)).getFile(PATH);
+        verify(delegate, never()).getFile(anyString(), any(), anyLong(), anyLong());
+    }
+
+    @Test
+    @DisplayName("Test getFile after object changed - cached copy with outdated ETag is not served")
+    public void getChangedFile() throws IOException {
+        doReturn(objectInfo("etag"), objectInfo("new-etag")).when(delegate).statFile(PATH);
+        doReturn(new ByteArrayInputStream(CONTENT.getBytes()), new ByteArrayInputStream("changed".getBytes()))
+                .when(delegate).getFile(PATH);
+
+        assertThat(read(repository.getFile(PATH))).isEqualTo(CONTENT);
+        assertThat(read(repository.getFile(PATH))).isEqualTo("changed");
+
+        verify(delegate, times(2)).getFile(PATH);
+    }
+
+    @Test
+    @DisplayName("Test cache restart - files left by cache are removed, other files in directory are kept")
+    public void prepareDirectory() throws IOException {
+        doReturn(objectInfo("etag")).when(delegate).statFile(PATH);
+        doReturn(new ByteArrayInputStream(CONTENT.getBytes())).when(delegate).getFile(PATH);
+        read(repository.getFile(PATH));
+        Path foreignFile = Files.writeString(directory.resolve("report.txt"), CONTENT);
+
+        new DiskCacheMinioRepository(delegate, properties(), new SimpleMeterRegistry());
+
+        try (Stream<Path> files = Files.list(directory)) {
+            assertThat(files).containsExactly(foreignFile);
+        }
+    }
+
+    @Test
+    @DisplayName("Test getFile after deleteFile - cached copy is invalidated")
+    public void getDeletedFile() throws IOException {
+        doReturn(objectInfo("etag")).when(delegate).statFile(PATH);
+        doAnswer(invocation -> new ByteArrayInputStream(CONTENT.getBytes())).when(delegate).getFile(PATH);
+
+        read(repository.getFile(PATH));
+        repository.deleteFile(PATH);
+        read(repository.getFile(PATH));
+
+        verify(delegate, times(2)).getFile(PATH);
+    }
+
+    private ObjectInfo objectInfo(String etag) {
+        ObjectInfo objectInfo = new ObjectInfo();
+        objectInfo.setPath(PATH);
+        objectInfo.setEtag(etag);
+        objectInfo.setSize(CONTENT.length());
+        return objectInfo;
+    }
+
+    private String read(InputStream inputStream) throws IOException {
+        try (inputStream) {
+            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+            inputStream.transferTo(outputStream);
+            return outputStream.toString(StandardCharsets.UTF_8);
+        }
+    }
+
+    private DiskCacheProperties properties() {
+        DiskCacheProperties properties = new DiskCacheProperties();
+        properties.setEnabled(true);
+        properties.setDirectory(directory.toString());
+        return properties;
+    }
+}
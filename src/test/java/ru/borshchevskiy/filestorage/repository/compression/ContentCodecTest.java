@@ -0,0 +1,114 @@
+package ru.borshchevskiy.filestorage.repository.compression;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import ru.borshchevskiy.filestorage.config.properties.CompressionProperties;
+
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MonitorInfo;
+import java.lang.management.ThreadInfo;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ContentCodecTest {
+
+    private final ContentCodec contentCodec = new ContentCodec(new CompressionProperties());
+
+    @Test
+    @DisplayName("Test isCompressible - text is compressible, random bytes and small files are not")
+    public void isCompressible() {
+        byte[] random = new byte[64 * 1024];
+        new Random(1).nextBytes(random);
+
+        assertThat(contentCodec.isCompressible(text(1000).getBytes(StandardCharsets.UTF_8), false)).isTrue();
+        assertThat(contentCodec.isCompressible(random, false)).isFalse();
+        assertThat(contentCodec.isCompressible("a,b,c\n".getBytes(StandardCharsets.UTF_8), true)).isFalse();
+    }
+
+    @Test
+    @DisplayName("Test compress stream and decode - content is restored, decoded size is counted")
+    public void compressAndDecode() throws IOException {
+        byte[] content = text(50000).getBytes(StandardCharsets.UTF_8);
+
+        byte[] compressed;
+        long decodedSize;
+        try (CompressingInputStream compressing = contentCodec.compress(new ByteArrayInputStream(content))) {
+            compressed = compressing.readAllBytes();
+            decodedSize = compressing.getDecodedSize();
+        }
+
+        assertThat(compressed.length).isLessThan(content.length / 2);
+        assertThat(decodedSize).isEqualTo(content.length);
+        try (InputStream decoded = contentCodec.decode(new ByteArrayInputStream(compressed), ContentCodec.ZSTD)) {
+            assertThat(decoded.readAllBytes()).isEqualTo(content);
+        }
+    }
+
+    @Test
+    @DisplayName("Test decode - source is read in small portions without holding any monitor, "
+            + "so virtual threads reading storage responses aren't pinned")
+    public void decodeReadsSourceWithoutMonitors() throws IOException {
+        byte[] content = text(50000).getBytes(StandardCharsets.UTF_8);
+        List<MonitorInfo> lockedMonitors = new ArrayList<>();
+        InputStream source = new ByteArrayInputStream(compress(content)) {
+            @Override
+            public int read(byte[] b, int off, int len) {
+                ThreadInfo threadInfo = ManagementFactory.getThreadMXBean()
+                        .getThreadInfo(new long[]{Thread.currentThread().getId()}, true, false)[0];
+                lockedMonitors.addAll(Arrays.asList(threadInfo.getLockedMonitors()));
+                return super.read(b, off, Math.min(len, 1000));
+            }
+        };
+
+        try (InputStream decoded = contentCodec.decode(source, ContentCodec.ZSTD)) {
+            assertThat(decoded.readAllBytes()).isEqualTo(content);
+        }
+        assertThat(lockedMonitors).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Test decode of truncated content - exception is thrown instead of end of stream")
+    public void decodeTruncated() throws IOException {
+        byte[] compressed = compress(text(50000).getBytes(StandardCharsets.UTF_8));
+        byte[] truncated = Arrays.copyOf(compressed, compressed.length / 2);
+
+        try (InputStream decoded = contentCodec.decode(new ByteArrayInputStream(truncated), ContentCodec.ZSTD)) {
+            assertThatThrownBy(decoded::readAllBytes).isInstanceOf(EOFException.class);
+        }
+    }
+
+    @Test
+    @DisplayName("Test getDecodedSize - metadata keys are read with and without prefix")
+    public void getDecodedSize() {
+        Map<String, String> listed = Map.of("X-Amz-Meta-Content-Codec", "zstd", "X-Amz-Meta-Decoded-Size", "100");
+
+        assertThat(contentCodec.getDecodedSize(contentCodec.getUserMetadata(100L), 10)).isEqualTo(100);
+        assertThat(contentCodec.getDecodedSize(listed, 10)).isEqualTo(100);
+        assertThat(contentCodec.getDecodedSize(Map.of(), 10)).isEqualTo(10);
+    }
+
+    private byte[] compress(byte[] content) throws IOException {
+        try (CompressingInputStream compressing = contentCodec.compress(new ByteArrayInputStream(content))) {
+            return compressing.readAllBytes();
+        }
+    }
+
+    private String text(int lines) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < lines; i++) {
+            text.append("2023-09-01 12:00:00 INFO Request ").append(i).append(" processed\n");
+        }
+        return text.toString();
+    }
+}
@@ -0,0 +1,93 @@
+package ru.borshchevskiy.filestorage.repository.dedup;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import ru.borshchevskiy.filestorage.entity.ContentReference;
+import ru.borshchevskiy.filestorage.repository.ContentBlobRepository;
+import ru.borshchevskiy.filestorage.repository.ContentReferenceRepository;
+
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ContentStoreTest {
+
+    private static final String PATH = "user-1-files/file.txt";
+    private static final String HASH = "new-hash";
+    private static final String PREVIOUS_HASH = "previous-hash";
+
+    @Mock
+    private ContentBlobRepository contentBlobRepository;
+    @Mock
+    private ContentReferenceRepository contentReferenceRepository;
+    @Mock
+    private PlatformTransactionManager transactionManager;
+    private ContentStore contentStore;
+    private final AtomicBoolean inTransaction = new AtomicBoolean();
+
+    @BeforeEach
+    public void createStore() {
+        contentStore = new ContentStore(contentBlobRepository, contentReferenceRepository, transactionManager);
+        lenient().doAnswer(invocation -> {
+            inTransaction.set(true);
+            return null;
+        }).when(transactionManager).getTransaction(any());
+        lenient().doAnswer(invocation -> {
+            inTransaction.set(false);
+            return null;
+        }).when(transactionManager).commit(any());
+    }
+
+    @Test
+    @DisplayName("Test reference - content is referenced before it is stored, storage is called outside "
+            + "of transactions, previous content of the file is released")
+    public void reference() {
+        final ContentReference reference = new ContentReference();
+        reference.setPath(PATH);
+        reference.setHash(PREVIOUS_HASH);
+        doReturn(0).when(contentReferenceRepository).insertIfAbsent(PATH, HASH, 10);
+        doReturn(Optional.of(reference)).when(contentReferenceRepository).findForUpdate(PATH);
+        Runnable storeContent = mock(Runnable.class);
+        doAnswer(invocation -> {
+            assertThat(inTransaction).isFalse();
+            return null;
+        }).when(storeContent).run();
+
+        contentStore.reference(PATH, HASH, 10, storeContent);
+
+        InOrder inOrder = inOrder(contentBlobRepository, transactionManager, storeContent);
+        inOrder.verify(contentBlobRepository).acquire(HASH, 10, 1);
+        inOrder.verify(transactionManager).commit(any());
+        inOrder.verify(storeContent).run();
+        inOrder.verify(contentBlobRepository).release(eq(PREVIOUS_HASH), eq(1L), any());
+        inOrder.verify(transactionManager).commit(any());
+        assertThat(reference.getHash()).isEqualTo(HASH);
+        assertThat(reference.getSize()).isEqualTo(10);
+    }
+
+    @Test
+    @DisplayName("Test reference - reference to the content is released if it can't be stored")
+    public void referenceReleasesContentOnFailure() {
+        Runnable storeContent = mock(Runnable.class);
+        doThrow(new IllegalStateException("Storage failed")).when(storeContent).run();
+
+        assertThatThrownBy(() -> contentStore.reference(PATH, HASH, 10, storeContent))
+                .isInstanceOf(IllegalStateException.class);
+
+        verify(contentBlobRepository).acquire(HASH, 10, 1);
+        verify(contentBlobRepository).release(eq(HASH), eq(1L), any());
+        verifyNoInteractions(contentReferenceRepository);
+    }
+}
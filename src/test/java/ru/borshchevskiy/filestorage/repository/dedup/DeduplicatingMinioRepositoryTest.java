@@ -0,0 +1,121 @@
+package ru.borshchevskiy.filestorage.repository.dedup;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import ru.borshchevskiy.filestorage.config.properties.DedupProperties;
+import ru.borshchevskiy.filestorage.entity.ContentReference;
+import ru.borshchevskiy.filestorage.exception.ResourceNotFoundException;
+import ru.borshchevskiy.filestorage.repository.MinioRepository;
+import ru.borshchevskiy.filestorage.repository.ObjectInfo;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class DeduplicatingMinioRepositoryTest {
+
+    private static final String PATH = "user-1-files/file.txt";
+    private static final String CONTENT = "0123456789";
+    /**
+     * SHA-256 of {@link #CONTENT}.
+     */
+    private static final String HASH = "84d89877f0d4041efb6bf91a16f0248f2fd573e6af05c19f96bedb9f882f7882";
+
+    @Mock
+    private MinioRepository delegate;
+    @Mock
+    private ContentStore contentStore;
+    private DeduplicatingMinioRepository repository;
+
+    @BeforeEach
+    public void createRepository() {
+        repository = new DeduplicatingMinioRepository(delegate, contentStore, new DedupProperties());
+    }
+
+    @Test
+    @DisplayName("Test putFile of new content - content is stored by hash, empty object is written at file's path")
+    public void putNewContent() {
+        doAnswer(invocation -> invocation.getArgument(0, InputStream.class).readAllBytes())
+                .when(delegate).putFile(any(), anyString());
+        doThrow(ResourceNotFoundException.class).when(delegate).statFile("blobs/" + HASH);
+        doAnswer(invocation -> {
+            invocation.getArgument(3, Runnable.class).run();
+            return null;
+        }).when(contentStore).reference(eq(PATH), eq(HASH), eq((long) CONTENT.length()), any());
+
+        repository.putFile(new ByteArrayInputStream(CONTENT.getBytes(StandardCharsets.UTF_8)), PATH);
+
+        ArgumentCaptor<String> tempPath = ArgumentCaptor.forClass(String.class);
+        verify(delegate).putFile(any(), startsWith("blobs/tmp/"));
+        verify(delegate).copyFile(tempPath.capture(), eq("blobs/" + HASH));
+        verify(delegate).putFile(argThat(stream -> stream instanceof ByteArrayInputStream empty && empty.available() == 0),
+                eq(PATH));
+        verify(delegate).deleteFile(tempPath.getValue());
+        assertThat(tempPath.getValue()).startsWith("blobs/tmp/");
+    }
+
+    @Test
+    @DisplayName("Test putFile of stored content - content is not copied again")
+    public void putStoredContent() {
+        doReturn(new ObjectInfo()).when(delegate).statFile("blobs/" + HASH);
+        doAnswer(invocation -> {
+            invocation.getArgument(3, Runnable.class).run();
+            return null;
+        }).when(contentStore).reference(eq(PATH), eq(HASH), eq((long) CONTENT.length()), any());
+        doAnswer(invocation -> invocation.getArgument(0, InputStream.class).readAllBytes())
+                .when(delegate).putFile(any(), anyString());
+
+        repository.putFile(new ByteArrayInputStream(CONTENT.getBytes(StandardCharsets.UTF_8)), PATH);
+
+        verify(delegate, never()).copyFile(anyString(), anyString());
+        verify(delegate).deleteFile(startsWith("blobs/tmp/"));
+    }
+
+    @Test
+    @DisplayName("Test getFile and statFile of file stored by hash - content, its size and coding are returned")
+    public void getReferencedFile() {
+        ContentReference reference = new ContentReference();
+        reference.setPath(PATH);
+        reference.setHash(HASH);
+        reference.setSize(CONTENT.length());
+        doReturn(Optional.of(reference)).when(contentStore).find(PATH);
+        InputStream content = new ByteArrayInputStream(CONTENT.getBytes(StandardCharsets.UTF_8));
+        doReturn(content).when(delegate).getFile("blobs/" + HASH);
+        doReturn(new ObjectInfo()).when(delegate).statFile(PATH);
+        ObjectInfo contentInfo = new ObjectInfo();
+        contentInfo.setContentEncoding("zstd");
+        doReturn(contentInfo).when(delegate).statFile("blobs/" + HASH);
+
+        assertThat(repository.getFile(PATH)).isSameAs(content);
+        ObjectInfo objectInfo = repository.statFile(PATH);
+
+        assertThat(objectInfo.getSize()).isEqualTo(CONTENT.length());
+        assertThat(objectInfo.getEtag()).isEqualTo(HASH);
+        assertThat(objectInfo.getContentEncoding()).isEqualTo("zstd");
+    }
+
+    @Test
+    @DisplayName("Test getFile of file without reference - file's own object is returned")
+    public void getNotReferencedFile() {
+        doReturn(Optional.empty()).when(contentStore).find(PATH);
+        InputStream content = new ByteArrayInputStream(CONTENT.getBytes(StandardCharsets.UTF_8));
+        doReturn(content).when(delegate).getFile(PATH);
+
+        assertThat(repository.getFile(PATH)).isSameAs(content);
+    }
+}
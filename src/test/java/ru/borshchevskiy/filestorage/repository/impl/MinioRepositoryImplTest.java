@@ -0,0 +1,217 @@
+package ru.borshchevskiy.filestorage.repository.impl;
+
+import com.github.luben.zstd.Zstd;
+import com.google.common.collect.Multimap;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.minio.GetObjectResponse;
+import io.minio.ListObjectsV2Response;
+import io.minio.MinioClient;
+import io.minio.ObjectWriteResponse;
+import io.minio.Xml;
+import io.minio.messages.Item;
+import io.minio.messages.ListBucketResultV2;
+import okhttp3.Headers;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.util.unit.DataSize;
+import ru.borshchevskiy.filestorage.config.properties.CompressionProperties;
+import ru.borshchevskiy.filestorage.config.properties.MinioProperties;
+import ru.borshchevskiy.filestorage.exception.repository.GetObjectsListException;
+import ru.borshchevskiy.filestorage.repository.ItemsPage;
+import ru.borshchevskiy.filestorage.repository.client.MultipartMinioClient;
+import ru.borshchevskiy.filestorage.repository.client.PresigningMinioClient;
+import ru.borshchevskiy.filestorage.repository.compression.ContentCodec;
+import ru.borshchevskiy.filestorage.repository.upload.ParallelUploadEngine;
+import ru.borshchevskiy.filestorage.repository.upload.PartBufferPool;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+class MinioRepositoryImplTest {
+
+    private static final String BUCKET = "user-files";
+    private static final String PATH = "user-1-files/";
+
+    @Mock
+    private MinioClient minioClient;
+    @Mock
+    private MultipartMinioClient multipartMinioClient;
+    @Mock
+    private ParallelUploadEngine parallelUploadEngine;
+    @Mock
+    private PresigningMinioClient presigningMinioClient;
+    private MinioRepositoryImpl repository;
+
+    @BeforeEach
+    public void createRepository() {
+        MinioProperties minioProperties = new MinioProperties();
+        minioProperties.setBucket(BUCKET);
+        repository = new MinioRepositoryImpl(minioClient, multipartMinioClient, minioProperties, parallelUploadEngine,
+                presigningMinioClient, new ContentCodec(new CompressionProperties()));
+    }
+
+    @Test
+    @DisplayName("Test getItemsPage - page ending on directory is continued with storage token, "
+            + "directory is not repeated")
+    public void getItemsPage() throws Exception {
+        doReturn(page(true, "token-1", object("user-1-files/a.txt")
+                + prefix("user-1-files/b/")))
+                .when(multipartMinioClient).listObjectsV2Async(eq(BUCKET), isNull(), eq("/"), isNull(), isNull(),
+                        eq(2), eq(PATH), isNull(), eq(false), eq(true), isNull(), isNull());
+        doReturn(page(false, null, object("user-1-files/c.txt")))
+                .when(multipartMinioClient).listObjectsV2Async(eq(BUCKET), isNull(), eq("/"), isNull(), isNull(),
+                        eq(2), eq(PATH), eq("token-1"), eq(false), eq(true), isNull(), isNull());
+
+        ItemsPage first = repository.getItemsPage(PATH, false, null, 2);
+        ItemsPage second = repository.getItemsPage(PATH, false, first.getNextContinuationToken(), 2);
+
+        assertThat(first.getItems()).extracting(Item::objectName)
+                .containsExactly("user-1-files/a.txt", "user-1-files/b/");
+        assertThat(first.getNextContinuationToken()).isEqualTo("token-1");
+        assertThat(second.getItems()).extracting(Item::objectName).containsExactly("user-1-files/c.txt");
+        assertThat(second.hasNext()).isFalse();
+    }
+
+    @Test
+    @DisplayName("Test getItemsPage with failed request - GetObjectsListException is thrown")
+    public void getItemsPageFailed() throws Exception {
+        doReturn(CompletableFuture.failedFuture(new IOException("Connection reset")))
+                .when(multipartMinioClient).listObjectsV2Async(any(), any(), any(), any(), any(), any(), any(),
+                        any(), eq(false), eq(true), any(), any());
+        doThrow(new IOException("Connection refused"))
+                .when(multipartMinioClient).listObjectsV2Async(any(), any(), any(), any(), any(), any(), any(),
+                        eq("token-1"), eq(false), eq(true), any(), any());
+
+        assertThatThrownBy(() -> repository.getItemsPage(PATH, false, null, 2))
+                .isInstanceOf(GetObjectsListException.class)
+                .hasCauseInstanceOf(IOException.class);
+        assertThatThrownBy(() -> repository.getItemsPage(PATH, false, "token-1", 2))
+                .isInstanceOf(GetObjectsListException.class)
+                .hasCauseInstanceOf(IOException.class);
+    }
+
+    @Test
+    @DisplayName("Test getFile by range of compressed file - range past compressed length is read "
+            + "from decompressed content, storage is not requested by range")
+    public void getFileRangeOfCompressedFile() throws Exception {
+        final byte[] content = "0123456789".repeat(1000).getBytes(StandardCharsets.US_ASCII);
+        final byte[] compressed = Zstd.compress(content);
+        final long offset = compressed.length + 100L;
+        doReturn(new GetObjectResponse(Headers.of("x-amz-meta-content-codec", ContentCodec.ZSTD), BUCKET, null,
+                PATH + "a.txt", new ByteArrayInputStream(compressed)))
+                .when(minioClient).getObject(argThat(args -> args != null && args.offset() == null));
+
+        try (InputStream inputStream = repository.getFile(PATH + "a.txt", ContentCodec.ZSTD, offset, 5)) {
+            assertThat(inputStream.readAllBytes()).isEqualTo(
+                    new String(content, StandardCharsets.US_ASCII).substring((int) offset, (int) offset + 5)
+                            .getBytes(StandardCharsets.US_ASCII));
+        }
+        verify(minioClient, never()).getObject(argThat(args -> args != null && args.offset() != null));
+    }
+
+    @Test
+    @DisplayName("Test getFile by range of uncompressed file - only requested bytes are read from storage")
+    public void getFileRange() throws Exception {
+        doReturn(new GetObjectResponse(Headers.of(), BUCKET, null, PATH + "a.txt",
+                new ByteArrayInputStream("2345".getBytes(StandardCharsets.US_ASCII))))
+                .when(minioClient).getObject(argThat(args -> args != null
+                        && Long.valueOf(2).equals(args.offset()) && Long.valueOf(4).equals(args.length())));
+
+        try (InputStream inputStream = repository.getFile(PATH + "a.txt", null, 2, 4)) {
+            assertThat(inputStream.readAllBytes()).isEqualTo("2345".getBytes(StandardCharsets.US_ASCII));
+        }
+    }
+
+    @Test
+    @DisplayName("Test putFile of compressible file - file is compressed into pooled buffers counted "
+            + "by the budget, size of content is stored with the object, buffers are returned to the pool")
+    public void putFileCompressed() throws Exception {
+        final int partSize = 5 * 1024 * 1024;
+        final byte[] content = "0123456789".repeat(200_000).getBytes(StandardCharsets.US_ASCII);
+        MinioProperties minioProperties = new MinioProperties();
+        minioProperties.setBucket(BUCKET);
+        minioProperties.getUpload().setPartSize(partSize);
+        minioProperties.getUpload().setBufferBudget(DataSize.ofBytes(partSize * 2L));
+        CompressionProperties compressionProperties = new CompressionProperties();
+        compressionProperties.setEnabled(true);
+        MeterRegistry meterRegistry = new SimpleMeterRegistry();
+        PartBufferPool partBufferPool = new PartBufferPool(minioProperties, meterRegistry);
+        MinioRepositoryImpl compressingRepository = new MinioRepositoryImpl(minioClient, multipartMinioClient,
+                minioProperties, new ParallelUploadEngine(multipartMinioClient, minioProperties, partBufferPool,
+                meterRegistry), presigningMinioClient, new ContentCodec(compressionProperties));
+        AtomicReference<byte[]> uploaded = new AtomicReference<>();
+        AtomicReference<Multimap<String, String>> headers = new AtomicReference<>();
+        AtomicReference<Double> buffersUsed = new AtomicReference<>();
+        doAnswer(invocation -> {
+            byte[] data = invocation.getArgument(3);
+            uploaded.set(Arrays.copyOf(data, (int) invocation.<Long>getArgument(4).longValue()));
+            headers.set(invocation.getArgument(5));
+            buffersUsed.set(meterRegistry.get("storage.upload.buffers.used").gauge().value());
+            return CompletableFuture.completedFuture(new ObjectWriteResponse(Headers.of(), BUCKET, null,
+                    PATH + "a.txt", "etag", null));
+        }).when(multipartMinioClient).putObjectAsync(eq(BUCKET), isNull(), eq(PATH + "a.txt"), any(), anyLong(),
+                any(), isNull());
+
+        compressingRepository.putFile(new ByteArrayInputStream(content), PATH + "a.txt");
+
+        assertThat(buffersUsed.get()).isEqualTo(partSize);
+        assertThat(meterRegistry.get("storage.upload.buffers.used").gauge().value()).isZero();
+        assertThat(headers.get().get("x-amz-meta-content-codec")).containsExactly(ContentCodec.ZSTD);
+        assertThat(headers.get().get("x-amz-meta-decoded-size")).containsExactly(String.valueOf(content.length));
+        assertThat(Zstd.decompress(uploaded.get(), content.length)).isEqualTo(content);
+        verify(minioClient, never()).copyObject(any());
+    }
+
+    /**
+     * Method creates response of ListObjectsV2 request.
+     *
+     * @param truncated whether more items are available.
+     * @param token     next continuation token.
+     * @param entries   "Contents" and "CommonPrefixes" elements of the response.
+     * @return completed future of the response.
+     */
+    static CompletableFuture<ListObjectsV2Response> page(boolean truncated, String token, String entries)
+            throws Exception {
+        String xml = "<ListBucketResult xmlns=\"http://s3.amazonaws.com/doc/2006-03-01/\">"
+                + "<Name>" + BUCKET + "</Name><Prefix>" + PATH + "</Prefix><Delimiter>/</Delimiter>"
+                + "<IsTruncated>" + truncated + "</IsTruncated>"
+                + (token == null ? "" : "<NextContinuationToken>" + token + "</NextContinuationToken>")
+                + entries
+                + "</ListBucketResult>";
+        ListBucketResultV2 result = Xml.unmarshal(ListBucketResultV2.class, xml);
+        return CompletableFuture.completedFuture(new ListObjectsV2Response(Headers.of(), BUCKET, null, result));
+    }
+
+    static String object(String key) {
+        return "<Contents><Key>" + key + "</Key><LastModified>2023-08-01T10:00:00.000Z</LastModified>"
+                + "<ETag>\"etag\"</ETag><Size>1</Size><StorageClass>STANDARD</StorageClass></Contents>";
+    }
+
+    static String prefix(String prefix) {
+        return "<CommonPrefixes><Prefix>" + prefix + "</Prefix></CommonPrefixes>";
+    }
+}
@@ -0,0 +1,73 @@
+package ru.borshchevskiy.filestorage.repository.resilience;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CircuitBreakerTest {
+
+    private static final Duration OPEN_DURATION = Duration.ofSeconds(30);
+
+    private final AtomicLong clock = new AtomicLong();
+    private CircuitBreaker circuitBreaker;
+
+    @BeforeEach
+    public void createCircuitBreaker() {
+        circuitBreaker = new CircuitBreaker(2, OPEN_DURATION, clock::get);
+    }
+
+    @Test
+    @DisplayName("Test consecutive failures - breaker opens and rejects requests")
+    public void opensAfterConsecutiveFailures() {
+        circuitBreaker.tryAcquirePermission();
+        circuitBreaker.onFailure();
+        assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+
+        circuitBreaker.tryAcquirePermission();
+        circuitBreaker.onFailure();
+
+        assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+        assertThat(circuitBreaker.tryAcquirePermission()).isFalse();
+    }
+
+    @Test
+    @DisplayName("Test open duration expired - single trial request permitted, success closes breaker")
+    public void halfOpenTrialSucceeds() {
+        open();
+        clock.addAndGet(OPEN_DURATION.toNanos());
+
+        assertThat(circuitBreaker.tryAcquirePermission()).isTrue();
+        assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.HALF_OPEN);
+        assertThat(circuitBreaker.tryAcquirePermission()).isFalse();
+
+        circuitBreaker.onSuccess();
+
+        assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+        assertThat(circuitBreaker.tryAcquirePermission()).isTrue();
+    }
+
+    @Test
+    @DisplayName("Test failed trial request - breaker opens again")
+    public void halfOpenTrialFails() {
+        open();
+        clock.addAndGet(OPEN_DURATION.toNanos());
+        circuitBreaker.tryAcquirePermission();
+
+        circuitBreaker.onFailure();
+
+        assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+        assertThat(circuitBreaker.tryAcquirePermission()).isFalse();
+    }
+
+    private void open() {
+        for (int i = 0; i < 2; i++) {
+            circuitBreaker.tryAcquirePermission();
+            circuitBreaker.onFailure();
+        }
+    }
+}
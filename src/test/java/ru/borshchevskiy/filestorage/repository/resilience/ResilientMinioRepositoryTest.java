@@ -0,0 +1,121 @@
+package ru.borshchevskiy.filestorage.repository.resilience;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import ru.borshchevskiy.filestorage.config.properties.MinioProperties;
+import ru.borshchevskiy.filestorage.exception.ResourceNotFoundException;
+import ru.borshchevskiy.filestorage.exception.repository.GetObjectException;
+import ru.borshchevskiy.filestorage.exception.repository.PutObjectException;
+import ru.borshchevskiy.filestorage.exception.repository.StorageUnavailableException;
+import ru.borshchevskiy.filestorage.repository.MinioRepository;
+import ru.borshchevskiy.filestorage.repository.ObjectInfo;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ResilientMinioRepositoryTest {
+
+    private static final String PATH = "user-1-files/file.txt";
+
+    @Mock
+    private MinioRepository delegate;
+    private MinioProperties minioProperties;
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    public void createProperties() {
+        minioProperties = new MinioProperties();
+        MinioProperties.Resilience resilience = minioProperties.getResilience();
+        resilience.setMaxAttempts(3);
+        resilience.setInitialBackoff(Duration.ofMillis(1));
+        resilience.setMaxBackoff(Duration.ofMillis(2));
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    @Test
+    @DisplayName("Test idempotent request with transient failures - request is retried until it succeeds")
+    public void retriesTransientFailures() {
+        ObjectInfo objectInfo = new ObjectInfo();
+        doThrow(transientFailure(), transientFailure()).doReturn(objectInfo).when(delegate).statFile(PATH);
+
+        ObjectInfo result = createRepository().statFile(PATH);
+
+        assertThat(result).isSameAs(objectInfo);
+        verify(delegate, times(3)).statFile(PATH);
+        assertThat(meterRegistry.counter("storage.retries", "operation", "stat").count()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("Test request failing on every attempt - last failure is thrown after max attempts")
+    public void stopsAfterMaxAttempts() {
+        doThrow(transientFailure()).when(delegate).statFile(PATH);
+
+        assertThatThrownBy(() -> createRepository().statFile(PATH)).isInstanceOf(GetObjectException.class);
+        verify(delegate, times(3)).statFile(PATH);
+    }
+
+    @Test
+    @DisplayName("Test non-transient failure and upload failure - requests are not retried")
+    public void doesNotRetry() {
+        doThrow(ResourceNotFoundException.class).when(delegate).statFile(PATH);
+        doThrow(new PutObjectException("Upload failed.", new IOException("Connection reset")))
+                .when(delegate).putFile(any(), any());
+        ResilientMinioRepository repository = createRepository();
+
+        assertThatThrownBy(() -> repository.statFile(PATH)).isInstanceOf(ResourceNotFoundException.class);
+        assertThatThrownBy(() -> repository.putFile(new ByteArrayInputStream(new byte[1]), PATH))
+                .isInstanceOf(PutObjectException.class);
+        verify(delegate).statFile(PATH);
+        verify(delegate).putFile(any(), any());
+    }
+
+    @Test
+    @DisplayName("Test consecutive failures - circuit breaker opens, requests are rejected without calling storage")
+    public void opensCircuit() {
+        minioProperties.getResilience().setFailureThreshold(3);
+        doThrow(transientFailure()).when(delegate).statFile(PATH);
+        ResilientMinioRepository repository = createRepository();
+
+        assertThatThrownBy(() -> repository.statFile(PATH)).isInstanceOf(GetObjectException.class);
+        assertThatThrownBy(() -> repository.statFile(PATH)).isInstanceOf(StorageUnavailableException.class);
+        verify(delegate, times(3)).statFile(PATH);
+        assertThat(meterRegistry.counter("storage.circuit.rejected").count()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Test trial request failing with Error - next trial request is permitted")
+    public void releasesTrialOnError() {
+        minioProperties.getResilience().setMaxAttempts(1);
+        minioProperties.getResilience().setFailureThreshold(1);
+        minioProperties.getResilience().setOpenDuration(Duration.ZERO);
+        ObjectInfo objectInfo = new ObjectInfo();
+        doThrow(transientFailure()).doThrow(new StackOverflowError()).doReturn(objectInfo)
+                .when(delegate).statFile(PATH);
+        ResilientMinioRepository repository = createRepository();
+
+        assertThatThrownBy(() -> repository.statFile(PATH)).isInstanceOf(GetObjectException.class);
+        assertThatThrownBy(() -> repository.statFile(PATH)).isInstanceOf(StackOverflowError.class);
+
+        assertThat(repository.statFile(PATH)).isSameAs(objectInfo);
+    }
+
+    private ResilientMinioRepository createRepository() {
+        return new ResilientMinioRepository(delegate, minioProperties, meterRegistry);
+    }
+
+    private GetObjectException transientFailure() {
+        return new GetObjectException("Error while getting file.", new IOException("Connection reset"));
+    }
+}
@@ -0,0 +1,195 @@
+package ru.borshchevskiy.filestorage.repository.upload;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.minio.CreateMultipartUploadResponse;
+import io.minio.ObjectWriteResponse;
+import io.minio.UploadPartResponse;
+import io.minio.Xml;
+import io.minio.messages.InitiateMultipartUploadResult;
+import io.minio.messages.Part;
+import okhttp3.Headers;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.util.unit.DataSize;
+import ru.borshchevskiy.filestorage.config.properties.MinioProperties;
+import ru.borshchevskiy.filestorage.exception.repository.PutObjectException;
+import ru.borshchevskiy.filestorage.repository.client.MultipartMinioClient;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ParallelUploadEngineTest {
+
+    private static final int PART_SIZE = 5 * 1024 * 1024;
+    private static final String BUCKET = "user-files";
+    private static final String OBJECT = "user-1-files/file.bin";
+    private static final String UPLOAD_ID = "upload-id";
+
+    @Mock
+    private MultipartMinioClient minioClient;
+    private ParallelUploadEngine parallelUploadEngine;
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final Map<Integer, byte[]> uploadedParts = new ConcurrentHashMap<>();
+
+    @BeforeEach
+    public void createEngine() {
+        MinioProperties minioProperties = new MinioProperties();
+        minioProperties.setBucket(BUCKET);
+        minioProperties.getUpload().setPartSize(PART_SIZE);
+        minioProperties.getUpload().setParallelism(2);
+        minioProperties.getUpload().setBufferBudget(DataSize.ofBytes(PART_SIZE * 3L));
+        parallelUploadEngine = new ParallelUploadEngine(minioClient, minioProperties,
+                new PartBufferPool(minioProperties, meterRegistry), meterRegistry);
+    }
+
+    @Test
+    @DisplayName("Test upload of multipart object - parts completing out of order are completed by their numbers, "
+            + "buffers are returned to the pool")
+    public void uploadMultipart() throws Exception {
+        final byte[] content = content(PART_SIZE * 2 + 100);
+        mockCreateMultipartUpload();
+        doAnswer(invocation -> {
+            int partNumber = invocation.getArgument(6);
+            uploadedParts.put(partNumber, Arrays.copyOf(invocation.<byte[]>getArgument(3),
+                    (int) invocation.<Long>getArgument(4).longValue()));
+            // Earlier parts complete later.
+            return CompletableFuture.supplyAsync(() -> partResponse(partNumber),
+                    CompletableFuture.delayedExecutor(100L * (4 - partNumber), TimeUnit.MILLISECONDS));
+        }).when(minioClient).uploadPartAsync(eq(BUCKET), isNull(), eq(OBJECT), any(), anyLong(), eq(UPLOAD_ID),
+                anyInt(), isNull(), isNull());
+        doReturn(CompletableFuture.completedFuture(new ObjectWriteResponse(Headers.of(), BUCKET, null, OBJECT,
+                "etag", null)))
+                .when(minioClient).completeMultipartUploadAsync(eq(BUCKET), isNull(), eq(OBJECT), eq(UPLOAD_ID),
+                        any(), isNull(), isNull());
+
+        long size = parallelUploadEngine.upload(new ByteArrayInputStream(content), OBJECT);
+
+        ArgumentCaptor<Part[]> parts = ArgumentCaptor.forClass(Part[].class);
+        verify(minioClient).completeMultipartUploadAsync(eq(BUCKET), isNull(), eq(OBJECT), eq(UPLOAD_ID),
+                parts.capture(), isNull(), isNull());
+        assertThat(parts.getValue()).extracting(Part::partNumber).containsExactly(1, 2, 3);
+        assertThat(parts.getValue()).extracting(Part::etag).containsExactly("etag-1", "etag-2", "etag-3");
+        ByteArrayOutputStream uploaded = new ByteArrayOutputStream();
+        for (int partNumber = 1; partNumber <= 3; partNumber++) {
+            uploaded.write(uploadedParts.get(partNumber));
+        }
+        assertThat(uploaded.toByteArray()).isEqualTo(content);
+        assertThat(size).isEqualTo(content.length);
+        assertThat(buffersInUse()).isZero();
+    }
+
+    @Test
+    @DisplayName("Test upload with failed part - multipart upload is aborted, buffers are returned to the pool")
+    public void uploadWithFailedPart() throws Exception {
+        mockCreateMultipartUpload();
+        doAnswer(invocation -> {
+            int partNumber = invocation.getArgument(6);
+            return partNumber == 2
+                    ? CompletableFuture.failedFuture(new IOException("Connection reset"))
+                    : CompletableFuture.completedFuture(partResponse(partNumber));
+        }).when(minioClient).uploadPartAsync(eq(BUCKET), isNull(), eq(OBJECT), any(), anyLong(), eq(UPLOAD_ID),
+                anyInt(), isNull(), isNull());
+        doReturn(CompletableFuture.completedFuture(null)).when(minioClient)
+                .abortMultipartUploadAsync(BUCKET, null, OBJECT, UPLOAD_ID, null, null);
+
+        assertThatThrownBy(() -> parallelUploadEngine.upload(new ByteArrayInputStream(content(PART_SIZE * 4)),
+                OBJECT))
+                .isInstanceOf(PutObjectException.class)
+                .hasCauseInstanceOf(IOException.class);
+        verify(minioClient).abortMultipartUploadAsync(BUCKET, null, OBJECT, UPLOAD_ID, null, null);
+        verify(minioClient, never()).completeMultipartUploadAsync(any(), any(), any(), any(), any(), any(), any());
+        assertThat(buffersInUse()).isZero();
+    }
+
+    @Test
+    @DisplayName("Test upload with failed stream - multipart upload is aborted, buffers are returned to the pool")
+    public void uploadWithFailedStream() throws Exception {
+        mockCreateMultipartUpload();
+        doAnswer(invocation -> CompletableFuture.completedFuture(partResponse(invocation.getArgument(6))))
+                .when(minioClient).uploadPartAsync(eq(BUCKET), isNull(), eq(OBJECT), any(), anyLong(),
+                        eq(UPLOAD_ID), anyInt(), isNull(), isNull());
+        doReturn(CompletableFuture.completedFuture(null)).when(minioClient)
+                .abortMultipartUploadAsync(BUCKET, null, OBJECT, UPLOAD_ID, null, null);
+        InputStream failingStream = new InputStream() {
+            @Override
+            public int read() throws IOException {
+                throw new IOException("Client disconnected");
+            }
+        };
+
+        assertThatThrownBy(() -> parallelUploadEngine.upload(
+                new SequenceInputStream(new ByteArrayInputStream(content(PART_SIZE)), failingStream), OBJECT))
+                .isInstanceOf(PutObjectException.class);
+        verify(minioClient).abortMultipartUploadAsync(BUCKET, null, OBJECT, UPLOAD_ID, null, null);
+        assertThat(buffersInUse()).isZero();
+    }
+
+    @Test
+    @DisplayName("Test upload with failed creation of multipart upload or single request - "
+            + "buffers are returned to the pool")
+    public void uploadWithFailedRequests() throws Exception {
+        doReturn(CompletableFuture.failedFuture(new IOException("Storage unavailable"))).when(minioClient)
+                .createMultipartUploadAsync(eq(BUCKET), isNull(), eq(OBJECT), any(), isNull());
+        doReturn(CompletableFuture.failedFuture(new IOException("Storage unavailable"))).when(minioClient)
+                .putObjectAsync(eq(BUCKET), isNull(), eq(OBJECT), any(), anyLong(), any(), isNull());
+
+        assertThatThrownBy(() -> parallelUploadEngine.upload(new ByteArrayInputStream(content(PART_SIZE * 2)),
+                OBJECT))
+                .isInstanceOf(PutObjectException.class);
+        assertThatThrownBy(() -> parallelUploadEngine.upload(new ByteArrayInputStream(content(PART_SIZE / 2)),
+                OBJECT))
+                .isInstanceOf(PutObjectException.class);
+        verify(minioClient, never()).abortMultipartUploadAsync(any(), any(), any(), any(), any(), any());
+        assertThat(buffersInUse()).isZero();
+    }
+
+    private void mockCreateMultipartUpload() throws Exception {
+        InitiateMultipartUploadResult result = Xml.unmarshal(InitiateMultipartUploadResult.class,
+                "<InitiateMultipartUploadResult><Bucket>" + BUCKET + "</Bucket><Key>" + OBJECT + "</Key>"
+                        + "<UploadId>" + UPLOAD_ID + "</UploadId></InitiateMultipartUploadResult>");
+        doReturn(CompletableFuture.completedFuture(new CreateMultipartUploadResponse(Headers.of(), BUCKET, null,
+                OBJECT, result)))
+                .when(minioClient).createMultipartUploadAsync(eq(BUCKET), isNull(), eq(OBJECT), any(), isNull());
+    }
+
+    private UploadPartResponse partResponse(int partNumber) {
+        return new UploadPartResponse(Headers.of(), BUCKET, null, OBJECT, UPLOAD_ID, partNumber,
+                "etag-" + partNumber);
+    }
+
+    private double buffersInUse() {
+        return meterRegistry.get("storage.upload.buffers.used").gauge().value();
+    }
+
+    private static byte[] content(int size) {
+        byte[] content = new byte[size];
+        for (int i = 0; i < size; i++) {
+            content[i] = (byte) (i % 251);
+        }
+        return content;
+    }
+}
@@ -0,0 +1,103 @@
+package ru.borshchevskiy.filestorage.repository.upload;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.unit.DataSize;
+import ru.borshchevskiy.filestorage.config.properties.MinioProperties;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class PartBufferPoolTest {
+
+    private static final int PART_SIZE = 5 * 1024 * 1024;
+
+    private PartBufferPool partBufferPool;
+
+    @BeforeEach
+    public void createPool() {
+        MinioProperties minioProperties = new MinioProperties();
+        minioProperties.getUpload().setPartSize(PART_SIZE);
+        minioProperties.getUpload().setBufferBudget(DataSize.ofBytes(PART_SIZE * 2L + 1));
+        partBufferPool = new PartBufferPool(minioProperties, new SimpleMeterRegistry());
+    }
+
+    @Test
+    @DisplayName("Test acquire - buffers have part size, released buffer is reused")
+    public void acquireReleased() throws InterruptedException {
+        byte[] buffer = partBufferPool.acquire();
+        partBufferPool.release(buffer);
+
+        assertThat(buffer).hasSize(PART_SIZE);
+        assertThat(partBufferPool.acquire()).isSameAs(buffer);
+    }
+
+    @Test
+    @DisplayName("Test acquire with exhausted budget - waits until any buffer is released")
+    public void acquireExhausted() throws Exception {
+        byte[] first = partBufferPool.acquire();
+        partBufferPool.acquire();
+
+        CompletableFuture<byte[]> third = CompletableFuture.supplyAsync(() -> {
+            try {
+                return partBufferPool.acquire();
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+
+        assertThatThrownBy(() -> third.get(200, TimeUnit.MILLISECONDS)).isInstanceOf(TimeoutException.class);
+        partBufferPool.release(first);
+        assertThat(third.get(5, TimeUnit.SECONDS)).isSameAs(first);
+    }
+
+    @Test
+    @DisplayName("Test acquire of other size - buffer counts towards the budget, is not reused, "
+            + "buffer larger than the budget reduced by one part is rejected")
+    public void acquireOtherSize() throws Exception {
+        byte[] part = partBufferPool.acquire();
+        byte[] chunk = partBufferPool.acquire(PART_SIZE / 2);
+
+        CompletableFuture<byte[]> next = CompletableFuture.supplyAsync(() -> {
+            try {
+                return partBufferPool.acquire();
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+
+        assertThat(chunk).hasSize(PART_SIZE / 2);
+        assertThatThrownBy(() -> next.get(200, TimeUnit.MILLISECONDS)).isInstanceOf(TimeoutException.class);
+        partBufferPool.release(chunk);
+        assertThat(next.get(5, TimeUnit.SECONDS)).hasSize(PART_SIZE).isNotSameAs(part);
+        assertThatThrownBy(() -> partBufferPool.acquire(PART_SIZE + 1))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    @DisplayName("Test acquire of other size with exhausted share of the budget - waits, "
+            + "while the last part of the budget is left to part buffers")
+    public void acquireOtherSizeExhausted() throws Exception {
+        byte[] first = partBufferPool.acquire(PART_SIZE / 2);
+        partBufferPool.acquire(PART_SIZE / 2);
+
+        CompletableFuture<byte[]> third = CompletableFuture.supplyAsync(() -> {
+            try {
+                return partBufferPool.acquire(PART_SIZE / 2);
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+
+        assertThat(partBufferPool.acquire()).hasSize(PART_SIZE);
+        assertThatThrownBy(() -> third.get(200, TimeUnit.MILLISECONDS)).isInstanceOf(TimeoutException.class);
+        partBufferPool.release(first);
+        assertThat(third.get(5, TimeUnit.SECONDS)).hasSize(PART_SIZE / 2).isNotSameAs(first);
+    }
+}
@@ -0,0 +1,156 @@
+package ru.borshchevskiy.filestorage.service.archive;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.util.unit.DataSize;
+import ru.borshchevskiy.filestorage.config.properties.ArchiveProperties;
+import ru.borshchevskiy.filestorage.config.properties.BulkOperationProperties;
+import ru.borshchevskiy.filestorage.config.properties.MinioProperties;
+import ru.borshchevskiy.filestorage.config.properties.UploadProperties;
+import ru.borshchevskiy.filestorage.exception.ResourceNotFoundException;
+import ru.borshchevskiy.filestorage.repository.MinioRepository;
+import ru.borshchevskiy.filestorage.repository.ObjectInfo;
+import ru.borshchevskiy.filestorage.repository.upload.PartBufferPool;
+import ru.borshchevskiy.filestorage.service.quota.QuotaService;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ArchiveExtractorTest {
+
+    private static final String TARGET_PATH = "user-1-files/target/";
+    private static final String STAGING_PREFIX = "uploads/";
+
+    @Mock
+    private MinioRepository minioRepository;
+    @Mock
+    private QuotaService quotaService;
+    private ArchiveExtractor archiveExtractor;
+    private final Map<String, String> savedFiles = new ConcurrentHashMap<>();
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @BeforeEach
+    public void createExtractor() {
+        ArchiveProperties archiveProperties = new ArchiveProperties();
+        archiveProperties.setExtractBufferSize(DataSize.ofBytes(8));
+        archiveExtractor = new ArchiveExtractor(minioRepository, quotaService, Runnable::run, archiveProperties,
+                new BulkOperationProperties(), new UploadProperties(),
+                new PartBufferPool(new MinioProperties(), meterRegistry));
+        lenient().doAnswer(invocation -> savedFiles.put(invocation.getArgument(1),
+                        new String(invocation.getArgument(0, InputStream.class).readAllBytes(),
+                                StandardCharsets.UTF_8)))
+                .when(minioRepository).putFile(any(), anyString());
+        lenient().doAnswer(invocation -> savedFiles.put(invocation.getArgument(1),
+                        savedFiles.get(invocation.getArgument(0, String.class))))
+                .when(minioRepository).copyFile(anyString(), anyString());
+        lenient().doAnswer(invocation -> savedFiles.remove(invocation.getArgument(0, String.class)))
+                .when(minioRepository).deleteFile(anyString());
+        lenient().doThrow(new ResourceNotFoundException("Not found"))
+                .when(minioRepository).statFile(anyString());
+    }
+
+    @Test
+    @DisplayName("Test extract - small and large files are saved, their directories are created once, " +
+            "entries with unsafe names are skipped")
+    public void extract() throws IOException {
+        doReturn(true).when(quotaService).tryReserve(eq(1L), anyLong());
+        Map<String, String> entries = new LinkedHashMap<>();
+        entries.put("project/src/large.txt", "large file contents");
+        entries.put("project/src/small.txt", "small");
+        entries.put("../evil.txt", "evil");
+        entries.put("project/empty/", "");
+        byte[] archive = zip(entries);
+
+        ExtractionResult result = archiveExtractor.extract(new ByteArrayInputStream(archive), ArchiveFormat.ZIP,
+                TARGET_PATH, 1L);
+
+        assertThat(savedFiles).containsOnly(
+                Map.entry(TARGET_PATH + "project/src/small.txt", "small"),
+                Map.entry(TARGET_PATH + "project/src/large.txt", "large file contents"));
+        verify(minioRepository).createDirectory(TARGET_PATH + "project/");
+        verify(minioRepository).createDirectory(TARGET_PATH + "project/src/");
+        verify(minioRepository).createDirectory(TARGET_PATH + "project/empty/");
+        verifyNoMoreInteractions(ignoreStubs(minioRepository));
+        assertThat(result.getTotal()).isEqualTo(3);
+        assertThat(result.getExtracted()).isEqualTo(2);
+        assertThat(result.getFailed()).isEqualTo(1);
+        assertThat(result.getExtractedBytes()).isEqualTo(5 + 19);
+        assertThat(result.getDirectories()).isEqualTo(3);
+        assertThat(meterRegistry.get("storage.upload.buffers.used").gauge().value()).isZero();
+        assertThat(result.getEntries())
+                .filteredOn(entry -> !entry.successful())
+                .singleElement()
+                .satisfies(entry -> assertThat(entry.name()).isEqualTo("../evil.txt"));
+    }
+
+    @Test
+    @DisplayName("Test extract - streamed file replacing existing one over quota is skipped, "
+            + "existing file is kept, staging object is deleted")
+    public void extractKeepsReplacedFileOverQuota() throws IOException {
+        final String existingPath = TARGET_PATH + "project/large.txt";
+        final ObjectInfo existing = new ObjectInfo();
+        existing.setSize(8);
+        savedFiles.put(existingPath, "existing");
+        doReturn(existing).when(minioRepository).statFile(existingPath);
+        doReturn(false).when(quotaService).tryReserve(1L, 19 - 8);
+
+        ExtractionResult result = archiveExtractor.extract(
+                new ByteArrayInputStream(zip(Map.of("project/large.txt", "large file contents"))),
+                ArchiveFormat.ZIP, TARGET_PATH, 1L);
+
+        assertThat(savedFiles).containsOnly(Map.entry(existingPath, "existing"));
+        verify(minioRepository).putFile(any(), startsWith(STAGING_PREFIX));
+        verify(minioRepository).deleteFile(startsWith(STAGING_PREFIX));
+        verify(minioRepository, never()).copyFile(anyString(), anyString());
+        verify(minioRepository, never()).deleteFile(existingPath);
+        verify(quotaService, never()).addUsedSpace(anyLong(), anyLong());
+        assertThat(result.getFailed()).isEqualTo(1);
+        assertThat(result.getEntries()).singleElement()
+                .satisfies(entry -> assertThat(entry.error()).isEqualTo("Quota exceeded."));
+        assertThat(meterRegistry.get("storage.upload.buffers.used").gauge().value()).isZero();
+    }
+
+    @Test
+    @DisplayName("Test normalize - separators are unified, unsafe names are rejected")
+    public void normalize() {
+        assertThat(ArchiveExtractor.normalize("dir\\./sub//file.txt", false)).isEqualTo("dir/sub/file.txt");
+        assertThat(ArchiveExtractor.normalize("dir/sub", true)).isEqualTo("dir/sub/");
+        assertThat(ArchiveExtractor.normalize("/etc/passwd", false)).isNull();
+        assertThat(ArchiveExtractor.normalize("C:\\file.txt", false)).isNull();
+        assertThat(ArchiveExtractor.normalize("dir/../../file.txt", false)).isNull();
+    }
+
+    private byte[] zip(Map<String, String> entries) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ZipOutputStream zip = new ZipOutputStream(bytes)) {
+            for (Map.Entry<String, String> entry : entries.entrySet()) {
+                zip.putNextEntry(new ZipEntry(entry.getKey()));
+                zip.write(entry.getValue().getBytes(StandardCharsets.UTF_8));
+                zip.closeEntry();
+            }
+        }
+        return bytes.toByteArray();
+    }
+}
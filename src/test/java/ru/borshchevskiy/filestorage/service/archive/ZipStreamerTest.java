@@ -0,0 +1,94 @@
+package ru.borshchevskiy.filestorage.service.archive;
+
+import io.minio.messages.Item;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.util.unit.DataSize;
+import ru.borshchevskiy.filestorage.config.properties.ArchiveProperties;
+import ru.borshchevskiy.filestorage.repository.MinioRepository;
+import ru.borshchevskiy.filestorage.repository.ObjectInfo;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ZipStreamerTest {
+
+    private static final String BASE_PATH = "user-1-files/dir/";
+
+    @Mock
+    private MinioRepository minioRepository;
+    private final ArchiveProperties archiveProperties = new ArchiveProperties();
+    private ZipStreamer zipStreamer;
+
+    @BeforeEach
+    public void createStreamer() {
+        archiveProperties.setPrefetchCount(2);
+        archiveProperties.setPrefetchMaxSize(DataSize.ofBytes(10));
+        zipStreamer = new ZipStreamer(minioRepository, Runnable::run, archiveProperties);
+    }
+
+    @Test
+    @DisplayName("Test write - directories and files are archived in listing order, " +
+            "compressed files are stored, large files are streamed")
+    public void write() throws IOException {
+        Item directory = item(BASE_PATH + "sub/", 0);
+        Item small = item(BASE_PATH + "sub/small.txt", 5);
+        Item large = item(BASE_PATH + "sub/large.txt", 20);
+        doReturn(Stream.of(directory, small, large)).when(minioRepository).getItemsStream(BASE_PATH + "sub/", true);
+        ObjectInfo photo = new ObjectInfo();
+        photo.setSize(5);
+        doReturn(photo).when(minioRepository).statFile(BASE_PATH + "photo.jpg");
+        stubContent(BASE_PATH + "sub/small.txt", "small");
+        stubContent(BASE_PATH + "sub/large.txt", "large file contents..");
+        stubContent(BASE_PATH + "photo.jpg", "photo");
+
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        zipStreamer.write(BASE_PATH, List.of(BASE_PATH + "sub/", BASE_PATH + "photo.jpg"), true, outputStream);
+
+        Map<String, Integer> methods = new LinkedHashMap<>();
+        Map<String, String> contents = new LinkedHashMap<>();
+        try (ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(outputStream.toByteArray()))) {
+            ZipEntry entry;
+            while ((entry = zip.getNextEntry()) != null) {
+                methods.put(entry.getName(), entry.getMethod());
+                contents.put(entry.getName(), new String(zip.readAllBytes(), StandardCharsets.UTF_8));
+            }
+        }
+        assertThat(contents).containsExactly(
+                Map.entry("sub/", ""),
+                Map.entry("sub/small.txt", "small"),
+                Map.entry("sub/large.txt", "large file contents.."),
+                Map.entry("photo.jpg", "photo"));
+        assertThat(methods).containsEntry("sub/small.txt", ZipEntry.DEFLATED)
+                .containsEntry("photo.jpg", ZipEntry.STORED);
+        verify(minioRepository, times(1)).getFile(BASE_PATH + "sub/large.txt");
+    }
+
+    private Item item(String name, long size) {
+        Item item = mock(Item.class);
+        doReturn(name).when(item).objectName();
+        doReturn(size).when(item).size();
+        return item;
+    }
+
+    private void stubContent(String path, String content) {
+        doAnswer(invocation -> new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8)))
+                .when(minioRepository).getFile(path);
+    }
+}
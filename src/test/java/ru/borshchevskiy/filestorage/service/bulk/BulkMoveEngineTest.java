@@ -0,0 +1,82 @@
+package ru.borshchevskiy.filestorage.service.bulk;
+
+import io.minio.messages.Item;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.core.task.SyncTaskExecutor;
+import ru.borshchevskiy.filestorage.config.properties.BulkOperationProperties;
+import ru.borshchevskiy.filestorage.exception.repository.CopyObjectException;
+import ru.borshchevskiy.filestorage.repository.MinioRepository;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class BulkMoveEngineTest {
+
+    private static final String SOURCE = "user-1-files/old/";
+    private static final String TARGET = "user-1-files/new/";
+
+    @Mock
+    private MinioRepository minioRepository;
+    private BulkMoveEngine bulkMoveEngine;
+
+    @BeforeEach
+    public void createEngine() {
+        BulkOperationProperties properties = new BulkOperationProperties();
+        properties.setConcurrency(2);
+        properties.setDeleteBatchSize(2);
+        bulkMoveEngine = new BulkMoveEngine(minioRepository, new SyncTaskExecutor(), properties);
+    }
+
+    @Test
+    @DisplayName("Test move - all objects copied to target prefix and deleted in batches")
+    public void moveAllObjects() {
+        doReturn(items(SOURCE + "a.txt", SOURCE + "sub/b.txt", SOURCE + "c.txt"))
+                .when(minioRepository).getItemsStream(SOURCE, true);
+
+        BulkOperationResult result = bulkMoveEngine.move(SOURCE, TARGET);
+
+        verify(minioRepository).copyFile(SOURCE + "a.txt", TARGET + "a.txt");
+        verify(minioRepository).copyFile(SOURCE + "sub/b.txt", TARGET + "sub/b.txt");
+        verify(minioRepository).copyFile(SOURCE + "c.txt", TARGET + "c.txt");
+        verify(minioRepository).deleteFiles(List.of(SOURCE + "a.txt", SOURCE + "sub/b.txt"));
+        verify(minioRepository).deleteFiles(List.of(SOURCE + "c.txt"));
+        assertThat(result.isSuccessful()).isTrue();
+        assertThat(result.getTotal()).isEqualTo(3);
+        assertThat(result.getCopied()).isEqualTo(3);
+        assertThat(result.getDeleted()).isEqualTo(3);
+    }
+
+    @Test
+    @DisplayName("Test move with failed copy - failed object is reported and not deleted")
+    public void moveWithFailedCopy() {
+        doReturn(items(SOURCE + "a.txt", SOURCE + "b.txt"))
+                .when(minioRepository).getItemsStream(SOURCE, true);
+        doThrow(new CopyObjectException("Copy failed."))
+                .when(minioRepository).copyFile(SOURCE + "a.txt", TARGET + "a.txt");
+
+        BulkOperationResult result = bulkMoveEngine.move(SOURCE, TARGET);
+
+        verify(minioRepository).deleteFiles(List.of(SOURCE + "b.txt"));
+        assertThat(result.isSuccessful()).isFalse();
+        assertThat(result.getFailed()).isEqualTo(1);
+        assertThat(result.getFailedObjects()).containsExactly(SOURCE + "a.txt");
+        assertThat(result.getDeleted()).isEqualTo(1);
+    }
+
+    private Stream<Item> items(String... names) {
+        return Stream.of(names).map(name -> {
+            Item item = mock(Item.class);
+            doReturn(name).when(item).objectName();
+            return item;
+        });
+    }
+}
@@ -0,0 +1,103 @@
+package ru.borshchevskiy.filestorage.service.cache;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.core.task.SyncTaskExecutor;
+import ru.borshchevskiy.filestorage.config.properties.ListingCacheProperties;
+import ru.borshchevskiy.filestorage.dto.file.FileItemDto;
+import ru.borshchevskiy.filestorage.service.event.StorageChangeEvent;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@ExtendWith(MockitoExtension.class)
+class DirectoryListingCacheTest {
+
+    private static final String USER_DIRECTORY = "user-1-files/";
+
+    @Mock
+    private ObjectProvider<RedisListingStore> sharedStore;
+    private ListingCacheProperties properties;
+    private DirectoryListingCache cache;
+
+    @BeforeEach
+    public void createCache() {
+        properties = new ListingCacheProperties();
+        properties.setShared(false);
+        cache = createCache(properties);
+    }
+
+    @Test
+    @DisplayName("Test get twice - listing is loaded once")
+    public void getCached() {
+        AtomicInteger loads = new AtomicInteger();
+
+        load(USER_DIRECTORY + "dir/", loads);
+        load(USER_DIRECTORY + "dir/", loads);
+
+        assertThat(loads).hasValue(1);
+    }
+
+    @Test
+    @DisplayName("Test file created in subdirectories of target directory - listings up to target are invalidated")
+    public void fileCreatedInSubdirectories() {
+        AtomicInteger loads = new AtomicInteger();
+        List<String> paths = List.of("", "dir/", "dir/folder/", "dir/folder/sub/");
+        paths.forEach(path -> load(USER_DIRECTORY + path, loads));
+
+        cache.onStorageChange(new StorageChangeEvent(StorageChangeEvent.Type.FILE_CREATED, 1L, USER_DIRECTORY,
+                USER_DIRECTORY + "dir/folder/sub/a.txt", null, USER_DIRECTORY + "dir/"));
+        loads.set(0);
+        paths.forEach(path -> load(USER_DIRECTORY + path, loads));
+
+        assertThat(loads).hasValue(3);
+    }
+
+    @Test
+    @DisplayName("Test directory moved - listings of old and new trees and their parents are invalidated")
+    public void directoryMoved() {
+        AtomicInteger loads = new AtomicInteger();
+        List<String> paths = List.of("", "a/", "a/old/", "a/old/sub/", "b/", "b/new/", "b/new/sub/", "c/");
+        paths.forEach(path -> load(USER_DIRECTORY + path, loads));
+
+        cache.onStorageChange(new StorageChangeEvent(StorageChangeEvent.Type.DIRECTORY_MOVED, 1L, USER_DIRECTORY,
+                USER_DIRECTORY + "a/old/", USER_DIRECTORY + "b/new/"));
+        loads.set(0);
+        paths.forEach(path -> load(USER_DIRECTORY + path, loads));
+
+        assertThat(loads).hasValue(6);
+    }
+
+    @Test
+    @DisplayName("Test get of stale listing - stale listing is served, fresh listing replaces it")
+    public void refreshStale() {
+        properties.setRefreshAfter(Duration.ZERO);
+        cache = createCache(properties);
+        AtomicInteger loads = new AtomicInteger();
+
+        assertThat(load(USER_DIRECTORY, loads)).singleElement().extracting(FileItemDto::getName).isEqualTo("1");
+        assertThat(load(USER_DIRECTORY, loads)).singleElement().extracting(FileItemDto::getName).isEqualTo("1");
+        assertThat(load(USER_DIRECTORY, loads)).singleElement().extracting(FileItemDto::getName).isEqualTo("2");
+    }
+
+    private DirectoryListingCache createCache(ListingCacheProperties properties) {
+        return new DirectoryListingCache(properties, new SyncTaskExecutor(), sharedStore, new SimpleMeterRegistry());
+    }
+
+    private List<FileItemDto> load(String storagePath, AtomicInteger loads) {
+        return cache.get(USER_DIRECTORY, storagePath, () -> {
+            FileItemDto item = new FileItemDto();
+            item.setName(String.valueOf(loads.incrementAndGet()));
+            return List.of(item);
+        });
+    }
+}
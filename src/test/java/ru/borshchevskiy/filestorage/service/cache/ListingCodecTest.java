@@ -0,0 +1,47 @@
+package ru.borshchevskiy.filestorage.service.cache;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import ru.borshchevskiy.filestorage.dto.file.FileItemDto;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ListingCodecTest {
+
+    @Test
+    @DisplayName("Test encode and decode - fields are restored, missing sizes and counts stay null")
+    public void encodeAndDecode() {
+        FileItemDto directory = item("dir/", "path/dir/", true, null, 3L);
+        FileItemDto file = item("файл.txt", "path/файл.txt", false, 2048L, null);
+
+        List<FileItemDto> decoded = ListingCodec.decode(ListingCodec.encode(List.of(directory, file)));
+
+        assertThat(decoded).hasSize(2);
+        assertThat(decoded.get(0)).isEqualTo(directory);
+        assertThat(decoded.get(1).getName()).isEqualTo("файл.txt");
+        assertThat(decoded.get(1).getSize()).isEqualTo(2048L);
+        assertThat(decoded.get(1).getViewSize()).isNotNull();
+        assertThat(decoded.get(1).getItemCount()).isNull();
+    }
+
+    @Test
+    @DisplayName("Test decode of listing in another format - null is returned")
+    public void decodeOtherFormat() {
+        byte[] encoded = ListingCodec.encode(List.of());
+        encoded[0] = 1;
+
+        assertThat(ListingCodec.decode(encoded)).isNull();
+    }
+
+    private FileItemDto item(String name, String fullName, boolean directory, Long size, Long itemCount) {
+        FileItemDto item = new FileItemDto();
+        item.setName(name);
+        item.setFullName(fullName);
+        item.setDirectory(directory);
+        item.setSize(size);
+        item.setItemCount(itemCount);
+        return item;
+    }
+}
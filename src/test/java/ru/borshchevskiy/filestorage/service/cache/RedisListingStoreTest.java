@@ -0,0 +1,193 @@
+package ru.borshchevskiy.filestorage.service.cache;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.stubbing.Answer;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.connection.DefaultMessage;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.HashOperations;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.data.redis.listener.Topic;
+import ru.borshchevskiy.filestorage.config.properties.ListingCacheProperties;
+import ru.borshchevskiy.filestorage.dto.file.FileItemDto;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * Redis hash is emulated by a map, scripts are emulated according to their descriptions.
+ */
+@ExtendWith(MockitoExtension.class)
+class RedisListingStoreTest {
+
+    private static final String USER_DIRECTORY = "user-1-files/";
+    private static final String KEY = "listing:" + USER_DIRECTORY;
+    private static final String VERSION_FIELD = "#version";
+
+    @Mock
+    private RedisTemplate<String, byte[]> redisTemplate;
+    @Mock
+    private HashOperations<String, Object, Object> hashOperations;
+    @Mock
+    private RedisMessageListenerContainer listenerContainer;
+    private final Map<String, byte[]> hash = new HashMap<>();
+    private final List<String> expirations = new ArrayList<>();
+    private RedisListingStore store;
+
+    @BeforeEach
+    public void createStore() {
+        ListingCacheProperties properties = new ListingCacheProperties();
+        properties.setExpireAfter(Duration.ofMinutes(10));
+        store = new RedisListingStore(redisTemplate, listenerContainer, properties, new SimpleMeterRegistry());
+    }
+
+    @Test
+    @DisplayName("Test get twice - listing is loaded once, saved with TTL and served from Redis")
+    public void getSaved() {
+        emulateHash();
+        AtomicInteger loads = new AtomicInteger();
+
+        List<FileItemDto> loaded = load(USER_DIRECTORY + "dir/", loads, null);
+        List<FileItemDto> cached = load(USER_DIRECTORY + "dir/", loads, null);
+
+        assertThat(loads).hasValue(1);
+        assertThat(cached).isEqualTo(loaded);
+        assertThat(expirations).containsExactly("600000");
+    }
+
+    @Test
+    @DisplayName("Test invalidation while listing is loaded - stale listing is not saved")
+    public void getInvalidatedWhileLoading() {
+        emulateHash();
+        AtomicInteger loads = new AtomicInteger();
+
+        load(USER_DIRECTORY + "dir/", loads,
+                () -> store.invalidate(USER_DIRECTORY, List.of(USER_DIRECTORY + "dir/"), List.of()));
+        load(USER_DIRECTORY + "dir/", loads, null);
+        load(USER_DIRECTORY + "dir/", loads, null);
+
+        assertThat(loads).hasValue(2);
+    }
+
+    @Test
+    @DisplayName("Test invalidate - version is incremented, listings are removed, hash expires, instances notified")
+    public void invalidate() {
+        emulateHash();
+        AtomicInteger loads = new AtomicInteger();
+        List.of("", "a/", "a/b/", "c/").forEach(path -> load(USER_DIRECTORY + path, loads, null));
+        expirations.clear();
+
+        store.invalidate(USER_DIRECTORY, List.of(USER_DIRECTORY), List.of(USER_DIRECTORY + "a/"));
+
+        assertThat(hash).containsOnlyKeys(VERSION_FIELD, USER_DIRECTORY + "c/");
+        assertThat(new String(hash.get(VERSION_FIELD), StandardCharsets.UTF_8)).isEqualTo("1");
+        assertThat(expirations).containsExactly("600000");
+        verify(redisTemplate).convertAndSend(RedisListingStore.CHANNEL,
+                ("user-1-files/\nPuser-1-files/\nTuser-1-files/a/").getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    @DisplayName("Test get with unavailable Redis - listing is loaded from storage")
+    public void getRedisUnavailable() {
+        doReturn(hashOperations).when(redisTemplate).opsForHash();
+        doThrow(new RedisConnectionFailureException("Connection refused")).when(hashOperations).get(any(), any());
+        AtomicInteger loads = new AtomicInteger();
+
+        assertThat(load(USER_DIRECTORY, loads, null)).hasSize(1);
+        assertThat(loads).hasValue(1);
+    }
+
+    @Test
+    @DisplayName("Test subscribe - published invalidation is passed to callback")
+    @SuppressWarnings("unchecked")
+    public void subscribe() {
+        ArgumentCaptor<MessageListener> listener = ArgumentCaptor.forClass(MessageListener.class);
+        BiConsumer<String, List<String>> callback = mock(BiConsumer.class);
+
+        store.subscribe(callback);
+        verify(listenerContainer).addMessageListener(listener.capture(), any(Topic.class));
+        listener.getValue().onMessage(new DefaultMessage(RedisListingStore.CHANNEL.getBytes(StandardCharsets.UTF_8),
+                "user-1-files/\nPuser-1-files/\nTuser-1-files/a/".getBytes(StandardCharsets.UTF_8)), null);
+
+        verify(callback).accept(USER_DIRECTORY, List.of("Puser-1-files/", "Tuser-1-files/a/"));
+        assertThat(RedisListingStore.isTree("Tuser-1-files/a/")).isTrue();
+        assertThat(RedisListingStore.path("Tuser-1-files/a/")).isEqualTo("user-1-files/a/");
+    }
+
+    private List<FileItemDto> load(String storagePath, AtomicInteger loads, Runnable whileLoading) {
+        return store.get(USER_DIRECTORY, storagePath, () -> {
+            if (whileLoading != null) {
+                whileLoading.run();
+            }
+            FileItemDto item = new FileItemDto();
+            item.setName(String.valueOf(loads.incrementAndGet()));
+            item.setFullName(storagePath + item.getName());
+            return List.of(item);
+        });
+    }
+
+    private void emulateHash() {
+        doReturn(hashOperations).when(redisTemplate).opsForHash();
+        doAnswer(invocation -> hash.get((String) invocation.getArgument(1)))
+                .when(hashOperations).get(any(), any());
+        Answer<Long> script = invocation -> {
+            RedisScript<?> redisScript = invocation.getArgument(0);
+            Object[] args = (Object[]) invocation.getRawArguments()[4];
+            if (redisScript.getScriptAsString().contains("HSET")) {
+                return put(args);
+            }
+            return invalidate(args);
+        };
+        lenient().doAnswer(script).when(redisTemplate)
+                .execute(any(RedisScript.class), any(), any(), any(), any(Object[].class));
+    }
+
+    private long put(Object[] args) {
+        String version = hash.containsKey(VERSION_FIELD) ? string(hash.get(VERSION_FIELD)) : "0";
+        if (!version.equals(string(args[0]))) {
+            return 0;
+        }
+        hash.put(string(args[1]), (byte[]) args[2]);
+        expirations.add(string(args[3]));
+        return 1;
+    }
+
+    private long invalidate(Object[] args) {
+        long version = hash.containsKey(VERSION_FIELD) ? Long.parseLong(string(hash.get(VERSION_FIELD))) : 0;
+        hash.put(VERSION_FIELD, String.valueOf(version + 1).getBytes(StandardCharsets.UTF_8));
+        expirations.add(string(args[0]));
+        for (int i = 1; i < args.length; i++) {
+            String field = string(args[i]);
+            String path = RedisListingStore.path(field);
+            if (RedisListingStore.isTree(field)) {
+                hash.keySet().removeIf(key -> key.startsWith(path));
+            } else {
+                hash.remove(path);
+            }
+        }
+        return 1;
+    }
+
+    private String string(Object value) {
+        return new String((byte[]) value, StandardCharsets.UTF_8);
+    }
+}
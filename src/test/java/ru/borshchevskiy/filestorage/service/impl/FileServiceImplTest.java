@@ -8,9 +8,16 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockedStatic;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
 import ru.borshchevskiy.filestorage.dto.file.FileItemDto;
 import ru.borshchevskiy.filestorage.mapper.FileItemMapper;
+import ru.borshchevskiy.filestorage.repository.ItemsPage;
 import ru.borshchevskiy.filestorage.repository.MinioRepository;
+import ru.borshchevskiy.filestorage.repository.ObjectInfo;
+import ru.borshchevskiy.filestorage.service.cache.DirectoryListingCache;
+import ru.borshchevskiy.filestorage.service.event.StorageChangeEvent;
+import ru.borshchevskiy.filestorage.service.index.FileIndexService;
+import ru.borshchevskiy.filestorage.service.quota.QuotaService;
 import ru.borshchevskiy.filestorage.util.FilePathUtil;
 import ru.borshchevskiy.filestorage.web.session.UserSessionData;
 
@@ -19,6 +26,8 @@ import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Set;
+import java.util.function.Supplier;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Mockito.*;
@@ -32,6 +41,14 @@ class FileServiceImplTest {
     private FileItemMapper fileItemMapper;
     @Mock
     private UserSessionData userSessionData;
+    @Mock
+    private DirectoryListingCache directoryListingCache;
+    @Mock
+    private FileIndexService fileIndexService;
+    @Mock
+    private QuotaService quotaService;
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
     @InjectMocks
     private FileServiceImpl fileService;
 
@@ -91,13 +108,15 @@ class FileServiceImplTest {
             mockedFilePathUtil.when(() -> FilePathUtil.addUserDirectoryToPath(userSessionData, path))
                     .thenReturn(fileStoragePath);
         }
-        doReturn(itemList).when(minioRepository).getItemsByPath(fileStoragePath, false);
-        doReturn(itemDto1).when(fileItemMapper).mapToFileItemDto(item1);
-        doReturn(itemDto2).when(fileItemMapper).mapToFileItemDto(item2);
-        doReturn(itemDto3).when(fileItemMapper).mapToFileItemDto(item3);
-        doReturn(itemDto4).when(fileItemMapper).mapToFileItemDto(item4);
-        doReturn(itemDto5).when(fileItemMapper).mapToFileItemDto(item5);
-        doReturn(itemDto6).when(fileItemMapper).mapToFileItemDto(item6);
+        doAnswer(invocation -> invocation.<Supplier<List<FileItemDto>>>getArgument(2).get())
+                .when(directoryListingCache).get(eq(userFolder), eq(fileStoragePath), any());
+        doReturn(itemList.stream()).when(minioRepository).getItemsStream(fileStoragePath, false);
+        doReturn(itemDto1).when(fileItemMapper).mapToFileItemDto(item1, userFolder);
+        doReturn(itemDto2).when(fileItemMapper).mapToFileItemDto(item2, userFolder);
+        doReturn(itemDto3).when(fileItemMapper).mapToFileItemDto(item3, userFolder);
+        doReturn(itemDto4).when(fileItemMapper).mapToFileItemDto(item4, userFolder);
+        doReturn(itemDto5).when(fileItemMapper).mapToFileItemDto(item5, userFolder);
+        doReturn(itemDto6).when(fileItemMapper).mapToFileItemDto(item6, userFolder);
 
         List<FileItemDto> actualList = fileService.getItemsByPath(path);
 
@@ -130,4 +149,63 @@ class FileServiceImplTest {
         assertThat(actualResult).isEqualTo(expectedResult);
     }
 
-}
\ No newline at end of file
+    @Test
+    @DisplayName("Test uploadFile method - used space is changed by difference between new and replaced file sizes")
+    public void uploadFileChangesUsedSpace() {
+        final String fileStoragePath = "user-1-files/testPath/file.txt";
+        final ObjectInfo replaced = new ObjectInfo();
+        replaced.setSize(4);
+
+        doReturn(1L).when(userSessionData).getId();
+        doReturn("user-1-files").when(userSessionData).getUserDirectory();
+        doReturn(replaced).when(minioRepository).statFile(fileStoragePath);
+        doAnswer(invocation -> invocation.getArgument(0, InputStream.class).readAllBytes())
+                .when(minioRepository).putFile(any(), eq(fileStoragePath));
+
+        fileService.uploadFile(new ByteArrayInputStream("file content".getBytes()), "testPath/", "file.txt");
+
+        verify(quotaService).addUsedSpace(1L, 12 - 4);
+    }
+
+    @Test
+    @DisplayName("Test renameFile method - size of the replaced file is subtracted from used space")
+    public void renameFileSubtractsReplacedSize() {
+        final String storagePath = "user-1-files/testPath/";
+        final ObjectInfo replaced = new ObjectInfo();
+        replaced.setSize(4);
+
+        doReturn(1L).when(userSessionData).getId();
+        doReturn("user-1-files").when(userSessionData).getUserDirectory();
+        doReturn(replaced).when(minioRepository).statFile(storagePath + "new.txt");
+
+        fileService.renameFile("testPath/", "old.txt", "new");
+
+        verify(minioRepository).copyFile(storagePath + "old.txt", storagePath + "new.txt");
+        verify(minioRepository).deleteFile(storagePath + "old.txt");
+        verify(quotaService).addUsedSpace(1L, -4);
+    }
+
+    @Test
+    @DisplayName("Test deleteFiles method - names with commas are deleted with one request, "
+            + "sizes are subtracted, emptied directory is recreated")
+    public void deleteFiles() {
+        final String storagePath = "user-1-files/testPath/";
+        final ObjectInfo first = new ObjectInfo();
+        first.setSize(4);
+        final ObjectInfo second = new ObjectInfo();
+        second.setSize(6);
+
+        doReturn(1L).when(userSessionData).getId();
+        doReturn("user-1-files").when(userSessionData).getUserDirectory();
+        doReturn(first).when(minioRepository).statFile(storagePath + "a,b.txt");
+        doReturn(second).when(minioRepository).statFile(storagePath + "c.txt");
+        doReturn(new ItemsPage(List.of(), null)).when(minioRepository).getItemsPage(storagePath, false, null, 1);
+
+        fileService.deleteFiles("testPath/", List.of("a,b.txt", "c.txt"));
+
+        verify(minioRepository).deleteFiles(Set.of(storagePath + "a,b.txt", storagePath + "c.txt"));
+        verify(quotaService).addUsedSpace(1L, -10);
+        verify(minioRepository).createDirectory(storagePath);
+        verify(eventPublisher, times(2)).publishEvent(any(StorageChangeEvent.class));
+    }
+}
@@ -0,0 +1,200 @@
+package ru.borshchevskiy.filestorage.service.index;
+
+import io.minio.messages.Item;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import ru.borshchevskiy.filestorage.config.properties.FileIndexProperties;
+import ru.borshchevskiy.filestorage.entity.FileEntry;
+import ru.borshchevskiy.filestorage.mapper.FileItemMapper;
+import ru.borshchevskiy.filestorage.repository.FileEntryRepository;
+import ru.borshchevskiy.filestorage.repository.MinioRepository;
+import ru.borshchevskiy.filestorage.service.event.StorageChangeEvent;
+import ru.borshchevskiy.filestorage.service.impl.SearchServiceImpl;
+import ru.borshchevskiy.filestorage.service.search.InMemorySearchIndex;
+import ru.borshchevskiy.filestorage.web.session.UserSessionData;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class FileIndexServiceTest {
+
+    private static final Long USER_ID = 1L;
+    private static final String USER_DIRECTORY = "user-1-files";
+
+    @Mock
+    private FileEntryRepository fileEntryRepository;
+    @Mock
+    private MinioRepository minioRepository;
+    @Mock
+    private PlatformTransactionManager transactionManager;
+    private FileIndexService fileIndexService;
+
+    @BeforeEach
+    public void createService() {
+        fileIndexService = new FileIndexService(fileEntryRepository, minioRepository, transactionManager,
+                new FileIndexProperties());
+    }
+
+    @Test
+    @DisplayName("Test reconcile - missing files and their parent directories are added")
+    public void reconcileAddsMissingEntries() {
+        doReturn(List.of()).when(fileEntryRepository).findSubtree(USER_ID, "%");
+        doReturn(Stream.of(item(USER_DIRECTORY + "/dir/sub/file.txt", 10), item(USER_DIRECTORY + "/empty/", 0)))
+                .when(minioRepository).getItemsStream(USER_DIRECTORY + "/", true);
+
+        fileIndexService.reconcile(USER_ID, USER_DIRECTORY);
+
+        ArgumentCaptor<FileEntry> captor = ArgumentCaptor.forClass(FileEntry.class);
+        verify(fileEntryRepository, times(4)).save(captor.capture());
+        assertThat(captor.getAllValues())
+                .extracting(FileEntry::getPath)
+                .containsExactlyInAnyOrder("dir/", "dir/sub/", "dir/sub/file.txt", "empty/");
+        assertThat(captor.getAllValues())
+                .filteredOn(entry -> !entry.isDirectory())
+                .singleElement()
+                .satisfies(entry -> {
+                    assertThat(entry.getSize()).isEqualTo(10);
+                    assertThat(entry.getEtag()).isEqualTo("etag");
+                });
+        assertThat(captor.getAllValues())
+                .filteredOn(FileEntry::isDirectory)
+                .extracting(FileEntry::getPath, FileEntry::getTotalSize, FileEntry::getFileCount)
+                .containsExactlyInAnyOrder(tuple("dir/", 10L, 1L), tuple("dir/sub/", 10L, 1L),
+                        tuple("empty/", 0L, 0L));
+    }
+
+    @Test
+    @DisplayName("Test file deletion - size and count of the file are subtracted from all parent directories")
+    public void fileDeletionUpdatesParentTotals() {
+        FileEntry file = entry("dir/sub/file.txt", false);
+        doReturn(Optional.of(file)).when(fileEntryRepository)
+                .findByUserIdAndParentPathAndName(USER_ID, "dir/sub/", "file.txt");
+
+        fileIndexService.onStorageChange(new StorageChangeEvent(StorageChangeEvent.Type.FILE_DELETED, USER_ID,
+                USER_DIRECTORY, USER_DIRECTORY + "/dir/sub/file.txt", null));
+
+        verify(fileEntryRepository).delete(file);
+        verify(fileEntryRepository).addToDirectoryTotals(USER_ID, List.of("dir/", ""), List.of("dir/sub/", "dir/"),
+                -10, -1);
+    }
+
+    @Test
+    @DisplayName("Test reconcile of directory - entries of deleted objects are removed, other entries are kept")
+    public void reconcileDeletesStaleEntries() {
+        FileEntry directory = entry("dir/", true);
+        FileEntry existing = entry("dir/file.txt", false);
+        FileEntry deleted = entry("dir/deleted.txt", false);
+        doReturn(List.of(existing, deleted)).when(fileEntryRepository).findSubtree(USER_ID, "dir/%");
+        doReturn(Optional.of(directory)).when(fileEntryRepository)
+                .findByUserIdAndParentPathAndName(USER_ID, "", "dir/");
+        doReturn(Stream.of(item(USER_DIRECTORY + "/dir/file.txt", 10)))
+                .when(minioRepository).getItemsStream(USER_DIRECTORY + "/dir/", true);
+        doReturn(Stream.empty()).when(minioRepository).getItemsStream(USER_DIRECTORY + "/new/", true);
+        doReturn(List.of()).when(fileEntryRepository).findSubtree(USER_ID, "new/%");
+
+        fileIndexService.onStorageChange(new StorageChangeEvent(StorageChangeEvent.Type.DIRECTORY_MOVED, USER_ID,
+                USER_DIRECTORY, USER_DIRECTORY + "/dir/", USER_DIRECTORY + "/new/"));
+
+        verify(fileEntryRepository, never()).save(any());
+        verify(fileEntryRepository).deleteAllInBatch(List.of(deleted));
+    }
+
+    @Test
+    @DisplayName("Test search - LIKE wildcards and escape symbol in query are matched literally")
+    public void searchEscapesWildcards() {
+        fileIndexService.search(USER_ID, "50%_a\\b");
+
+        verify(fileEntryRepository).findByNameLike(USER_ID, "%50\\%\\_a\\\\b%");
+        assertThat(fileIndexService.search(USER_ID, "dir/")).isEmpty();
+        verifyNoMoreInteractions(fileEntryRepository);
+    }
+
+    @Test
+    @DisplayName("Test search - index and storage scan find the same files and directories")
+    public void searchMatchesStorageScan() {
+        List<String> objects = List.of("dir1/", "dir1/dir/", "dir1/dir/dir1/", "dir1/file1.txt", "50%_1/",
+                "50%_1/a\\1.txt", "50%_1/50%.txt", "other/", "other/x_y.txt");
+        doReturn(List.of()).when(fileEntryRepository).findSubtree(USER_ID, "%");
+        doAnswer(invocation -> objects.stream().map(name -> item(USER_DIRECTORY + "/" + name, 10)))
+                .when(minioRepository).getItemsStream(startsWith(USER_DIRECTORY), eq(true));
+        fileIndexService.reconcile(USER_ID, USER_DIRECTORY);
+        ArgumentCaptor<FileEntry> captor = ArgumentCaptor.forClass(FileEntry.class);
+        verify(fileEntryRepository, atLeastOnce()).save(captor.capture());
+        List<FileEntry> entries = captor.getAllValues();
+        doAnswer(invocation -> entries.stream()
+                .filter(entry -> like(entry.getName(), invocation.getArgument(1)))
+                .toList())
+                .when(fileEntryRepository).findByNameLike(eq(USER_ID), anyString());
+
+        UserSessionData userSessionData = mock(UserSessionData.class);
+        doReturn(USER_DIRECTORY).when(userSessionData).getUserDirectory();
+        SearchServiceImpl storageSearch = new SearchServiceImpl(minioRepository, new FileItemMapper(userSessionData),
+                userSessionData, fileIndexService, mock(InMemorySearchIndex.class));
+
+        for (String query : List.of("1", "%", "_", "\\", "50%_", "x_y")) {
+            assertThat(fileIndexService.search(USER_ID, query))
+                    .extracting(FileEntry::getPath, FileEntry::isDirectory)
+                    .as("Query " + query)
+                    .containsExactlyInAnyOrderElementsOf(storageSearch.search(query).stream()
+                            .map(item -> tuple(item.getFullName(), item.isDirectory()))
+                            .toList());
+        }
+    }
+
+    private Item item(String name, long size) {
+        Item item = mock(Item.class);
+        doReturn(name).when(item).objectName();
+        lenient().doReturn(size).when(item).size();
+        lenient().doReturn("\"etag\"").when(item).etag();
+        return item;
+    }
+
+    private FileEntry entry(String path, boolean isDirectory) {
+        FileEntry entry = new FileEntry();
+        entry.setUserId(USER_ID);
+        entry.setParentPath(path.substring(0, path.lastIndexOf('/', path.length() - 2) + 1));
+        entry.setName(path.substring(entry.getParentPath().length()));
+        entry.setDirectory(isDirectory);
+        entry.setSize(isDirectory ? 0 : 10);
+        entry.setEtag(isDirectory ? null : "etag");
+        entry.setIndexedAt(Instant.EPOCH);
+        return entry;
+    }
+
+    /**
+     * Method matches value with LIKE pattern escaped with "\" symbol, as the database does.
+     */
+    private boolean like(String value, String pattern) {
+        StringBuilder regex = new StringBuilder();
+        for (int i = 0; i < pattern.length(); i++) {
+            char c = pattern.charAt(i);
+            if (c == '\\') {
+                regex.append(Pattern.quote(String.valueOf(pattern.charAt(++i))));
+            } else if (c == '%') {
+                regex.append(".*");
+            } else if (c == '_') {
+                regex.append('.');
+            } else {
+                regex.append(Pattern.quote(String.valueOf(c)));
+            }
+        }
+        return value.matches(regex.toString());
+    }
+}
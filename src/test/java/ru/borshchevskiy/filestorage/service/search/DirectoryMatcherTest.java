@@ -0,0 +1,34 @@
+package ru.borshchevskiy.filestorage.service.search;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DirectoryMatcherTest {
+
+    @Test
+    @DisplayName("Test find directories - every matching directory of every path is returned once")
+    public void findDirectories() {
+        List<String> paths = List.of("dir1/dir/dir1/", "dir1/dir/", "dir1/dir/dir1/sub/", "other/dir1/");
+
+        assertThat(DirectoryMatcher.findDirectories(paths, "1"))
+                .containsExactly("dir1/", "dir1/dir/dir1/", "other/dir1/");
+    }
+
+    @Test
+    @DisplayName("Test find directories - directories with equal names and different parents are distinguished")
+    public void findDirectoriesWithEqualNames() {
+        List<String> paths = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            paths.add("dir" + i + "/match/");
+        }
+
+        assertThat(DirectoryMatcher.findDirectories(paths, "match"))
+                .hasSize(5000)
+                .doesNotHaveDuplicates();
+    }
+}
@@ -0,0 +1,67 @@
+package ru.borshchevskiy.filestorage.service.search;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class UserSearchIndexTest {
+
+    private UserSearchIndex index;
+
+    @BeforeEach
+    public void createIndex() {
+        index = new UserSearchIndex();
+        index.addFile("docs/report/annual-report.pdf", 100);
+        index.addFile("docs/notes.txt", 10);
+        index.addDirectory("reports/");
+    }
+
+    @Test
+    @DisplayName("Test search - matching directories, including parents of indexed items, precede matching files")
+    public void searchFilesAndDirectories() {
+        assertThat(index.search("report"))
+                .extracting(UserSearchIndex.Match::path)
+                .containsExactly("docs/report/", "reports/", "docs/report/annual-report.pdf");
+        assertThat(index.search("annual"))
+                .singleElement()
+                .satisfies(match -> {
+                    assertThat(match.isDirectory()).isFalse();
+                    assertThat(match.size()).isEqualTo(100);
+                });
+    }
+
+    @Test
+    @DisplayName("Test search with query shorter than trigram - all names are checked")
+    public void searchShortQuery() {
+        assertThat(index.search("no"))
+                .extracting(UserSearchIndex.Match::path)
+                .containsExactly("docs/notes.txt");
+    }
+
+    @Test
+    @DisplayName("Test search after removal - removed items and content of removed directories are not found")
+    public void searchAfterRemoval() {
+        index.remove("reports/");
+        index.removeTree("docs/report/");
+
+        assertThat(index.search("report")).isEmpty();
+        assertThat(index.search("notes")).hasSize(1);
+    }
+
+    @Test
+    @DisplayName("Test search after compaction - live items are still found")
+    public void searchAfterCompaction() {
+        for (int i = 0; i < 2000; i++) {
+            index.addFile("tmp/file-" + i, 1);
+        }
+        long sizeBeforeRemoval = index.getEstimatedBytes();
+        index.removeTree("tmp/");
+
+        assertThat(index.getEstimatedBytes()).isLessThan(sizeBeforeRemoval);
+        assertThat(index.search("file-")).isEmpty();
+        assertThat(index.search("annual")).hasSize(1);
+        assertThat(index.search("report")).hasSize(3);
+    }
+}
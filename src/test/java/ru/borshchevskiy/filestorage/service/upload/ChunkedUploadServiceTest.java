@@ -0,0 +1,197 @@
+package ru.borshchevskiy.filestorage.service.upload;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.minio.messages.Part;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.unit.DataSize;
+import ru.borshchevskiy.filestorage.config.properties.MinioProperties;
+import ru.borshchevskiy.filestorage.config.properties.UploadProperties;
+import ru.borshchevskiy.filestorage.dto.file.UploadSessionDto;
+import ru.borshchevskiy.filestorage.exception.InvalidChunkException;
+import ru.borshchevskiy.filestorage.exception.ResourceNotFoundException;
+import ru.borshchevskiy.filestorage.repository.MinioRepository;
+import ru.borshchevskiy.filestorage.repository.ObjectInfo;
+import ru.borshchevskiy.filestorage.repository.upload.MultipartUploadRepository;
+import ru.borshchevskiy.filestorage.repository.upload.PartBufferPool;
+import ru.borshchevskiy.filestorage.service.event.StorageChangeEvent;
+import ru.borshchevskiy.filestorage.service.quota.QuotaService;
+import ru.borshchevskiy.filestorage.web.session.UserSessionData;
+
+import java.io.ByteArrayInputStream;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ChunkedUploadServiceTest {
+
+    private static final String ID = "session-id";
+    private static final long CHUNK_SIZE = 5 * 1024 * 1024;
+
+    @Mock
+    private UploadSessionStore uploadSessionStore;
+    @Mock
+    private MultipartUploadRepository multipartUploadRepository;
+    @Mock
+    private MinioRepository minioRepository;
+    @Mock
+    private QuotaService quotaService;
+    @Mock
+    private UserSessionData userSessionData;
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+    private ChunkedUploadService chunkedUploadService;
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @BeforeEach
+    public void createService() {
+        UploadProperties uploadProperties = new UploadProperties();
+        uploadProperties.setChunkSize(DataSize.ofBytes(CHUNK_SIZE));
+        chunkedUploadService = new ChunkedUploadService(uploadSessionStore, multipartUploadRepository,
+                minioRepository, quotaService, userSessionData, eventPublisher, uploadProperties,
+                new PartBufferPool(new MinioProperties(), meterRegistry));
+        lenient().doReturn(1L).when(userSessionData).getId();
+    }
+
+    @Test
+    @DisplayName("Test createSession - files of uploaded folders are named by relative paths, "
+            + "names leaving the directory are rejected")
+    public void createSessionWithRelativeName() {
+        ReflectionTestUtils.setField(chunkedUploadService, "maxFileSize", CHUNK_SIZE * 2);
+        doReturn("user-1-files").when(userSessionData).getUserDirectory();
+        doReturn("upload-id").when(multipartUploadRepository).create(startsWith("uploads/"));
+
+        UploadSessionDto session = chunkedUploadService.createSession("dir/", "folder/sub/file.bin", CHUNK_SIZE + 10);
+
+        assertThat(session.getName()).isEqualTo("folder/sub/file.bin");
+        assertThat(session.getChunkCount()).isEqualTo(2);
+        verify(quotaService).reserve(1L, CHUNK_SIZE + 10);
+        assertThatThrownBy(() -> chunkedUploadService.createSession("dir/", "folder/../../file.bin", 10))
+                .isInstanceOf(InvalidChunkException.class);
+        assertThatThrownBy(() -> chunkedUploadService.createSession("dir/", "folder//file.bin", 10))
+                .isInstanceOf(InvalidChunkException.class);
+        verifyNoMoreInteractions(quotaService);
+    }
+
+    @Test
+    @DisplayName("Test uploadChunk - last chunk of wrong size is rejected, chunk of right size is uploaded as part")
+    public void uploadChunk() {
+        doReturn(Optional.of(session())).when(uploadSessionStore).find(ID);
+        doReturn("etag").when(multipartUploadRepository).uploadPart(eq("uploads/" + ID), eq("upload-id"),
+                eq(2), any(), eq(10));
+        doReturn(true).when(uploadSessionStore).putPart(ID, 2, "etag");
+
+        assertThatThrownBy(() -> chunkedUploadService.uploadChunk(ID, 1, new ByteArrayInputStream(new byte[11])))
+                .isInstanceOf(InvalidChunkException.class);
+        assertThatThrownBy(() -> chunkedUploadService.uploadChunk(ID, 2, new ByteArrayInputStream(new byte[10])))
+                .isInstanceOf(InvalidChunkException.class);
+        chunkedUploadService.uploadChunk(ID, 1, new ByteArrayInputStream(new byte[10]));
+
+        verify(multipartUploadRepository, times(1)).uploadPart(anyString(), anyString(), anyInt(), any(), anyInt());
+        verify(uploadSessionStore).putPart(ID, 2, "etag");
+        assertThat(meterRegistry.get("storage.upload.buffers.used").gauge().value()).isZero();
+    }
+
+    @Test
+    @DisplayName("Test uploadChunk of another user's session - session is not found")
+    public void uploadChunkOfAnotherUser() {
+        UploadSession session = session();
+        session.setUserId(2L);
+        doReturn(Optional.of(session)).when(uploadSessionStore).find(ID);
+
+        assertThatThrownBy(() -> chunkedUploadService.uploadChunk(ID, 1, new ByteArrayInputStream(new byte[10])))
+                .isInstanceOf(ResourceNotFoundException.class);
+        verifyNoInteractions(multipartUploadRepository);
+    }
+
+    @Test
+    @DisplayName("Test complete with missing chunks - upload is not completed")
+    public void completeWithMissingChunks() {
+        UploadSession session = session();
+        session.getParts().put(1, "etag-1");
+        doReturn(Optional.of(session)).when(uploadSessionStore).find(ID);
+
+        assertThatThrownBy(() -> chunkedUploadService.complete(ID))
+                .isInstanceOf(InvalidChunkException.class)
+                .hasMessageContaining("[1]");
+        verifyNoInteractions(multipartUploadRepository, minioRepository);
+    }
+
+    @Test
+    @DisplayName("Test complete - parts are assembled in order, file is copied to user's directory, " +
+            "replaced file is subtracted from used space")
+    public void complete() {
+        UploadSession session = session();
+        session.getParts().put(2, "etag-2");
+        session.getParts().put(1, "etag-1");
+        doReturn(Optional.of(session)).when(uploadSessionStore).find(ID);
+        doReturn(true).when(uploadSessionStore).startCompletion(ID);
+        doThrow(ResourceNotFoundException.class).when(minioRepository).statFile("user-1-files/dir/file.bin");
+
+        String path = chunkedUploadService.complete(ID);
+
+        ArgumentCaptor<Part[]> parts = ArgumentCaptor.forClass(Part[].class);
+        verify(multipartUploadRepository).complete(eq("uploads/" + ID), eq("upload-id"), parts.capture());
+        assertThat(parts.getValue()).extracting(Part::partNumber).containsExactly(1, 2);
+        verify(minioRepository).copyFile("uploads/" + ID, "user-1-files/dir/file.bin");
+        verify(minioRepository).deleteFile("uploads/" + ID);
+        verify(quotaService, never()).addUsedSpace(eq(1L), longThat(size -> size != 0));
+        verify(uploadSessionStore).remove(ID);
+        verify(eventPublisher).publishEvent(any(StorageChangeEvent.class));
+        assertThat(path).isEqualTo("dir/");
+    }
+
+    @Test
+    @DisplayName("Test complete of direct upload of wrong size - staging object is deleted, upload is not completed")
+    public void completeDirectUploadOfWrongSize() {
+        UploadSession session = session();
+        session.setDirect(true);
+        session.setAssembled(true);
+        session.setChunkCount(0);
+        session.setUploadId(null);
+        ObjectInfo stagingObject = new ObjectInfo();
+        stagingObject.setSize(CHUNK_SIZE + 11);
+        doReturn(Optional.of(session)).when(uploadSessionStore).find(ID);
+        doReturn(true).when(uploadSessionStore).startCompletion(ID);
+        doReturn(stagingObject).when(minioRepository).statFile("uploads/" + ID);
+
+        assertThatThrownBy(() -> chunkedUploadService.complete(ID))
+                .isInstanceOf(InvalidChunkException.class);
+        verify(minioRepository).deleteFile("uploads/" + ID);
+        verify(minioRepository, never()).copyFile(anyString(), anyString());
+        verify(uploadSessionStore).cancelCompletion(ID);
+        verifyNoInteractions(multipartUploadRepository);
+    }
+
+    private UploadSession session() {
+        UploadSession session = new UploadSession();
+        session.setId(ID);
+        session.setUserId(1L);
+        session.setUserDirectory("user-1-files");
+        session.setPath("dir/");
+        session.setStoragePath("user-1-files/dir/");
+        session.setName("file.bin");
+        session.setSize(CHUNK_SIZE + 10);
+        session.setChunkSize(CHUNK_SIZE);
+        session.setChunkCount(2);
+        session.setStagingPath("uploads/" + ID);
+        session.setUploadId("upload-id");
+        return session;
+    }
+}
@@ -0,0 +1,53 @@
+package ru.borshchevskiy.filestorage.util;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class FutureUtilTest {
+
+    @Test
+    @DisplayName("Test join - result of completed future is returned")
+    public void join() {
+        assertThat(FutureUtil.join(CompletableFuture.completedFuture("result"))).isEqualTo("result");
+    }
+
+    @Test
+    @DisplayName("Test join with failed future - unchecked exceptions are rethrown without wrapper")
+    public void joinFailed() {
+        IllegalStateException exception = new IllegalStateException("failed");
+        CompletableFuture<Object> failedStage = CompletableFuture.supplyAsync(() -> {
+            throw exception;
+        });
+
+        assertThatThrownBy(() -> FutureUtil.join(CompletableFuture.failedFuture(exception))).isSameAs(exception);
+        assertThatThrownBy(() -> FutureUtil.join(failedStage)).isSameAs(exception);
+        assertThatThrownBy(() -> FutureUtil.join(CompletableFuture.failedFuture(new AssertionError())))
+                .isInstanceOf(AssertionError.class);
+    }
+
+    @Test
+    @DisplayName("Test join with checked exception - exception is rethrown in CompletionException")
+    public void joinFailedChecked() {
+        IOException exception = new IOException("failed");
+
+        assertThatThrownBy(() -> FutureUtil.join(CompletableFuture.failedFuture(exception)))
+                .isInstanceOf(CompletionException.class)
+                .hasCause(exception);
+    }
+
+    @Test
+    @DisplayName("Test unwrap - cause of CompletionException is returned, other exceptions are returned as is")
+    public void unwrap() {
+        IOException exception = new IOException("failed");
+
+        assertThat(FutureUtil.unwrap(new CompletionException(exception))).isSameAs(exception);
+        assertThat(FutureUtil.unwrap(exception)).isSameAs(exception);
+    }
+}
@@ -0,0 +1,224 @@
+package ru.borshchevskiy.filestorage.web.download;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.borshchevskiy.filestorage.config.properties.MinioProperties;
+import ru.borshchevskiy.filestorage.repository.ObjectInfo;
+import ru.borshchevskiy.filestorage.service.FileService;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class FileDownloadHandlerTest {
+
+    private static final String PATH = "dir/";
+    private static final String FILE = "file.txt";
+    private static final String CONTENT = "0123456789";
+    private static final String ETAG = "etag";
+
+    @Mock
+    private FileService fileService;
+    @Spy
+    private MinioProperties minioProperties = new MinioProperties();
+    @InjectMocks
+    private FileDownloadHandler fileDownloadHandler;
+
+    private ObjectInfo objectInfo;
+
+    @BeforeEach
+    public void prepareFileInfo() {
+        objectInfo = new ObjectInfo();
+        objectInfo.setSize(CONTENT.length());
+        objectInfo.setEtag(ETAG);
+        doReturn(objectInfo).when(fileService).getFileInfo(PATH, FILE);
+    }
+
+    @Test
+    @DisplayName("Test download without Range header - returns whole file with 200 status")
+    public void downloadWholeFile() throws IOException {
+        doReturn(new ByteArrayInputStream(CONTENT.getBytes())).when(fileService).downloadFile(PATH, FILE);
+
+        ResponseEntity<StreamingResponseBody> response =
+                fileDownloadHandler.download(PATH, FILE, HttpMethod.GET, new HttpHeaders());
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(response.getHeaders().getContentLength()).isEqualTo(CONTENT.length());
+        assertThat(response.getHeaders().getFirst(HttpHeaders.ACCEPT_RANGES)).isEqualTo("bytes");
+        assertThat(response.getHeaders().getETag()).isEqualTo("\"" + ETAG + "\"");
+        assertThat(writeBody(response)).isEqualTo(CONTENT);
+    }
+
+    @Test
+    @DisplayName("Test download with single range - returns only requested bytes with 206 status")
+    public void downloadSingleRange() throws IOException {
+        HttpHeaders requestHeaders = new HttpHeaders();
+        requestHeaders.set(HttpHeaders.RANGE, "bytes=2-5");
+        doReturn(new ByteArrayInputStream("2345".getBytes())).when(fileService).downloadFile(PATH, FILE, null, 2, 4);
+
+        ResponseEntity<StreamingResponseBody> response =
+                fileDownloadHandler.download(PATH, FILE, HttpMethod.GET, requestHeaders);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.PARTIAL_CONTENT);
+        assertThat(response.getHeaders().getFirst(HttpHeaders.CONTENT_RANGE)).isEqualTo("bytes 2-5/10");
+        assertThat(response.getHeaders().getContentLength()).isEqualTo(4);
+        assertThat(writeBody(response)).isEqualTo("2345");
+    }
+
+    @Test
+    @DisplayName("Test download with multiple ranges - returns multipart/byteranges body with 206 status")
+    public void downloadMultipleRanges() throws IOException {
+        HttpHeaders requestHeaders = new HttpHeaders();
+        requestHeaders.set(HttpHeaders.RANGE, "bytes=0-1,-2");
+        doReturn(new ByteArrayInputStream("01".getBytes())).when(fileService).downloadFile(PATH, FILE, null, 0, 2);
+        doReturn(new ByteArrayInputStream("89".getBytes())).when(fileService).downloadFile(PATH, FILE, null, 8, 2);
+
+        ResponseEntity<StreamingResponseBody> response =
+                fileDownloadHandler.download(PATH, FILE, HttpMethod.GET, requestHeaders);
+        String body = writeBody(response);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.PARTIAL_CONTENT);
+        assertThat(response.getHeaders().getFirst(HttpHeaders.CONTENT_TYPE)).startsWith("multipart/byteranges");
+        assertThat(response.getHeaders().getContentLength()).isEqualTo(body.length());
+        assertThat(body).contains("Content-Range: bytes 0-1/10", "Content-Range: bytes 8-9/10");
+    }
+
+    @Test
+    @DisplayName("Test download with unsatisfiable range - returns 416 status")
+    public void downloadUnsatisfiableRange() {
+        HttpHeaders requestHeaders = new HttpHeaders();
+        requestHeaders.set(HttpHeaders.RANGE, "bytes=20-30");
+
+        ResponseEntity<StreamingResponseBody> response =
+                fileDownloadHandler.download(PATH, FILE, HttpMethod.GET, requestHeaders);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE);
+        assertThat(response.getHeaders().getFirst(HttpHeaders.CONTENT_RANGE)).isEqualTo("bytes */10");
+        verify(fileService, never()).downloadFile(anyString(), anyString(), any(), anyLong(), anyLong());
+    }
+
+    @Test
+    @DisplayName("Test download with outdated If-Range - returns whole file with 200 status")
+    public void downloadWithOutdatedIfRange() throws IOException {
+        HttpHeaders requestHeaders = new HttpHeaders();
+        requestHeaders.set(HttpHeaders.RANGE, "bytes=2-5");
+        requestHeaders.set(HttpHeaders.IF_RANGE, "\"outdated\"");
+        doReturn(new ByteArrayInputStream(CONTENT.getBytes())).when(fileService).downloadFile(PATH, FILE);
+
+        ResponseEntity<StreamingResponseBody> response =
+                fileDownloadHandler.download(PATH, FILE, HttpMethod.GET, requestHeaders);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(writeBody(response)).isEqualTo(CONTENT);
+    }
+
+    @Test
+    @DisplayName("Test download of compressed file accepted by client - returns stored bytes with Content-Encoding")
+    public void downloadEncodedFile() throws IOException {
+        objectInfo.setContentEncoding("zstd");
+        HttpHeaders requestHeaders = new HttpHeaders();
+        requestHeaders.set(HttpHeaders.ACCEPT_ENCODING, "gzip, deflate, br, zstd");
+        doReturn(new ByteArrayInputStream("encoded".getBytes())).when(fileService).downloadEncodedFile(PATH, FILE);
+
+        ResponseEntity<StreamingResponseBody> response =
+                fileDownloadHandler.download(PATH, FILE, HttpMethod.GET, requestHeaders);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(response.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING)).isEqualTo("zstd");
+        assertThat(response.getHeaders().getVary()).containsExactly(HttpHeaders.ACCEPT_ENCODING);
+        assertThat(response.getHeaders().getETag()).isEqualTo("\"" + ETAG + "-zstd\"");
+        assertThat(writeBody(response)).isEqualTo("encoded");
+    }
+
+    @Test
+    @DisplayName("Test download of compressed file not accepted by client - returns decompressed file")
+    public void downloadDecodedFile() throws IOException {
+        objectInfo.setContentEncoding("zstd");
+        HttpHeaders requestHeaders = new HttpHeaders();
+        requestHeaders.set(HttpHeaders.ACCEPT_ENCODING, "gzip, zstd;q=0");
+        doReturn(new ByteArrayInputStream(CONTENT.getBytes())).when(fileService).downloadFile(PATH, FILE);
+
+        ResponseEntity<StreamingResponseBody> response =
+                fileDownloadHandler.download(PATH, FILE, HttpMethod.GET, requestHeaders);
+
+        assertThat(response.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING)).isNull();
+        assertThat(response.getHeaders().getContentLength()).isEqualTo(CONTENT.length());
+        assertThat(response.getHeaders().getETag()).isEqualTo("\"" + ETAG + "\"");
+        assertThat(writeBody(response)).isEqualTo(CONTENT);
+    }
+
+    @Test
+    @DisplayName("Test download with matching If-None-Match header - returns 304 status, file is not read")
+    public void downloadNotModified() {
+        HttpHeaders requestHeaders = new HttpHeaders();
+        requestHeaders.set(HttpHeaders.IF_NONE_MATCH, "\"other\", W/\"" + ETAG + "\"");
+
+        ResponseEntity<StreamingResponseBody> response =
+                fileDownloadHandler.download(PATH, FILE, HttpMethod.GET, requestHeaders);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.NOT_MODIFIED);
+        assertThat(response.getHeaders().getETag()).isEqualTo("\"" + ETAG + "\"");
+        assertThat(response.getBody()).isNull();
+        verify(fileService, never()).downloadFile(anyString(), anyString());
+    }
+
+    @Test
+    @DisplayName("Test download of compressed file with validators of either representation - "
+            + "If-None-Match and If-Range match both tags")
+    public void downloadEncodedFileWithValidators() throws IOException {
+        objectInfo.setContentEncoding("zstd");
+        HttpHeaders notModifiedHeaders = new HttpHeaders();
+        notModifiedHeaders.set(HttpHeaders.ACCEPT_ENCODING, "zstd");
+        notModifiedHeaders.set(HttpHeaders.IF_NONE_MATCH, "\"" + ETAG + "\"");
+        HttpHeaders rangeHeaders = new HttpHeaders();
+        rangeHeaders.set(HttpHeaders.RANGE, "bytes=2-5");
+        rangeHeaders.set(HttpHeaders.IF_RANGE, "\"" + ETAG + "-zstd\"");
+        doReturn(new ByteArrayInputStream(CONTENT.substring(2, 6).getBytes()))
+                .when(fileService).downloadFile(PATH, FILE, "zstd", 2, 4);
+
+        ResponseEntity<StreamingResponseBody> notModified =
+                fileDownloadHandler.download(PATH, FILE, HttpMethod.GET, notModifiedHeaders);
+        ResponseEntity<StreamingResponseBody> range =
+                fileDownloadHandler.download(PATH, FILE, HttpMethod.GET, rangeHeaders);
+
+        assertThat(notModified.getStatusCode()).isEqualTo(HttpStatus.NOT_MODIFIED);
+        assertThat(notModified.getHeaders().getETag()).isEqualTo("\"" + ETAG + "-zstd\"");
+        assertThat(range.getStatusCode()).isEqualTo(HttpStatus.PARTIAL_CONTENT);
+        assertThat(range.getHeaders().getETag()).isEqualTo("\"" + ETAG + "\"");
+        assertThat(writeBody(range)).isEqualTo("2345");
+    }
+
+    @Test
+    @DisplayName("Test download with HEAD method - returns headers of the whole file without body")
+    public void downloadHead() {
+        ResponseEntity<StreamingResponseBody> response =
+                fileDownloadHandler.download(PATH, FILE, HttpMethod.HEAD, new HttpHeaders());
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(response.getHeaders().getContentLength()).isEqualTo(CONTENT.length());
+        assertThat(response.getBody()).isNull();
+        verify(fileService, never()).downloadFile(anyString(), anyString());
+    }
+
+    private String writeBody(ResponseEntity<StreamingResponseBody> response) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        response.getBody().writeTo(outputStream);
+        return outputStream.toString(StandardCharsets.US_ASCII);
+    }
+}
@@ -0,0 +1,87 @@
+package ru.borshchevskiy.filestorage.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark comparing scheduling of blocking tasks on platform thread pool of Tomcat default size
+ * with scheduling on virtual threads ({@link ru.borshchevskiy.filestorage.config.VirtualThreadConfiguration}).
+ * <p>
+ * It is not a load test of the application: no HTTP requests are sent and storage is not accessed,
+ * see {@link ru.borshchevskiy.filestorage.integration.load.ThreadingModeLoadIntegrationTest} for it.
+ * Every task simulates a download request reading a file chunk by chunk, each read sleeps for storage latency.
+ * Number of clients submitting tasks concurrently is twice the size of the pool, so in platform
+ * mode tasks wait for free thread. Throughput is reported in requests per second, p99 latency -
+ * by "p0.99" line of sample time mode.
+ * <p>
+ * Requires JDK 21, run with {@link #main(String[])} after building with "jdk21" Maven profile.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Threads(ThreadingModeBenchmark.CLIENTS)
+@Fork(1)
+public class ThreadingModeBenchmark {
+
+    /**
+     * Default maximum number of Tomcat worker threads.
+     */
+    static final int WORKER_THREADS = 200;
+    static final int CLIENTS = WORKER_THREADS * 2;
+    private static final int CHUNKS = 8;
+    private static final int CHUNK_SIZE = 64 * 1024;
+    private static final long STORAGE_LATENCY_MICROS = 2000;
+
+    @Param({"platform", "virtual"})
+    private String mode;
+    private ExecutorService executor;
+
+    @Setup
+    public void createExecutor() {
+        executor = mode.equals("virtual")
+                ? Executors.newVirtualThreadPerTaskExecutor()
+                : Executors.newFixedThreadPool(WORKER_THREADS);
+    }
+
+    @TearDown
+    public void shutdownExecutor() {
+        executor.shutdownNow();
+    }
+
+    @Benchmark
+    public long download() throws ExecutionException, InterruptedException {
+        return executor.submit(ThreadingModeBenchmark::handleRequest).get();
+    }
+
+    /**
+     * Simulates download request: reads chunks of the file from storage and writes them to response.
+     *
+     * @return number of written bytes.
+     */
+    private static long handleRequest() throws InterruptedException {
+        byte[] buffer = new byte[CHUNK_SIZE];
+        long written = 0;
+        for (int i = 0; i < CHUNKS; i++) {
+            TimeUnit.MICROSECONDS.sleep(STORAGE_LATENCY_MICROS);
+            buffer[i] = (byte) i;
+            written += buffer.length;
+        }
+        return written;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(ThreadingModeBenchmark.class.getSimpleName())
+                .build())
+                .run();
+    }
+}
@@ -0,0 +1,253 @@
+package ru.borshchevskiy.filestorage.integration.load;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.borshchevskiy.filestorage.FileStorageApplication;
+import ru.borshchevskiy.filestorage.config.VirtualThreadConfiguration;
+import ru.borshchevskiy.filestorage.dto.user.UserRequestDto;
+import ru.borshchevskiy.filestorage.integration.IntegrationTestBase;
+import ru.borshchevskiy.filestorage.repository.MinioRepository;
+import ru.borshchevskiy.filestorage.service.UserService;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.CookieManager;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Load test comparing download throughput and p99 latency of platform thread mode and virtual thread mode
+ * ({@link VirtualThreadConfiguration}).
+ * <p>
+ * The application is started twice against the same containers, with "app.virtual-threads.enabled" set to false
+ * and to true. In each mode {@link #CLIENTS} clients log in once and download a file of {@link #FILE_SIZE} bytes
+ * {@link #REQUESTS_PER_CLIENT} times over HTTP. Responses are read slowly, like by clients on slow networks,
+ * so request handling threads wait for clients while files are streamed from storage.
+ * Throughput and p99 latency of both modes are logged. Only successful completion of all requests is asserted,
+ * numbers depend on the machine.
+ * <p>
+ * Requires JDK 21 and Docker, so it runs only if "load-test" system property is set:
+ * "mvn -P jdk21 test -Dtest=ThreadingModeLoadIntegrationTest -Dload-test=true".
+ */
+@EnabledIfSystemProperty(named = "load-test", matches = "true")
+public class ThreadingModeLoadIntegrationTest extends IntegrationTestBase {
+
+    private static final Logger log = LoggerFactory.getLogger(ThreadingModeLoadIntegrationTest.class);
+
+    /**
+     * Twice the default maximum number of Tomcat worker threads.
+     */
+    private static final int CLIENTS = 400;
+    private static final int REQUESTS_PER_CLIENT = 5;
+    private static final int FILE_SIZE = 1024 * 1024;
+    private static final int READ_CHUNK_SIZE = 64 * 1024;
+    private static final long READ_DELAY_MILLIS = 5;
+    private static final String FILE_NAME = "load.bin";
+    private static final String USERNAME = "test@test.com";
+    private static final String PASSWORD = "password";
+    private static final Pattern CSRF_INPUT = Pattern.compile("name=\"_csrf\" value=\"([^\"]+)\"");
+
+    @Test
+    @DisplayName("Test concurrent slow downloads in platform and virtual thread modes - all requests succeed, "
+            + "throughput and p99 latency are logged")
+    public void compareThreadingModes() throws Exception {
+        LoadResult platform = runLoad(false);
+        LoadResult virtual = runLoad(true);
+
+        log.info("Platform threads: {}", platform);
+        log.info("Virtual threads: {}", virtual);
+        assertThat(platform.failed()).isZero();
+        assertThat(virtual.failed()).isZero();
+        assertThat(platform.latenciesMillis()).hasSize(CLIENTS * REQUESTS_PER_CLIENT);
+        assertThat(virtual.latenciesMillis()).hasSize(CLIENTS * REQUESTS_PER_CLIENT);
+    }
+
+    /**
+     * Method starts the application in the specified mode and sends downloads requests to it.
+     *
+     * @param virtualThreads value of "app.virtual-threads.enabled" property.
+     * @return {@link LoadResult} of the mode.
+     */
+    private LoadResult runLoad(boolean virtualThreads) throws Exception {
+        Map<String, Object> properties = new HashMap<>();
+        properties((name, value) -> properties.put(name, value.get()));
+        properties.put("server.port", 0);
+        properties.put("app.virtual-threads.enabled", virtualThreads);
+
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(FileStorageApplication.class)
+                .profiles("test")
+                .properties(properties)
+                .run()) {
+            try {
+                createUserFile(context);
+                int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+                return download(URI.create("http://localhost:" + port));
+            } finally {
+                cleanUp(context);
+            }
+        }
+    }
+
+    private void createUserFile(ConfigurableApplicationContext context) {
+        UserRequestDto requestDto = new UserRequestDto();
+        requestDto.setEmail(USERNAME);
+        requestDto.setFirstname("firstname");
+        requestDto.setLastname("lastname");
+        requestDto.setPassword(PASSWORD);
+        requestDto.setPasswordConfirmation(PASSWORD);
+        Long userId = context.getBean(UserService.class).create(requestDto).getId();
+
+        // Random content isn't compressed, so files of both modes are streamed the same way.
+        byte[] content = new byte[FILE_SIZE];
+        new Random(1).nextBytes(content);
+        context.getBean(MinioRepository.class)
+                .putFile(new ByteArrayInputStream(content), "user-" + userId + "-files/" + FILE_NAME);
+    }
+
+    private void cleanUp(ConfigurableApplicationContext context) {
+        JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+        jdbcTemplate.execute("TRUNCATE TABLE file_storage.file_storage.users");
+        jdbcTemplate.execute("TRUNCATE TABLE file_storage.file_storage.roles");
+        jdbcTemplate.execute("ALTER SEQUENCE users_id_seq RESTART");
+        jdbcTemplate.execute("ALTER SEQUENCE roles_user_id_seq RESTART");
+        context.getBean(MinioRepository.class).deleteDirectory("");
+    }
+
+    /**
+     * Method logs in and downloads the file concurrently by {@link #CLIENTS} clients.
+     *
+     * @param baseUri URI of the application.
+     * @return {@link LoadResult} with latencies of successful requests.
+     */
+    private LoadResult download(URI baseUri) throws Exception {
+        HttpClient httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .cookieHandler(new CookieManager())
+                .followRedirects(HttpClient.Redirect.NEVER)
+                .build();
+        login(httpClient, baseUri);
+        HttpRequest request = HttpRequest.newBuilder(baseUri.resolve("/files/download?path=&file=" + FILE_NAME))
+                .GET()
+                .build();
+
+        List<Long> latenciesMillis = Collections.synchronizedList(new ArrayList<>());
+        AtomicInteger failed = new AtomicInteger();
+        long start = System.nanoTime();
+        try (ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < CLIENTS; i++) {
+                clients.submit(() -> {
+                    for (int j = 0; j < REQUESTS_PER_CLIENT; j++) {
+                        long requestStart = System.nanoTime();
+                        if (readSlowly(httpClient, request)) {
+                            latenciesMillis.add(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - requestStart));
+                        } else {
+                            failed.incrementAndGet();
+                        }
+                    }
+                    return null;
+                });
+            }
+        }
+        return new LoadResult(List.copyOf(latenciesMillis), failed.get(),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+
+    private void login(HttpClient httpClient, URI baseUri) throws IOException, InterruptedException {
+        HttpResponse<String> loginPage = httpClient.send(HttpRequest.newBuilder(baseUri.resolve("/login")).build(),
+                HttpResponse.BodyHandlers.ofString());
+        Matcher csrf = CSRF_INPUT.matcher(loginPage.body());
+        assertThat(csrf.find()).isTrue();
+
+        String form = "email=" + URLEncoder.encode(USERNAME, StandardCharsets.UTF_8)
+                + "&password=" + URLEncoder.encode(PASSWORD, StandardCharsets.UTF_8)
+                + "&_csrf=" + URLEncoder.encode(csrf.group(1), StandardCharsets.UTF_8);
+        HttpResponse<Void> response = httpClient.send(HttpRequest.newBuilder(baseUri.resolve("/login"))
+                        .header("Content-Type", "application/x-www-form-urlencoded")
+                        .POST(HttpRequest.BodyPublishers.ofString(form))
+                        .build(),
+                HttpResponse.BodyHandlers.discarding());
+        assertThat(response.statusCode()).isEqualTo(302);
+        assertThat(response.headers().firstValue("Location")).hasValueSatisfying(location ->
+                assertThat(location).endsWith("/"));
+    }
+
+    /**
+     * Method downloads the file reading {@link #READ_CHUNK_SIZE} bytes every {@link #READ_DELAY_MILLIS}.
+     *
+     * @return true if the whole file was received.
+     */
+    private boolean readSlowly(HttpClient httpClient, HttpRequest request) throws InterruptedException {
+        try {
+            HttpResponse<InputStream> response = httpClient.send(request, HttpResponse.BodyHandlers.ofInputStream());
+            try (InputStream body = response.body()) {
+                if (response.statusCode() != 200) {
+                    return false;
+                }
+                long received = 0;
+                byte[] chunk = new byte[READ_CHUNK_SIZE];
+                int read;
+                while ((read = body.readNBytes(chunk, 0, chunk.length)) > 0) {
+                    received += read;
+                    TimeUnit.MILLISECONDS.sleep(READ_DELAY_MILLIS);
+                }
+                return received == FILE_SIZE;
+            }
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Result of the load in one mode.
+     *
+     * @param latenciesMillis latencies of successful requests.
+     * @param failed          number of failed requests.
+     * @param durationMillis  duration of the load.
+     */
+    private record LoadResult(List<Long> latenciesMillis, int failed, long durationMillis) {
+
+        double throughput() {
+            return latenciesMillis.size() * 1000.0 / durationMillis;
+        }
+
+        long p99() {
+            if (latenciesMillis.isEmpty()) {
+                return 0;
+            }
+            List<Long> sorted = latenciesMillis.stream().sorted().toList();
+            return sorted.get((int) Math.ceil(sorted.size() * 0.99) - 1);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%.1f requests/s, p99 %d ms, %d failed of %d requests in %d ms",
+                    throughput(), p99(), failed, latenciesMillis.size() + failed, durationMillis);
+        }
+    }
+}